@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Matthew Hall and others.
+ * Copyright (c) 2008, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.core.databinding.property.list.SimpleListProperty;
  */
 public class BeanListProperty extends SimpleListProperty {
 	private final PropertyDescriptor propertyDescriptor;
+	private final BeanPropertyAccessor accessor;
 	private final Class elementType;
 
 	/**
@@ -41,6 +42,7 @@ public class BeanListProperty extends SimpleListProperty {
 	public BeanListProperty(PropertyDescriptor propertyDescriptor,
 			Class elementType) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.accessor = new BeanPropertyAccessor(propertyDescriptor);
 		this.elementType = elementType == null ? BeanPropertyHelper
 				.getCollectionPropertyElementType(propertyDescriptor)
 				: elementType;
@@ -51,14 +53,13 @@ public class BeanListProperty extends SimpleListProperty {
 	}
 
 	protected List doGetList(Object source) {
-		return asList(BeanPropertyHelper.readProperty(source,
-				propertyDescriptor));
+		return asList(accessor.read(source));
 	}
 
 	private List asList(Object propertyValue) {
 		if (propertyValue == null)
 			return Collections.EMPTY_LIST;
-		if (propertyDescriptor.getPropertyType().isArray())
+		if (accessor.getPropertyType().isArray())
 			return Arrays.asList((Object[]) propertyValue);
 		return (List) propertyValue;
 	}
@@ -68,14 +69,13 @@ public class BeanListProperty extends SimpleListProperty {
 	}
 
 	protected void doSetList(Object source, List list) {
-		BeanPropertyHelper.writeProperty(source, propertyDescriptor,
-				convertListToBeanPropertyType(list));
+		accessor.write(source, convertListToBeanPropertyType(list));
 	}
 
 	private Object convertListToBeanPropertyType(List list) {
 		Object propertyValue = list;
-		if (propertyDescriptor.getPropertyType().isArray()) {
-			Class componentType = propertyDescriptor.getPropertyType()
+		if (accessor.getPropertyType().isArray()) {
+			Class componentType = accessor.getPropertyType()
 					.getComponentType();
 			Object[] array = (Object[]) Array.newInstance(componentType, list
 					.size());
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+
+/**
+ * Reads and writes a bean property through the accessor methods of its
+ * property descriptor, which are looked up once instead of on every access.
+ * <p>
+ * The getters of <code>PropertyDescriptor</code> are synchronized and may
+ * have to look up the methods again by reflection, which is costly for
+ * properties accessed once per row of a large table.
+ * </p>
+ */
+public class BeanPropertyAccessor {
+	private final PropertyDescriptor propertyDescriptor;
+	private final Method readMethod;
+	private final Method writeMethod;
+	private final Class propertyType;
+
+	/**
+	 * @param propertyDescriptor
+	 *            the property to access
+	 */
+	public BeanPropertyAccessor(PropertyDescriptor propertyDescriptor) {
+		this.propertyDescriptor = propertyDescriptor;
+		this.readMethod = propertyDescriptor.getReadMethod();
+		this.writeMethod = propertyDescriptor.getWriteMethod();
+		this.propertyType = propertyDescriptor.getPropertyType();
+	}
+
+	/**
+	 * @return the type of the property
+	 */
+	public Class getPropertyType() {
+		return propertyType;
+	}
+
+	/**
+	 * Returns the contents of the property for the given bean.
+	 *
+	 * @param source
+	 *            the source bean
+	 * @return the contents of the property for the given bean.
+	 * @see BeanPropertyHelper#readProperty(Object, PropertyDescriptor)
+	 */
+	public Object read(Object source) {
+		return BeanPropertyHelper.readProperty(source, propertyDescriptor,
+				readMethod);
+	}
+
+	/**
+	 * Sets the contents of the property on the given bean to the given value.
+	 *
+	 * @param source
+	 *            the source bean
+	 * @param value
+	 *            the new value of the property
+	 * @see BeanPropertyHelper#writeProperty(Object, PropertyDescriptor, Object)
+	 */
+	public void write(Object source, Object value) {
+		BeanPropertyHelper.writeProperty(source, propertyDescriptor,
+				writeMethod, value);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Matthew Hall and others.
+ * Copyright (c) 2008, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,10 +17,15 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.eclipse.core.databinding.beans.BeansObservables;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
@@ -33,6 +38,15 @@ import org.eclipse.core.runtime.Status;
  * 
  */
 public class BeanPropertyHelper {
+	/**
+	 * The property descriptors of the introspected classes, by property name.
+	 * Map&lt;Class, SoftReference&lt;Map&lt;String,
+	 * PropertyDescriptor&gt;&gt;&gt;, guarded by itself. The descriptors are
+	 * softly referenced because their methods refer to the class, which would
+	 * otherwise never be collected.
+	 */
+	private static final Map propertyDescriptors = new WeakHashMap();
+
 	/**
 	 * Sets the contents of the given property on the given source object to the
 	 * given value.
@@ -46,8 +60,27 @@ public class BeanPropertyHelper {
 	 */
 	public static void writeProperty(Object source,
 			PropertyDescriptor propertyDescriptor, Object value) {
+		writeProperty(source, propertyDescriptor, propertyDescriptor
+				.getWriteMethod(), value);
+	}
+
+	/**
+	 * Sets the contents of the given property on the given source object to the
+	 * given value, using the given write method of the property.
+	 * 
+	 * @param source
+	 *            the source object which has the property being updated
+	 * @param propertyDescriptor
+	 *            the property being changed
+	 * @param writeMethod
+	 *            the write method of the property, or <code>null</code>
+	 * @param value
+	 *            the new value of the property
+	 */
+	static void writeProperty(Object source,
+			PropertyDescriptor propertyDescriptor, Method writeMethod,
+			Object value) {
 		try {
-			Method writeMethod = propertyDescriptor.getWriteMethod();
 			if (null == writeMethod) {
 				throw new IllegalArgumentException(
 						"Missing public setter method for " //$NON-NLS-1$
@@ -88,8 +121,25 @@ public class BeanPropertyHelper {
 	 */
 	public static Object readProperty(Object source,
 			PropertyDescriptor propertyDescriptor) {
+		return readProperty(source, propertyDescriptor, propertyDescriptor
+				.getReadMethod());
+	}
+
+	/**
+	 * Returns the contents of the given property for the given bean, using the
+	 * given read method of the property.
+	 * 
+	 * @param source
+	 *            the source bean
+	 * @param propertyDescriptor
+	 *            the property to retrieve
+	 * @param readMethod
+	 *            the read method of the property, or <code>null</code>
+	 * @return the contents of the given property for the given bean.
+	 */
+	static Object readProperty(Object source,
+			PropertyDescriptor propertyDescriptor, Method readMethod) {
 		try {
-			Method readMethod = propertyDescriptor.getReadMethod();
 			if (readMethod == null) {
 				throw new IllegalArgumentException(propertyDescriptor.getName()
 						+ " property does not have a read method."); //$NON-NLS-1$
@@ -143,44 +193,63 @@ public class BeanPropertyHelper {
 	 */
 	public static PropertyDescriptor getPropertyDescriptor(Class beanClass,
 			String propertyName) {
-		if (!beanClass.isInterface()) {
-			BeanInfo beanInfo;
-			try {
-				beanInfo = Introspector.getBeanInfo(beanClass);
-			} catch (IntrospectionException e) {
-				// cannot introspect, give up
-				return null;
-			}
-			PropertyDescriptor[] propertyDescriptors = beanInfo
-					.getPropertyDescriptors();
-			for (int i = 0; i < propertyDescriptors.length; i++) {
-				PropertyDescriptor descriptor = propertyDescriptors[i];
-				if (descriptor.getName().equals(propertyName)) {
-					return descriptor;
-				}
+		Map descriptors = getPropertyDescriptors(beanClass);
+		if (descriptors == null) {
+			// cannot introspect, give up
+			return null;
+		}
+		PropertyDescriptor descriptor = (PropertyDescriptor) descriptors
+				.get(propertyName);
+		if (descriptor != null) {
+			return descriptor;
+		}
+		throw new IllegalArgumentException(
+				"Could not find property with name " + propertyName + " in class " + beanClass); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns the property descriptors of the given bean class by name,
+	 * introspecting the class on the first call only.
+	 * 
+	 * @param beanClass
+	 * @return the property descriptors of the class by name, or
+	 *         <code>null</code> if the class cannot be introspected
+	 */
+	private static Map getPropertyDescriptors(Class beanClass) {
+		synchronized (propertyDescriptors) {
+			Reference reference = (Reference) propertyDescriptors
+					.get(beanClass);
+			Map descriptors = reference == null ? null : (Map) reference.get();
+			if (descriptors != null) {
+				return descriptors;
 			}
-		} else {
-			try {
-				PropertyDescriptor propertyDescriptors[];
+		}
+		PropertyDescriptor[] descriptorArray;
+		try {
+			if (!beanClass.isInterface()) {
+				descriptorArray = Introspector.getBeanInfo(beanClass)
+						.getPropertyDescriptors();
+			} else {
 				List pds = new ArrayList();
 				getInterfacePropertyDescriptors(pds, beanClass);
-				if (pds.size() > 0) {
-					propertyDescriptors = (PropertyDescriptor[]) pds
-							.toArray(new PropertyDescriptor[pds.size()]);
-					PropertyDescriptor descriptor;
-					for (int i = 0; i < propertyDescriptors.length; i++) {
-						descriptor = propertyDescriptors[i];
-						if (descriptor.getName().equals(propertyName))
-							return descriptor;
-					}
-				}
-			} catch (IntrospectionException e) {
-				// cannot introspect, give up
-				return null;
+				descriptorArray = (PropertyDescriptor[]) pds
+						.toArray(new PropertyDescriptor[pds.size()]);
 			}
+		} catch (IntrospectionException e) {
+			return null;
 		}
-		throw new IllegalArgumentException(
-				"Could not find property with name " + propertyName + " in class " + beanClass); //$NON-NLS-1$ //$NON-NLS-2$
+		Map descriptors = new HashMap();
+		for (int i = 0; i < descriptorArray.length; i++) {
+			PropertyDescriptor descriptor = descriptorArray[i];
+			// the first descriptor of a name wins, as in a linear search
+			if (!descriptors.containsKey(descriptor.getName())) {
+				descriptors.put(descriptor.getName(), descriptor);
+			}
+		}
+		synchronized (propertyDescriptors) {
+			propertyDescriptors.put(beanClass, new SoftReference(descriptors));
+		}
+		return descriptors;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Matthew Hall and others.
+ * Copyright (c) 2008, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,7 @@ import org.eclipse.core.databinding.property.set.SimpleSetProperty;
  */
 public class PojoSetProperty extends SimpleSetProperty {
 	private final PropertyDescriptor propertyDescriptor;
+	private final BeanPropertyAccessor accessor;
 	private final Class elementType;
 
 	/**
@@ -39,6 +40,7 @@ public class PojoSetProperty extends SimpleSetProperty {
 	public PojoSetProperty(PropertyDescriptor propertyDescriptor,
 			Class elementType) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.accessor = new BeanPropertyAccessor(propertyDescriptor);
 		this.elementType = elementType == null ? BeanPropertyHelper
 				.getCollectionPropertyElementType(propertyDescriptor)
 				: elementType;
@@ -49,14 +51,13 @@ public class PojoSetProperty extends SimpleSetProperty {
 	}
 
 	protected Set doGetSet(Object source) {
-		return asSet(BeanPropertyHelper
-				.readProperty(source, propertyDescriptor));
+		return asSet(accessor.read(source));
 	}
 
 	private Set asSet(Object propertyValue) {
 		if (propertyValue == null)
 			return Collections.EMPTY_SET;
-		if (propertyDescriptor.getPropertyType().isArray())
+		if (accessor.getPropertyType().isArray())
 			return new HashSet(Arrays.asList((Object[]) propertyValue));
 		return (Set) propertyValue;
 	}
@@ -66,14 +67,13 @@ public class PojoSetProperty extends SimpleSetProperty {
 	}
 
 	protected void doSetSet(Object source, Set set) {
-		BeanPropertyHelper.writeProperty(source, propertyDescriptor,
-				convertSetToBeanPropertyType(set));
+		accessor.write(source, convertSetToBeanPropertyType(set));
 	}
 
 	private Object convertSetToBeanPropertyType(Set set) {
 		Object propertyValue = set;
-		if (propertyDescriptor.getPropertyType().isArray()) {
-			Class componentType = propertyDescriptor.getPropertyType()
+		if (accessor.getPropertyType().isArray()) {
+			Class componentType = accessor.getPropertyType()
 					.getComponentType();
 			Object[] array = (Object[]) Array.newInstance(componentType, set
 					.size());
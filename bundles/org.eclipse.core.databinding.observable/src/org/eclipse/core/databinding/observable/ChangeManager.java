@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,7 +14,6 @@
 package org.eclipse.core.databinding.observable;
 
 import org.eclipse.core.runtime.Assert;
-import org.eclipse.core.runtime.ListenerList;
 
 /**
  * Listener management implementation. Exposed to subclasses in form of
@@ -25,10 +24,25 @@ import org.eclipse.core.runtime.ListenerList;
  */
 /* package */class ChangeManager {
 
-	ListenerList[] listenerLists = null;
-	Object listenerTypes[] = null;
+	/**
+	 * The listener types, each followed by its listeners: either the listener
+	 * itself if there is only one, or an <code>IObservablesListener[]</code>
+	 * that is copied on write. Types without listeners are removed.
+	 * <code>null</code> if there are no listeners.
+	 * <p>
+	 * Most observables have no more than one listener of each type, which are
+	 * stored without any other object than this array.
+	 * </p>
+	 */
+	private Object[] listeners = null;
 	private final Realm realm;
 
+	/**
+	 * The last entry added for this manager to the current batch of the
+	 * realm, or <code>null</code>
+	 */
+	EventBatch.Entry batchEntry;
+
 	/**
 	 * @param realm
 	 * 
@@ -44,28 +58,38 @@ import org.eclipse.core.runtime.ListenerList;
 	 */
 	protected void addListener(Object listenerType,
 			IObservablesListener listener) {
-		int listenerTypeIndex = findListenerTypeIndex(listenerType);
-		if (listenerTypeIndex == -1) {
-			int length;
-			if (listenerTypes == null) {
-				length = 0;
-				listenerTypes = new Object[1];
-				listenerLists = new ListenerList[1];
+		if (listener == null)
+			throw new IllegalArgumentException();
+		boolean hadListeners = hasListeners();
+		int index = findListenerTypeIndex(listenerType);
+		if (index == -1) {
+			if (listeners == null) {
+				listeners = new Object[] { listenerType, listener };
 			} else {
-				length = listenerTypes.length;
-				System.arraycopy(listenerTypes, 0,
-						listenerTypes = new Object[length + 1], 0, length);
-				System
-						.arraycopy(listenerLists, 0,
-								listenerLists = new ListenerList[length + 1],
-								0, length);
+				int length = listeners.length;
+				System.arraycopy(listeners, 0,
+						listeners = new Object[length + 2], 0, length);
+				listeners[length] = listenerType;
+				listeners[length + 1] = listener;
+			}
+		} else {
+			Object value = listeners[index + 1];
+			if (value instanceof IObservablesListener) {
+				if (value.equals(listener))
+					return;
+				listeners[index + 1] = new IObservablesListener[] {
+						(IObservablesListener) value, listener };
+			} else {
+				IObservablesListener[] list = (IObservablesListener[]) value;
+				if (indexOf(list, listener) != -1)
+					return;
+				int length = list.length;
+				System.arraycopy(list, 0,
+						list = new IObservablesListener[length + 1], 0, length);
+				list[length] = listener;
+				listeners[index + 1] = list;
 			}
-			listenerTypes[length] = listenerType;
-			listenerLists[length] = new ListenerList();
-			listenerTypeIndex = length;
 		}
-		boolean hadListeners = hasListeners();
-		listenerLists[listenerTypeIndex].add(listener);
 		if (!hadListeners && hasListeners()) {
 			firstListenerAdded();
 		}
@@ -77,31 +101,58 @@ import org.eclipse.core.runtime.ListenerList;
 	 */
 	protected void removeListener(Object listenerType,
 			IObservablesListener listener) {
-		int listenerTypeIndex = findListenerTypeIndex(listenerType);
-		if (listenerTypeIndex != -1) {
+		if (listener == null)
+			throw new IllegalArgumentException();
+		int index = findListenerTypeIndex(listenerType);
+		if (index == -1)
+			return;
+		Object value = listeners[index + 1];
+		if (value instanceof IObservablesListener) {
+			if (!value.equals(listener))
+				return;
 			boolean hadListeners = hasListeners();
-			listenerLists[listenerTypeIndex].remove(listener);
-			if (listenerLists[listenerTypeIndex].size() == 0) {
-				if (hadListeners && !hasListeners()) {
-					this.lastListenerRemoved();
-				}
+			int length = listeners.length;
+			if (length == 2) {
+				listeners = null;
+			} else {
+				Object[] newListeners = new Object[length - 2];
+				System.arraycopy(listeners, 0, newListeners, 0, index);
+				System.arraycopy(listeners, index + 2, newListeners, index,
+						length - index - 2);
+				listeners = newListeners;
+			}
+			if (hadListeners && !hasListeners()) {
+				this.lastListenerRemoved();
+			}
+		} else {
+			IObservablesListener[] list = (IObservablesListener[]) value;
+			int i = indexOf(list, listener);
+			if (i == -1)
+				return;
+			int length = list.length;
+			if (length == 2) {
+				listeners[index + 1] = list[1 - i];
+			} else {
+				IObservablesListener[] newList = new IObservablesListener[length - 1];
+				System.arraycopy(list, 0, newList, 0, i);
+				System.arraycopy(list, i + 1, newList, i, length - i - 1);
+				listeners[index + 1] = newList;
 			}
 		}
 	}
 
 	protected boolean hasListeners() {
-		if (listenerTypes != null)
-			for (int i = 0; i < listenerTypes.length; i++)
-				if (listenerTypes[i] != DisposeEvent.TYPE)
-					if (listenerLists[i].size() > 0)
-						return true;
+		if (listeners != null)
+			for (int i = 0; i < listeners.length; i += 2)
+				if (listeners[i] != DisposeEvent.TYPE)
+					return true;
 		return false;
 	}
 
 	private int findListenerTypeIndex(Object listenerType) {
-		if (listenerTypes != null) {
-			for (int i = 0; i < listenerTypes.length; i++) {
-				if (listenerTypes[i] == listenerType) {
+		if (listeners != null) {
+			for (int i = 0; i < listeners.length; i += 2) {
+				if (listeners[i] == listenerType) {
 					return i;
 				}
 			}
@@ -109,14 +160,36 @@ import org.eclipse.core.runtime.ListenerList;
 		return -1;
 	}
 
+	private static int indexOf(IObservablesListener[] list,
+			IObservablesListener listener) {
+		for (int i = 0; i < list.length; i++) {
+			if (listener.equals(list[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	protected void fireEvent(ObservableEvent event) {
-		Object listenerType = event.getListenerType();
-		int listenerTypeIndex = findListenerTypeIndex(listenerType);
-		if (listenerTypeIndex != -1) {
-			Object[] listeners = listenerLists[listenerTypeIndex]
-					.getListeners();
-			for (int i = 0; i < listeners.length; i++) {
-				event.dispatch((IObservablesListener) listeners[i]);
+		EventBatch batch = realm.batch;
+		if (batch != null && batch.defer(this, event))
+			return;
+		dispatchEvent(event);
+	}
+
+	/* package */void dispatchEvent(ObservableEvent event) {
+		int index = findListenerTypeIndex(event.getListenerType());
+		if (index == -1)
+			return;
+		// the listener arrays are never modified, listeners added or removed
+		// while dispatching do not affect this event
+		Object value = listeners[index + 1];
+		if (value instanceof IObservablesListener) {
+			event.dispatch((IObservablesListener) value);
+		} else {
+			IObservablesListener[] list = (IObservablesListener[]) value;
+			for (int i = 0; i < list.length; i++) {
+				event.dispatch(list[i]);
 			}
 		}
 	}
@@ -137,8 +210,7 @@ import org.eclipse.core.runtime.ListenerList;
 	 * 
 	 */
 	public void dispose() {
-		listenerLists = null;
-		listenerTypes = null;
+		listeners = null;
 	}
 
 	/**
@@ -150,8 +222,8 @@ import org.eclipse.core.runtime.ListenerList;
 
 	protected Object clone() throws CloneNotSupportedException {
 		ChangeManager duplicate = (ChangeManager) super.clone();
-		duplicate.listenerLists = null;
-		duplicate.listenerTypes = null;
+		duplicate.listeners = null;
+		duplicate.batchEntry = null;
 		return duplicate;
 	}
 }
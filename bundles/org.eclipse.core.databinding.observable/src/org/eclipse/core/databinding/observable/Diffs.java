@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,9 +35,22 @@ import org.eclipse.core.internal.databinding.observable.Util;
  */
 public class Diffs {
 
+	/**
+	 * Combined size of the old and new lists above which
+	 * {@link #computeListDiff(List, List)} matches elements by hash instead of
+	 * scanning the lists.
+	 */
+	private static final int LARGE_LIST_DIFF_THRESHOLD = 1000;
+
 	/**
 	 * Returns a {@link ListDiff} describing the change between the specified
 	 * old and new list states.
+	 * <p>
+	 * Small lists are compared by scanning them for each differing element.
+	 * Large lists are compared in O(n log n) time by matching equal elements
+	 * through their hash codes; moved elements are still reported as adjacent
+	 * remove and add entries.
+	 * </p>
 	 * 
 	 * @param oldList
 	 *            the old list state
@@ -47,7 +60,11 @@ public class Diffs {
 	 */
 	public static ListDiff computeListDiff(List oldList, List newList) {
 		List diffEntries = new ArrayList();
-		createListDiffs(new ArrayList(oldList), newList, diffEntries);
+		if (oldList.size() + newList.size() > LARGE_LIST_DIFF_THRESHOLD) {
+			createLargeListDiffs(oldList, newList, diffEntries);
+		} else {
+			createListDiffs(new ArrayList(oldList), newList, diffEntries);
+		}
 		ListDiff listDiff = createListDiff((ListDiffEntry[]) diffEntries
 				.toArray(new ListDiffEntry[diffEntries.size()]));
 		return listDiff;
@@ -155,6 +172,202 @@ public class Diffs {
 		}
 	}
 
+	/**
+	 * Computes the differences between two large lists without scanning them
+	 * repeatedly.
+	 * <p>
+	 * Each element of the new list is matched with an equal element of the old
+	 * list, if any. The longest run of matched elements which are in the same
+	 * order in both lists stays in place, the other matched elements are
+	 * moved. The entries are produced in three passes: removal of the old
+	 * elements without a match, moves of the matched elements (each one a
+	 * remove entry followed by an add entry), and insertion of the new
+	 * elements without a match.
+	 * </p>
+	 */
+	private static void createLargeListDiffs(List oldList, List newList,
+			List listDiffs) {
+		Object[] oldElements = oldList.toArray();
+		Object[] newElements = newList.toArray();
+		int oldSize = oldElements.length;
+		int newSize = newElements.length;
+
+		// Match the elements. Each key maps to the first unmatched old index
+		// of that element, further occurrences are chained in nextOccurrence.
+		Map firstOccurrences = new HashMap();
+		int[] nextOccurrence = new int[oldSize];
+		for (int i = oldSize - 1; i >= 0; i--) {
+			int[] first = (int[]) firstOccurrences.get(oldElements[i]);
+			if (first == null) {
+				firstOccurrences.put(oldElements[i], new int[] { i });
+				nextOccurrence[i] = -1;
+			} else {
+				nextOccurrence[i] = first[0];
+				first[0] = i;
+			}
+		}
+		int[] oldToNew = new int[oldSize];
+		for (int i = 0; i < oldSize; i++) {
+			oldToNew[i] = -1;
+		}
+		int[] newToOld = new int[newSize];
+		for (int j = 0; j < newSize; j++) {
+			int[] first = (int[]) firstOccurrences.get(newElements[j]);
+			if (first != null && first[0] != -1) {
+				int i = first[0];
+				first[0] = nextOccurrence[i];
+				newToOld[j] = i;
+				oldToNew[i] = j;
+			} else {
+				newToOld[j] = -1;
+			}
+		}
+
+		// Remove the old elements without a match, from the end so that the
+		// positions are not shifted. The matched ones get consecutive slots.
+		int[] oldSlots = new int[oldSize];
+		int matched = 0;
+		for (int i = 0; i < oldSize; i++) {
+			if (oldToNew[i] != -1) {
+				oldSlots[i] = matched++;
+			}
+		}
+		for (int i = oldSize - 1; i >= 0; i--) {
+			if (oldToNew[i] == -1) {
+				listDiffs.add(createListDiffEntry(i, false, oldElements[i]));
+			}
+		}
+
+		// Move the matched elements which are not part of the longest
+		// increasing subsequence, in the order of the new list. A moved element
+		// is inserted right after the last element of the new list before it
+		// which is already in place, so it is located relatively to the
+		// nearest stable element (its anchor) before it.
+		int[] slotToNew = new int[matched];
+		for (int i = 0; i < oldSize; i++) {
+			if (oldToNew[i] != -1) {
+				slotToNew[oldSlots[i]] = oldToNew[i];
+			}
+		}
+		boolean[] stable = longestIncreasingSubsequence(slotToNew);
+		int[] anchors = new int[matched];
+		// chainLengths[s + 1] is the number of elements anchored on slot s
+		int[] chainLengths = new int[matched + 1];
+		int moves = 0;
+		int lastStable = -1;
+		for (int j = 0; j < newSize; j++) {
+			if (newToOld[j] == -1) {
+				continue;
+			}
+			int slot = oldSlots[newToOld[j]];
+			if (stable[slot]) {
+				lastStable = slot;
+			} else {
+				anchors[slot] = lastStable;
+				chainLengths[lastStable + 1]++;
+				moves++;
+			}
+		}
+		if (moves > 0) {
+			// Lay out the positions the matched elements can take: the moved
+			// elements anchored on slot s follow the original position of s.
+			int[] homePositions = new int[matched];
+			int[] chainStarts = new int[matched + 1];
+			int position = chainLengths[0];
+			for (int slot = 0; slot < matched; slot++) {
+				homePositions[slot] = position++;
+				chainStarts[slot + 1] = position;
+				position += chainLengths[slot + 1];
+			}
+			int[] occupied = new int[position + 1];
+			for (int slot = 0; slot < matched; slot++) {
+				fenwickUpdate(occupied, homePositions[slot], 1);
+			}
+			for (int j = 0; j < newSize; j++) {
+				int i = newToOld[j];
+				if (i == -1) {
+					continue;
+				}
+				int slot = oldSlots[i];
+				if (stable[slot]) {
+					continue;
+				}
+				int homePosition = homePositions[slot];
+				fenwickUpdate(occupied, homePosition, -1);
+				listDiffs.add(createListDiffEntry(fenwickPrefixSum(occupied,
+						homePosition), false, oldElements[i]));
+				int targetPosition = chainStarts[anchors[slot] + 1]++;
+				listDiffs.add(createListDiffEntry(fenwickPrefixSum(occupied,
+						targetPosition), true, newElements[j]));
+				fenwickUpdate(occupied, targetPosition, 1);
+			}
+		}
+
+		// The matched elements are now in the order of the new list, insert
+		// the new elements without a match.
+		for (int j = 0; j < newSize; j++) {
+			if (newToOld[j] == -1) {
+				listDiffs.add(createListDiffEntry(j, true, newElements[j]));
+			}
+		}
+	}
+
+	/**
+	 * Returns which elements of the given sequence of distinct values are
+	 * part of one of its longest increasing subsequences.
+	 */
+	private static boolean[] longestIncreasingSubsequence(int[] values) {
+		int length = values.length;
+		// tails[k] is the index of the smallest last value of an increasing
+		// subsequence of length k + 1
+		int[] tails = new int[length];
+		int[] predecessors = new int[length];
+		int longest = 0;
+		for (int i = 0; i < length; i++) {
+			int low = 0;
+			int high = longest;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (values[tails[mid]] < values[i]) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			predecessors[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == longest) {
+				longest++;
+			}
+		}
+		boolean[] result = new boolean[length];
+		for (int i = longest > 0 ? tails[longest - 1] : -1; i != -1; i = predecessors[i]) {
+			result[i] = true;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds delta to the count at the given position of a Fenwick tree.
+	 */
+	private static void fenwickUpdate(int[] tree, int position, int delta) {
+		for (int i = position + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	/**
+	 * Returns the sum of the counts before the given position of a Fenwick
+	 * tree.
+	 */
+	private static int fenwickPrefixSum(int[] tree, int position) {
+		int sum = 0;
+		for (int i = position; i > 0; i -= i & -i) {
+			sum += tree[i];
+		}
+		return sum;
+	}
+
 	/**
 	 * @param list
 	 * @param object
@@ -0,0 +1,448 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiff;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.ValueDiff;
+
+/**
+ * The change events deferred during a {@link Realm#batch(Runnable)}.
+ * <p>
+ * Value, list, set and map change events are queued and merged per
+ * observable, so that the listeners of an observable are notified at most once
+ * per batch, with a diff from the state before the batch to the state after
+ * it. The entries of list, set and map diffs are read when their events are
+ * queued: the diffs of computed observables are computed on read against the
+ * current contents of the observable, which may change again later in the
+ * batch. The merged diffs are then computed lazily from these entries. Value
+ * diffs are not read, as the merged diff only needs the old value of the
+ * first diff and the new value of the last one.
+ * </p>
+ * <p>
+ * Generic change events are not deferred: computed observables mark
+ * themselves dirty when they receive them, and recompute their value only
+ * when it is asked for, once all the changes of the batch are made. The first
+ * change event of an observable reserves its position in the queue, so that
+ * an observable is notified before the observables computed from it.
+ * </p>
+ *
+ * @since 1.5
+ */
+/* package */class EventBatch {
+
+	/**
+	 * A queued event, or the reserved position of an observable.
+	 */
+	static class Entry {
+		final ChangeManager manager;
+
+		/**
+		 * The (merged) event, or <code>null</code> if the position is only
+		 * reserved
+		 */
+		ObservableEvent event;
+
+		/**
+		 * The next entry of the same manager
+		 */
+		Entry next;
+
+		Entry(ChangeManager manager) {
+			this.manager = manager;
+		}
+	}
+
+	private final List entries = new ArrayList();
+
+	/**
+	 * Defers the given event if it can be merged, or reserves the position of
+	 * its observable in the queue if it is a change event.
+	 *
+	 * @param manager
+	 *            the manager firing the event
+	 * @param event
+	 *            the event
+	 * @return <code>true</code> if the event is deferred, <code>false</code>
+	 *         if it must be dispatched immediately
+	 */
+	boolean defer(ChangeManager manager, ObservableEvent event) {
+		if (event instanceof ChangeEvent) {
+			if (manager.batchEntry == null)
+				add(manager);
+			return false;
+		}
+		if (!(event instanceof ValueChangeEvent
+				|| event instanceof ListChangeEvent
+				|| event instanceof SetChangeEvent || event instanceof MapChangeEvent))
+			return false;
+
+		event = readDiff(event);
+		Entry free = null;
+		for (Entry entry = manager.batchEntry; entry != null; entry = entry.next) {
+			if (entry.event == null) {
+				if (free == null)
+					free = entry;
+			} else if (entry.event.getListenerType() == event
+					.getListenerType()) {
+				entry.event = merge(entry.event, event);
+				return true;
+			}
+		}
+		if (free == null)
+			free = add(manager);
+		free.event = event;
+		return true;
+	}
+
+	/**
+	 * Returns an event with the entries of the diff of the given list, set or
+	 * map event, read now. Reading them does not make the observable a
+	 * dependency of the observable being computed, if any.
+	 */
+	private static ObservableEvent readDiff(final ObservableEvent event) {
+		if (event instanceof ValueChangeEvent)
+			return event;
+		final ObservableEvent[] result = new ObservableEvent[1];
+		ObservableTracker.runAndIgnore(new Runnable() {
+			public void run() {
+				if (event instanceof ListChangeEvent) {
+					ListChangeEvent listEvent = (ListChangeEvent) event;
+					result[0] = new ListChangeEvent(listEvent
+							.getObservableList(), Diffs
+							.createListDiff(listEvent.diff.getDifferences()));
+				} else if (event instanceof SetChangeEvent) {
+					SetChangeEvent setEvent = (SetChangeEvent) event;
+					result[0] = new SetChangeEvent(setEvent.getObservableSet(),
+							Diffs.createSetDiff(setEvent.diff.getAdditions(),
+									setEvent.diff.getRemovals()));
+				} else {
+					MapChangeEvent mapEvent = (MapChangeEvent) event;
+					result[0] = new MapChangeEvent(mapEvent.getObservableMap(),
+							readMapDiff(mapEvent.diff));
+				}
+			}
+		});
+		return result[0];
+	}
+
+	private static MapDiff readMapDiff(MapDiff diff) {
+		Set addedKeys = diff.getAddedKeys();
+		Set removedKeys = diff.getRemovedKeys();
+		Set changedKeys = diff.getChangedKeys();
+		Map oldValues = new HashMap();
+		Map newValues = new HashMap();
+		for (Iterator it = addedKeys.iterator(); it.hasNext();) {
+			Object key = it.next();
+			newValues.put(key, diff.getNewValue(key));
+		}
+		for (Iterator it = removedKeys.iterator(); it.hasNext();) {
+			Object key = it.next();
+			oldValues.put(key, diff.getOldValue(key));
+		}
+		for (Iterator it = changedKeys.iterator(); it.hasNext();) {
+			Object key = it.next();
+			oldValues.put(key, diff.getOldValue(key));
+			newValues.put(key, diff.getNewValue(key));
+		}
+		return Diffs.createMapDiff(addedKeys, removedKeys, changedKeys,
+				oldValues, newValues);
+	}
+
+	private Entry add(ChangeManager manager) {
+		Entry entry = new Entry(manager);
+		entry.next = manager.batchEntry;
+		manager.batchEntry = entry;
+		entries.add(entry);
+		return entry;
+	}
+
+	/**
+	 * Dispatches the deferred events, in the order of the first change of
+	 * their observables. Must be called after the batch has ended, so that the
+	 * events fired by the listeners are dispatched immediately.
+	 */
+	void flush() {
+		for (int i = 0; i < entries.size(); i++)
+			((Entry) entries.get(i)).manager.batchEntry = null;
+		for (int i = 0; i < entries.size(); i++) {
+			Entry entry = (Entry) entries.get(i);
+			if (entry.event != null)
+				entry.manager.dispatchEvent(entry.event);
+		}
+	}
+
+	private static ObservableEvent merge(ObservableEvent first,
+			ObservableEvent second) {
+		if (first instanceof ValueChangeEvent) {
+			ValueChangeEvent event = (ValueChangeEvent) first;
+			return new ValueChangeEvent(event.getObservableValue(),
+					MergedValueDiff.merge(event.diff,
+							((ValueChangeEvent) second).diff));
+		}
+		if (first instanceof ListChangeEvent) {
+			ListChangeEvent event = (ListChangeEvent) first;
+			return new ListChangeEvent(event.getObservableList(),
+					MergedListDiff.merge(event.diff,
+							((ListChangeEvent) second).diff));
+		}
+		if (first instanceof SetChangeEvent) {
+			SetChangeEvent event = (SetChangeEvent) first;
+			return new SetChangeEvent(event.getObservableSet(), MergedSetDiff
+					.merge(event.diff, ((SetChangeEvent) second).diff));
+		}
+		MapChangeEvent event = (MapChangeEvent) first;
+		return new MapChangeEvent(event.getObservableMap(), MergedMapDiff
+				.merge(event.diff, ((MapChangeEvent) second).diff));
+	}
+
+	private static class MergedValueDiff extends ValueDiff {
+		private final ValueDiff first;
+		private final ValueDiff last;
+
+		private MergedValueDiff(ValueDiff first, ValueDiff last) {
+			this.first = first;
+			this.last = last;
+		}
+
+		static ValueDiff merge(ValueDiff diff, ValueDiff next) {
+			if (diff instanceof MergedValueDiff)
+				diff = ((MergedValueDiff) diff).first;
+			return new MergedValueDiff(diff, next);
+		}
+
+		public Object getOldValue() {
+			return first.getOldValue();
+		}
+
+		public Object getNewValue() {
+			return last.getNewValue();
+		}
+	}
+
+	private static class MergedListDiff extends ListDiff {
+		private final List diffs = new ArrayList();
+		private ListDiffEntry[] differences;
+
+		static ListDiff merge(ListDiff diff, ListDiff next) {
+			MergedListDiff merged;
+			if (diff instanceof MergedListDiff) {
+				merged = (MergedListDiff) diff;
+			} else {
+				merged = new MergedListDiff();
+				merged.diffs.add(diff);
+			}
+			merged.diffs.add(next);
+			return merged;
+		}
+
+		public ListDiffEntry[] getDifferences() {
+			if (differences == null) {
+				// the differences of a list diff apply one after the other
+				List result = new ArrayList();
+				for (int i = 0; i < diffs.size(); i++) {
+					ListDiffEntry[] entries = ((ListDiff) diffs.get(i))
+							.getDifferences();
+					for (int j = 0; j < entries.length; j++)
+						result.add(entries[j]);
+				}
+				differences = (ListDiffEntry[]) result
+						.toArray(new ListDiffEntry[result.size()]);
+			}
+			return differences;
+		}
+	}
+
+	private static class MergedSetDiff extends SetDiff {
+		private final List diffs = new ArrayList();
+		private Set additions;
+		private Set removals;
+
+		static SetDiff merge(SetDiff diff, SetDiff next) {
+			MergedSetDiff merged;
+			if (diff instanceof MergedSetDiff) {
+				merged = (MergedSetDiff) diff;
+			} else {
+				merged = new MergedSetDiff();
+				merged.diffs.add(diff);
+			}
+			merged.diffs.add(next);
+			return merged;
+		}
+
+		private void compute() {
+			if (additions != null)
+				return;
+			Set added = new HashSet();
+			Set removed = new HashSet();
+			for (int i = 0; i < diffs.size(); i++) {
+				SetDiff diff = (SetDiff) diffs.get(i);
+				// an element removed after being added was not there before
+				for (Iterator it = diff.getRemovals().iterator(); it.hasNext();) {
+					Object element = it.next();
+					if (!added.remove(element))
+						removed.add(element);
+				}
+				for (Iterator it = diff.getAdditions().iterator(); it.hasNext();) {
+					Object element = it.next();
+					if (!removed.remove(element))
+						added.add(element);
+				}
+			}
+			additions = added;
+			removals = removed;
+		}
+
+		public Set getAdditions() {
+			compute();
+			return additions;
+		}
+
+		public Set getRemovals() {
+			compute();
+			return removals;
+		}
+	}
+
+	private static class MergedMapDiff extends MapDiff {
+		private final List diffs = new ArrayList();
+		private MapDiff merged;
+
+		static MapDiff merge(MapDiff diff, MapDiff next) {
+			MergedMapDiff merged;
+			if (diff instanceof MergedMapDiff) {
+				merged = (MergedMapDiff) diff;
+			} else {
+				merged = new MergedMapDiff();
+				merged.diffs.add(diff);
+			}
+			merged.diffs.add(next);
+			return merged;
+		}
+
+		/**
+		 * The state of a key before the first diff and after the last one.
+		 */
+		private static class KeyChange {
+			boolean existed;
+			Object oldValue;
+			boolean exists;
+			Object newValue;
+		}
+
+		private MapDiff compute() {
+			if (merged != null)
+				return merged;
+			Map changes = new HashMap();
+			for (int i = 0; i < diffs.size(); i++) {
+				MapDiff diff = (MapDiff) diffs.get(i);
+				for (Iterator it = diff.getAddedKeys().iterator(); it.hasNext();) {
+					Object key = it.next();
+					KeyChange change = getChange(changes, key, false, null);
+					change.exists = true;
+					change.newValue = diff.getNewValue(key);
+				}
+				for (Iterator it = diff.getRemovedKeys().iterator(); it
+						.hasNext();) {
+					Object key = it.next();
+					KeyChange change = getChange(changes, key, true, diff
+							.getOldValue(key));
+					change.exists = false;
+					change.newValue = null;
+				}
+				for (Iterator it = diff.getChangedKeys().iterator(); it
+						.hasNext();) {
+					Object key = it.next();
+					KeyChange change = getChange(changes, key, true, diff
+							.getOldValue(key));
+					change.exists = true;
+					change.newValue = diff.getNewValue(key);
+				}
+			}
+
+			Set addedKeys = new HashSet();
+			Set removedKeys = new HashSet();
+			Set changedKeys = new HashSet();
+			Map oldValues = new HashMap();
+			Map newValues = new HashMap();
+			for (Iterator it = changes.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				Object key = entry.getKey();
+				KeyChange change = (KeyChange) entry.getValue();
+				if (change.existed && change.exists) {
+					if (Diffs.equals(change.oldValue, change.newValue))
+						continue;
+					changedKeys.add(key);
+				} else if (change.existed) {
+					removedKeys.add(key);
+				} else if (change.exists) {
+					addedKeys.add(key);
+				} else {
+					continue;
+				}
+				if (change.existed)
+					oldValues.put(key, change.oldValue);
+				if (change.exists)
+					newValues.put(key, change.newValue);
+			}
+			merged = Diffs.createMapDiff(addedKeys, removedKeys, changedKeys,
+					oldValues, newValues);
+			return merged;
+		}
+
+		private static KeyChange getChange(Map changes, Object key,
+				boolean existed, Object oldValue) {
+			KeyChange change = (KeyChange) changes.get(key);
+			if (change == null) {
+				change = new KeyChange();
+				change.existed = existed;
+				change.oldValue = oldValue;
+				changes.put(key, change);
+			}
+			return change;
+		}
+
+		public Set getAddedKeys() {
+			return compute().getAddedKeys();
+		}
+
+		public Set getRemovedKeys() {
+			return compute().getRemovedKeys();
+		}
+
+		public Set getChangedKeys() {
+			return compute().getChangedKeys();
+		}
+
+		public Object getOldValue(Object key) {
+			return compute().getOldValue(key);
+		}
+
+		public Object getNewValue(Object key) {
+			return compute().getNewValue(key);
+		}
+	}
+}
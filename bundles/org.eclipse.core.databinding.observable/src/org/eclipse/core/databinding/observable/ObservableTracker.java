@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,7 @@
  *******************************************************************************/
 package org.eclipse.core.databinding.observable;
 
-import java.util.Set;
-
 import org.eclipse.core.databinding.util.Policy;
-import org.eclipse.core.internal.databinding.identity.IdentitySet;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -60,20 +57,247 @@ import org.eclipse.core.runtime.Status;
 public class ObservableTracker {
 
 	/**
-	 * Threadlocal storage pointing to the current Set of IObservables, or null
-	 * if none. Note that this is actually the top of a stack. Whenever a method
-	 * changes the current value, it remembers the old value as a local variable
-	 * and restores the old value when the method exits.
+	 * Threadlocal storage pointing to the tracking state of the current thread,
+	 * or null if the thread never tracked observables. The state holds the top
+	 * of two stacks of frames. Whenever a method pushes a frame, it remembers
+	 * the old top as a local variable and restores it when the method exits.
 	 */
-	private static ThreadLocal currentChangeListener = new ThreadLocal();
+	private static ThreadLocal currentTracker = new ThreadLocal();
+
+	/**
+	 * The tracking state of one thread.
+	 */
+	private static final class ThreadTracker {
+		/**
+		 * The maximum number of unused frames kept for reuse.
+		 */
+		private static final int MAX_POOLED_FRAMES = 8;
+
+		/**
+		 * The frame of the innermost runAndMonitor call, or null if none.
+		 */
+		Frame getterCalledFrame;
+
+		/**
+		 * The frame of the innermost runAndCollect call, or null if none.
+		 */
+		Frame observableCreatedFrame;
+
+		int ignoreCount;
+
+		private final Frame[] pool = new Frame[MAX_POOLED_FRAMES];
+
+		private int poolSize;
+
+		Frame acquireFrame() {
+			if (poolSize == 0)
+				return new Frame();
+			Frame frame = pool[--poolSize];
+			pool[poolSize] = null;
+			return frame;
+		}
+
+		void releaseFrame(Frame frame) {
+			if (frame.clear() && poolSize < MAX_POOLED_FRAMES)
+				pool[poolSize++] = frame;
+		}
+	}
+
+	/**
+	 * The observables tracked by one runAndMonitor or runAndCollect call, and
+	 * the listeners to register with them. The observables are kept in an
+	 * identity hash table with open addressing, which is reused by later calls
+	 * on the same thread.
+	 */
+	private static final class Frame {
+		private static final int MIN_CAPACITY = 16;
+
+		/**
+		 * Frames whose table grew larger are not reused, so that a single large
+		 * computation does not hold on to memory.
+		 */
+		private static final int MAX_POOLED_CAPACITY = 1024;
+
+		/** The observable was a dependency and has not been tracked yet. */
+		private static final byte PREVIOUS = 1;
+
+		/** The observable was tracked. */
+		private static final byte TRACKED = 2;
+
+		/** The previous dependency was not tracked and its listeners removed. */
+		private static final byte DROPPED = 3;
+
+		/** Result of {@link #track(IObservable)}: already tracked. */
+		static final int ALREADY_TRACKED = 0;
+
+		/** Result of {@link #track(IObservable)}: a previous dependency. */
+		static final int TRACKED_PREVIOUS = 1;
+
+		/** Result of {@link #track(IObservable)}: a new observable. */
+		static final int TRACKED_NEW = 2;
+
+		IChangeListener changeListener;
+
+		IStaleListener staleListener;
+
+		private IObservable[] table = new IObservable[MIN_CAPACITY];
+
+		private byte[] states = new byte[MIN_CAPACITY];
+
+		private int tableSize;
+
+		/**
+		 * The tracked observables, in tracking order.
+		 */
+		private IObservable[] tracked = new IObservable[MIN_CAPACITY];
+
+		private int trackedCount;
+
+		/**
+		 * Adds the previous dependencies of the monitored runnable, whose
+		 * listeners are already registered.
+		 */
+		void addPrevious(IObservable[] previous) {
+			for (int i = 0; i < previous.length; i++) {
+				int slot = indexOf(previous[i]);
+				if (slot < 0)
+					insert(-slot - 1, previous[i], PREVIOUS);
+			}
+		}
+
+		/**
+		 * Tracks the given observable.
+		 * 
+		 * @return {@link #ALREADY_TRACKED}, {@link #TRACKED_PREVIOUS} or
+		 *         {@link #TRACKED_NEW}
+		 */
+		int track(IObservable observable) {
+			int slot = indexOf(observable);
+			if (slot < 0) {
+				insert(-slot - 1, observable, TRACKED);
+				addTracked(observable);
+				return TRACKED_NEW;
+			}
+			if (states[slot] == TRACKED)
+				return ALREADY_TRACKED;
+			states[slot] = TRACKED;
+			addTracked(observable);
+			return TRACKED_PREVIOUS;
+		}
+
+		/**
+		 * Removes the listeners from the previous dependencies that were not
+		 * tracked.
+		 */
+		void removeUntrackedListeners(IObservable[] previous) {
+			for (int i = 0; i < previous.length; i++) {
+				IObservable observable = previous[i];
+				int slot = indexOf(observable);
+				if (slot >= 0 && states[slot] == PREVIOUS) {
+					states[slot] = DROPPED;
+					if (changeListener != null)
+						observable.removeChangeListener(changeListener);
+					if (staleListener != null)
+						observable.removeStaleListener(staleListener);
+				}
+			}
+		}
 
-	private static ThreadLocal currentStaleListener = new ThreadLocal();
+		IObservable[] toArray() {
+			IObservable[] result = new IObservable[trackedCount];
+			System.arraycopy(tracked, 0, result, 0, trackedCount);
+			return result;
+		}
+
+		/**
+		 * Forgets the observables and listeners.
+		 * 
+		 * @return whether the frame may be reused
+		 */
+		boolean clear() {
+			changeListener = null;
+			staleListener = null;
+			if (table.length > MAX_POOLED_CAPACITY)
+				return false;
+			if (tableSize > 0) {
+				for (int i = 0; i < table.length; i++) {
+					table[i] = null;
+					states[i] = 0;
+				}
+				tableSize = 0;
+			}
+			for (int i = 0; i < trackedCount; i++)
+				tracked[i] = null;
+			trackedCount = 0;
+			return true;
+		}
+
+		private void addTracked(IObservable observable) {
+			if (trackedCount == tracked.length) {
+				IObservable[] newTracked = new IObservable[trackedCount * 2];
+				System.arraycopy(tracked, 0, newTracked, 0, trackedCount);
+				tracked = newTracked;
+			}
+			tracked[trackedCount++] = observable;
+		}
 
-	private static ThreadLocal currentGetterCalledSet = new ThreadLocal();
+		/**
+		 * Returns the slot of the given observable, or
+		 * <code>-(free slot + 1)</code> if it is not in the table.
+		 */
+		private int indexOf(IObservable observable) {
+			int mask = table.length - 1;
+			int slot = hash(observable) & mask;
+			while (true) {
+				IObservable current = table[slot];
+				if (current == null)
+					return -slot - 1;
+				if (current == observable)
+					return slot;
+				slot = (slot + 1) & mask;
+			}
+		}
 
-	private static ThreadLocal currentObservableCreatedSet = new ThreadLocal();
+		private void insert(int slot, IObservable observable, byte state) {
+			table[slot] = observable;
+			states[slot] = state;
+			// keep the table at most half full
+			if (++tableSize * 2 > table.length)
+				rehash(table.length * 2);
+		}
 
-	private static ThreadLocal currentIgnoreCount = new ThreadLocal();
+		private void rehash(int capacity) {
+			IObservable[] oldTable = table;
+			byte[] oldStates = states;
+			table = new IObservable[capacity];
+			states = new byte[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < oldTable.length; i++) {
+				IObservable observable = oldTable[i];
+				if (observable != null) {
+					int slot = hash(observable) & mask;
+					while (table[slot] != null)
+						slot = (slot + 1) & mask;
+					table[slot] = observable;
+					states[slot] = oldStates[i];
+				}
+			}
+		}
+
+		private static int hash(IObservable observable) {
+			int hash = System.identityHashCode(observable) * 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+	}
+
+	private static ThreadTracker getTracker() {
+		ThreadTracker tracker = (ThreadTracker) currentTracker.get();
+		if (tracker == null) {
+			tracker = new ThreadTracker();
+			currentTracker.set(tracker);
+		}
+		return tracker;
+	}
 
 	/**
 	 * Invokes the given runnable, and returns the set of IObservables that were
@@ -92,34 +316,70 @@ public class ObservableTracker {
 	 */
 	public static IObservable[] runAndMonitor(Runnable runnable,
 			IChangeListener changeListener, IStaleListener staleListener) {
-		// Remember the previous value in the listener stack
-		Set lastObservableSet = (Set) currentGetterCalledSet.get();
-		IChangeListener lastChangeListener = (IChangeListener) currentChangeListener
-				.get();
-		IStaleListener lastStaleListener = (IStaleListener) currentStaleListener
-				.get();
-		Integer lastIgnore = (Integer) currentIgnoreCount.get();
-
-		Set observableSet = new IdentitySet();
-		// Push the new listeners to the top of the stack
-		currentGetterCalledSet.set(observableSet);
-		currentChangeListener.set(changeListener);
-		currentStaleListener.set(staleListener);
-		currentIgnoreCount.set(null);
+		return runAndMonitor(runnable, changeListener, staleListener, null);
+	}
+
+	/**
+	 * Invokes the given runnable, and returns the set of IObservables that were
+	 * read by the runnable, updating the listeners registered by a previous
+	 * call instead of registering them again. The listeners are registered
+	 * with the accessed observables that are not among the previous
+	 * dependencies, and removed from the previous dependencies that were not
+	 * accessed. If the runnable calls this method recursively, the result will
+	 * not contain IObservables that were used within the inner runnable.
+	 * <p>
+	 * If the runnable throws an exception, the listeners are left registered
+	 * with the previous dependencies and with the observables accessed so far.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            runnable to execute
+	 * @param changeListener
+	 *            listener to register with all accessed observables
+	 * @param staleListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no stale listener is to be registered
+	 * @param previousDependencies
+	 *            the observables the listeners are registered with, as
+	 *            returned by the previous call for the same listeners, or
+	 *            <code>null</code> if the listeners are not registered
+	 * @return an array of unique observable objects
+	 * @since 1.5
+	 */
+	public static IObservable[] runAndMonitor(Runnable runnable,
+			IChangeListener changeListener, IStaleListener staleListener,
+			IObservable[] previousDependencies) {
+		ThreadTracker tracker = getTracker();
+		// Remember the previous frame in the stack
+		Frame lastFrame = tracker.getterCalledFrame;
+		int lastIgnoreCount = tracker.ignoreCount;
+
+		Frame frame = tracker.acquireFrame();
+		frame.changeListener = changeListener;
+		frame.staleListener = staleListener;
+		if (previousDependencies != null)
+			frame.addPrevious(previousDependencies);
+		// Push the new frame to the top of the stack
+		tracker.getterCalledFrame = frame;
+		tracker.ignoreCount = 0;
 		try {
 			runnable.run();
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentGetterCalledSet.set(lastObservableSet);
-			currentChangeListener.set(lastChangeListener);
-			currentStaleListener.set(lastStaleListener);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			// Pop the new frame off the top of the stack (by restoring the
+			// previous frame). The frame is only reused if the runnable
+			// returned normally.
+			tracker.getterCalledFrame = lastFrame;
+			checkUnmatchedIgnore(tracker, runnable);
+			tracker.ignoreCount = lastIgnoreCount;
 		}
 
-		return (IObservable[]) observableSet
-				.toArray(new IObservable[observableSet.size()]);
+		try {
+			if (previousDependencies != null)
+				frame.removeUntrackedListeners(previousDependencies);
+			return frame.toArray();
+		} finally {
+			tracker.releaseFrame(frame);
+		}
 	}
 
 	/**
@@ -139,29 +399,32 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static IObservable[] runAndCollect(Runnable runnable) {
-		Set lastObservableCreatedSet = (Set) currentObservableCreatedSet.get();
-		Integer lastIgnore = (Integer) currentIgnoreCount.get();
+		ThreadTracker tracker = getTracker();
+		Frame lastFrame = tracker.observableCreatedFrame;
+		int lastIgnoreCount = tracker.ignoreCount;
 
-		Set observableSet = new IdentitySet();
-		// Push the new listeners to the top of the stack
-		currentObservableCreatedSet.set(observableSet);
-		currentIgnoreCount.set(null);
+		Frame frame = tracker.acquireFrame();
+		// Push the new frame to the top of the stack
+		tracker.observableCreatedFrame = frame;
+		tracker.ignoreCount = 0;
 		try {
 			runnable.run();
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentObservableCreatedSet.set(lastObservableCreatedSet);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			// Pop the new frame off the top of the stack (by restoring the
+			// previous frame)
+			tracker.observableCreatedFrame = lastFrame;
+			checkUnmatchedIgnore(tracker, runnable);
+			tracker.ignoreCount = lastIgnoreCount;
 		}
 
-		return (IObservable[]) observableSet
-				.toArray(new IObservable[observableSet.size()]);
+		IObservable[] result = frame.toArray();
+		tracker.releaseFrame(frame);
+		return result;
 	}
 
-	private static void checkUnmatchedIgnore(Runnable runnable) {
-		if (isIgnore()) {
+	private static void checkUnmatchedIgnore(ThreadTracker tracker,
+			Runnable runnable) {
+		if (tracker.ignoreCount > 0) {
 			Policy
 					.getLog()
 					.log(
@@ -169,7 +432,7 @@ public class ObservableTracker {
 									IStatus.ERROR,
 									Policy.JFACE_DATABINDING,
 									"There were " //$NON-NLS-1$
-											+ currentIgnoreCount.get()
+											+ tracker.ignoreCount
 											+ " unmatched setIgnore(true) invocations in runnable " //$NON-NLS-1$
 											+ runnable));
 		}
@@ -196,15 +459,14 @@ public class ObservableTracker {
 	 * @since 1.3
 	 */
 	public static void setIgnore(boolean ignore) {
-		Integer lastCount = (Integer) currentIgnoreCount.get();
+		ThreadTracker tracker = getTracker();
 
-		int newCount = (lastCount == null ? 0 : lastCount.intValue())
-				+ (ignore ? 1 : -1);
+		int newCount = tracker.ignoreCount + (ignore ? 1 : -1);
 
 		if (newCount < 0)
 			throw new IllegalStateException("Ignore count is already zero"); //$NON-NLS-1$
 
-		currentIgnoreCount.set(newCount == 0 ? null : new Integer(newCount));
+		tracker.ignoreCount = newCount;
 	}
 
 	/**
@@ -233,10 +495,6 @@ public class ObservableTracker {
 				+ Integer.toHexString(System.identityHashCode(observable));
 	}
 
-	private static boolean isIgnore() {
-		return currentIgnoreCount.get() != null;
-	}
-
 	/**
 	 * Notifies the ObservableTracker that an observable was read from. The
 	 * JavaDoc for methods that invoke this method should include the following
@@ -256,20 +514,17 @@ public class ObservableTracker {
 			Assert.isTrue(false, "Getter called outside realm of observable " //$NON-NLS-1$
 					+ toString(observable));
 
-		if (isIgnore())
+		ThreadTracker tracker = (ThreadTracker) currentTracker.get();
+		if (tracker == null || tracker.ignoreCount > 0)
 			return;
 
-		Set getterCalledSet = (Set) currentGetterCalledSet.get();
-		if (getterCalledSet != null && getterCalledSet.add(observable)) {
+		Frame frame = tracker.getterCalledFrame;
+		if (frame != null && frame.track(observable) == Frame.TRACKED_NEW) {
 			// If anyone is listening for observable usage...
-			IChangeListener changeListener = (IChangeListener) currentChangeListener
-					.get();
-			if (changeListener != null)
-				observable.addChangeListener(changeListener);
-			IStaleListener staleListener = (IStaleListener) currentStaleListener
-					.get();
-			if (staleListener != null)
-				observable.addStaleListener(staleListener);
+			if (frame.changeListener != null)
+				observable.addChangeListener(frame.changeListener);
+			if (frame.staleListener != null)
+				observable.addStaleListener(frame.staleListener);
 		}
 	}
 
@@ -281,11 +536,12 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static void observableCreated(IObservable observable) {
-		if (isIgnore())
+		ThreadTracker tracker = (ThreadTracker) currentTracker.get();
+		if (tracker == null || tracker.ignoreCount > 0)
 			return;
-		Set observableCreatedSet = (Set) currentObservableCreatedSet.get();
-		if (observableCreatedSet != null) {
-			observableCreatedSet.add(observable);
+		Frame frame = tracker.observableCreatedFrame;
+		if (frame != null) {
+			frame.track(observable);
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 Cerner Corporation and others.
+ * Copyright (c) 2006, 2014 Cerner Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
  *     Matthew Hall - bugs 208332, 212518, 219909, 184830, 237718, 245647,
  *         226289
  *     Marko Topolnik - bug 184830
+ *     IBM Corporation - throttled observables
  ******************************************************************************/
 
 package org.eclipse.core.databinding.observable;
@@ -37,6 +38,8 @@ import org.eclipse.core.databinding.observable.value.IVetoableValue;
 import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
 import org.eclipse.core.databinding.observable.value.ValueChangingEvent;
 import org.eclipse.core.internal.databinding.observable.ConstantObservableValue;
+import org.eclipse.core.internal.databinding.observable.DelayedObservableList;
+import org.eclipse.core.internal.databinding.observable.DelayedObservableSet;
 import org.eclipse.core.internal.databinding.observable.DelayedObservableValue;
 import org.eclipse.core.internal.databinding.observable.EmptyObservableList;
 import org.eclipse.core.internal.databinding.observable.EmptyObservableSet;
@@ -55,6 +58,36 @@ import org.eclipse.core.runtime.Assert;
  * @since 1.0
  */
 public class Observables {
+	/**
+	 * Policy of throttled observables firing the changes of the wrapped
+	 * observable once it has not changed for the delay.
+	 * 
+	 * @see #observeThrottledValue(int, int, IObservableValue)
+	 * @since 1.5
+	 */
+	public static final int DEBOUNCE = 0;
+
+	/**
+	 * Policy of throttled observables firing the changes of the wrapped
+	 * observable at most once per delay: the first change is fired
+	 * immediately, and the changes made during the following delay are fired
+	 * at its end.
+	 * 
+	 * @see #observeThrottledValue(int, int, IObservableValue)
+	 * @since 1.5
+	 */
+	public static final int THROTTLE = 1;
+
+	/**
+	 * Policy of throttled observables firing the changes of the wrapped
+	 * observable at the end of the delay following the first change, even if
+	 * the wrapped observable is still changing.
+	 * 
+	 * @see #observeThrottledValue(int, int, IObservableValue)
+	 * @since 1.5
+	 */
+	public static final int SAMPLE = 2;
+
 	/**
 	 * Returns an observable which delays notification of value change events
 	 * from <code>observable</code> until <code>delay</code> milliseconds have
@@ -99,6 +132,103 @@ public class Observables {
 		return new DelayedObservableValue(delay, observable);
 	}
 
+	/**
+	 * Returns an observable which delays notification of value change events
+	 * from <code>observable</code> according to the given policy. The changes
+	 * made in the meantime are fired as a single value change event. This
+	 * observable helps to boost performance when an observable changes rapidly
+	 * and has computationally expensive listeners, such as the validation of a
+	 * binding or a model update on every keystroke.
+	 * <p>
+	 * As with {@link #observeDelayedValue(int, IObservableValue)}, the
+	 * returned observable is stale while a value change is pending, and a call
+	 * to {@link IObservableValue#getValue() getValue()} while a value change
+	 * is pending fires the value change immediately. Disposing the returned
+	 * observable disposes <code>observable</code>.
+	 * </p>
+	 * 
+	 * @param delay
+	 *            the delay in milliseconds
+	 * @param policy
+	 *            one of {@link #DEBOUNCE}, {@link #THROTTLE} and
+	 *            {@link #SAMPLE}
+	 * @param observable
+	 *            the observable being throttled
+	 * @return an observable which delays notification of value change events
+	 *         from <code>observable</code> according to the given policy
+	 * @throws IllegalArgumentException
+	 *             if the policy is unknown
+	 * 
+	 * @since 1.5
+	 */
+	public static IObservableValue observeThrottledValue(int delay,
+			int policy, IObservableValue observable) {
+		return new DelayedObservableValue(delay, policy, observable);
+	}
+
+	/**
+	 * Returns an unmodifiable observable list which delays notification of
+	 * list change events from <code>observable</code> according to the given
+	 * policy. The changes made in the meantime are fired as a single list
+	 * change event, and the contents of the returned list only change when it
+	 * is fired. This observable helps to boost performance when elements are
+	 * added in bursts to a list shown in a viewer.
+	 * <p>
+	 * The returned observable is stale while a list change is pending.
+	 * Accessing the contents of the returned list while a list change is
+	 * pending fires the list change immediately.
+	 * </p>
+	 * 
+	 * @param delay
+	 *            the delay in milliseconds
+	 * @param policy
+	 *            one of {@link #DEBOUNCE}, {@link #THROTTLE} and
+	 *            {@link #SAMPLE}
+	 * @param observable
+	 *            the observable being throttled
+	 * @return an observable which delays notification of list change events
+	 *         from <code>observable</code> according to the given policy
+	 * @throws IllegalArgumentException
+	 *             if the policy is unknown
+	 * 
+	 * @since 1.5
+	 */
+	public static IObservableList observeThrottledList(int delay, int policy,
+			IObservableList observable) {
+		return new DelayedObservableList(delay, policy, observable);
+	}
+
+	/**
+	 * Returns an unmodifiable observable set which delays notification of set
+	 * change events from <code>observable</code> according to the given
+	 * policy. The changes made in the meantime are fired as a single set
+	 * change event, and the contents of the returned set only change when it
+	 * is fired.
+	 * <p>
+	 * The returned observable is stale while a set change is pending.
+	 * Accessing the contents of the returned set while a set change is pending
+	 * fires the set change immediately.
+	 * </p>
+	 * 
+	 * @param delay
+	 *            the delay in milliseconds
+	 * @param policy
+	 *            one of {@link #DEBOUNCE}, {@link #THROTTLE} and
+	 *            {@link #SAMPLE}
+	 * @param observable
+	 *            the observable being throttled
+	 * @return an observable which delays notification of set change events
+	 *         from <code>observable</code> according to the given policy
+	 * @throws IllegalArgumentException
+	 *             if the policy is unknown
+	 * 
+	 * @since 1.5
+	 */
+	public static IObservableSet observeThrottledSet(int delay, int policy,
+			IObservableSet observable) {
+		return new DelayedObservableSet(delay, policy, observable);
+	}
+
 	/**
 	 * Returns an unmodifiable observable value backed by the given observable
 	 * value.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.TimerTask;
 
 import org.eclipse.core.databinding.util.Policy;
 import org.eclipse.core.internal.databinding.observable.Queue;
+import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
@@ -119,6 +120,12 @@ public abstract class Realm {
 	private volatile Timer timer;
 
 	Queue workQueue = new Queue();
+
+	/**
+	 * The events deferred by the current batch, or <code>null</code> if no
+	 * batch is running. Only accessed within this realm.
+	 */
+	EventBatch batch;
 	
 	/**
 	 * Runs the given runnable. If an exception occurs within the runnable, it
@@ -173,6 +180,71 @@ public abstract class Realm {
 		}
 	}
 
+	/**
+	 * Runs the given runnable as a batch of changes: the value, list, set and
+	 * map change events fired by the observables of this realm while the
+	 * runnable runs are deferred until it returns, and merged so that the
+	 * listeners of each observable are notified at most once, with a diff
+	 * covering all the changes of the batch. The deferred events are
+	 * dispatched in the order the observables first changed.
+	 * <p>
+	 * Generic change events ({@link IChangeListener}), stale events and
+	 * dispose events are dispatched immediately, so that observables computed
+	 * from the changed observables are up to date when they are accessed
+	 * within the batch. Listeners are notified even if an observable changed
+	 * back to its state before the batch.
+	 * </p>
+	 * <p>
+	 * A batch started within a batch joins the outer batch. Exceptions thrown
+	 * by the runnable are re-thrown once the deferred events are dispatched.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            the runnable changing the observables
+	 * @since 1.5
+	 */
+	public void batch(Runnable runnable) {
+		Assert.isTrue(isCurrent(),
+				"This operation must be run within the realm"); //$NON-NLS-1$
+		if (batch != null) {
+			runnable.run();
+			return;
+		}
+		EventBatch events = new EventBatch();
+		batch = events;
+		try {
+			runnable.run();
+		} finally {
+			batch = null;
+			events.flush();
+		}
+	}
+
+	/**
+	 * Runs the given runnable, dispatching the events fired while it runs
+	 * immediately even if a {@link #batch(Runnable) batch} is running. The
+	 * events deferred before are still dispatched at the end of the batch.
+	 * <p>
+	 * This method is meant for code that relies on being notified of the
+	 * changes it makes, for example to ignore them, such as bindings.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            the runnable
+	 * @since 1.5
+	 */
+	public void runWithoutBatching(Runnable runnable) {
+		Assert.isTrue(isCurrent(),
+				"This operation must be run within the realm"); //$NON-NLS-1$
+		EventBatch events = batch;
+		batch = null;
+		try {
+			runnable.run();
+		} finally {
+			batch = events;
+		}
+	}
+
 	/**
 	 * Causes the <code>run()</code> method of the runnable to be invoked from
 	 * within this realm at the next reasonable opportunity. The caller of this
@@ -1,5 +1,5 @@
 /************************************************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -191,8 +191,11 @@ public abstract class ComputedList extends AbstractObservableList {
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
+			// - Add the listeners to the new dependencies only, and remove
+			// them from the dependencies that are no longer used
 			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+					privateInterface, privateInterface, privateInterface,
+					dependencies);
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
@@ -205,12 +208,6 @@ public abstract class ComputedList extends AbstractObservableList {
 				}
 			}
 
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
-
 			dependencies = newDependencies;
 
 			dirty = false;
@@ -239,7 +236,11 @@ public abstract class ComputedList extends AbstractObservableList {
 
 			makeStale();
 
-			stopListening();
+			// While observed, keep listening to the dependencies: the list
+			// is about to be recomputed, and only the listeners of the
+			// dependencies that changed need to be updated then.
+			if (!hasListeners())
+				stopListening();
 
 			// copy the old list
 			final List oldList = new ArrayList(cachedList);
@@ -312,8 +313,10 @@ public abstract class ComputedList extends AbstractObservableList {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dependencies == null
+						|| (dirty && dependencies.length > 0)) {
+					// We are not currently listening, or listening to the
+					// dependencies of an outdated list.
 					// But someone is listening for changes. Call getValue()
 					// to make sure we start listening to the observables we
 					// depend on.
@@ -323,6 +326,14 @@ public abstract class ComputedList extends AbstractObservableList {
 		});
 	}
 
+	protected void lastListenerRemoved() {
+		// Nobody is going to recompute the outdated list, stop listening to
+		// its dependencies
+		if (dirty)
+			stopListening();
+		super.lastListenerRemoved();
+	}
+
 	public synchronized void dispose() {
 		stopListening();
 		super.dispose();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -120,7 +120,7 @@ public abstract class ListDiff implements IDiff {
 					}
 
 					if (removePos == addPos) {
-						visitor.handleReplace(pos, removeElem, addElem);
+						visitor.handleReplace(removePos, removeElem, addElem);
 						i++;
 						continue;
 					}
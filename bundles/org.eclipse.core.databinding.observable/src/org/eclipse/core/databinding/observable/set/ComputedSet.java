@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Matthew Hall and others.
+ * Copyright (c) 2008, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -186,8 +186,11 @@ public abstract class ComputedSet extends AbstractObservableSet {
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
+			// - Add the listeners to the new dependencies only, and remove
+			// them from the dependencies that are no longer used
 			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+					privateInterface, privateInterface, privateInterface,
+					dependencies);
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
@@ -200,12 +203,6 @@ public abstract class ComputedSet extends AbstractObservableSet {
 				}
 			}
 
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
-
 			dependencies = newDependencies;
 
 			dirty = false;
@@ -235,7 +232,11 @@ public abstract class ComputedSet extends AbstractObservableSet {
 			final Set oldSet = new HashSet(cachedSet);
 			makeStale();
 
-			stopListening();
+			// While observed, keep listening to the dependencies: the set
+			// is about to be recomputed, and only the listeners of the
+			// dependencies that changed need to be updated then.
+			if (!hasListeners())
+				stopListening();
 
 			// Fire the "dirty" event. This implementation recomputes the new
 			// set lazily.
@@ -313,8 +314,10 @@ public abstract class ComputedSet extends AbstractObservableSet {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dependencies == null
+						|| (dirty && dependencies.length > 0)) {
+					// We are not currently listening, or listening to the
+					// dependencies of an outdated set.
 					// But someone is listening for changes. Call getValue()
 					// to make sure we start listening to the observables we
 					// depend on.
@@ -324,6 +327,14 @@ public abstract class ComputedSet extends AbstractObservableSet {
 		});
 	}
 
+	protected void lastListenerRemoved() {
+		// Nobody is going to recompute the outdated set, stop listening to
+		// its dependencies
+		if (dirty)
+			stopListening();
+		super.lastListenerRemoved();
+	}
+
 	public synchronized void dispose() {
 		stopListening();
 		super.dispose();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -156,17 +156,17 @@ public abstract class ComputedValue extends AbstractObservableValue {
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
+			// - Add the listeners to the new dependencies only, and remove
+			// them from the dependencies that are no longer used
 			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+					privateInterface, privateInterface, privateInterface,
+					dependencies);
 
 			stale = false;
 			for (int i = 0; i < newDependencies.length; i++) {
-				IObservable observable = newDependencies[i];
-				// Add a change listener to the new dependency.
-				if (observable.isStale()) {
+				if (newDependencies[i].isStale()) {
 					stale = true;
-				} else {
-					observable.addStaleListener(privateInterface);
+					break;
 				}
 			}
 
@@ -192,7 +192,11 @@ public abstract class ComputedValue extends AbstractObservableValue {
 		if (!dirty) {
 			dirty = true;
 
-			stopListening();
+			// While observed, keep listening to the dependencies: the value
+			// is about to be recomputed, and only the listeners of the
+			// dependencies that changed need to be updated then.
+			if (!hasListeners())
+				stopListening();
 
 			// copy the old value
 			final Object oldValue = cachedValue;
@@ -264,8 +268,9 @@ public abstract class ComputedValue extends AbstractObservableValue {
 	private void computeValueForListeners() {
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dependencies == null || dirty) {
+					// We are not currently listening, or listening to the
+					// dependencies of an outdated value.
 					if (hasListeners()) {
 						// But someone is listening for changes. Call getValue()
 						// to make sure we start listening to the observables we
@@ -285,6 +290,14 @@ public abstract class ComputedValue extends AbstractObservableValue {
 		computeValueForListeners();
 	}
 
+	protected void lastListenerRemoved() {
+		// Nobody is going to recompute the outdated value, stop listening to
+		// its dependencies
+		if (dirty)
+			stopListening();
+		super.lastListenerRemoved();
+	}
+
 	public synchronized void dispose() {
 		super.dispose();
 		stopListening();
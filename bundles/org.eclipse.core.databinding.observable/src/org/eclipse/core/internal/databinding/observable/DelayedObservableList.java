@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.list.ObservableList;
+
+/**
+ * {@link IObservableList} implementation that wraps an {@link IObservableList}
+ * and delays notification of list change events from the wrapped observable
+ * list according to a policy. The changes made in the meantime are merged
+ * into a single list change event, and the contents of this list only change
+ * when it is fired. To notify about pending changes, a DelayedObservableList
+ * fires a stale event when the wrapped observable list changes, and remains
+ * stale as long as a list change is pending. Accessing the contents of the
+ * list while a change is pending fires the change immediately.
+ * <p>
+ * This list is unmodifiable, changes must be made to the wrapped list.
+ * </p>
+ *
+ * @since 1.5
+ */
+public class DelayedObservableList extends ObservableList implements
+		IStaleListener, IListChangeListener {
+	private final Throttler throttler;
+	private IObservableList observable;
+
+	/**
+	 * The changes of the wrapped list not yet applied to this list
+	 */
+	private List pendingEntries = new ArrayList();
+
+	/**
+	 * @param delayMillis
+	 * @param policy
+	 *            one of {@link Observables#DEBOUNCE},
+	 *            {@link Observables#THROTTLE} and {@link Observables#SAMPLE}
+	 * @param observable
+	 */
+	public DelayedObservableList(int delayMillis, int policy,
+			IObservableList observable) {
+		super(observable.getRealm(), new ArrayList(observable), observable
+				.getElementType());
+		this.observable = observable;
+		this.throttler = new Throttler(getRealm(), delayMillis, policy,
+				new Runnable() {
+					public void run() {
+						firePendingChanges();
+					}
+				});
+
+		observable.addListChangeListener(this);
+		observable.addStaleListener(this);
+	}
+
+	public void handleListChange(ListChangeEvent event) {
+		ListDiffEntry[] differences = event.diff.getDifferences();
+		if (differences.length == 0)
+			return;
+		boolean wasPending = !pendingEntries.isEmpty();
+		for (int i = 0; i < differences.length; i++)
+			pendingEntries.add(differences[i]);
+		if (!wasPending && !observable.isStale())
+			fireStale();
+		throttler.changed();
+	}
+
+	public void handleStale(StaleEvent staleEvent) {
+		if (pendingEntries.isEmpty())
+			fireStale();
+	}
+
+	protected void getterCalled() {
+		if (!pendingEntries.isEmpty()) {
+			throttler.cancel();
+			firePendingChanges();
+		}
+		super.getterCalled();
+	}
+
+	public boolean isStale() {
+		ObservableTracker.getterCalled(this);
+		return !pendingEntries.isEmpty() || observable.isStale();
+	}
+
+	private void firePendingChanges() {
+		if (pendingEntries.isEmpty())
+			return;
+		ListDiffEntry[] differences = (ListDiffEntry[]) pendingEntries
+				.toArray(new ListDiffEntry[pendingEntries.size()]);
+		pendingEntries = new ArrayList();
+		for (int i = 0; i < differences.length; i++) {
+			ListDiffEntry entry = differences[i];
+			if (entry.isAddition())
+				wrappedList.add(entry.getPosition(), entry.getElement());
+			else
+				wrappedList.remove(entry.getPosition());
+		}
+		fireListChange(Diffs.createListDiff(differences));
+	}
+
+	public synchronized void dispose() {
+		throttler.cancel();
+		pendingEntries.clear();
+		if (observable != null) {
+			observable.removeListChangeListener(this);
+			observable.removeStaleListener(this);
+			observable = null;
+		}
+		super.dispose();
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.ObservableSet;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+
+/**
+ * {@link IObservableSet} implementation that wraps an {@link IObservableSet}
+ * and delays notification of set change events from the wrapped observable
+ * set according to a policy. The changes made in the meantime are merged into
+ * a single set change event, and the contents of this set only change when it
+ * is fired. To notify about pending changes, a DelayedObservableSet fires a
+ * stale event when the wrapped observable set changes, and remains stale as
+ * long as a set change is pending. Accessing the contents of the set while a
+ * change is pending fires the change immediately.
+ * <p>
+ * This set is unmodifiable, changes must be made to the wrapped set.
+ * </p>
+ *
+ * @since 1.5
+ */
+public class DelayedObservableSet extends ObservableSet implements
+		IStaleListener, ISetChangeListener {
+	private final Throttler throttler;
+	private IObservableSet observable;
+
+	/**
+	 * The elements added to the wrapped set and not yet to this set
+	 */
+	private Set additions = new HashSet();
+
+	/**
+	 * The elements removed from the wrapped set and not yet from this set
+	 */
+	private Set removals = new HashSet();
+
+	/**
+	 * Whether a change of the wrapped set is not yet applied to this set, the
+	 * additions and removals may cancel out
+	 */
+	private boolean pending;
+
+	/**
+	 * @param delayMillis
+	 * @param policy
+	 *            one of {@link Observables#DEBOUNCE},
+	 *            {@link Observables#THROTTLE} and {@link Observables#SAMPLE}
+	 * @param observable
+	 */
+	public DelayedObservableSet(int delayMillis, int policy,
+			IObservableSet observable) {
+		super(observable.getRealm(), new HashSet(observable), observable
+				.getElementType());
+		this.observable = observable;
+		this.throttler = new Throttler(getRealm(), delayMillis, policy,
+				new Runnable() {
+					public void run() {
+						firePendingChanges();
+					}
+				});
+
+		observable.addSetChangeListener(this);
+		observable.addStaleListener(this);
+	}
+
+	public void handleSetChange(SetChangeEvent event) {
+		if (event.diff.isEmpty())
+			return;
+		// an element removed after being added was not there before, and the
+		// other way round
+		for (Iterator it = event.diff.getRemovals().iterator(); it.hasNext();) {
+			Object element = it.next();
+			if (!additions.remove(element))
+				removals.add(element);
+		}
+		for (Iterator it = event.diff.getAdditions().iterator(); it.hasNext();) {
+			Object element = it.next();
+			if (!removals.remove(element))
+				additions.add(element);
+		}
+		if (!pending) {
+			pending = true;
+			if (!observable.isStale())
+				fireStale();
+		}
+		throttler.changed();
+	}
+
+	public void handleStale(StaleEvent staleEvent) {
+		if (!pending)
+			fireStale();
+	}
+
+	protected void getterCalled() {
+		if (pending) {
+			throttler.cancel();
+			firePendingChanges();
+		}
+		super.getterCalled();
+	}
+
+	public boolean isStale() {
+		ObservableTracker.getterCalled(this);
+		return pending || observable.isStale();
+	}
+
+	private void firePendingChanges() {
+		if (!pending)
+			return;
+		Set added = additions;
+		Set removed = removals;
+		additions = new HashSet();
+		removals = new HashSet();
+		pending = false;
+		wrappedSet.removeAll(removed);
+		wrappedSet.addAll(added);
+		fireSetChange(Diffs.createSetDiff(added, removed));
+	}
+
+	public synchronized void dispose() {
+		throttler.cancel();
+		pending = false;
+		if (observable != null) {
+			observable.removeSetChangeListener(this);
+			observable.removeStaleListener(this);
+			observable = null;
+		}
+		super.dispose();
+	}
+}
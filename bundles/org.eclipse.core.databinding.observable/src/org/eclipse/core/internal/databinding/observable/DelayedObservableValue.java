@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  * 		Boris Bokowski, IBM - initial API and implementation
  * 		Matthew Hall - bugs 212223, 208332, 245647
  *  	Will Horn - bug 215297
+ *  	IBM Corporation - throttle and sample policies
  ******************************************************************************/
 
 package org.eclipse.core.internal.databinding.observable;
@@ -17,6 +18,7 @@ package org.eclipse.core.internal.databinding.observable;
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Observables;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.value.AbstractObservableValue;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
@@ -36,6 +38,11 @@ import org.eclipse.core.databinding.observable.value.ValueDiff;
  * in an UI field. To notify about pending changes, a DelayedObservableValue
  * fires a stale event when the wrapped observable value fires a change event,
  * and remains stale as long as a value change is pending.
+ * <p>
+ * By default the value change is fired once the wrapped observable value has
+ * not changed for the delay. Other policies fire the changes at most once per
+ * delay, or at the end of each delay.
+ * </p>
  * 
  * Note that this class will not forward {@link ValueChangingEvent} events from
  * a wrapped {@link IVetoableValue}.
@@ -44,32 +51,7 @@ import org.eclipse.core.databinding.observable.value.ValueDiff;
  */
 public class DelayedObservableValue extends AbstractObservableValue implements
 		IStaleListener, IValueChangeListener {
-	class ValueUpdater implements Runnable {
-		private final Object oldValue;
-
-		boolean cancel = false;
-		boolean running = false;
-
-		ValueUpdater(Object oldValue) {
-			this.oldValue = oldValue;
-		}
-
-		void cancel() {
-			cancel = true;
-		}
-
-		public void run() {
-			if (!cancel)
-				try {
-					running = true;
-					internalFireValueChange(oldValue);
-				} finally {
-					running = false;
-				}
-		}
-	}
-
-	private final int delay;
+	private final Throttler throttler;
 	private IObservableValue observable;
 
 	private boolean dirty = true;
@@ -77,7 +59,10 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 
 	private boolean updating = false;
 
-	private ValueUpdater updater = null;
+	/**
+	 * Whether the pending value change is being fired
+	 */
+	private boolean firing = false;
 
 	/**
 	 * Constructs a new instance bound to the given
@@ -91,9 +76,30 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 	 *             if <code>updateEventType</code> is an incorrect type.
 	 */
 	public DelayedObservableValue(int delayMillis, IObservableValue observable) {
+		this(delayMillis, Observables.DEBOUNCE, observable);
+	}
+
+	/**
+	 * Constructs a new instance bound to the given observable value and
+	 * configured to fire change events according to the given policy.
+	 * 
+	 * @param delayMillis
+	 * @param policy
+	 *            one of {@link Observables#DEBOUNCE},
+	 *            {@link Observables#THROTTLE} and {@link Observables#SAMPLE}
+	 * @param observable
+	 * @since 1.5
+	 */
+	public DelayedObservableValue(int delayMillis, int policy,
+			IObservableValue observable) {
 		super(observable.getRealm());
-		this.delay = delayMillis;
 		this.observable = observable;
+		this.throttler = new Throttler(getRealm(), delayMillis, policy,
+				new Runnable() {
+					public void run() {
+						internalFireValueChange(cachedValue);
+					}
+				});
 
 		observable.addValueChangeListener(this);
 		observable.addStaleListener(this);
@@ -113,13 +119,13 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 
 	protected Object doGetValue() {
 		if (dirty) {
+			Object oldValue = cachedValue;
 			cachedValue = observable.getValue();
 			dirty = false;
 
-			if (updater != null && !updater.running) {
-				fireValueChange(Diffs.createValueDiff(updater.oldValue,
-						cachedValue));
-				cancelScheduledUpdate();
+			if (throttler.isPending() && !firing) {
+				throttler.cancel();
+				fireValueChange(Diffs.createValueDiff(oldValue, cachedValue));
 			}
 		}
 		return cachedValue;
@@ -131,7 +137,7 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 			// Principle of least surprise: setValue overrides any pending
 			// update from observable.
 			dirty = false;
-			cancelScheduledUpdate();
+			throttler.cancel();
 
 			Object oldValue = cachedValue;
 			observable.setValue(value);
@@ -148,7 +154,7 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 
 	public boolean isStale() {
 		ObservableTracker.getterCalled(this);
-		return (dirty && updater != null) || observable.isStale();
+		return (dirty && throttler.isPending()) || observable.isStale();
 	}
 
 	/**
@@ -162,7 +168,7 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 	}
 
 	public synchronized void dispose() {
-		cancelScheduledUpdate();
+		throttler.cancel();
 		if (observable != null) {
 			observable.dispose();
 			observable = null;
@@ -175,32 +181,23 @@ public class DelayedObservableValue extends AbstractObservableValue implements
 			dirty = true;
 			fireStale();
 		}
-		cancelScheduledUpdate(); // if any
-		scheduleUpdate();
-	}
-
-	private void cancelScheduledUpdate() {
-		if (updater != null) {
-			updater.cancel();
-			updater = null;
-		}
-	}
-
-	private void scheduleUpdate() {
-		updater = new ValueUpdater(cachedValue);
-		getRealm().timerExec(delay, updater);
+		throttler.changed();
 	}
 
 	private void internalFireValueChange(final Object oldValue) {
-		cancelScheduledUpdate();
-		fireValueChange(new ValueDiff() {
-			public Object getOldValue() {
-				return oldValue;
-			}
+		firing = true;
+		try {
+			fireValueChange(new ValueDiff() {
+				public Object getOldValue() {
+					return oldValue;
+				}
 
-			public Object getNewValue() {
-				return getValue();
-			}
-		});
+				public Object getNewValue() {
+					return getValue();
+				}
+			});
+		} finally {
+			firing = false;
+		}
 	}
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.Realm;
+
+/**
+ * Decides when the pending changes of a delayed observable are fired, using
+ * the timer of its realm. The policies are {@link Observables#DEBOUNCE},
+ * {@link Observables#THROTTLE} and {@link Observables#SAMPLE}.
+ * <p>
+ * Must be used within the realm.
+ * </p>
+ *
+ * @since 1.5
+ */
+public class Throttler {
+	private final Realm realm;
+	private final int delay;
+	private final int policy;
+	private final Runnable flush;
+
+	/**
+	 * Whether a change was reported since the last flush
+	 */
+	private boolean pending;
+
+	/**
+	 * The timer runnable currently scheduled, or <code>null</code>. Timer
+	 * runnables cannot be cancelled, they have no effect once replaced.
+	 */
+	private Runnable scheduled;
+
+	/**
+	 * @param realm
+	 *            the realm whose timer is used
+	 * @param delay
+	 *            the delay in milliseconds
+	 * @param policy
+	 *            one of {@link Observables#DEBOUNCE},
+	 *            {@link Observables#THROTTLE} and {@link Observables#SAMPLE}
+	 * @param flush
+	 *            the runnable firing the pending changes
+	 */
+	public Throttler(Realm realm, int delay, int policy, Runnable flush) {
+		if (policy != Observables.DEBOUNCE && policy != Observables.THROTTLE
+				&& policy != Observables.SAMPLE)
+			throw new IllegalArgumentException("Unknown policy: " + policy); //$NON-NLS-1$
+		this.realm = realm;
+		this.delay = delay;
+		this.policy = policy;
+		this.flush = flush;
+	}
+
+	/**
+	 * Reports a change of the observable. Depending on the policy, the flush
+	 * runnable is run immediately or scheduled.
+	 */
+	public void changed() {
+		switch (policy) {
+		case Observables.DEBOUNCE:
+			// wait for the changes to stop
+			pending = true;
+			schedule();
+			break;
+		case Observables.THROTTLE:
+			if (scheduled == null) {
+				// first change since the last period, fire it immediately
+				// and coalesce the changes of the next period
+				schedule();
+				flush.run();
+			} else {
+				pending = true;
+			}
+			break;
+		default:
+			// fire the changes of every period at its end
+			pending = true;
+			if (scheduled == null)
+				schedule();
+			break;
+		}
+	}
+
+	/**
+	 * @return whether changes are waiting to be fired
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Forgets about the pending changes, which the caller fires or discards
+	 * itself.
+	 */
+	public void cancel() {
+		pending = false;
+		scheduled = null;
+	}
+
+	private void schedule() {
+		final Runnable runnable = new Runnable() {
+			public void run() {
+				if (scheduled == this)
+					elapsed();
+			}
+		};
+		scheduled = runnable;
+		realm.timerExec(delay, runnable);
+	}
+
+	private void elapsed() {
+		scheduled = null;
+		if (!pending)
+			return;
+		pending = false;
+		if (policy == Observables.THROTTLE)
+			// the fired changes start a new period
+			schedule();
+		flush.run();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ import org.eclipse.core.databinding.observable.DisposeEvent;
 import org.eclipse.core.databinding.observable.IDisposeListener;
 import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.list.IObservableList;
 
 /**
@@ -146,6 +147,25 @@ public abstract class Binding extends ValidationStatusProvider {
 		super.dispose();
 	}
 
+	/**
+	 * Runs the given runnable within the realm of the given destination
+	 * observable, dispatching the events fired while it runs immediately even
+	 * within a {@link Realm#batch(Runnable) batch}, so that the binding can
+	 * ignore the changes it makes to the destination.
+	 * 
+	 * @param destination
+	 * @param runnable
+	 */
+	/* package */static void execUpdate(IObservable destination,
+			final Runnable runnable) {
+		final Realm realm = destination.getRealm();
+		realm.exec(new Runnable() {
+			public void run() {
+				realm.runWithoutBatching(runnable);
+			}
+		});
+	}
+
 	/**
 	 * @param context
 	 */
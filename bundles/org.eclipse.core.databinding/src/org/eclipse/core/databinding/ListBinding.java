@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -149,7 +149,7 @@ public class ListBinding extends Binding {
 		final int policy = updateListStrategy.getUpdatePolicy();
 		if (policy != UpdateListStrategy.POLICY_NEVER) {
 			if (policy != UpdateListStrategy.POLICY_ON_REQUEST || explicit) {
-				destination.getRealm().exec(new Runnable() {
+				execUpdate(destination, new Runnable() {
 					public void run() {
 						if (destination == getTarget()) {
 							updatingTarget = true;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Matthew Hall and others.
+ * Copyright (c) 2008, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -153,7 +153,7 @@ public class SetBinding extends Binding {
 			return;
 		if (policy == UpdateSetStrategy.POLICY_ON_REQUEST && !explicit)
 			return;
-		destination.getRealm().exec(new Runnable() {
+		execUpdate(destination, new Runnable() {
 			public void run() {
 				if (destination == getTarget()) {
 					updatingTarget = true;
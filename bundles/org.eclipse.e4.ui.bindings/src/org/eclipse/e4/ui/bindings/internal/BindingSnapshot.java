@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.bindings.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.TriggerSequence;
+
+/**
+ * The effective bindings of a {@link ContextSet}, merged from the binding tables
+ * of its contexts with the scheme precedence already resolved. A snapshot is
+ * never modified once built: it is valid as long as the tables it was built
+ * from are not modified, see {@link #isValid(int)}.
+ */
+class BindingSnapshot {
+
+	private final int generation;
+
+	private final BindingTable[] tables;
+
+	private final int[] modificationCounts;
+
+	private final Map<TriggerSequence, Binding> perfectMatches = new HashMap<TriggerSequence, Binding>();
+
+	private final Map<TriggerSequence, List<Binding>> partialMatches = new HashMap<TriggerSequence, List<Binding>>();
+
+	private final Map<ParameterizedCommand, List<Binding>> sequences = new HashMap<ParameterizedCommand, List<Binding>>();
+
+	/**
+	 * @param tables
+	 *            the tables of the contexts, from the most specific context to
+	 *            the least specific one, without the contexts with no table
+	 * @param generation
+	 *            the generation of the manager when the tables were looked up
+	 * @param manager
+	 *            the manager resolving scheme precedence
+	 */
+	BindingSnapshot(BindingTable[] tables, int generation, BindingTableManager manager) {
+		this.tables = tables;
+		this.generation = generation;
+		modificationCounts = new int[tables.length];
+		Set<TriggerSequence> resolved = new HashSet<TriggerSequence>();
+		for (int i = 0; i < tables.length; i++) {
+			BindingTable table = tables[i];
+			modificationCounts[i] = table.getModificationCount();
+			Set<ParameterizedCommand> commands = new HashSet<ParameterizedCommand>();
+			for (Binding binding : table.getBindings()) {
+				TriggerSequence trigger = binding.getTriggerSequence();
+				addPerfectMatch(trigger, binding, resolved, manager);
+
+				TriggerSequence[] prefixes = trigger.getPrefixes();
+				for (int j = 1; j < prefixes.length; j++) {
+					add(partialMatches, prefixes[j], binding);
+				}
+
+				ParameterizedCommand command = binding.getParameterizedCommand();
+				if (commands.add(command)) {
+					// in the order of the table, like the walk of the tables
+					for (Binding sequence : table.getSequencesFor(command)) {
+						add(sequences, command, sequence);
+					}
+				}
+			}
+		}
+		for (List<Binding> bindings : sequences.values()) {
+			Collections.sort(bindings, BindingTable.BEST_SEQUENCE);
+		}
+	}
+
+	/**
+	 * Same resolution as the walk of the tables in
+	 * {@link BindingTableManager#getPerfectMatch(ContextSet, TriggerSequence)}
+	 * : the binding of the most active scheme in the most specific context
+	 * wins.
+	 */
+	private void addPerfectMatch(TriggerSequence trigger, Binding binding,
+			Set<TriggerSequence> resolved, BindingTableManager manager) {
+		if (resolved.contains(trigger)) {
+			return;
+		}
+		if (manager.isMostActiveScheme(binding)) {
+			perfectMatches.put(trigger, binding);
+			resolved.add(trigger);
+			return;
+		}
+		Binding result = perfectMatches.get(trigger);
+		if (result == null
+				|| manager.compareSchemes(result.getSchemeId(), binding.getSchemeId()) < 0) {
+			perfectMatches.put(trigger, binding);
+		}
+	}
+
+	private static <K> void add(Map<K, List<Binding>> map, K key, Binding binding) {
+		List<Binding> bindings = map.get(key);
+		if (bindings == null) {
+			bindings = new ArrayList<Binding>(2);
+			map.put(key, bindings);
+		}
+		bindings.add(binding);
+	}
+
+	/**
+	 * Returns whether none of the tables has been modified since this snapshot
+	 * was built.
+	 *
+	 * @param currentGeneration
+	 *            the current generation of the manager, which changes when
+	 *            tables are added or removed or when the active schemes change
+	 */
+	boolean isValid(int currentGeneration) {
+		if (generation != currentGeneration) {
+			return false;
+		}
+		for (int i = 0; i < tables.length; i++) {
+			if (tables[i].getModificationCount() != modificationCounts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	Binding getPerfectMatch(TriggerSequence trigger) {
+		return perfectMatches.get(trigger);
+	}
+
+	boolean isPartialMatch(TriggerSequence trigger) {
+		return partialMatches.containsKey(trigger);
+	}
+
+	/**
+	 * Returns the bindings having the given trigger as a strict prefix, the
+	 * bindings of the most specific context first.
+	 */
+	ArrayList<Binding> getPartialMatches(TriggerSequence trigger) {
+		List<Binding> bindings = partialMatches.get(trigger);
+		return bindings == null ? new ArrayList<Binding>() : new ArrayList<Binding>(bindings);
+	}
+
+	/**
+	 * Returns the bindings of the command, best one first.
+	 */
+	ArrayList<Binding> getSequencesFor(ParameterizedCommand command) {
+		List<Binding> bindings = sequences.get(command);
+		return bindings == null ? new ArrayList<Binding>() : new ArrayList<Binding>(bindings);
+	}
+
+	Binding getBestSequenceFor(ParameterizedCommand command) {
+		List<Binding> bindings = sequences.get(command);
+		return bindings == null ? null : bindings.get(0);
+	}
+}
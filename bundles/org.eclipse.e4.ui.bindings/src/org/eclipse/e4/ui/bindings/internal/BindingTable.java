@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -129,6 +129,7 @@ public class BindingTable {
 	private Map<TriggerSequence, ArrayList<Binding>> bindingsByPrefix = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> conflicts = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> orderedBindingsByTrigger = new HashMap<TriggerSequence, ArrayList<Binding>>();
+	private int modificationCount;
 
 	/**
 	 * @param context
@@ -145,6 +146,14 @@ public class BindingTable {
 		return tableId.getId();
 	}
 
+	/**
+	 * Returns a count incremented each time a binding is added or removed, so
+	 * that the snapshots built from this table can be invalidated.
+	 */
+	int getModificationCount() {
+		return modificationCount;
+	}
+
 	public Collection<Binding> getConflicts() {
 		Collection<Binding> conflictsList = new ArrayList<Binding>();
 		for (TriggerSequence key : conflicts.keySet()) {
@@ -166,6 +175,7 @@ public class BindingTable {
 			throw new IllegalArgumentException("Binding context " + binding.getContextId() //$NON-NLS-1$
 					+ " does not match " + getId()); //$NON-NLS-1$
 		}
+		modificationCount++;
 		ArrayList<Binding> bindingList = orderedBindingsByTrigger.get(binding.getTriggerSequence());
 		Binding possibleConflict = bindingsByTrigger.get(binding.getTriggerSequence());
 		if (bindingList == null || bindingList.isEmpty()) {
@@ -237,6 +247,7 @@ public class BindingTable {
 			throw new IllegalArgumentException("Binding context " + binding.getContextId() //$NON-NLS-1$
 					+ " does not match " + getId()); //$NON-NLS-1$
 		}
+		modificationCount++;
 		ArrayList<Binding> bindingList = orderedBindingsByTrigger.get(binding.getTriggerSequence());
 		Binding possibleConflict = bindingsByTrigger.get(binding.getTriggerSequence());
 		if (possibleConflict == binding) {
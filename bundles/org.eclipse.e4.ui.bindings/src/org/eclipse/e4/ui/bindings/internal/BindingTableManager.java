@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2012 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,9 +13,10 @@ package org.eclipse.e4.ui.bindings.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.inject.Inject;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
@@ -25,10 +26,18 @@ import org.eclipse.jface.bindings.TriggerSequence;
 
 /**
  * manage tables of bindings that can be used to look up commands from keys.
+ * <p>
+ * Key and command lookups for a {@link ContextSet} are answered from a
+ * {@link BindingSnapshot} of its effective bindings, built on the first lookup
+ * and kept until one of its tables changes, a table is added or removed, or
+ * the active schemes change.
+ * </p>
  */
 public class BindingTableManager {
 	private static final String BINDING_TABLE_PREFIX = "bindingTable:"; //$NON-NLS-1$
 
+	private static final int MAX_SNAPSHOTS = 32;
+
 	@Inject
 	private IEclipseContext eclipseContext;
 
@@ -36,6 +45,10 @@ public class BindingTableManager {
 
 	private String[] activeSchemeIds;
 
+	private final Map<List<Context>, BindingSnapshot> snapshots = new ConcurrentHashMap<List<Context>, BindingSnapshot>();
+
+	private volatile int generation;
+
 	public void addTable(BindingTable table) {
 		String contextId = getTableId(table.getId());
 		if (eclipseContext.containsKey(contextId)) {
@@ -43,6 +56,7 @@ public class BindingTableManager {
 			//			throw new IllegalArgumentException("Already contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.set(contextId, table);
+		generation++;
 		final List<Context> contexts = definedTables.getContexts();
 		if (!contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -61,6 +75,7 @@ public class BindingTableManager {
 			throw new IllegalArgumentException("Does not contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.remove(contextId);
+		generation++;
 		final List<Context> contexts = definedTables.getContexts();
 		if (contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -73,6 +88,35 @@ public class BindingTableManager {
 		return (BindingTable) eclipseContext.get(getTableId(id));
 	}
 
+	/**
+	 * Returns the effective bindings of the context set, building them if the
+	 * tables changed since the last lookup.
+	 */
+	private BindingSnapshot getSnapshot(ContextSet contextSet) {
+		List<Context> contexts = contextSet.getContexts();
+		int currentGeneration = generation;
+		BindingSnapshot snapshot = snapshots.get(contexts);
+		if (snapshot != null && snapshot.isValid(currentGeneration)) {
+			return snapshot;
+		}
+		ArrayList<BindingTable> tables = new ArrayList<BindingTable>(contexts.size());
+		ListIterator<Context> it = contexts.listIterator(contexts.size());
+		while (it.hasPrevious()) {
+			BindingTable table = getTable(it.previous().getId());
+			if (table != null) {
+				tables.add(table);
+			}
+		}
+		snapshot = new BindingSnapshot(tables.toArray(new BindingTable[tables.size()]),
+				currentGeneration, this);
+		if (snapshots.size() >= MAX_SNAPSHOTS) {
+			snapshots.clear();
+		}
+		// copy the key, the lists of the context sets are not immutable
+		snapshots.put(new ArrayList<Context>(contexts), snapshot);
+		return snapshot;
+	}
+
 	// we're just going through each binding table, and returning a
 	// flat list of bindings here
 	public Collection<Binding> getActiveBindings() {
@@ -120,38 +164,14 @@ public class BindingTableManager {
 	}
 
 	public Binding getPerfectMatch(ContextSet contextSet, TriggerSequence triggerSequence) {
-		Binding result = null;
-		Binding currentResult = null;
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				currentResult = table.getPerfectMatch(triggerSequence);
-			}
-			if (currentResult != null) {
-				if (isMostActiveScheme(currentResult)) {
-					return currentResult;
-				}
-				if (result == null) {
-					result = currentResult;
-				} else {
-					int rc = compareSchemes(result.getSchemeId(), currentResult.getSchemeId());
-					if (rc < 0) {
-						result = currentResult;
-					}
-				}
-			}
-		}
-		return result;
+		return getSnapshot(contextSet).getPerfectMatch(triggerSequence);
 	}
 
 	/**
 	 * @param currentResult
 	 * @return
 	 */
-	private boolean isMostActiveScheme(Binding currentResult) {
+	boolean isMostActiveScheme(Binding currentResult) {
 		if (activeSchemeIds == null || activeSchemeIds.length < 2) {
 			return true;
 		}
@@ -161,31 +181,12 @@ public class BindingTableManager {
 
 	public Binding getBestSequenceFor(ContextSet contextSet,
 			ParameterizedCommand parameterizedCommand) {
-		ArrayList<Binding> bindings = (ArrayList<Binding>) getSequencesFor(contextSet,
-				parameterizedCommand);
-		if (bindings.size() == 0) {
-			return null;
-		}
-		return bindings.get(0);
+		return getSnapshot(contextSet).getBestSequenceFor(parameterizedCommand);
 	}
 
 	public Collection<Binding> getSequencesFor(ContextSet contextSet,
 			ParameterizedCommand parameterizedCommand) {
-		ArrayList<Binding> bindings = new ArrayList<Binding>();
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				Collection<Binding> sequences = table.getSequencesFor(parameterizedCommand);
-				if (sequences != null) {
-					bindings.addAll(sequences);
-				}
-			}
-		}
-		Collections.sort(bindings, BindingTable.BEST_SEQUENCE);
-		return bindings;
+		return getSnapshot(contextSet).getSequencesFor(parameterizedCommand);
 	}
 
 	public Collection<Binding> getBindingsFor(ContextSet contextSet, ParameterizedCommand cmd) {
@@ -203,35 +204,11 @@ public class BindingTableManager {
 	}
 
 	public boolean isPartialMatch(ContextSet contextSet, TriggerSequence sequence) {
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				if (table.isPartialMatch(sequence)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return getSnapshot(contextSet).isPartialMatch(sequence);
 	}
 
 	public Collection<Binding> getPartialMatches(ContextSet contextSet, TriggerSequence sequence) {
-		ArrayList<Binding> bindings = new ArrayList<Binding>();
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				Collection<Binding> partialMatches = table.getPartialMatches(sequence);
-				if (partialMatches != null) {
-					bindings.addAll(partialMatches);
-				}
-			}
-		}
-		return bindings;
+		return getSnapshot(contextSet).getPartialMatches(sequence);
 	}
 
 	/**
@@ -240,6 +217,7 @@ public class BindingTableManager {
 	public void setActiveSchemes(String[] activeSchemeIds) {
 		this.activeSchemeIds = activeSchemeIds;
 		BindingTable.BEST_SEQUENCE.setActiveSchemes(activeSchemeIds);
+		generation++;
 	}
 
 	/*
@@ -247,7 +225,7 @@ public class BindingTableManager {
 	 * 
 	 * Returns an in based on scheme 1 < scheme 2
 	 */
-	private final int compareSchemes(final String schemeId1, final String schemeId2) {
+	final int compareSchemes(final String schemeId1, final String schemeId2) {
 		if (activeSchemeIds == null) {
 			return 0;
 		}
@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractDescendantSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractSiblingSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSConditionalSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSElementSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSPseudoClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleRule;
+
+/**
+ * Index of the style rules of a {@link CSSRuleList}, used to find the
+ * selectors which may match an element without testing every selector of the
+ * style sheet.
+ * <p>
+ * Each selector is filed under a single key taken from its rightmost compound
+ * selector: the id if there is one, otherwise a CSS class, otherwise the
+ * element name. Selectors without any of those (e.g. <code>*</code> or
+ * <code>:selected</code>) are kept in a universal bucket which is always
+ * tested. The candidates returned for an element are ordered like the rules
+ * and selectors of the style sheet, so that callers compute the same positions
+ * as a linear scan.
+ * </p>
+ * <p>
+ * The index also records which parts of an element the selectors depend on
+ * (attribute names, pseudo classes, siblings), so that callers can tell which
+ * elements are guaranteed to get the same computed style.
+ * </p>
+ */
+public final class CSSRuleIndex {
+
+	/**
+	 * A selector of a style rule, together with its position in the style
+	 * sheet.
+	 */
+	static final class Entry {
+		final int order;
+		final CSSStyleRule rule;
+		final ExtendedSelector selector;
+
+		Entry(int order, CSSStyleRule rule, ExtendedSelector selector) {
+			this.order = order;
+			this.rule = rule;
+			this.selector = selector;
+		}
+	}
+
+	private static final Comparator<Entry> ORDER_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return e1.order < e2.order ? -1 : (e1.order == e2.order ? 0 : 1);
+		}
+	};
+
+	private final Map<String, List<Entry>> idRules = new HashMap<String, List<Entry>>();
+	private final Map<String, List<Entry>> classRules = new HashMap<String, List<Entry>>();
+	private final Map<String, List<Entry>> elementRules = new HashMap<String, List<Entry>>();
+	private final List<Entry> universalRules = new ArrayList<Entry>();
+
+	private final Set<String> attributeNames = new HashSet<String>();
+	private final Set<String> pseudoClasses = new HashSet<String>();
+	private boolean siblingSelectors;
+
+	/**
+	 * Builds the index of the given rule list.
+	 *
+	 * @param ruleList
+	 *            the rules to index
+	 */
+	public CSSRuleIndex(CSSRuleList ruleList) {
+		int order = 0;
+		int length = ruleList.getLength();
+		for (int i = 0; i < length; i++) {
+			CSSRule rule = ruleList.item(i);
+			if (rule.getType() != CSSRule.STYLE_RULE
+					|| !(rule instanceof ExtendedCSSRule)) {
+				continue;
+			}
+			SelectorList selectorList = ((ExtendedCSSRule) rule)
+					.getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector instanceof ExtendedSelector) {
+					add(new Entry(order++, (CSSStyleRule) rule,
+							(ExtendedSelector) selector));
+					((ExtendedSelector) selector)
+							.fillAttributeSet(attributeNames);
+					collectFeatures(selector);
+				}
+			}
+		}
+	}
+
+	private void add(Entry entry) {
+		Selector subject = getSubject(entry.selector);
+		if (subject instanceof CSSConditionalSelectorImpl) {
+			CSSConditionalSelectorImpl conditional = (CSSConditionalSelectorImpl) subject;
+			String id = findCondition(conditional.getCondition(), true);
+			if (id != null) {
+				addTo(idRules, id, entry);
+				return;
+			}
+			String cssClass = findCondition(conditional.getCondition(), false);
+			if (cssClass != null) {
+				addTo(classRules, cssClass, entry);
+				return;
+			}
+			subject = conditional.getSimpleSelector();
+		}
+		if (subject instanceof CSSElementSelectorImpl) {
+			String name = ((CSSElementSelectorImpl) subject).getLocalName();
+			if (name != null) {
+				addTo(elementRules, name, entry);
+				return;
+			}
+		}
+		universalRules.add(entry);
+	}
+
+	/**
+	 * Records the pseudo classes and sibling combinators used by the given
+	 * selector.
+	 */
+	private void collectFeatures(Selector selector) {
+		if (selector instanceof DescendantSelector) {
+			DescendantSelector descendant = (DescendantSelector) selector;
+			collectFeatures(descendant.getAncestorSelector());
+			collectFeatures(descendant.getSimpleSelector());
+		} else if (selector instanceof SiblingSelector) {
+			siblingSelectors = true;
+			SiblingSelector sibling = (SiblingSelector) selector;
+			collectFeatures(sibling.getSelector());
+			collectFeatures(sibling.getSiblingSelector());
+		} else if (selector instanceof ConditionalSelector) {
+			ConditionalSelector conditional = (ConditionalSelector) selector;
+			collectFeatures(conditional.getSimpleSelector());
+			collectFeatures(conditional.getCondition());
+		}
+	}
+
+	private void collectFeatures(Condition condition) {
+		if (condition instanceof CombinatorCondition) {
+			CombinatorCondition combinator = (CombinatorCondition) condition;
+			collectFeatures(combinator.getFirstCondition());
+			collectFeatures(combinator.getSecondCondition());
+		} else if (condition instanceof CSSPseudoClassConditionImpl) {
+			pseudoClasses.add(((CSSPseudoClassConditionImpl) condition)
+					.getValue());
+		}
+	}
+
+	/**
+	 * Returns the names of the attributes tested by the indexed selectors.
+	 *
+	 * @return the attribute names
+	 */
+	public Set<String> getAttributeNames() {
+		return attributeNames;
+	}
+
+	/**
+	 * Returns the pseudo classes tested by the indexed selectors.
+	 *
+	 * @return the pseudo class names
+	 */
+	public Set<String> getPseudoClasses() {
+		return pseudoClasses;
+	}
+
+	/**
+	 * Returns whether one of the indexed selectors depends on the siblings of
+	 * the element.
+	 *
+	 * @return <code>true</code> if sibling selectors are used
+	 */
+	public boolean hasSiblingSelectors() {
+		return siblingSelectors;
+	}
+
+	/**
+	 * Returns the simple selector which is tested against the element itself
+	 * (the rightmost compound selector).
+	 */
+	private static Selector getSubject(Selector selector) {
+		while (true) {
+			if (selector instanceof AbstractDescendantSelector) {
+				selector = ((AbstractDescendantSelector) selector)
+						.getSimpleSelector();
+			} else if (selector instanceof AbstractSiblingSelector) {
+				selector = ((AbstractSiblingSelector) selector)
+						.getSiblingSelector();
+			} else {
+				return selector;
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of the first id (or class) condition required by the
+	 * given condition, or <code>null</code> if none is required.
+	 */
+	private static String findCondition(Condition condition, boolean id) {
+		if (condition instanceof CSSAndConditionImpl) {
+			CSSAndConditionImpl and = (CSSAndConditionImpl) condition;
+			String value = findCondition(and.getFirstCondition(), id);
+			return value != null ? value : findCondition(
+					and.getSecondCondition(), id);
+		}
+		if (id && condition instanceof CSSIdConditionImpl) {
+			return ((CSSIdConditionImpl) condition).getValue();
+		}
+		if (!id && condition instanceof CSSClassConditionImpl) {
+			String value = ((CSSClassConditionImpl) condition).getValue();
+			return value != null && value.length() > 0 ? value : null;
+		}
+		return null;
+	}
+
+	private static void addTo(Map<String, List<Entry>> map, String key,
+			Entry entry) {
+		List<Entry> entries = map.get(key);
+		if (entries == null) {
+			entries = new ArrayList<Entry>(2);
+			map.put(key, entries);
+		}
+		entries.add(entry);
+	}
+
+	/**
+	 * Returns the selectors which may match the given element, in style sheet
+	 * order. Each candidate must still be matched against the element.
+	 *
+	 * @param elt
+	 *            the element to style
+	 * @return the candidate selectors, never <code>null</code>
+	 */
+	List<Entry> getCandidates(Element elt) {
+		List<List<Entry>> buckets = new ArrayList<List<Entry>>(4);
+		addBucket(buckets, universalRules);
+
+		String name = elt.getPrefix() == null ? elt.getNodeName() : elt
+				.getLocalName();
+		if (name != null) {
+			addBucket(buckets, elementRules.get(name));
+		}
+
+		String id = elt instanceof CSSStylableElement ? ((CSSStylableElement) elt)
+				.getCSSId() : elt.getAttribute("id");
+		if (id != null) {
+			addBucket(buckets, idRules.get(id));
+		}
+
+		String cssClass = elt instanceof CSSStylableElement ? ((CSSStylableElement) elt)
+				.getCSSClass() : elt.getAttribute("class");
+		if (cssClass != null && !classRules.isEmpty()) {
+			addClassBuckets(buckets, cssClass);
+		}
+
+		switch (buckets.size()) {
+		case 0:
+			return Collections.emptyList();
+		case 1:
+			return buckets.get(0);
+		default:
+			List<Entry> candidates = new ArrayList<Entry>();
+			for (List<Entry> bucket : buckets) {
+				candidates.addAll(bucket);
+			}
+			Collections.sort(candidates, ORDER_COMPARATOR);
+			return candidates;
+		}
+	}
+
+	/**
+	 * Adds the bucket of each distinct class of the given class attribute.
+	 * Classes are separated like in {@link CSSClassConditionImpl}.
+	 */
+	private void addClassBuckets(List<List<Entry>> buckets, String cssClass) {
+		int length = cssClass.length();
+		int start = 0;
+		while (start < length) {
+			while (start < length
+					&& Character.isSpaceChar(cssClass.charAt(start))) {
+				start++;
+			}
+			int end = start;
+			while (end < length && !Character.isSpaceChar(cssClass.charAt(end))) {
+				end++;
+			}
+			if (end > start) {
+				List<Entry> bucket = classRules.get(cssClass.substring(start,
+						end));
+				if (bucket != null && !containsBucket(buckets, bucket)) {
+					buckets.add(bucket);
+				}
+			}
+			start = end;
+		}
+	}
+
+	private static boolean containsBucket(List<List<Entry>> buckets,
+			List<Entry> bucket) {
+		for (List<Entry> b : buckets) {
+			if (b == bucket) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void addBucket(List<List<Entry>> buckets, List<Entry> bucket) {
+		if (bucket != null && !bucket.isEmpty()) {
+			buckets.add(bucket);
+		}
+	}
+}
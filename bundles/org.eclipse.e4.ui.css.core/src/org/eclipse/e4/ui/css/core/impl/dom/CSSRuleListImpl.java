@@ -21,6 +21,8 @@ public class CSSRuleListImpl implements CSSRuleList {
 
 	private List<CSSRule> ruleList;
 
+	private CSSRuleIndex ruleIndex;
+
 	public CSSRuleListImpl() {
 		super();
 		this.ruleList = new ArrayList<CSSRule>();
@@ -53,6 +55,7 @@ public class CSSRuleListImpl implements CSSRuleList {
 	 */
 	public void add(CSSRule rule) {
 		ruleList.add(rule);
+		ruleIndex = null;
 	}
 
 	/**
@@ -60,5 +63,19 @@ public class CSSRuleListImpl implements CSSRuleList {
 	 */
 	public void remove(int position) {
 		ruleList.remove(position);
+		ruleIndex = null;
+	}
+
+	/**
+	 * Returns the index of the style rules of this list, building it if the
+	 * list has changed since it was last built.
+	 *
+	 * @return the rule index
+	 */
+	public CSSRuleIndex getRuleIndex() {
+		if (ruleIndex == null) {
+			ruleIndex = new CSSRuleIndex(this);
+		}
+		return ruleIndex;
 	}
 }
@@ -74,9 +74,12 @@ public class ViewCSSImpl implements ViewCSS {
 	}
 
 	public CSSStyleDeclaration getComputedStyle(CSSStyleSheet styleSheet, Element elt, String pseudoElt) {
+		CSSRuleList ruleList = styleSheet.getCssRules();
+		if (ruleList instanceof CSSRuleListImpl) {
+			return getComputedStyle(((CSSRuleListImpl) ruleList).getRuleIndex(), elt, pseudoElt);
+		}
 		List styleDeclarations = null;
 		StyleWrapper firstStyleDeclaration = null;
-		CSSRuleList ruleList = styleSheet.getCssRules();
 		int length = ruleList.getLength();
 		int position = 0;
 		for (int i = 0; i < length; i++) {
@@ -122,6 +125,44 @@ public class ViewCSSImpl implements ViewCSS {
 				}
 			}
 		}
+		return createComputedStyle(styleDeclarations, firstStyleDeclaration);
+	}
+
+	/**
+	 * Computes the style of the element using the given rule index. Only the
+	 * selectors which may match the element are tested, in style sheet order,
+	 * so the result is the same as the one of a full scan of the rules.
+	 */
+	private CSSStyleDeclaration getComputedStyle(CSSRuleIndex ruleIndex,
+			Element elt, String pseudoElt) {
+		List<StyleWrapper> styleDeclarations = null;
+		StyleWrapper firstStyleDeclaration = null;
+		int position = 0;
+		List<CSSRuleIndex.Entry> candidates = ruleIndex.getCandidates(elt);
+		int length = candidates.size();
+		for (int i = 0; i < length; i++) {
+			CSSRuleIndex.Entry candidate = candidates.get(i);
+			ExtendedSelector extendedSelector = candidate.selector;
+			if (extendedSelector.match(elt, pseudoElt)) {
+				StyleWrapper wrapper = new StyleWrapper(candidate.rule
+						.getStyle(), extendedSelector.getSpecificity(),
+						position++);
+				if (firstStyleDeclaration == null) {
+					firstStyleDeclaration = wrapper;
+				} else {
+					if (styleDeclarations == null) {
+						styleDeclarations = new ArrayList<StyleWrapper>();
+						styleDeclarations.add(firstStyleDeclaration);
+					}
+					styleDeclarations.add(wrapper);
+				}
+			}
+		}
+		return createComputedStyle(styleDeclarations, firstStyleDeclaration);
+	}
+
+	private CSSStyleDeclaration createComputedStyle(List styleDeclarations,
+			StyleWrapper firstStyleDeclaration) {
 		if (styleDeclarations != null) {
 			// There is several Style Declarations wich match
 			// the element, merge the CSS Property value.
@@ -106,6 +106,11 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	private ViewCSS viewCSS;
 
+	/**
+	 * Cache of the styles computed by the {@link ViewCSS}.
+	 */
+	private CSSComputedStyleCache computedStyleCache;
+
 	/**
 	 * {@link IElementProvider} used to retrieve w3c Element linked to the
 	 * widget.
@@ -147,6 +152,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public AbstractCSSEngine(ExtendedDocumentCSS documentCSS) {
 		this.documentCSS = documentCSS;
 		this.viewCSS = new ViewCSSImpl(documentCSS);
+		this.computedStyleCache = new CSSComputedStyleCache(documentCSS,
+				viewCSS);
 		keyFactory = new ResourceRegistryKeyFactory();
 	}
 
@@ -233,7 +240,10 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		CSSStyleSheetImpl s = new CSSStyleSheetImpl();
 		s.setRuleList(masterList);
 		if (!parseImport) {
+			// index the rules once, rather than when the first element is styled
+			masterList.getRuleIndex();
 			documentCSS.addStyleSheet(s);
+			computedStyleCache.clear();
 		}
 		return s;
 	}
@@ -366,7 +376,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 			/*
 			 * Compute new Style to apply.
 			 */
-			CSSStyleDeclaration style = viewCSS.getComputedStyle(elt, null);
+			CSSStyleDeclaration style = computedStyleCache.getComputedStyle(
+					elt, null);
 			if (computeDefaultStyle) {
 				if (applyStylesToChildNodes) {
 					this.computeDefaultStyle = computeDefaultStyle;
@@ -385,7 +396,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 				// there are static pseudo instances definied, loop for it and
 				// apply styles for each pseudo instance.
 				for (String pseudoInstance : pseudoInstances) {
-					CSSStyleDeclaration styleWithPseudoInstance = viewCSS
+					CSSStyleDeclaration styleWithPseudoInstance = computedStyleCache
 							.getComputedStyle(elt, pseudoInstance);
 					if (computeDefaultStyle) {
 						/*
@@ -992,6 +1003,16 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		return viewCSS;
 	}
 
+	/**
+	 * Returns the cache of the styles computed while applying styles. Its hit
+	 * and miss counts can be used to monitor the styling performance.
+	 *
+	 * @return the computed style cache
+	 */
+	public CSSComputedStyleCache getComputedStyleCache() {
+		return computedStyleCache;
+	}
+
 	@Override
 	public void dispose() {
 		reset();
@@ -1015,6 +1036,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public void reset() {
 		// Remove All Style Sheets
 		documentCSS.removeAllStyleSheets();
+		computedStyleCache.clear();
 	}
 
 	/*--------------- Resources Registry -----------------*/
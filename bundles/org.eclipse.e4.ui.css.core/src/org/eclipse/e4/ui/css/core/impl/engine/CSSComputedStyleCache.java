@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleIndex;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.DocumentCSS;
+import org.w3c.dom.css.ViewCSS;
+import org.w3c.dom.stylesheets.StyleSheetList;
+
+/**
+ * Cache of the {@link CSSStyleDeclaration}s computed by a {@link ViewCSS}.
+ * <p>
+ * Styles are cached by a structural signature of the element and of its
+ * ancestors: element name, namespace, CSS class, CSS id, the values of the
+ * attributes and the state of the pseudo classes tested by the selectors of
+ * the style sheets. Elements with the same signature match the same selectors
+ * and so share the same computed style. When one of the style sheets uses
+ * sibling selectors, or when an element of the chain is not a
+ * {@link CSSStylableElement}, styles are computed without the cache.
+ * </p>
+ * <p>
+ * The cache must be cleared whenever the style sheets of the document change.
+ * </p>
+ */
+public class CSSComputedStyleCache {
+
+	private static final int MAX_SIZE = 2048;
+
+	private static final Object NO_STYLE = new Object();
+
+	/**
+	 * Structural signature of an element.
+	 */
+	private static final class ElementSignature {
+		private final Object[] values;
+		private final int hashCode;
+
+		ElementSignature(Object[] values) {
+			this.values = values;
+			this.hashCode = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ElementSignature)) {
+				return false;
+			}
+			ElementSignature other = (ElementSignature) obj;
+			return hashCode == other.hashCode
+					&& Arrays.equals(values, other.values);
+		}
+	}
+
+	private final DocumentCSS documentCSS;
+
+	private final ViewCSS viewCSS;
+
+	private final Map<ElementSignature, Object> styles = new LinkedHashMap<ElementSignature, Object>(
+			64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<ElementSignature, Object> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private boolean featuresComputed;
+
+	private boolean enabled;
+
+	private String[] attributeNames;
+
+	private String[] pseudoClasses;
+
+	private int hitCount;
+
+	private int missCount;
+
+	public CSSComputedStyleCache(DocumentCSS documentCSS, ViewCSS viewCSS) {
+		this.documentCSS = documentCSS;
+		this.viewCSS = viewCSS;
+	}
+
+	/**
+	 * Returns the computed style of the element, from the cache when an
+	 * element with the same signature was already styled.
+	 *
+	 * @param elt
+	 *            the element
+	 * @param pseudoElt
+	 *            the pseudo element, or <code>null</code>
+	 * @return the computed style, or <code>null</code> if no rule matches
+	 */
+	public CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
+		if (!featuresComputed) {
+			computeFeatures();
+		}
+		ElementSignature signature = enabled ? computeSignature(elt,
+				pseudoElt) : null;
+		if (signature == null) {
+			return viewCSS.getComputedStyle(elt, pseudoElt);
+		}
+		Object style = styles.get(signature);
+		if (style != null) {
+			hitCount++;
+			return style == NO_STYLE ? null : (CSSStyleDeclaration) style;
+		}
+		missCount++;
+		CSSStyleDeclaration computed = viewCSS.getComputedStyle(elt, pseudoElt);
+		styles.put(signature, computed == null ? NO_STYLE : computed);
+		return computed;
+	}
+
+	/**
+	 * Clears the cached styles. Must be called when the style sheets change.
+	 */
+	public void clear() {
+		styles.clear();
+		featuresComputed = false;
+	}
+
+	/**
+	 * Returns the number of styles answered from the cache since it was
+	 * created.
+	 *
+	 * @return the hit count
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of styles which had to be computed since the cache was
+	 * created.
+	 *
+	 * @return the miss count
+	 */
+	public int getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of cached styles.
+	 *
+	 * @return the size of the cache
+	 */
+	public int size() {
+		return styles.size();
+	}
+
+	private void computeFeatures() {
+		featuresComputed = true;
+		enabled = true;
+		Set<String> attributes = new HashSet<String>();
+		Set<String> pseudos = new HashSet<String>();
+		StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+		int length = styleSheetList.getLength();
+		for (int i = 0; i < length; i++) {
+			CSSRuleList ruleList = ((CSSStyleSheet) styleSheetList.item(i))
+					.getCssRules();
+			if (!(ruleList instanceof CSSRuleListImpl)) {
+				enabled = false;
+				return;
+			}
+			CSSRuleIndex ruleIndex = ((CSSRuleListImpl) ruleList)
+					.getRuleIndex();
+			if (ruleIndex.hasSiblingSelectors()) {
+				enabled = false;
+				return;
+			}
+			attributes.addAll(ruleIndex.getAttributeNames());
+			pseudos.addAll(ruleIndex.getPseudoClasses());
+		}
+		attributeNames = attributes.toArray(new String[attributes.size()]);
+		pseudoClasses = pseudos.toArray(new String[pseudos.size()]);
+	}
+
+	/**
+	 * Returns the signature of the element and its ancestors, or
+	 * <code>null</code> if the style of the element must not be cached.
+	 */
+	private ElementSignature computeSignature(Element elt, String pseudoElt) {
+		List<Object> values = new ArrayList<Object>();
+		values.add(pseudoElt);
+		Node node = elt;
+		while (node instanceof Element) {
+			if (!(node instanceof CSSStylableElement)) {
+				return null;
+			}
+			CSSStylableElement element = (CSSStylableElement) node;
+			values.add(element.getPrefix() == null ? element.getNodeName()
+					: element.getLocalName());
+			values.add(element.getNamespaceURI());
+			values.add(element.getCSSClass());
+			values.add(element.getCSSId());
+			for (String attributeName : attributeNames) {
+				values.add(element.getAttribute(attributeName));
+			}
+			for (String pseudoClass : pseudoClasses) {
+				int state = element.isPseudoInstanceOf(pseudoClass) ? 1 : 0;
+				if (element.isStaticPseudoInstance(pseudoClass)) {
+					state |= 2;
+				}
+				values.add(Integer.valueOf(state));
+			}
+			node = node.getParentNode();
+		}
+		return new ElementSignature(values.toArray());
+	}
+}
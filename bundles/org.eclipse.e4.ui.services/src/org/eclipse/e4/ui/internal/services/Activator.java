@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.internal.services;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
@@ -28,6 +32,8 @@ public class Activator implements BundleActivator {
 	private ServiceTracker eventAdminTracker;
 	private BundleContext bundleContext;
 
+	private ExecutorService eventDispatchExecutor;
+
 	/*
 	 * Returns the singleton for this Activator. Callers should be aware that
 	 * this will return null if the bundle is not active.
@@ -53,6 +59,24 @@ public class Activator implements BundleActivator {
 		return (EventAdmin) eventAdminTracker.getService();
 	}
 
+	/*
+	 * Returns the executor delivering the UI model events posted through the
+	 * event brokers. It has a single thread, which stops with the bundle.
+	 */
+	public synchronized Executor getEventDispatchExecutor() {
+		if (eventDispatchExecutor == null) {
+			eventDispatchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "UI Model Event Dispatcher"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return eventDispatchExecutor;
+	}
+
 	@Override
 	public void stop(BundleContext context) throws Exception {
 		if (contextServiceReg != null) {
@@ -68,6 +92,12 @@ public class Activator implements BundleActivator {
 			eventAdminTracker.close();
 			eventAdminTracker = null;
 		}
+		synchronized (this) {
+			if (eventDispatchExecutor != null) {
+				eventDispatchExecutor.shutdown();
+				eventDispatchExecutor = null;
+			}
+		}
 		bundleContext = null;
 		singleton = null;
 	}
@@ -18,6 +18,7 @@ public class ServiceMessages extends NLS {
 	// Event broker
 	public static String NO_EVENT_ADMIN;
 	public static String NO_BUNDLE_CONTEXT;
+	public static String HANDLER_EXCEPTION;
 	
 	static {
 		// load message values from bundle file
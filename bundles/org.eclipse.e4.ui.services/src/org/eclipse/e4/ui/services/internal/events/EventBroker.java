@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import org.eclipse.e4.core.di.annotations.Optional;
@@ -34,11 +35,25 @@ import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 
+/**
+ * The event broker of an Eclipse context.
+ * <p>
+ * Unfiltered subscriptions to the topics of the UI model are dispatched by a
+ * {@link LocalEventDispatcher} instead of EventAdmin. Events posted to them
+ * are delivered on a single dispatch thread owned by the bundle activator, so
+ * that they keep their order. Model events sent or posted directly through
+ * EventAdmin still reach these subscriptions through the bridge of the
+ * dispatcher.
+ * </p>
+ */
 public class EventBroker implements IEventBroker {
 	
 	// TBD synchronization
 	private Map<EventHandler, Collection<ServiceRegistration<?>>> registrations = new HashMap<EventHandler, Collection<ServiceRegistration<?>>>();
 
+	// subscriptions to UI model topics, dispatched without EventAdmin
+	private Map<EventHandler, Collection<LocalEventDispatcher.Subscription>> localSubscriptions = new HashMap<EventHandler, Collection<LocalEventDispatcher.Subscription>>();
+
 	@Inject
 	Logger logger;
 	
@@ -72,6 +87,12 @@ public class EventBroker implements IEventBroker {
 
 	@Override
 	public boolean send(String topic, Object data) {
+		if (LocalEventDispatcher.isLocalTopic(topic)) {
+			LocalEventDispatcher dispatcher = getDispatcher();
+			if (dispatcher != null) {
+				return sendLocal(dispatcher.resolve(topic), topic, data);
+			}
+		}
 		Event event = constructEvent(topic, data);
 		EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
 		if (eventAdmin == null) {
@@ -84,6 +105,12 @@ public class EventBroker implements IEventBroker {
 
 	@Override
 	public boolean post(String topic, Object data) {
+		if (LocalEventDispatcher.isLocalTopic(topic)) {
+			LocalEventDispatcher dispatcher = getDispatcher();
+			if (dispatcher != null) {
+				return postLocal(dispatcher.resolve(topic), topic, data);
+			}
+		}
 		Event event = constructEvent(topic, data);
 		EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
 		if (eventAdmin == null) {
@@ -94,6 +121,96 @@ public class EventBroker implements IEventBroker {
 		return true;
 	}
 
+	private boolean sendLocal(LocalEventDispatcher.Resolution resolution,
+			String topic, Object data) {
+		if (resolution.isEmpty()) {
+			// nobody listens, don't even create the event
+			return true;
+		}
+		Event event = constructLocalEvent(topic, data);
+		dispatch(resolution.handlers, event);
+		if (resolution.external) {
+			EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
+			if (eventAdmin == null) {
+				logger.error(NLS.bind(ServiceMessages.NO_EVENT_ADMIN, event.toString()));
+				return false;
+			}
+			eventAdmin.sendEvent(event);
+		}
+		return true;
+	}
+
+	private boolean postLocal(final LocalEventDispatcher.Resolution resolution,
+			String topic, Object data) {
+		if (resolution.isEmpty()) {
+			return true;
+		}
+		final Event event = constructLocalEvent(topic, data);
+		if (resolution.handlers.length > 0) {
+			// the subscriptions check that they are still active when the
+			// event is dispatched
+			Executor executor = Activator.getDefault().getEventDispatchExecutor();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					dispatch(resolution.handlers, event);
+				}
+			});
+		}
+		if (resolution.external) {
+			EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
+			if (eventAdmin == null) {
+				logger.error(NLS.bind(ServiceMessages.NO_EVENT_ADMIN, event.toString()));
+				return false;
+			}
+			eventAdmin.postEvent(event);
+		}
+		return true;
+	}
+
+	/*
+	 * Delivers the event to the local handlers. Like EventAdmin, a failing
+	 * handler does not prevent the others from receiving the event.
+	 */
+	private void dispatch(EventHandler[] handlers, Event event) {
+		for (EventHandler handler : handlers) {
+			try {
+				handler.handleEvent(event);
+			} catch (RuntimeException e) {
+				if (logger != null) {
+					logger.error(e, NLS.bind(ServiceMessages.HANDLER_EXCEPTION, event.getTopic()));
+				}
+			}
+		}
+	}
+
+	private static LocalEventDispatcher getDispatcher() {
+		BundleContext bundleContext = Activator.getDefault().getBundleContext();
+		if (bundleContext == null) {
+			return null;
+		}
+		return LocalEventDispatcher.getDefault(bundleContext);
+	}
+
+	/*
+	 * Constructs an event dispatched locally, which the bridge of the
+	 * dispatcher ignores when it is forwarded to EventAdmin.
+	 */
+	@SuppressWarnings("unchecked")
+	private Event constructLocalEvent(String topic, Object data) {
+		if (data instanceof Dictionary<?,?>) {
+			return new LocalEventDispatcher.LocalEvent(topic, (Dictionary<String,?>)data);
+		}
+		if (data instanceof Map<?,?>) {
+			return new LocalEventDispatcher.LocalEvent(topic, (Map<String,?>)data);
+		}
+		Dictionary<String, Object> d = new Hashtable<String, Object>(2);
+		d.put(EventConstants.EVENT_TOPIC, topic);
+		if (data != null)
+			d.put(IEventBroker.DATA, data);
+		return new LocalEventDispatcher.LocalEvent(topic, d);
+	}
+
 	@SuppressWarnings("unchecked")
 	private Event constructEvent(String topic, Object data) {
 		Event event;
@@ -123,12 +240,24 @@ public class EventBroker implements IEventBroker {
 			logger.error(NLS.bind(ServiceMessages.NO_BUNDLE_CONTEXT, topic));
 			return false;
 		}
+		EventHandler wrappedHandler = new UIEventHandler(eventHandler, headless ? null : uiSync);
+		if (filter == null && LocalEventDispatcher.isLocalTopic(topic)) {
+			LocalEventDispatcher.Subscription subscription = LocalEventDispatcher
+					.getDefault(bundleContext).subscribe(topic, wrappedHandler);
+			Collection<LocalEventDispatcher.Subscription> handled = localSubscriptions
+					.get(eventHandler);
+			if (handled == null) {
+				localSubscriptions.put(eventHandler,
+						handled = new ArrayList<LocalEventDispatcher.Subscription>());
+			}
+			handled.add(subscription);
+			return true;
+		}
 		String[] topics = new String[] {topic};
 		Dictionary<String, Object> d = new Hashtable<String, Object>();
 		d.put(EventConstants.EVENT_TOPIC, topics);
 		if (filter != null)
 			d.put(EventConstants.EVENT_FILTER, filter);
-		EventHandler wrappedHandler = new UIEventHandler(eventHandler, headless ? null : uiSync);
 		ServiceRegistration<?> registration = bundleContext.registerService(
 				EventHandler.class.getName(), wrappedHandler, d);
 		Collection<ServiceRegistration<?>> handled = registrations
@@ -143,18 +272,40 @@ public class EventBroker implements IEventBroker {
 
 	@Override
 	public boolean unsubscribe(EventHandler eventHandler) {
+		boolean removed = false;
+		Collection<LocalEventDispatcher.Subscription> local = localSubscriptions
+				.remove(eventHandler);
+		if (local != null && !local.isEmpty()) {
+			unsubscribeLocal(local);
+			removed = true;
+		}
 		Collection<ServiceRegistration<?>> handled = registrations
 				.remove(eventHandler);
 		if (handled == null || handled.isEmpty())
-			return false;
+			return removed;
 		for (ServiceRegistration<?> r : handled) {
 			r.unregister();
 		}
 		return true;
 	}
+
+	private void unsubscribeLocal(Collection<LocalEventDispatcher.Subscription> subscriptions) {
+		LocalEventDispatcher dispatcher = getDispatcher();
+		if (dispatcher == null)
+			return;
+		for (LocalEventDispatcher.Subscription subscription : subscriptions) {
+			dispatcher.unsubscribe(subscription);
+		}
+	}
 	
 	@PreDestroy
 	void dispose() {
+		Collection<Collection<LocalEventDispatcher.Subscription>> local = new ArrayList<Collection<LocalEventDispatcher.Subscription>>(
+				localSubscriptions.values());
+		localSubscriptions.clear();
+		for (Collection<LocalEventDispatcher.Subscription> subscriptions : local) {
+			unsubscribeLocal(subscriptions);
+		}
 		Collection<Collection<ServiceRegistration<?>>> values = new ArrayList<Collection<ServiceRegistration<?>>>(
 				registrations.values());
 		registrations.clear();
@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.services.internal.events;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * In-process dispatcher for the events of the UI model.
+ * <p>
+ * Subscriptions are kept in a trie of topic segments: exact subscriptions are
+ * stored on the node of their topic, wildcard subscriptions (
+ * <code>a/b/*</code>) on the node of their prefix. Resolving a topic walks at
+ * most one node per segment, and the result is cached per topic until the
+ * subscriptions change, so that sending an event does not allocate anything
+ * when nobody listens to it.
+ * </p>
+ * <p>
+ * The topics of the {@link EventHandler} services registered with EventAdmin
+ * are tracked in the same trie, so that events are only forwarded to
+ * EventAdmin when an external or filtered subscriber may receive them.
+ * Conversely, the UI model events sent or posted directly through EventAdmin
+ * by third parties are bridged to the local subscribers by an
+ * {@link EventHandler} service of this dispatcher.
+ * </p>
+ * <p>
+ * The dispatcher is shared by all the event brokers, like EventAdmin is.
+ * </p>
+ */
+final class LocalEventDispatcher implements ServiceListener {
+
+	/**
+	 * The base of the topics handled by this dispatcher. Same value as
+	 * <code>UIEvents.UIModelTopicBase</code>, which is not visible from this
+	 * bundle.
+	 */
+	static final String MODEL_TOPIC_BASE = "org/eclipse/e4/ui/model/"; //$NON-NLS-1$
+
+	private static final String WILDCARD = "*"; //$NON-NLS-1$
+
+	private static final EventHandler[] NO_HANDLERS = new EventHandler[0];
+
+	private static final int MAX_CACHED_TOPICS = 4096;
+
+	/**
+	 * Service property identifying the handler bridging EventAdmin events to
+	 * the local subscribers, which is not an external subscriber itself.
+	 */
+	private static final String BRIDGE_PROPERTY = "org.eclipse.e4.ui.services.localEventBridge"; //$NON-NLS-1$
+
+	private static LocalEventDispatcher instance;
+
+	private static BundleContext instanceContext;
+
+	/**
+	 * The subscribers of a topic.
+	 */
+	static final class Resolution {
+		final EventHandler[] handlers;
+		final boolean external;
+		final int generation;
+
+		Resolution(EventHandler[] handlers, boolean external, int generation) {
+			this.handlers = handlers;
+			this.external = external;
+			this.generation = generation;
+		}
+
+		boolean isEmpty() {
+			return handlers.length == 0 && !external;
+		}
+	}
+
+	/**
+	 * A subscription, as returned by {@link LocalEventDispatcher#subscribe}.
+	 * A subscription stops delivering events as soon as it is removed, even
+	 * the events resolved or posted before.
+	 */
+	static final class Subscription implements EventHandler {
+		final String topic;
+		final EventHandler handler;
+		volatile boolean active = true;
+
+		Subscription(String topic, EventHandler handler) {
+			this.topic = topic;
+			this.handler = handler;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			if (active) {
+				handler.handleEvent(event);
+			}
+		}
+	}
+
+	/**
+	 * An event created by the event broker. EventAdmin passes the event
+	 * instance to its handlers, which lets the bridge ignore the events which
+	 * the broker has already dispatched locally.
+	 */
+	static final class LocalEvent extends Event {
+		LocalEvent(String topic, Map<String, ?> properties) {
+			super(topic, properties);
+		}
+
+		LocalEvent(String topic, Dictionary<String, ?> properties) {
+			super(topic, properties);
+		}
+	}
+
+	/**
+	 * Delivers the UI model events sent through EventAdmin by third parties
+	 * to the local subscribers.
+	 */
+	private final class Bridge implements EventHandler {
+		@Override
+		public void handleEvent(Event event) {
+			if (event instanceof LocalEvent) {
+				return;
+			}
+			RuntimeException failure = null;
+			for (EventHandler handler : resolve(event.getTopic()).handlers) {
+				try {
+					handler.handleEvent(event);
+				} catch (RuntimeException e) {
+					// let the other handlers receive the event, EventAdmin
+					// logs the failure
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	private static final class Node {
+		final Map<String, Node> children = new ConcurrentHashMap<String, Node>(4);
+		volatile EventHandler[] handlers = NO_HANDLERS;
+		volatile EventHandler[] wildcardHandlers = NO_HANDLERS;
+		volatile int externalCount;
+		volatile int externalWildcardCount;
+	}
+
+	private final Node root = new Node();
+
+	private final Map<String, Resolution> resolutions = new ConcurrentHashMap<String, Resolution>();
+
+	private volatile int generation;
+
+	private final Map<ServiceReference<?>, String[]> externalTopics = new HashMap<ServiceReference<?>, String[]>();
+
+	/**
+	 * Returns the dispatcher shared by the event brokers, tracking the event
+	 * handlers registered in the given bundle context.
+	 */
+	static synchronized LocalEventDispatcher getDefault(BundleContext bundleContext) {
+		if (instance == null || instanceContext != bundleContext) {
+			// the bundle has been restarted
+			instance = new LocalEventDispatcher();
+			instance.track(bundleContext);
+			instanceContext = bundleContext;
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns whether subscriptions and events on the given topic can be
+	 * handled by this dispatcher.
+	 */
+	static boolean isLocalTopic(String topic) {
+		return topic != null && topic.startsWith(MODEL_TOPIC_BASE);
+	}
+
+	private void track(BundleContext bundleContext) {
+		String filter = '(' + Constants.OBJECTCLASS + '='
+				+ EventHandler.class.getName() + ')';
+		try {
+			bundleContext.addServiceListener(this, filter);
+			ServiceReference<?>[] references = bundleContext.getServiceReferences(
+					EventHandler.class.getName(), null);
+			if (references != null) {
+				for (ServiceReference<?> reference : references) {
+					addExternal(reference);
+				}
+			}
+			Dictionary<String, Object> properties = new Hashtable<String, Object>();
+			properties.put(EventConstants.EVENT_TOPIC, MODEL_TOPIC_BASE + WILDCARD);
+			properties.put(BRIDGE_PROPERTY, Boolean.TRUE);
+			// unregistered when the bundle stops, like the dispatcher is
+			// replaced
+			bundleContext.registerService(EventHandler.class.getName(), new Bridge(),
+					properties);
+		} catch (InvalidSyntaxException e) {
+			// the filter is constant
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void serviceChanged(ServiceEvent event) {
+		ServiceReference<?> reference = event.getServiceReference();
+		switch (event.getType()) {
+		case ServiceEvent.REGISTERED:
+			addExternal(reference);
+			break;
+		case ServiceEvent.MODIFIED:
+			removeExternal(reference);
+			addExternal(reference);
+			break;
+		case ServiceEvent.MODIFIED_ENDMATCH:
+		case ServiceEvent.UNREGISTERING:
+			removeExternal(reference);
+			break;
+		}
+	}
+
+	private synchronized void addExternal(ServiceReference<?> reference) {
+		if (reference.getProperty(BRIDGE_PROPERTY) != null) {
+			return;
+		}
+		String[] topics = getTopics(reference.getProperty(EventConstants.EVENT_TOPIC));
+		if (topics.length == 0 || externalTopics.containsKey(reference)) {
+			return;
+		}
+		externalTopics.put(reference, topics);
+		for (String topic : topics) {
+			updateExternal(topic, 1);
+		}
+		changed();
+	}
+
+	private synchronized void removeExternal(ServiceReference<?> reference) {
+		String[] topics = externalTopics.remove(reference);
+		if (topics == null) {
+			return;
+		}
+		for (String topic : topics) {
+			updateExternal(topic, -1);
+		}
+		changed();
+	}
+
+	private void updateExternal(String topic, int delta) {
+		if (isWildcard(topic)) {
+			Node node = getNode(getPrefix(topic), true);
+			node.externalWildcardCount += delta;
+		} else {
+			Node node = getNode(topic, true);
+			node.externalCount += delta;
+		}
+	}
+
+	private static String[] getTopics(Object property) {
+		if (property instanceof String) {
+			return new String[] { (String) property };
+		}
+		if (property instanceof String[]) {
+			return (String[]) property;
+		}
+		if (property instanceof Collection<?>) {
+			List<String> topics = new ArrayList<String>();
+			for (Object topic : (Collection<?>) property) {
+				if (topic instanceof String) {
+					topics.add((String) topic);
+				}
+			}
+			return topics.toArray(new String[topics.size()]);
+		}
+		return new String[0];
+	}
+
+	/**
+	 * Subscribes the handler to the given topic, which must be a local topic.
+	 *
+	 * @return the subscription, to be passed to {@link #unsubscribe}
+	 */
+	synchronized Subscription subscribe(String topic, EventHandler handler) {
+		Subscription subscription = new Subscription(topic, handler);
+		if (isWildcard(topic)) {
+			Node node = getNode(getPrefix(topic), true);
+			node.wildcardHandlers = add(node.wildcardHandlers, subscription);
+		} else {
+			Node node = getNode(topic, true);
+			node.handlers = add(node.handlers, subscription);
+		}
+		changed();
+		return subscription;
+	}
+
+	synchronized void unsubscribe(Subscription subscription) {
+		subscription.active = false;
+		String topic = subscription.topic;
+		if (isWildcard(topic)) {
+			Node node = getNode(getPrefix(topic), false);
+			if (node != null) {
+				node.wildcardHandlers = remove(node.wildcardHandlers, subscription);
+			}
+		} else {
+			Node node = getNode(topic, false);
+			if (node != null) {
+				node.handlers = remove(node.handlers, subscription);
+			}
+		}
+		changed();
+	}
+
+	/**
+	 * Returns the subscribers of the given topic.
+	 */
+	Resolution resolve(String topic) {
+		int currentGeneration = generation;
+		Resolution resolution = resolutions.get(topic);
+		if (resolution != null && resolution.generation == currentGeneration) {
+			return resolution;
+		}
+		resolution = computeResolution(topic, currentGeneration);
+		if (resolutions.size() >= MAX_CACHED_TOPICS) {
+			resolutions.clear();
+		}
+		resolutions.put(topic, resolution);
+		return resolution;
+	}
+
+	private Resolution computeResolution(String topic, int currentGeneration) {
+		List<EventHandler> handlers = null;
+		boolean external = false;
+		Node node = root;
+		int start = 0;
+		while (node != null) {
+			int end = topic.indexOf('/', start);
+			if (end == -1 && start > topic.length()) {
+				// the whole topic has been consumed
+				handlers = addAll(handlers, node.handlers);
+				external |= node.externalCount > 0;
+				break;
+			}
+			handlers = addAll(handlers, node.wildcardHandlers);
+			external |= node.externalWildcardCount > 0;
+			String segment = topic.substring(start, end == -1 ? topic.length()
+					: end);
+			node = node.children.get(segment);
+			start = end == -1 ? topic.length() + 1 : end + 1;
+		}
+		return new Resolution(handlers == null ? NO_HANDLERS
+				: handlers.toArray(new EventHandler[handlers.size()]),
+				external, currentGeneration);
+	}
+
+	private void changed() {
+		generation++;
+	}
+
+	private Node getNode(String path, boolean create) {
+		Node node = root;
+		if (path.length() == 0) {
+			return node;
+		}
+		int start = 0;
+		while (true) {
+			int end = path.indexOf('/', start);
+			String segment = path.substring(start, end == -1 ? path.length()
+					: end);
+			Node child = node.children.get(segment);
+			if (child == null) {
+				if (!create) {
+					return null;
+				}
+				child = new Node();
+				node.children.put(segment, child);
+			}
+			node = child;
+			if (end == -1) {
+				return node;
+			}
+			start = end + 1;
+		}
+	}
+
+	private static boolean isWildcard(String topic) {
+		return topic.equals(WILDCARD) || topic.endsWith("/" + WILDCARD); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the prefix of a wildcard topic, without the trailing separator.
+	 */
+	private static String getPrefix(String wildcardTopic) {
+		return wildcardTopic.length() == 1 ? "" : wildcardTopic.substring(0, //$NON-NLS-1$
+				wildcardTopic.length() - 2);
+	}
+
+	private static List<EventHandler> addAll(List<EventHandler> list,
+			EventHandler[] handlers) {
+		if (handlers.length == 0) {
+			return list;
+		}
+		if (list == null) {
+			list = new ArrayList<EventHandler>(handlers.length);
+		}
+		for (EventHandler handler : handlers) {
+			list.add(handler);
+		}
+		return list;
+	}
+
+	private static EventHandler[] add(EventHandler[] handlers, EventHandler handler) {
+		EventHandler[] result = new EventHandler[handlers.length + 1];
+		System.arraycopy(handlers, 0, result, 0, handlers.length);
+		result[handlers.length] = handler;
+		return result;
+	}
+
+	private static EventHandler[] remove(EventHandler[] handlers, EventHandler handler) {
+		for (int i = 0; i < handlers.length; i++) {
+			if (handlers[i] == handler) {
+				if (handlers.length == 1) {
+					return NO_HANDLERS;
+				}
+				EventHandler[] result = new EventHandler[handlers.length - 1];
+				System.arraycopy(handlers, 0, result, 0, i);
+				System.arraycopy(handlers, i + 1, result, i, result.length - i);
+				return result;
+			}
+		}
+		return handlers;
+	}
+}
@@ -0,0 +1,492 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.MApplicationElement;
+import org.eclipse.e4.ui.model.application.commands.MBindingContext;
+import org.eclipse.e4.ui.model.application.commands.MBindingTable;
+import org.eclipse.e4.ui.model.application.commands.MCommand;
+import org.eclipse.e4.ui.model.application.commands.MHandler;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MArea;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspectiveStack;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.advanced.impl.AdvancedPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.impl.UiPackageImpl;
+import org.eclipse.e4.ui.workbench.modeling.EModelService;
+import org.eclipse.e4.ui.workbench.modeling.ElementMatcher;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+/**
+ * Index of the elements of an application model by element id, tag and
+ * class, kept current as the model changes. The placeholders are also indexed
+ * by the element they reference.
+ * <p>
+ * Queries return the same elements, in the same order, as the recursive
+ * search of {@link ModelServiceImpl}: each candidate found in the index is
+ * kept only if the search would have reached it from the search root, which
+ * is checked by walking up from the candidate. When the search flags or the
+ * class cannot be answered this way, the queries return <code>null</code> and
+ * the caller has to search the model. So do they when a placeholder references
+ * an element outside of the application, which the search reaches but the
+ * index does not contain.
+ * </p>
+ */
+public class ModelElementIndex extends EContentAdapter {
+
+	/**
+	 * Above this number of candidates, a class-only query is not answered from
+	 * the index.
+	 */
+	private static final int MAX_CLASS_CANDIDATES = 64;
+
+	/**
+	 * The order in which the search visits the features of an element.
+	 */
+	private static final int RANK_CHILDREN = 0;
+	private static final int RANK_TRIM_BARS = 1;
+	private static final int RANK_WINDOWS = 2;
+	private static final int RANK_MAIN_MENU = 3;
+	private static final int RANK_PERSPECTIVE_WINDOWS = 4;
+	private static final int RANK_REF = 5;
+	private static final int RANK_PART_MENUS = 6;
+	private static final int RANK_PART_TOOLBAR = 7;
+
+	private static final int[] ROOT_PATH = new int[0];
+
+	/**
+	 * The positions computed by a query, see {@link #getPath}.
+	 */
+	private static class Paths {
+		final Map<Object, int[]> positions = new IdentityHashMap<Object, int[]>();
+
+		/**
+		 * The elements whose position is being computed.
+		 */
+		final Set<Object> visiting = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+		/**
+		 * The number of times the walk came back to an element being visited.
+		 */
+		int cycles;
+	}
+
+	private static final Comparator<int[]> PATH_COMPARATOR = new Comparator<int[]>() {
+		@Override
+		public int compare(int[] path1, int[] path2) {
+			int length = Math.min(path1.length, path2.length);
+			for (int i = 0; i < length; i++) {
+				if (path1[i] != path2[i]) {
+					return path1[i] < path2[i] ? -1 : 1;
+				}
+			}
+			return path1.length - path2.length;
+		}
+	};
+
+	private final Map<String, Set<MApplicationElement>> elementsById = new HashMap<String, Set<MApplicationElement>>();
+
+	private final Map<String, Set<MApplicationElement>> elementsByTag = new HashMap<String, Set<MApplicationElement>>();
+
+	private final Map<EClass, Set<MApplicationElement>> elementsByClass = new HashMap<EClass, Set<MApplicationElement>>();
+
+	private final Map<MUIElement, Set<MPlaceholder>> placeholdersByRef = new HashMap<MUIElement, Set<MPlaceholder>>();
+
+	/**
+	 * The tags under which each element is indexed.
+	 */
+	private final Map<MApplicationElement, String[]> indexedTags = new HashMap<MApplicationElement, String[]>();
+
+	/**
+	 * Returns the index of the given application, creating it on first use.
+	 *
+	 * @param application
+	 *            the application
+	 * @return the index of the application, never <code>null</code>
+	 */
+	public static ModelElementIndex getIndex(MApplication application) {
+		List<Adapter> adapters = ((EObject) application).eAdapters();
+		for (Adapter adapter : adapters) {
+			if (adapter instanceof ModelElementIndex) {
+				return (ModelElementIndex) adapter;
+			}
+		}
+		ModelElementIndex index = new ModelElementIndex();
+		adapters.add(index);
+		return index;
+	}
+
+	/**
+	 * Returns the elements that
+	 * {@link ModelServiceImpl#findElements(MUIElement, String, Class, List, int)}
+	 * would return, or <code>null</code> if the query cannot be answered from
+	 * the index.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> List<T> findElements(MApplicationElement searchRoot, String id, Class<T> clazz,
+			List<String> tagsToMatch, int searchFlags) {
+		if (searchFlags == 0) {
+			return new ArrayList<T>();
+		}
+		if (!canAnswer(clazz, searchFlags) || hasForeignRefs()) {
+			return null;
+		}
+		Collection<? extends MApplicationElement> candidates = getCandidates(id, clazz,
+				tagsToMatch);
+		if (candidates == null) {
+			return null;
+		}
+		ElementMatcher matcher = new ElementMatcher(id, clazz, tagsToMatch);
+		List<MApplicationElement> found = new ArrayList<MApplicationElement>();
+		Paths paths = new Paths();
+		for (MApplicationElement candidate : candidates) {
+			if (matcher.select(candidate)
+					&& getPath(candidate, searchRoot, searchFlags, paths) != null) {
+				found.add(candidate);
+			}
+		}
+		sort(found, paths);
+		return (List<T>) found;
+	}
+
+	/**
+	 * Returns the placeholders referencing the given element that the search
+	 * would find from the search root, in search order, or <code>null</code> if
+	 * the query cannot be answered from the index.
+	 */
+	List<MPlaceholder> findPlaceholders(MApplicationElement searchRoot, MUIElement ref,
+			int searchFlags) {
+		if (!canAnswer(MPlaceholder.class, searchFlags) || hasForeignRefs()) {
+			return null;
+		}
+		List<MPlaceholder> found = new ArrayList<MPlaceholder>();
+		Set<MPlaceholder> placeholders = placeholdersByRef.get(ref);
+		if (placeholders == null || searchFlags == 0) {
+			return found;
+		}
+		Paths paths = new Paths();
+		for (MPlaceholder placeholder : placeholders) {
+			if (getPath(placeholder, searchRoot, searchFlags, paths) != null) {
+				found.add(placeholder);
+			}
+		}
+		sort(found, paths);
+		return found;
+	}
+
+	/**
+	 * Returns whether the reachability of an element can be decided by walking
+	 * up the model. The application level lists of handlers, commands and
+	 * binding elements, and the shared areas searched from a perspective stack
+	 * without searching the perspectives, are only reachable from above.
+	 */
+	private static boolean canAnswer(Class<?> clazz, int searchFlags) {
+		if (MHandler.class.equals(clazz) || MCommand.class.equals(clazz)
+				|| MBindingContext.class.equals(clazz) || MBindingTable.class.equals(clazz)) {
+			return false;
+		}
+		return (searchFlags & EModelService.IN_SHARED_AREA) == 0
+				|| (searchFlags & (EModelService.IN_ANY_PERSPECTIVE | EModelService.IN_ACTIVE_PERSPECTIVE)) != 0;
+	}
+
+	/**
+	 * Returns whether a placeholder references an element which is not part of
+	 * the application, and thus not indexed.
+	 */
+	private boolean hasForeignRefs() {
+		for (MUIElement ref : placeholdersByRef.keySet()) {
+			if (!((EObject) ref).eAdapters().contains(this)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Collection<? extends MApplicationElement> getCandidates(String id, Class<?> clazz,
+			List<String> tagsToMatch) {
+		if (id != null) {
+			return getElements(elementsById, id);
+		}
+		if (tagsToMatch != null && !tagsToMatch.isEmpty()) {
+			Set<MApplicationElement> smallest = null;
+			for (String tag : tagsToMatch) {
+				Set<MApplicationElement> elements = getElements(elementsByTag, tag);
+				if (smallest == null || elements.size() < smallest.size()) {
+					smallest = elements;
+				}
+			}
+			return smallest;
+		}
+		if (clazz != null) {
+			List<MApplicationElement> candidates = new ArrayList<MApplicationElement>();
+			for (Map.Entry<EClass, Set<MApplicationElement>> entry : elementsByClass.entrySet()) {
+				Class<?> instanceClass = entry.getKey().getInstanceClass();
+				if (instanceClass != null && clazz.isAssignableFrom(instanceClass)) {
+					candidates.addAll(entry.getValue());
+					if (candidates.size() > MAX_CLASS_CANDIDATES) {
+						return null;
+					}
+				}
+			}
+			return candidates;
+		}
+		return null;
+	}
+
+	private static <K> Set<MApplicationElement> getElements(
+			Map<K, Set<MApplicationElement>> map, K key) {
+		Set<MApplicationElement> elements = map.get(key);
+		return elements == null ? Collections.<MApplicationElement> emptySet() : elements;
+	}
+
+	private static <E> void sort(List<E> elements, Paths paths) {
+		if (elements.size() > 1) {
+			final Map<Object, int[]> positions = paths.positions;
+			Collections.sort(elements, new Comparator<E>() {
+				@Override
+				public int compare(E e1, E e2) {
+					return PATH_COMPARATOR.compare(positions.get(e1), positions.get(e2));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the position at which the search from the given root visits the
+	 * element, as the list of the (feature, index) steps leading to it, or
+	 * <code>null</code> if the search does not reach the element. Shared
+	 * elements are visited through each of their placeholders, the first visit
+	 * is the one which counts.
+	 * <p>
+	 * A placeholder may reference one of its ancestors. The walk does not
+	 * follow such a cycle, which never leads to the first visit of the element
+	 * being walked, but the positions computed while the cycle was cut may
+	 * miss that element, so they are only remembered for the outermost call.
+	 * </p>
+	 */
+	private int[] getPath(MApplicationElement element, MApplicationElement searchRoot,
+			int searchFlags, Paths paths) {
+		if (element == searchRoot) {
+			paths.positions.put(element, ROOT_PATH);
+			return ROOT_PATH;
+		}
+		if (paths.positions.containsKey(element)) {
+			return paths.positions.get(element);
+		}
+		if (!paths.visiting.add(element)) {
+			paths.cycles++;
+			return null;
+		}
+		int cycles = paths.cycles;
+
+		int[] best = null;
+		EObject eObject = (EObject) element;
+		EObject container = eObject.eContainer();
+		if (container instanceof MApplicationElement) {
+			EReference feature = eObject.eContainmentFeature();
+			int rank = getRank(container, feature, element, searchFlags);
+			if (rank != -1) {
+				int[] containerPath = getPath((MApplicationElement) container, searchRoot,
+						searchFlags, paths);
+				if (containerPath != null) {
+					int index = feature.isMany() ? ((List<?>) container.eGet(feature))
+							.indexOf(element) : 0;
+					best = append(containerPath, rank, index);
+				}
+			}
+		}
+
+		Set<MPlaceholder> placeholders = placeholdersByRef.get(element);
+		if (placeholders != null
+				&& (!(element instanceof MArea) || (searchFlags & EModelService.IN_SHARED_AREA) != 0)) {
+			for (MPlaceholder placeholder : placeholders) {
+				int[] placeholderPath = getPath(placeholder, searchRoot, searchFlags, paths);
+				if (placeholderPath != null) {
+					int[] path = append(placeholderPath, RANK_REF, 0);
+					if (best == null || PATH_COMPARATOR.compare(path, best) < 0) {
+						best = path;
+					}
+				}
+			}
+		}
+
+		paths.visiting.remove(element);
+		if (paths.cycles == cycles || paths.visiting.isEmpty()) {
+			paths.positions.put(element, best);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the rank of the given containment feature in the search order,
+	 * or <code>-1</code> if the search does not follow it with these flags.
+	 */
+	private static int getRank(EObject container, EReference feature, Object element,
+			int searchFlags) {
+		if (feature == UiPackageImpl.Literals.ELEMENT_CONTAINER__CHILDREN) {
+			if (!(container instanceof MPerspectiveStack)
+					|| (searchFlags & EModelService.IN_ANY_PERSPECTIVE) != 0) {
+				return RANK_CHILDREN;
+			}
+			if ((searchFlags & EModelService.IN_ACTIVE_PERSPECTIVE) != 0
+					&& ((MPerspectiveStack) container).getSelectedElement() == element) {
+				return RANK_CHILDREN;
+			}
+			return -1;
+		}
+		if (feature == BasicPackageImpl.Literals.TRIMMED_WINDOW__TRIM_BARS) {
+			return (searchFlags & EModelService.IN_TRIM) != 0 ? RANK_TRIM_BARS : -1;
+		}
+		if (feature == BasicPackageImpl.Literals.WINDOW__WINDOWS) {
+			return RANK_WINDOWS;
+		}
+		if (feature == BasicPackageImpl.Literals.WINDOW__MAIN_MENU) {
+			return (searchFlags & EModelService.IN_MAIN_MENU) != 0 ? RANK_MAIN_MENU : -1;
+		}
+		if (feature == AdvancedPackageImpl.Literals.PERSPECTIVE__WINDOWS) {
+			return RANK_PERSPECTIVE_WINDOWS;
+		}
+		if (feature == BasicPackageImpl.Literals.PART__MENUS) {
+			return (searchFlags & EModelService.IN_PART) != 0 ? RANK_PART_MENUS : -1;
+		}
+		if (feature == BasicPackageImpl.Literals.PART__TOOLBAR) {
+			return (searchFlags & EModelService.IN_PART) != 0 ? RANK_PART_TOOLBAR : -1;
+		}
+		return -1;
+	}
+
+	private static int[] append(int[] path, int rank, int index) {
+		int[] result = new int[path.length + 2];
+		System.arraycopy(path, 0, result, 0, path.length);
+		result[path.length] = rank;
+		result[path.length + 1] = index;
+		return result;
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		Object notifier = notification.getNotifier();
+		if (!(notifier instanceof MApplicationElement)) {
+			return;
+		}
+		MApplicationElement element = (MApplicationElement) notifier;
+		Object feature = notification.getFeature();
+		if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__ELEMENT_ID) {
+			if (notification.getEventType() == Notification.SET
+					|| notification.getEventType() == Notification.UNSET) {
+				remove(elementsById, notification.getOldStringValue(), element);
+				add(elementsById, notification.getNewStringValue(), element);
+			}
+		} else if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__TAGS) {
+			unindexTags(element);
+			indexTags(element);
+		} else if (feature == AdvancedPackageImpl.Literals.PLACEHOLDER__REF) {
+			if (notification.getEventType() == Notification.SET
+					|| notification.getEventType() == Notification.UNSET) {
+				MPlaceholder placeholder = (MPlaceholder) element;
+				remove(placeholdersByRef, (MUIElement) notification.getOldValue(), placeholder);
+				add(placeholdersByRef, (MUIElement) notification.getNewValue(), placeholder);
+			}
+		}
+	}
+
+	@Override
+	protected void setTarget(EObject target) {
+		super.setTarget(target);
+		if (target instanceof MApplicationElement) {
+			MApplicationElement element = (MApplicationElement) target;
+			add(elementsById, element.getElementId(), element);
+			add(elementsByClass, target.eClass(), element);
+			indexTags(element);
+			if (element instanceof MPlaceholder) {
+				MPlaceholder placeholder = (MPlaceholder) element;
+				add(placeholdersByRef, placeholder.getRef(), placeholder);
+			}
+		}
+	}
+
+	@Override
+	protected void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		if (target instanceof MApplicationElement) {
+			MApplicationElement element = (MApplicationElement) target;
+			remove(elementsById, element.getElementId(), element);
+			remove(elementsByClass, target.eClass(), element);
+			unindexTags(element);
+			if (element instanceof MPlaceholder) {
+				MPlaceholder placeholder = (MPlaceholder) element;
+				remove(placeholdersByRef, placeholder.getRef(), placeholder);
+			}
+		}
+	}
+
+	private void indexTags(MApplicationElement element) {
+		List<String> tags = element.getTags();
+		if (tags.isEmpty()) {
+			return;
+		}
+		String[] tagArray = tags.toArray(new String[tags.size()]);
+		indexedTags.put(element, tagArray);
+		for (String tag : tagArray) {
+			add(elementsByTag, tag, element);
+		}
+	}
+
+	private void unindexTags(MApplicationElement element) {
+		String[] tags = indexedTags.remove(element);
+		if (tags != null) {
+			for (String tag : tags) {
+				remove(elementsByTag, tag, element);
+			}
+		}
+	}
+
+	private static <K, V> void add(Map<K, Set<V>> map, K key, V value) {
+		if (key == null) {
+			return;
+		}
+		Set<V> values = map.get(key);
+		if (values == null) {
+			values = new HashSet<V>(4);
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static <K, V> void remove(Map<K, Set<V>> map, K key, V value) {
+		if (key == null) {
+			return;
+		}
+		Set<V> values = map.get(key);
+		if (values != null && values.remove(value) && values.isEmpty()) {
+			map.remove(key);
+		}
+	}
+}
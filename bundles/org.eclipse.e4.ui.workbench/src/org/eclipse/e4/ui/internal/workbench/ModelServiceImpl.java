@@ -12,7 +12,10 @@
 package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IExtensionRegistry;
 import org.eclipse.e4.core.contexts.IEclipseContext;
@@ -135,8 +138,26 @@ public class ModelServiceImpl implements EModelService {
 				"Unsupported model object type: " + elementType.getCanonicalName()); //$NON-NLS-1$
 	}
 
+	/**
+	 * Returns the index of the application containing the given element, or
+	 * <code>null</code> if the element is not part of an application model.
+	 */
+	private ModelElementIndex getIndex(MApplicationElement element) {
+		EObject top = (EObject) element;
+		while (top.eContainer() != null) {
+			top = top.eContainer();
+		}
+		return top instanceof MApplication ? ModelElementIndex.getIndex((MApplication) top) : null;
+	}
+
 	private <T> void findElementsRecursive(MApplicationElement searchRoot, Class<T> clazz,
 			Selector matcher, List<T> elements, int searchFlags) {
+		findElementsRecursive(searchRoot, clazz, matcher, elements,
+				Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()), searchFlags);
+	}
+
+	private <T> void findElementsRecursive(MApplicationElement searchRoot, Class<T> clazz,
+			Selector matcher, List<T> elements, Set<Object> found, int searchFlags) {
 		Assert.isLegal(searchRoot != null);
 		if (searchFlags == 0) {
 			return;
@@ -145,7 +166,7 @@ public class ModelServiceImpl implements EModelService {
 		// are *we* a match ?
 		boolean classMatch = clazz == null ? true : clazz.isInstance(searchRoot);
 		if (classMatch && matcher.select(searchRoot)) {
-			if (!elements.contains(searchRoot)) {
+			if (found.add(searchRoot)) {
 				elements.add((T) searchRoot);
 			}
 		}
@@ -171,14 +192,14 @@ public class ModelServiceImpl implements EModelService {
 			}
 
 			for (MApplicationElement child : children) {
-				findElementsRecursive(child, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(child, clazz, matcher, elements, found, searchFlags);
 			}
 		}
 
 		if (searchRoot instanceof MBindingContext && (searchFlags == ANYWHERE)) {
 			MBindingContext bindingContext = (MBindingContext) searchRoot;
 			for (MBindingContext child : bindingContext.getChildren()) {
-				findElementsRecursive(child, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(child, clazz, matcher, elements, found, searchFlags);
 			}
 		}
 
@@ -190,27 +211,27 @@ public class ModelServiceImpl implements EModelService {
 					MElementContainer<MUIElement> container = (MElementContainer<MUIElement>) searchRoot;
 					List<MUIElement> children = container.getChildren();
 					for (MUIElement child : children) {
-						findElementsRecursive(child, clazz, matcher, elements, searchFlags);
+						findElementsRecursive(child, clazz, matcher, elements, found, searchFlags);
 					}
 				} else if ((searchFlags & IN_ACTIVE_PERSPECTIVE) != 0) {
 					// Only search the currently active perspective, if any
 					MPerspective active = ((MPerspectiveStack) searchRoot).getSelectedElement();
 					if (active != null) {
-						findElementsRecursive(active, clazz, matcher, elements, searchFlags);
+						findElementsRecursive(active, clazz, matcher, elements, found, searchFlags);
 					}
 				} else if ((searchFlags & IN_SHARED_AREA) != 0 && searchRoot instanceof MUIElement) {
 					// Only recurse through the shared areas
 					List<MArea> areas = findElements((MUIElement) searchRoot, null, MArea.class,
 							null);
 					for (MArea area : areas) {
-						findElementsRecursive(area, clazz, matcher, elements, searchFlags);
+						findElementsRecursive(area, clazz, matcher, elements, found, searchFlags);
 					}
 				}
 			} else {
 				MElementContainer<MUIElement> container = (MElementContainer<MUIElement>) searchRoot;
 				List<MUIElement> children = container.getChildren();
 				for (MUIElement child : children) {
-					findElementsRecursive(child, clazz, matcher, elements, searchFlags);
+					findElementsRecursive(child, clazz, matcher, elements, found, searchFlags);
 				}
 			}
 		}
@@ -220,7 +241,7 @@ public class ModelServiceImpl implements EModelService {
 			MTrimmedWindow tw = (MTrimmedWindow) searchRoot;
 			List<MTrimBar> bars = tw.getTrimBars();
 			for (MTrimBar bar : bars) {
-				findElementsRecursive(bar, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(bar, clazz, matcher, elements, found, searchFlags);
 			}
 		}
 
@@ -228,17 +249,17 @@ public class ModelServiceImpl implements EModelService {
 		if (searchRoot instanceof MWindow) {
 			MWindow window = (MWindow) searchRoot;
 			for (MWindow dw : window.getWindows()) {
-				findElementsRecursive(dw, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(dw, clazz, matcher, elements, found, searchFlags);
 			}
 
 			MMenu menu = window.getMainMenu();
 			if (menu != null && (searchFlags & IN_MAIN_MENU) != 0) {
-				findElementsRecursive(menu, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(menu, clazz, matcher, elements, found, searchFlags);
 			}
 			// Check for Handlers
 			if (searchFlags == ANYWHERE && MHandler.class.equals(clazz)) {
 				for (MHandler child : window.getHandlers()) {
-					findElementsRecursive(child, clazz, matcher, elements, searchFlags);
+					findElementsRecursive(child, clazz, matcher, elements, found, searchFlags);
 				}
 			}
 		}
@@ -246,7 +267,7 @@ public class ModelServiceImpl implements EModelService {
 		if (searchRoot instanceof MPerspective) {
 			MPerspective persp = (MPerspective) searchRoot;
 			for (MWindow dw : persp.getWindows()) {
-				findElementsRecursive(dw, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(dw, clazz, matcher, elements, found, searchFlags);
 			}
 		}
 		// Search shared elements
@@ -256,7 +277,7 @@ public class ModelServiceImpl implements EModelService {
 			// Don't search in shared areas unless the flag is set
 			if (ph.getRef() != null
 					&& (!(ph.getRef() instanceof MArea) || (searchFlags & IN_SHARED_AREA) != 0)) {
-				findElementsRecursive(ph.getRef(), clazz, matcher, elements, searchFlags);
+				findElementsRecursive(ph.getRef(), clazz, matcher, elements, found, searchFlags);
 			}
 		}
 
@@ -264,16 +285,16 @@ public class ModelServiceImpl implements EModelService {
 			MPart part = (MPart) searchRoot;
 
 			for (MMenu menu : part.getMenus()) {
-				findElementsRecursive(menu, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(menu, clazz, matcher, elements, found, searchFlags);
 			}
 
 			MToolBar toolBar = part.getToolbar();
 			if (toolBar != null) {
-				findElementsRecursive(toolBar, clazz, matcher, elements, searchFlags);
+				findElementsRecursive(toolBar, clazz, matcher, elements, found, searchFlags);
 			}
 			if (MHandler.class.equals(clazz)) {
 				for (MHandler child : part.getHandlers()) {
-					findElementsRecursive(child, clazz, matcher, elements, searchFlags);
+					findElementsRecursive(child, clazz, matcher, elements, found, searchFlags);
 				}
 			}
 		}
@@ -282,13 +303,21 @@ public class ModelServiceImpl implements EModelService {
 	@Override
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
-		ElementMatcher matcher = new ElementMatcher(id, clazz, tagsToMatch);
-		return findElements(searchRoot, clazz, ANYWHERE, matcher);
+		return findElements(searchRoot, id, clazz, tagsToMatch, ANYWHERE);
 	}
 
 	@Override
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch, int searchFlags) {
+		Assert.isLegal(searchRoot != null);
+		ModelElementIndex index = getIndex(searchRoot);
+		if (index != null) {
+			List<T> elements = index.findElements(searchRoot, id, clazz, tagsToMatch,
+					searchFlags);
+			if (elements != null) {
+				return elements;
+			}
+		}
 		ElementMatcher matcher = new ElementMatcher(id, clazz, tagsToMatch);
 		return findElements(searchRoot, clazz, searchFlags, matcher);
 	}
@@ -485,11 +514,17 @@ public class ModelServiceImpl implements EModelService {
 
 	@Override
 	public MPlaceholder findPlaceholderFor(MWindow window, MUIElement element) {
-		List<MPlaceholder> phList = findPerspectiveElements(window, null, MPlaceholder.class, null);
-		List<MPlaceholder> elementRefs = new ArrayList<MPlaceholder>();
-		for (MPlaceholder ph : phList) {
-			if (ph.getRef() == element) {
-				elementRefs.add(ph);
+		ModelElementIndex index = getIndex(window);
+		List<MPlaceholder> elementRefs = index == null ? null : index.findPlaceholders(window,
+				element, PRESENTATION);
+		if (elementRefs == null) {
+			List<MPlaceholder> phList = findPerspectiveElements(window, null, MPlaceholder.class,
+					null);
+			elementRefs = new ArrayList<MPlaceholder>();
+			for (MPlaceholder ph : phList) {
+				if (ph.getRef() == element) {
+					elementRefs.add(ph);
+				}
 			}
 		}
 
@@ -532,17 +567,42 @@ public class ModelServiceImpl implements EModelService {
 	@Override
 	public void move(MUIElement element, MElementContainer<MUIElement> newParent, int index,
 			boolean leavePlaceholder) {
-		// Cache where we were
-		MElementContainer<MUIElement> curParent = element.getParent();
-		int curIndex = curParent.getChildren().indexOf(element);
+		UIEventPublisher publisher = beginBatch();
+		try {
+			// Cache where we were
+			MElementContainer<MUIElement> curParent = element.getParent();
+			int curIndex = curParent.getChildren().indexOf(element);
+
+			// Move the model element
+			newParent.getChildren().add(index, element);
+
+			if (leavePlaceholder) {
+				MPlaceholder ph = MAdvancedFactory.INSTANCE.createPlaceholder();
+				ph.setRef(element);
+				curParent.getChildren().add(curIndex, ph);
+			}
+		} finally {
+			endBatch(publisher);
+		}
+	}
 
-		// Move the model element
-		newParent.getChildren().add(index, element);
+	/**
+	 * Starts batching the model events, if the application has a {@link UIEventPublisher}.
+	 *
+	 * @return the publisher to pass to {@link #endBatch(UIEventPublisher)}, may be
+	 *         <code>null</code>
+	 */
+	private UIEventPublisher beginBatch() {
+		UIEventPublisher publisher = appContext.get(UIEventPublisher.class);
+		if (publisher != null) {
+			publisher.beginBatch();
+		}
+		return publisher;
+	}
 
-		if (leavePlaceholder) {
-			MPlaceholder ph = MAdvancedFactory.INSTANCE.createPlaceholder();
-			ph.setRef(element);
-			curParent.getChildren().add(curIndex, ph);
+	private void endBatch(UIEventPublisher publisher) {
+		if (publisher != null) {
+			publisher.endBatch();
 		}
 	}
 
@@ -732,22 +792,28 @@ public class ModelServiceImpl implements EModelService {
 					ph.getParent().getChildren().remove(ph);
 				}
 
-				// Prevent shared stacks ids from clashing with the ones in the perspective
-				List<MPartStack> stacks = findElements(area, null, MPartStack.class, null);
-				for (MPartStack stack : stacks) {
-					String generatedId = "PartStack@" + Integer.toHexString(stack.hashCode()); //$NON-NLS-1$
-					stack.setElementId(generatedId);
-				}
+				// The remaining changes only touch the model, send their events in one pass
+				UIEventPublisher publisher = beginBatch();
+				try {
+					// Prevent shared stacks ids from clashing with the ones in the perspective
+					List<MPartStack> stacks = findElements(area, null, MPartStack.class, null);
+					for (MPartStack stack : stacks) {
+						String generatedId = "PartStack@" + Integer.toHexString(stack.hashCode()); //$NON-NLS-1$
+						stack.setElementId(generatedId);
+					}
 
-				// Also remove any min/max tags on the area (or its placeholder)
-				MUIElement areaPresentation = area;
-				if (area.getCurSharedRef() != null) {
-					areaPresentation = area.getCurSharedRef();
-				}
+					// Also remove any min/max tags on the area (or its placeholder)
+					MUIElement areaPresentation = area;
+					if (area.getCurSharedRef() != null) {
+						areaPresentation = area.getCurSharedRef();
+					}
 
-				areaPresentation.getTags().remove(IPresentationEngine.MAXIMIZED);
-				areaPresentation.getTags().remove(IPresentationEngine.MINIMIZED);
-				areaPresentation.getTags().remove(IPresentationEngine.MINIMIZED_BY_ZOOM);
+					areaPresentation.getTags().remove(IPresentationEngine.MAXIMIZED);
+					areaPresentation.getTags().remove(IPresentationEngine.MINIMIZED);
+					areaPresentation.getTags().remove(IPresentationEngine.MINIMIZED_BY_ZOOM);
+				} finally {
+					endBatch(publisher);
+				}
 			}
 		}
 
@@ -766,6 +832,7 @@ public class ModelServiceImpl implements EModelService {
 			}
 		}
 
+		// Not batched: the renderer needs the parent of an element to tear it down
 		for (MToolControl toolControl : toRemove) {
 			// Close any open fast view
 			toolControl.setToBeRendered(false);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,11 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
@@ -29,11 +32,74 @@ import org.eclipse.emf.ecore.util.EContentAdapter;
 
 /**
  * Transforms E4 MPart events into 3.x legacy events.
+ * <p>
+ * Events are normally sent as soon as the model changes. Between
+ * {@link #beginBatch()} and {@link #endBatch()} they are queued instead and
+ * sent in one pass when the outermost batch ends; successive SET events for
+ * the same attribute of the same element are collapsed into a single event
+ * carrying the first old value and the last new value, sent at the position
+ * of the first change. No event is sent for an attribute which is set back to
+ * its original value.
+ * </p>
  */
 public class UIEventPublisher extends EContentAdapter {
 
+	/**
+	 * An event waiting for the end of the current batch.
+	 */
+	private static class PendingEvent {
+		final String topic;
+		final Map<String, Object> argMap;
+
+		PendingEvent(String topic, Map<String, Object> argMap) {
+			this.topic = topic;
+			this.argMap = argMap;
+		}
+	}
+
+	/**
+	 * Identifies the SET events which can be collapsed: same element, same
+	 * feature.
+	 */
+	private static class SetKey {
+		final Object element;
+		final Object feature;
+
+		SetKey(Object element, Object feature) {
+			this.element = element;
+			this.feature = feature;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(element) + System.identityHashCode(feature);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SetKey)) {
+				return false;
+			}
+			SetKey other = (SetKey) obj;
+			return element == other.element && feature == other.feature;
+		}
+	}
+
 	private IEclipseContext context;
 
+	/**
+	 * Topics per feature, indexed by EMF notification event type.
+	 */
+	private final Map<Object, String[]> topics = new ConcurrentHashMap<Object, String[]>();
+
+	private int batchDepth;
+
+	private Thread batchThread;
+
+	private List<PendingEvent> pendingEvents;
+
+	private Map<SetKey, Integer> pendingSets;
+
 	/**
 	 * @param e4Context
 	 */
@@ -55,11 +121,96 @@ public class UIEventPublisher extends EContentAdapter {
 		String topic = formatData(notification, argMap);
 
 		if (topic != null) {
-			IEventBroker eventManager = context.get(IEventBroker.class);
-			eventManager.send(topic, argMap);
+			if (batchDepth > 0 && batchThread == Thread.currentThread()) {
+				queue(notification, topic, argMap);
+			} else {
+				IEventBroker eventManager = context.get(IEventBroker.class);
+				eventManager.send(topic, argMap);
+			}
 		}
 	}
 
+	/**
+	 * Starts queuing the events sent by this publisher on the current thread
+	 * until the matching call to {@link #endBatch()}. Batches may be nested;
+	 * events are sent when the outermost batch ends. Events caused by other
+	 * threads are still sent immediately.
+	 * <p>
+	 * Listeners only see the model once the batch is over, so batches should
+	 * only enclose model manipulations which do not depend on the reaction of
+	 * the listeners.
+	 * </p>
+	 */
+	public void beginBatch() {
+		if (batchDepth > 0 && batchThread != Thread.currentThread()) {
+			// another thread is batching, don't interfere with it
+			return;
+		}
+		if (batchDepth++ == 0) {
+			batchThread = Thread.currentThread();
+			pendingEvents = new ArrayList<PendingEvent>();
+			pendingSets = new HashMap<SetKey, Integer>();
+		}
+	}
+
+	/**
+	 * Ends a batch started with {@link #beginBatch()}. When the outermost batch
+	 * ends the queued events are sent in the order the model changed.
+	 */
+	public void endBatch() {
+		if (batchDepth == 0 || batchThread != Thread.currentThread()) {
+			return;
+		}
+		if (--batchDepth > 0) {
+			return;
+		}
+		List<PendingEvent> events = pendingEvents;
+		pendingEvents = null;
+		pendingSets = null;
+		batchThread = null;
+
+		IEventBroker eventManager = context.get(IEventBroker.class);
+		for (PendingEvent event : events) {
+			if (event != null) {
+				eventManager.send(event.topic, event.argMap);
+			}
+		}
+	}
+
+	private void queue(Notification notification, String topic, Map<String, Object> argMap) {
+		if (notification.getEventType() == Notification.SET
+				&& notification.getNotifier() instanceof MApplicationElement) {
+			// Collapse with the previous SET of the same attribute: keep the first old value and
+			// send the event at the position of the first change
+			SetKey key = new SetKey(notification.getNotifier(), notification.getFeature());
+			Integer previous = pendingSets.get(key);
+			if (previous != null) {
+				int index = previous.intValue();
+				PendingEvent previousEvent = pendingEvents.get(index);
+				Object oldValue = previousEvent.argMap.get(EventTags.OLD_VALUE);
+				if (oldValue != null) {
+					argMap.put(EventTags.OLD_VALUE, oldValue);
+				} else {
+					argMap.remove(EventTags.OLD_VALUE);
+				}
+				if (equals(oldValue, argMap.get(EventTags.NEW_VALUE))) {
+					// the attribute is back to its original value, nothing changed
+					pendingEvents.set(index, null);
+					pendingSets.remove(key);
+				} else {
+					pendingEvents.set(index, new PendingEvent(topic, argMap));
+				}
+				return;
+			}
+			pendingSets.put(key, Integer.valueOf(pendingEvents.size()));
+		}
+		pendingEvents.add(new PendingEvent(topic, argMap));
+	}
+
+	private static boolean equals(Object left, Object right) {
+		return left == null ? right == null : left.equals(right);
+	}
+
 	/**
 	 * Large hack here. Open to better suggestions
 	 * 
@@ -114,7 +265,7 @@ public class UIEventPublisher extends EContentAdapter {
 			appElement = (MApplicationElement) notifier;
 			feature = (EStructuralFeature) notification.getFeature();
 			attributeName = feature.getName();
-			topic = getTopic(feature, getEventType(notification));
+			topic = getCachedTopic(feature, notification);
 			switch (notification.getEventType()) {
 			case Notification.MOVE:
 				// for MOVE, oldValue is actually the source position
@@ -164,7 +315,7 @@ public class UIEventPublisher extends EContentAdapter {
 			}
 
 			attributeName = UIEvents.ApplicationElement.TRANSIENTDATA;
-			topic = getTopic(attributeName, getEventType(notification));
+			topic = getCachedTopic(attributeName, notification);
 
 			// We need to send MapEntries for the old and new values.
 			oldValue = createMapEntry(key, notification.getOldValue());
@@ -187,7 +338,7 @@ public class UIEventPublisher extends EContentAdapter {
 			}
 
 			attributeName = UIEvents.ApplicationElement.PERSISTEDSTATE;
-			topic = getTopic(attributeName, getEventType(notification));
+			topic = getCachedTopic(attributeName, notification);
 			oldValue = createMapEntry(key, notification.getOldValue());
 			newValue = createMapEntry(key, notification.getNewValue());
 		} else {
@@ -268,6 +419,32 @@ public class UIEventPublisher extends EContentAdapter {
 		};
 	}
 
+	/**
+	 * Returns the topic of the given feature and event type. Topics are computed once per feature
+	 * and event type.
+	 */
+	private String getCachedTopic(Object featureKey, Notification notification) {
+		String[] featureTopics = topics.get(featureKey);
+		if (featureTopics == null) {
+			featureTopics = new String[Notification.EVENT_TYPE_COUNT + 1];
+			topics.put(featureKey, featureTopics);
+		}
+		int eventType = notification.getEventType();
+		int slot = eventType >= 0 && eventType < Notification.EVENT_TYPE_COUNT ? eventType
+				: Notification.EVENT_TYPE_COUNT;
+		String topic = featureTopics[slot];
+		if (topic == null) {
+			String type = getEventType(notification);
+			if (featureKey instanceof EStructuralFeature) {
+				topic = getTopic((EStructuralFeature) featureKey, type);
+			} else {
+				topic = getTopic((String) featureKey, type);
+			}
+			featureTopics[slot] = topic;
+		}
+		return topic;
+	}
+
 	private String getTopic(EStructuralFeature eFeature, String type) {
 		EClass eContainingClass = eFeature.getEContainingClass();
 		return UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
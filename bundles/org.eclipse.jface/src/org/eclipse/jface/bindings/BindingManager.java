@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2010 IBM Corporation and others.
+ * Copyright (c) 2004, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -119,6 +119,43 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 	}
 
+	/**
+	 * <p>
+	 * Adds the contexts of the tree which are descendants of one of the given
+	 * contexts.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(nh)</code>, where <code>n</code> is
+	 * the number of contexts in the tree and <code>h</code> its height.
+	 * </p>
+	 * 
+	 * @param contextTree
+	 *            The tree of contexts, as a map of child to parent context
+	 *            identifiers (<code>String</code>); must not be
+	 *            <code>null</code>.
+	 * @param contextIds
+	 *            The context identifiers (<code>String</code>) whose
+	 *            descendants should be added; must not be <code>null</code>.
+	 * @param descendants
+	 *            The set to which the descendants are added; must not be
+	 *            <code>null</code>.
+	 */
+	private static final void addDescendants(final Map contextTree,
+			final Set contextIds, final Set descendants) {
+		final Iterator contextIdItr = contextTree.entrySet().iterator();
+		while (contextIdItr.hasNext()) {
+			final Map.Entry entry = (Map.Entry) contextIdItr.next();
+			String parentId = (String) entry.getValue();
+			while (parentId != null) {
+				if (contextIds.contains(parentId)) {
+					descendants.add(entry.getKey());
+					break;
+				}
+				parentId = (String) contextTree.get(parentId);
+			}
+		}
+	}
+
 	/**
 	 * <p>
 	 * Takes a fully-specified string, and converts it into an array of
@@ -226,6 +263,24 @@ public final class BindingManager extends HandleObjectManager implements
 	 */
 	private Map cachedBindings = new HashMap();
 
+	/**
+	 * The bindings matching the current locale, platform and schemes,
+	 * regardless of the active contexts. This is a map of triggers (
+	 * <code>TriggerSequence</code>) to collections of bindings (
+	 * <code>Binding</code>), in the order of the <code>bindings</code>
+	 * array, with the deletions already removed. This value is
+	 * <code>null</code> if it has not been computed for the current state.
+	 */
+	private Map candidateBindings = null;
+
+	/**
+	 * The triggers of the candidate bindings indexed by context. This is a map
+	 * of context identifiers (<code>String</code>) to sets of triggers (
+	 * <code>TriggerSequence</code>). This value is <code>null</code> if and
+	 * only if <code>candidateBindings</code> is <code>null</code>.
+	 */
+	private Map candidateTriggersByContextId = null;
+
 	/**
 	 * The command manager for this binding manager. This manager is only needed
 	 * for the <code>getActiveBindingsFor(String)</code> method. This value is
@@ -275,6 +330,14 @@ public final class BindingManager extends HandleObjectManager implements
 	 */
 	private Map prefixTable = null;
 
+	/**
+	 * The tree of active contexts for which the current solution has been
+	 * computed. This is used to only recompute the triggers bound in the
+	 * contexts which changed. This value is <code>null</code> if there is no
+	 * existing solution.
+	 */
+	private Map solutionContextTree = null;
+
 	/**
 	 * <p>
 	 * Constructs a new instance of <code>BindingManager</code>.
@@ -439,6 +502,9 @@ public final class BindingManager extends HandleObjectManager implements
 	 * This method completes in <code>O(1)</code>.
 	 */
 	private final void clearSolution() {
+		candidateBindings = null;
+		candidateTriggersByContextId = null;
+		solutionContextTree = null;
 		setActiveBindings(null, null, null, null);
 	}
 
@@ -527,7 +593,6 @@ public final class BindingManager extends HandleObjectManager implements
 		final int length = trimmedBindings.length;
 		for (int i = 0; i < length; i++) {
 			final Binding binding = trimmedBindings[i];
-			boolean found;
 
 			// Check the context.
 			final String contextId = binding.getContextId();
@@ -547,17 +612,7 @@ public final class BindingManager extends HandleObjectManager implements
 			}
 
 			// Check the scheme ids.
-			final String schemeId = binding.getSchemeId();
-			found = false;
-			if (activeSchemeIds != null) {
-				for (int j = 0; j < activeSchemeIds.length; j++) {
-					if (Util.equals(schemeId, activeSchemeIds[j])) {
-						found = true;
-						break;
-					}
-				}
-			}
-			if (!found) {
+			if (!schemeMatches(binding)) {
 				continue;
 			}
 
@@ -623,48 +678,12 @@ public final class BindingManager extends HandleObjectManager implements
 
 			} else {
 				// We are building the flat map of trigger to commands.
-				if (match instanceof Binding) {
-					final Binding binding = (Binding) match;
-					bindingsByTrigger.put(trigger, binding);
-					addReverseLookup(triggersByCommandId, binding
+				final Binding winner = resolveMatch(trigger, match,
+						activeContextTree, conflictsByTrigger, conflicts);
+				if (winner != null) {
+					bindingsByTrigger.put(trigger, winner);
+					addReverseLookup(triggersByCommandId, winner
 							.getParameterizedCommand(), trigger);
-
-				} else if (match instanceof Collection) {
-					final Binding winner = resolveConflicts((Collection) match,
-							activeContextTree);
-					if (winner == null) {
-						// warn once ... so as not to flood the logs
-						conflictsByTrigger.put(trigger, match);
-						if (triggerConflicts.add(trigger)) {
-							final StringWriter sw = new StringWriter();
-							final BufferedWriter buffer = new BufferedWriter(sw);
-							try {
-								buffer.write("A conflict occurred for "); //$NON-NLS-1$
-								buffer.write(trigger.toString());
-								buffer.write(':');
-								Iterator i = ((Collection) match).iterator();
-								while (i.hasNext()) {
-									buffer.newLine();
-									buffer.write(i.next().toString());
-								}
-								buffer.flush();
-							} catch (IOException e) {
-								// we should not get this
-							}
-							conflicts.add(new Status(IStatus.WARNING,
-									"org.eclipse.jface", //$NON-NLS-1$
-									sw.toString()));
-						}
-						if (DEBUG) {
-							Tracing.printTrace("BINDINGS", //$NON-NLS-1$
-									"A conflict occurred for " + trigger); //$NON-NLS-1$
-							Tracing.printTrace("BINDINGS", "    " + match); //$NON-NLS-1$ //$NON-NLS-2$
-						}
-					} else {
-						bindingsByTrigger.put(trigger, winner);
-						addReverseLookup(triggersByCommandId, winner
-								.getParameterizedCommand(), trigger);
-					}
 				}
 			}
 		}
@@ -673,6 +692,50 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 	}
 
+	/**
+	 * <p>
+	 * Computes the bindings which match the current locale, platform and
+	 * schemes, regardless of the active contexts, and indexes their triggers by
+	 * context. These are the bindings considered when only some of the
+	 * triggers are recomputed after a change of the active contexts.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(n)</code>, where <code>n</code> is
+	 * the number of bindings.
+	 * </p>
+	 */
+	private final void computeCandidateBindings() {
+		final Binding[] trimmedBindings = removeDeletions(bindings);
+		final Map candidates = new HashMap();
+		final Map triggersByContextId = new HashMap();
+		for (int i = 0; i < trimmedBindings.length; i++) {
+			final Binding binding = trimmedBindings[i];
+			if ((!localeMatches(binding)) || (!platformMatches(binding))
+					|| (!schemeMatches(binding))) {
+				continue;
+			}
+
+			final TriggerSequence trigger = binding.getTriggerSequence();
+			Collection matches = (Collection) candidates.get(trigger);
+			if (matches == null) {
+				matches = new ArrayList(1);
+				candidates.put(trigger, matches);
+			}
+			matches.add(binding);
+
+			final String contextId = binding.getContextId();
+			Set triggers = (Set) triggersByContextId.get(contextId);
+			if (triggers == null) {
+				triggers = new HashSet();
+				triggersByContextId.put(contextId, triggers);
+			}
+			triggers.add(trigger);
+		}
+
+		candidateBindings = candidates;
+		candidateTriggersByContextId = triggersByContextId;
+	}
+
 	/**
 	 * <p>
 	 * Notifies this manager that the context manager has changed. This method
@@ -902,6 +965,111 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 	}
 
+	/**
+	 * <p>
+	 * Returns the triggers whose binding may differ between two trees of active
+	 * contexts: the triggers bound in the contexts which were activated or
+	 * deactivated, and in their descendants.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(nh+t)</code>, where <code>n</code>
+	 * is the number of active contexts, <code>h</code> the height of the
+	 * context tree and <code>t</code> the number of triggers returned.
+	 * </p>
+	 * 
+	 * @param previousContextTree
+	 *            The tree of contexts of the existing solution; must not be
+	 *            <code>null</code>.
+	 * @param activeContextTree
+	 *            The tree of contexts now active; must not be
+	 *            <code>null</code>.
+	 * @return The set of triggers (<code>TriggerSequence</code>) to
+	 *         recompute; <code>null</code> if so many triggers are affected
+	 *         that the bindings should rather be computed from scratch.
+	 */
+	private final Set getAffectedTriggers(final Map previousContextTree,
+			final Map activeContextTree) {
+		final Set changedContextIds = new HashSet();
+		Iterator entryItr = previousContextTree.entrySet().iterator();
+		while (entryItr.hasNext()) {
+			final Map.Entry entry = (Map.Entry) entryItr.next();
+			final Object contextId = entry.getKey();
+			if ((!activeContextTree.containsKey(contextId))
+					|| (!Util.equals(entry.getValue(), activeContextTree
+							.get(contextId)))) {
+				changedContextIds.add(contextId);
+			}
+		}
+		entryItr = activeContextTree.keySet().iterator();
+		while (entryItr.hasNext()) {
+			final Object contextId = entryItr.next();
+			if (!previousContextTree.containsKey(contextId)) {
+				changedContextIds.add(contextId);
+			}
+		}
+
+		/*
+		 * The conflicts between the bindings of the descendants are resolved by
+		 * ascending through the changed contexts.
+		 */
+		final Set affectedContextIds = new HashSet(changedContextIds);
+		if (!changedContextIds.isEmpty()) {
+			addDescendants(previousContextTree, changedContextIds,
+					affectedContextIds);
+			addDescendants(activeContextTree, changedContextIds,
+					affectedContextIds);
+		}
+
+		if (candidateBindings == null) {
+			computeCandidateBindings();
+		}
+		final Set triggers = new HashSet();
+		final Iterator contextIdItr = affectedContextIds.iterator();
+		while (contextIdItr.hasNext()) {
+			final Set contextTriggers = (Set) candidateTriggersByContextId
+					.get(contextIdItr.next());
+			if (contextTriggers != null) {
+				triggers.addAll(contextTriggers);
+			}
+		}
+
+		if (triggers.size() > candidateBindings.size() / 2) {
+			return null;
+		}
+		return triggers;
+	}
+
+	/**
+	 * <p>
+	 * Returns the completions of a prefix in a prefix table being patched. The
+	 * completions are copied the first time they are returned, as the original
+	 * map may still be in use.
+	 * </p>
+	 * 
+	 * @param prefixTable
+	 *            The prefix table being patched; must not be <code>null</code>.
+	 * @param prefix
+	 *            The prefix; must not be <code>null</code>.
+	 * @param copiedPrefixes
+	 *            The prefixes whose completions have already been copied; must
+	 *            not be <code>null</code>.
+	 * @return The modifiable map of completions, or <code>null</code> if the
+	 *         trigger is not a prefix of any active binding.
+	 */
+	private static final Map getCompletions(final Map prefixTable,
+			final TriggerSequence prefix, final Set copiedPrefixes) {
+		final Object value = prefixTable.get(prefix);
+		if (!(value instanceof Map)) {
+			return null;
+		}
+		if (copiedPrefixes.add(prefix)) {
+			final Map completions = new HashMap((Map) value);
+			prefixTable.put(prefix, completions);
+			return completions;
+		}
+		return (Map) value;
+	}
+
 	/**
 	 * <p>
 	 * Returns the active bindings. The caller must not modify the returned map.
@@ -1711,6 +1879,7 @@ public final class BindingManager extends HandleObjectManager implements
 	private final void recomputeBindings() {
 		if (bindings == null) {
 			// Not yet initialized. This is happening too early. Do nothing.
+			solutionContextTree = null;
 			setActiveBindings(Collections.EMPTY_MAP, Collections.EMPTY_MAP,
 					Collections.EMPTY_MAP, Collections.EMPTY_MAP);
 			return;
@@ -1740,6 +1909,7 @@ public final class BindingManager extends HandleObjectManager implements
 			if (DEBUG) {
 				Tracing.printTrace("BINDINGS", "Cache hit"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
+			solutionContextTree = activeContextTree;
 			setActiveBindings(commandIdsByTrigger, existingCache
 					.getTriggersByCommandId(), existingCache.getPrefixTable(),
 					existingCache.getConflictsByTrigger());
@@ -1751,6 +1921,16 @@ public final class BindingManager extends HandleObjectManager implements
 			Tracing.printTrace("BINDINGS", "Cache miss"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 
+		// Only recompute the triggers bound in the contexts which changed.
+		final Map previousContextTree = solutionContextTree;
+		solutionContextTree = activeContextTree;
+		if ((previousContextTree != null)
+				&& (activeBindings != null)
+				&& (recomputeBindings(previousContextTree, activeContextTree,
+						existingCache))) {
+			return;
+		}
+
 		// Compute the active bindings.
 		commandIdsByTrigger = new HashMap();
 		final Map triggersByParameterizedCommand = new HashMap();
@@ -1766,6 +1946,154 @@ public final class BindingManager extends HandleObjectManager implements
 		existingCache.setPrefixTable(prefixTable);
 	}
 
+	/**
+	 * <p>
+	 * Recomputes the bindings of the triggers affected by a change of the
+	 * active contexts, starting from the existing solution. The other triggers
+	 * keep their binding, so the prefix table and the conflicts are patched
+	 * rather than rebuilt. As the existing maps may be held by the cache and
+	 * by listeners, they are copied before being patched.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(m+tp)</code>, where <code>m</code>
+	 * is the number of active bindings, <code>t</code> is the number of
+	 * affected triggers, and <code>p</code> is the average number of
+	 * triggers in a trigger sequence.
+	 * </p>
+	 * 
+	 * @param previousContextTree
+	 *            The tree of contexts of the existing solution; must not be
+	 *            <code>null</code>.
+	 * @param activeContextTree
+	 *            The tree of contexts now active; must not be
+	 *            <code>null</code>.
+	 * @param bindingCache
+	 *            The cache entry in which to store the new solution; must not
+	 *            be <code>null</code>.
+	 * @return <code>true</code> if the bindings have been recomputed;
+	 *         <code>false</code> if too many triggers are affected, and the
+	 *         bindings should be computed from scratch.
+	 */
+	private final boolean recomputeBindings(final Map previousContextTree,
+			final Map activeContextTree, final CachedBindingSet bindingCache) {
+		final Set triggers = getAffectedTriggers(previousContextTree,
+				activeContextTree);
+		if (triggers == null) {
+			return false;
+		}
+		if (DEBUG) {
+			Tracing.printTrace("BINDINGS", "Recomputing " + triggers.size() //$NON-NLS-1$ //$NON-NLS-2$
+					+ " triggers"); //$NON-NLS-1$
+		}
+
+		final Map bindingsByTrigger = new HashMap(activeBindings);
+		final Map triggersByParameterizedCommand = new HashMap(
+				activeBindingsByParameterizedCommand);
+		final Map conflictsByTrigger = new HashMap(currentConflicts);
+		final Map newPrefixTable = new HashMap(prefixTable);
+		final Set copiedPrefixes = new HashSet();
+		final Set emptiedPrefixes = new HashSet();
+		final Map newBindings = new HashMap();
+		final MultiStatus conflicts = new MultiStatus("org.eclipse.jface", 0, //$NON-NLS-1$
+				"Keybinding conflicts occurred.  They may interfere with normal accelerator operation.", //$NON-NLS-1$
+				null);
+
+		// Resolve the affected triggers, and remove their previous binding.
+		Iterator triggerItr = triggers.iterator();
+		while (triggerItr.hasNext()) {
+			final TriggerSequence trigger = (TriggerSequence) triggerItr.next();
+			final Collection candidates = (Collection) candidateBindings
+					.get(trigger);
+			final List matches = new ArrayList(candidates.size());
+			final Iterator candidateItr = candidates.iterator();
+			while (candidateItr.hasNext()) {
+				final Binding candidate = (Binding) candidateItr.next();
+				if (activeContextTree.containsKey(candidate.getContextId())) {
+					matches.add(candidate);
+				}
+			}
+
+			conflictsByTrigger.remove(trigger);
+			Binding winner = null;
+			if (matches.size() == 1) {
+				winner = (Binding) matches.get(0);
+			} else if (matches.size() > 1) {
+				winner = resolveMatch(trigger, matches, activeContextTree,
+						conflictsByTrigger, conflicts);
+			}
+
+			final Binding previous = (Binding) bindingsByTrigger.get(trigger);
+			if (previous == winner) {
+				continue;
+			}
+			if (previous != null) {
+				bindingsByTrigger.remove(trigger);
+				removeReverseLookup(triggersByParameterizedCommand, previous
+						.getParameterizedCommand(), trigger);
+				removePrefixes(newPrefixTable, trigger, copiedPrefixes,
+						emptiedPrefixes);
+			}
+			if (winner != null) {
+				newBindings.put(trigger, winner);
+			}
+		}
+		if (conflicts.getSeverity() != IStatus.OK) {
+			Policy.getLog().log(conflicts);
+		}
+
+		// Add the new bindings, as buildPrefixTable would.
+		bindingsByTrigger.putAll(newBindings);
+		final Iterator entryItr = newBindings.entrySet().iterator();
+		while (entryItr.hasNext()) {
+			final Map.Entry entry = (Map.Entry) entryItr.next();
+			final TriggerSequence trigger = (TriggerSequence) entry.getKey();
+			final Binding binding = (Binding) entry.getValue();
+			final ParameterizedCommand command = binding
+					.getParameterizedCommand();
+			final Collection previousTriggers = (Collection) triggersByParameterizedCommand
+					.get(command);
+			final Collection commandTriggers = (previousTriggers == null) ? new ArrayList(
+					1)
+					: new ArrayList(previousTriggers);
+			commandTriggers.add(trigger);
+			triggersByParameterizedCommand.put(command, commandTriggers);
+
+			if (!newPrefixTable.containsKey(trigger)) {
+				newPrefixTable.put(trigger, null);
+			}
+			final TriggerSequence[] prefixes = trigger.getPrefixes();
+			for (int i = 0; i < prefixes.length; i++) {
+				final TriggerSequence prefix = prefixes[i];
+				Map completions = getCompletions(newPrefixTable, prefix,
+						copiedPrefixes);
+				if (completions == null) {
+					completions = new HashMap();
+					newPrefixTable.put(prefix, completions);
+					copiedPrefixes.add(prefix);
+				}
+				completions.put(trigger, binding);
+			}
+		}
+
+		// The prefixes with no completion left may still be perfect matches.
+		triggerItr = emptiedPrefixes.iterator();
+		while (triggerItr.hasNext()) {
+			final Object prefix = triggerItr.next();
+			if ((!newPrefixTable.containsKey(prefix))
+					&& (bindingsByTrigger.containsKey(prefix))) {
+				newPrefixTable.put(prefix, null);
+			}
+		}
+
+		bindingCache.setBindingsByTrigger(bindingsByTrigger);
+		bindingCache.setTriggersByCommandId(triggersByParameterizedCommand);
+		bindingCache.setConflictsByTrigger(conflictsByTrigger);
+		setActiveBindings(bindingsByTrigger, triggersByParameterizedCommand,
+				newPrefixTable, conflictsByTrigger);
+		bindingCache.setPrefixTable(newPrefixTable);
+		return true;
+	}
+
 	/**
 	 * <p>
 	 * Remove the specific binding by identity. Does nothing if the binding is
@@ -1974,6 +2302,81 @@ public final class BindingManager extends HandleObjectManager implements
 		return returnValue;
 	}
 
+	/**
+	 * <p>
+	 * Removes a trigger from a prefix table being patched: the trigger is
+	 * removed from the completions of each of its prefixes, and its perfect
+	 * match is removed unless it is also a prefix of another trigger.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(p)</code>, where <code>p</code> is
+	 * the number of triggers in the trigger sequence.
+	 * </p>
+	 * 
+	 * @param prefixTable
+	 *            The prefix table being patched; must not be <code>null</code>.
+	 * @param trigger
+	 *            The trigger which is no longer bound; must not be
+	 *            <code>null</code>.
+	 * @param copiedPrefixes
+	 *            The prefixes whose completions have already been copied; must
+	 *            not be <code>null</code>.
+	 * @param emptiedPrefixes
+	 *            The set to which the prefixes left without completions are
+	 *            added; must not be <code>null</code>.
+	 */
+	private static final void removePrefixes(final Map prefixTable,
+			final TriggerSequence trigger, final Set copiedPrefixes,
+			final Set emptiedPrefixes) {
+		if (!(prefixTable.get(trigger) instanceof Map)) {
+			prefixTable.remove(trigger);
+		}
+
+		final TriggerSequence[] prefixes = trigger.getPrefixes();
+		for (int i = 0; i < prefixes.length; i++) {
+			final TriggerSequence prefix = prefixes[i];
+			final Map completions = getCompletions(prefixTable, prefix,
+					copiedPrefixes);
+			if (completions == null) {
+				continue;
+			}
+			completions.remove(trigger);
+			if (completions.isEmpty()) {
+				prefixTable.remove(prefix);
+				emptiedPrefixes.add(prefix);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Removes a value added by <code>addReverseLookup</code>. The collection
+	 * of values is copied rather than modified, as it may still be in use.
+	 * </p>
+	 * 
+	 * @param map
+	 *            The map to modify; must not be <code>null</code>.
+	 * @param key
+	 *            The key to look up in the map; may be <code>null</code>.
+	 * @param value
+	 *            The value to remove; may be <code>null</code>.
+	 */
+	private static final void removeReverseLookup(final Map map,
+			final Object key, final Object value) {
+		final Collection values = (Collection) map.get(key);
+		if (values == null) {
+			return;
+		}
+
+		final Collection newValues = new ArrayList(values);
+		newValues.remove(value);
+		if (newValues.isEmpty()) {
+			map.remove(key);
+		} else {
+			map.put(key, newValues);
+		}
+	}
+
 	/**
 	 * <p>
 	 * Attempts to resolve the conflicts for the given bindings.
@@ -2101,6 +2504,70 @@ public final class BindingManager extends HandleObjectManager implements
 		return bestMatch;
 	}
 
+	/**
+	 * <p>
+	 * Resolves the bindings matching a trigger in the active contexts. If the
+	 * conflict between several bindings cannot be resolved, it is added to the
+	 * conflicts, and it is logged the first time it happens for the trigger.
+	 * </p>
+	 * 
+	 * @param trigger
+	 *            The trigger; must not be <code>null</code>.
+	 * @param match
+	 *            Either the only <code>Binding</code> matching the trigger,
+	 *            or the <code>Collection</code> of the bindings matching it.
+	 * @param activeContextTree
+	 *            The tree of active contexts; must not be <code>null</code>.
+	 * @param conflictsByTrigger
+	 *            The map of the unresolved conflicts, to which the conflict is
+	 *            added; must not be <code>null</code>.
+	 * @param conflicts
+	 *            The status to which the conflict is added to be logged; must
+	 *            not be <code>null</code>.
+	 * @return The binding which wins; <code>null</code> if there is a
+	 *         conflict.
+	 */
+	private final Binding resolveMatch(final TriggerSequence trigger,
+			final Object match, final Map activeContextTree,
+			final Map conflictsByTrigger, final MultiStatus conflicts) {
+		if (match instanceof Binding) {
+			return (Binding) match;
+		}
+
+		final Binding winner = resolveConflicts((Collection) match,
+				activeContextTree);
+		if (winner == null) {
+			// warn once ... so as not to flood the logs
+			conflictsByTrigger.put(trigger, match);
+			if (triggerConflicts.add(trigger)) {
+				final StringWriter sw = new StringWriter();
+				final BufferedWriter buffer = new BufferedWriter(sw);
+				try {
+					buffer.write("A conflict occurred for "); //$NON-NLS-1$
+					buffer.write(trigger.toString());
+					buffer.write(':');
+					Iterator i = ((Collection) match).iterator();
+					while (i.hasNext()) {
+						buffer.newLine();
+						buffer.write(i.next().toString());
+					}
+					buffer.flush();
+				} catch (IOException e) {
+					// we should not get this
+				}
+				conflicts.add(new Status(IStatus.WARNING,
+						"org.eclipse.jface", //$NON-NLS-1$
+						sw.toString()));
+			}
+			if (DEBUG) {
+				Tracing.printTrace("BINDINGS", //$NON-NLS-1$
+						"A conflict occurred for " + trigger); //$NON-NLS-1$
+				Tracing.printTrace("BINDINGS", "    " + match); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		return winner;
+	}
+
 	/**
 	 * <p>
 	 * Notifies this manager that a scheme has changed. This method is intended
@@ -2143,6 +2610,35 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 	}
 
+	/**
+	 * <p>
+	 * Tests whether the scheme for the binding is one of the active schemes.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(n)</code>, where <code>n</code> is
+	 * the number of active schemes.
+	 * </p>
+	 * 
+	 * @param binding
+	 *            The binding with which to test; must not be <code>null</code>.
+	 * @return <code>true</code> if the binding's scheme is active;
+	 *         <code>false</code> otherwise.
+	 */
+	private final boolean schemeMatches(final Binding binding) {
+		if (activeSchemeIds == null) {
+			return false;
+		}
+
+		final String schemeId = binding.getSchemeId();
+		for (int i = 0; i < activeSchemeIds.length; i++) {
+			if (Util.equals(schemeId, activeSchemeIds[i])) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	/**
 	 * Sets the active bindings and the prefix table. This ensures that the two
 	 * values change at the same time, and that any listeners are notified
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.jface.internal;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Internal class splitting a loop over a large range of indices between the
+ * calling thread and the threads of an executor. The calling thread runs the
+ * first chunk of the range and any chunk that no other thread has started yet,
+ * so the loop completes even if the executor is busy or shut down.
+ *
+ * @since 3.10
+ */
+public final class ConcurrentChunks {
+
+	/**
+	 * Runs the loop over one chunk of the range.
+	 */
+	public interface ChunkRunnable {
+		/**
+		 * Runs the loop from <code>start</code> inclusive to <code>end</code>
+		 * exclusive. May be called from any thread.
+		 *
+		 * @param start
+		 *            the first index of the chunk
+		 * @param end
+		 *            the index after the last one of the chunk
+		 */
+		void run(int start, int end);
+	}
+
+	private static final int PARALLELISM = Runtime.getRuntime()
+			.availableProcessors();
+
+	private static ThreadPoolExecutor executor;
+
+	private ConcurrentChunks() {
+		// not instantiated
+	}
+
+	/**
+	 * Returns the number of chunks a range of the given length is split into
+	 * by {@link #forEachChunk(int, int, ChunkRunnable, IProgressMonitor)}.
+	 *
+	 * @param length
+	 *            the length of the range
+	 * @param minChunk
+	 *            the minimum length of a chunk
+	 * @return the number of chunks, at least 1
+	 */
+	public static int getChunkCount(int length, int minChunk) {
+		return getChunkCount(PARALLELISM, length, minChunk);
+	}
+
+	/**
+	 * Runs the given loop over the indices from 0 to <code>length</code>,
+	 * split between the calling thread and a pool of worker threads shared by
+	 * all the callers.
+	 *
+	 * @param length
+	 *            the length of the range
+	 * @param minChunk
+	 *            the minimum length of a chunk
+	 * @param runnable
+	 *            the loop
+	 * @param monitor
+	 *            the monitor notified in the calling thread of one unit of
+	 *            work per chunk done and canceled if the calling thread is
+	 *            interrupted, or <code>null</code>
+	 */
+	public static void forEachChunk(int length, int minChunk,
+			ChunkRunnable runnable, IProgressMonitor monitor) {
+		int chunks = getChunkCount(PARALLELISM, length, minChunk);
+		forEachChunk(chunks > 1 ? getExecutor() : null, chunks, length,
+				runnable, monitor);
+	}
+
+	/**
+	 * Runs the given loop over the indices from 0 to <code>length</code>,
+	 * split between the calling thread and the threads of the given executor.
+	 *
+	 * @param executor
+	 *            the executor
+	 * @param parallelism
+	 *            the maximum number of threads running the loop, including
+	 *            the calling thread
+	 * @param length
+	 *            the length of the range
+	 * @param minChunk
+	 *            the minimum length of a chunk
+	 * @param runnable
+	 *            the loop
+	 * @param monitor
+	 *            the monitor notified in the calling thread of one unit of
+	 *            work per chunk done and canceled if the calling thread is
+	 *            interrupted, or <code>null</code>
+	 */
+	public static void forEachChunk(Executor executor, int parallelism,
+			int length, int minChunk, ChunkRunnable runnable,
+			IProgressMonitor monitor) {
+		forEachChunk(executor, getChunkCount(parallelism, length, minChunk),
+				length, runnable, monitor);
+	}
+
+	private static int getChunkCount(int parallelism, int length, int minChunk) {
+		return Math.max(1, Math.min(parallelism, length / minChunk));
+	}
+
+	private static void forEachChunk(Executor executor, int chunks,
+			int length, final ChunkRunnable runnable, IProgressMonitor monitor) {
+		if (chunks <= 1) {
+			runnable.run(0, length);
+			if (monitor != null) {
+				monitor.worked(1);
+			}
+			return;
+		}
+
+		int chunkSize = (length + chunks - 1) / chunks;
+		FutureTask[] tasks = new FutureTask[chunks - 1];
+		for (int i = 0; i < tasks.length; i++) {
+			final int start = (i + 1) * chunkSize;
+			final int end = Math.min(start + chunkSize, length);
+			tasks[i] = new FutureTask(new Runnable() {
+				@Override
+				public void run() {
+					runnable.run(start, end);
+				}
+			}, null);
+			try {
+				executor.execute(tasks[i]);
+			} catch (RejectedExecutionException e) {
+				// run below, in this thread
+			}
+		}
+		runnable.run(0, chunkSize);
+		if (monitor != null) {
+			monitor.worked(1);
+		}
+
+		for (int i = 0; i < tasks.length; i++) {
+			// Has no effect if a worker thread has already started the task
+			tasks[i].run();
+			try {
+				tasks[i].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (monitor == null) {
+					throw new IllegalStateException(e);
+				}
+				monitor.setCanceled(true);
+				return;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+			if (monitor != null) {
+				monitor.worked(1);
+			}
+		}
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 1,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"JFace Worker"); //$NON-NLS-1$
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,12 @@ import org.eclipse.swt.widgets.Widget;
  */
 public abstract class AbstractTableViewer extends ColumnViewer {
 
+	/**
+	 * The number of elements sorted when a virtual table is refreshed. The
+	 * other elements are only sorted when one of them is shown.
+	 */
+	private static final int VIRTUAL_SORT_WINDOW = 256;
+
 	private class VirtualManager {
 
 		/**
@@ -47,6 +53,14 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		 */
 		private Object[] cachedElements = new Object[0];
 
+		/**
+		 * The number of cached elements in sorted order, or
+		 * <code>Integer.MAX_VALUE</code> if they all are. The elements after
+		 * them are in the order of the content provider until one of them is
+		 * needed.
+		 */
+		private int sortedCount = Integer.MAX_VALUE;
+
 		/**
 		 * Create a new instance of the receiver.
 		 *
@@ -101,6 +115,9 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		protected Object resolveElement(int index) {
 
 			Object element = null;
+			if (index >= sortedCount) {
+				completeSort();
+			}
 			if (index < cachedElements.length) {
 				element = cachedElements[index];
 			}
@@ -116,6 +133,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		 */
 		public void notVisibleAdded(Object element, int index) {
 
+			completeSort();
 			int requiredCount = doGetItemCount() + 1;
 
 			Object[] newCache = new Object[requiredCount];
@@ -137,6 +155,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		 * @param indices
 		 */
 		public void removeIndices(int[] indices) {
+			completeSort();
 			if (indices.length == 1) {
 				removeIndicesFromTo(indices[0], indices[0]);
 			}
@@ -164,6 +183,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		 * @param to
 		 */
 		public void removeIndicesFromTo(int from, int to) {
+			completeSort();
 			int indexAfterTo = to + 1;
 			Object[] newCache = new Object[cachedElements.length
 					- (indexAfterTo - from)];
@@ -179,6 +199,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		 * @return the index of the element in the cache, or null
 		 */
 		public int find(Object element) {
+			completeSort();
 			return Arrays.asList(cachedElements).indexOf(element);
 		}
 
@@ -186,6 +207,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		 * @param count
 		 */
 		public void adjustCacheSize(int count) {
+			completeSort();
 			if (count == cachedElements.length) {
 				return;
 			} else if (count < cachedElements.length) {
@@ -200,6 +222,38 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 			}
 		}
 
+		/**
+		 * Set the elements to cache.
+		 *
+		 * @param elements
+		 * @param sorted
+		 *            the number of elements in sorted order, or
+		 *            <code>Integer.MAX_VALUE</code> if they all are
+		 */
+		public void setCachedElements(Object[] elements, int sorted) {
+			cachedElements = elements;
+			sortedCount = sorted;
+		}
+
+		/**
+		 * Sort the cached elements which have not been sorted yet.
+		 */
+		public void completeSort() {
+			if (sortedCount >= cachedElements.length) {
+				return;
+			}
+			int from = sortedCount;
+			sortedCount = Integer.MAX_VALUE;
+			ViewerComparator comparator = getComparator();
+			if (comparator == null) {
+				return;
+			}
+			Object[] unsorted = new Object[cachedElements.length - from];
+			System.arraycopy(cachedElements, from, unsorted, 0, unsorted.length);
+			comparator.sort(AbstractTableViewer.this, unsorted);
+			System.arraycopy(unsorted, 0, cachedElements, from, unsorted.length);
+		}
+
 	}
 
 	private VirtualManager virtualManager;
@@ -503,9 +557,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 				Object element = null;
 				// See if it is cached
 				int selectionIndex = selectionIndices[i];
-				if (selectionIndex < virtualManager.cachedElements.length) {
-					element = virtualManager.cachedElements[selectionIndex];
-				}
+				element = virtualManager.resolveElement(selectionIndex);
 				if (element == null) {
 					// Not cached so try the item's data
 					Item item = doGetItem(selectionIndex);
@@ -639,8 +691,12 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 				&& (contentProvider instanceof IStructuredContentProvider)) {
 			// Don't cache if the root is null but cache if it is not lazy.
 			if (root != null) {
-				virtualManager.cachedElements = getSortedChildren(root);
-				doSetItemCount(virtualManager.cachedElements.length);
+				Object[] children = getSortedChildren(root,
+						VIRTUAL_SORT_WINDOW);
+				virtualManager.setCachedElements(children,
+						isSortedPartially() ? VIRTUAL_SORT_WINDOW
+								: Integer.MAX_VALUE);
+				doSetItemCount(children.length);
 			}
 		}
 		doClearAll();
@@ -945,6 +1001,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 			if (count != list.size()) {// As this is expensive skip it if all
 				// have been found
 				// If it is not lazy we can use the cache
+				virtualManager.completeSort();
 				for (int i = 0; i < virtualManager.cachedElements.length; i++) {
 					Object element = virtualManager.cachedElements[i];
 					if (virtualElements.contains(element)) {
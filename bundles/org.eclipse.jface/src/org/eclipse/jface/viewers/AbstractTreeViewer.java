@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ package org.eclipse.jface.viewers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,16 +30,19 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.internal.InternalPolicy;
+import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.util.SafeRunnable;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.BusyIndicator;
+import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.events.TreeEvent;
 import org.eclipse.swt.events.TreeListener;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Item;
 import org.eclipse.swt.widgets.Widget;
 
@@ -96,6 +100,13 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 */
 	private boolean isExpandableCheckFilters = false;
 
+	/**
+	 * The fetches in progress for an <code>IAsyncTreeContentProvider</code>
+	 * (key type: parent element, value type: <code>ChildrenFetch</code>), or
+	 * <code>null</code> if there has been none. Only accessed in the UI thread.
+	 */
+	private CustomHashtable childrenFetches;
+
 	/**
 	 * Safe runnable used to update an item.
 	 */
@@ -116,6 +127,201 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 
 	}
 
+	/**
+	 * The fetch of the children of an element by an
+	 * <code>IAsyncTreeContentProvider</code>. The children are collected in
+	 * any thread, and added to the items of the element in the UI thread.
+	 */
+	private final class ChildrenFetch implements IChildrenCollector, Runnable {
+
+		private final Object parentElement;
+
+		private final Display display;
+
+		/**
+		 * The items of the parent element waiting for the children, and the
+		 * pending item shown under each of them. Only accessed in the UI
+		 * thread.
+		 */
+		private final List widgets = new ArrayList(1);
+
+		private final List placeholders = new ArrayList(1);
+
+		/**
+		 * The children already added to the items, for the items added to
+		 * the fetch later. Only accessed in the UI thread.
+		 */
+		private final List added = new ArrayList();
+
+		/**
+		 * The level to which the children are expanded once they are all
+		 * there, 0 for none. Only accessed in the UI thread.
+		 */
+		private int expandLevel;
+
+		private volatile boolean canceled;
+
+		/**
+		 * The children received and not yet added. Guarded by this.
+		 */
+		private List chunks = new ArrayList();
+
+		private boolean done;
+
+		private boolean updateScheduled;
+
+		ChildrenFetch(Object parentElement, Display display) {
+			this.parentElement = parentElement;
+			this.display = display;
+		}
+
+		@Override
+		public void add(Object[] children) {
+			Assert.isNotNull(children);
+			if (canceled) {
+				return;
+			}
+			synchronized (this) {
+				chunks.add(children);
+				scheduleUpdate();
+			}
+		}
+
+		@Override
+		public void done() {
+			synchronized (this) {
+				done = true;
+				scheduleUpdate();
+			}
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		private void scheduleUpdate() {
+			if (!updateScheduled && !canceled && !display.isDisposed()) {
+				updateScheduled = true;
+				display.asyncExec(this);
+			}
+		}
+
+		void addWidget(Widget widget) {
+			if (!widgets.contains(widget)) {
+				if (!added.isEmpty()) {
+					internalAdd(widget, parentElement, added.toArray());
+				}
+				widgets.add(widget);
+				placeholders.add(createPlaceholder(widget));
+			}
+		}
+
+		boolean hasWidget(Widget widget) {
+			return widgets.contains(widget);
+		}
+
+		/**
+		 * Stops waiting for the children of the items of the given subtree.
+		 *
+		 * @param resetChildren
+		 *            <code>true</code> to replace the children added so far
+		 *            and the pending item with a dummy node, so that the
+		 *            children are fetched again when the item is expanded
+		 * @return <code>true</code> if no item is waiting anymore
+		 */
+		boolean removeWidgets(Widget ancestor, boolean resetChildren) {
+			for (int i = widgets.size() - 1; i >= 0; i--) {
+				Widget widget = (Widget) widgets.get(i);
+				if (widget == ancestor || isDescendant(widget, ancestor)) {
+					widgets.remove(i);
+					placeholders.remove(i);
+					if (resetChildren && !widget.isDisposed()) {
+						resetChildren(widget);
+					}
+				}
+			}
+			return widgets.isEmpty();
+		}
+
+		private void resetChildren(Widget widget) {
+			Item[] items = getChildren(widget);
+			for (int i = 0; i < items.length; i++) {
+				if (items[i].getData() != null) {
+					disassociate(items[i]);
+				}
+				items[i].dispose();
+			}
+			newItem(widget, SWT.NULL, -1);
+		}
+
+		void cancel() {
+			canceled = true;
+		}
+
+		/**
+		 * Adds the children received so far, in the UI thread.
+		 */
+		@Override
+		public void run() {
+			Object[][] toAdd;
+			boolean finished;
+			synchronized (this) {
+				updateScheduled = false;
+				toAdd = (Object[][]) chunks.toArray(new Object[chunks.size()][]);
+				chunks.clear();
+				finished = done;
+			}
+			if (canceled || getControl().isDisposed()) {
+				return;
+			}
+			if (isBusy()) {
+				// try again once the viewer is done
+				synchronized (this) {
+					chunks.addAll(0, Arrays.asList(toAdd));
+					updateScheduled = true;
+					display.asyncExec(this);
+				}
+				return;
+			}
+			if (finished) {
+				childrenFetches.remove(parentElement);
+			}
+
+			Object[] children = concat(toAdd);
+			if (!finished) {
+				added.addAll(Arrays.asList(children));
+			}
+			for (int i = 0; i < widgets.size(); i++) {
+				Widget widget = (Widget) widgets.get(i);
+				if (widget.isDisposed()) {
+					continue;
+				}
+				Item placeholder = (Item) placeholders.get(i);
+				if (!placeholder.isDisposed()) {
+					placeholder.dispose();
+				}
+				if (children.length > 0) {
+					internalAdd(widget, parentElement, children);
+				}
+				if (!finished) {
+					placeholders.set(i, createPlaceholder(widget));
+				} else if (expandLevel != 0) {
+					Item[] items = getChildren(widget);
+					for (int j = 0; j < items.length; j++) {
+						internalExpandToLevel(items[j], expandLevel);
+					}
+				}
+			}
+		}
+
+		private Item createPlaceholder(Widget widget) {
+			Item placeholder = newItem(widget, SWT.NULL, -1);
+			placeholder.setText(JFaceResources.getString("AbstractTreeViewer.pending")); //$NON-NLS-1$
+			return placeholder;
+		}
+	}
+
 	/**
 	 * Creates an abstract tree viewer. The viewer has no input, no content
 	 * provider, a default label provider, no sorter, no filters, and has
@@ -777,6 +983,9 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 * 			  true if children are expected to be fully materialized
 	 */
 	void createChildren(final Widget widget, boolean materialize) {
+		if (isFetchingChildren(widget)) {
+			return; // the pending item is there
+		}
 		boolean oldBusy = isBusy();
 		setBusy(true);
 		try {
@@ -807,6 +1016,9 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 					Object d = widget.getData();
 					if (d != null) {
 						Object parentElement = d;
+						if (fetchChildren(widget, parentElement)) {
+							return;
+						}
 						Object[] children;
 						if (isTreePathContentProvider() && widget instanceof Item) {
 							TreePath path = getTreePathFromItem((Item) widget);
@@ -826,6 +1038,109 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		}
 	}
 
+	/**
+	 * Starts fetching the children of the given item if the content provider
+	 * is an <code>IAsyncTreeContentProvider</code>, or waits for the fetch
+	 * already started for the same element.
+	 *
+	 * @return <code>true</code> if the children are fetched in the
+	 *         background, <code>false</code> if they must be created now
+	 */
+	private boolean fetchChildren(Widget widget, Object parentElement) {
+		IContentProvider cp = getContentProvider();
+		if (!(widget instanceof Item) || !(cp instanceof IAsyncTreeContentProvider)
+				|| isTreePathContentProvider()) {
+			return false;
+		}
+		ChildrenFetch fetch = childrenFetches == null ? null
+				: (ChildrenFetch) childrenFetches.get(parentElement);
+		if (fetch == null) {
+			fetch = new ChildrenFetch(parentElement, widget.getDisplay());
+			if (!((IAsyncTreeContentProvider) cp).fetchChildren(parentElement, fetch)) {
+				return false;
+			}
+			if (childrenFetches == null) {
+				childrenFetches = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			}
+			childrenFetches.put(parentElement, fetch);
+		}
+		fetch.addWidget(widget);
+		return true;
+	}
+
+	private ChildrenFetch getChildrenFetch(Widget widget) {
+		if (childrenFetches == null || childrenFetches.size() == 0) {
+			return null;
+		}
+		Object element = widget.getData();
+		if (element == null) {
+			return null;
+		}
+		ChildrenFetch fetch = (ChildrenFetch) childrenFetches.get(element);
+		return fetch != null && fetch.hasWidget(widget) ? fetch : null;
+	}
+
+	private boolean isFetchingChildren(Widget widget) {
+		return getChildrenFetch(widget) != null;
+	}
+
+	/**
+	 * Cancels the fetches of children for the given widget and its
+	 * descendants.
+	 *
+	 * @param resetChildren
+	 *            <code>true</code> to replace the children already added to
+	 *            the items with a dummy node
+	 */
+	private void cancelChildrenFetches(Widget widget, boolean resetChildren) {
+		if (childrenFetches == null || childrenFetches.size() == 0) {
+			return;
+		}
+		List canceled = new ArrayList();
+		for (Enumeration e = childrenFetches.elements(); e.hasMoreElements();) {
+			ChildrenFetch fetch = (ChildrenFetch) e.nextElement();
+			if (fetch.removeWidgets(widget, resetChildren)) {
+				canceled.add(fetch);
+			}
+		}
+		for (int i = 0; i < canceled.size(); i++) {
+			ChildrenFetch fetch = (ChildrenFetch) canceled.get(i);
+			fetch.cancel();
+			childrenFetches.remove(fetch.parentElement);
+		}
+	}
+
+	private boolean isDescendant(Widget widget, Widget ancestor) {
+		if (ancestor instanceof Control) {
+			return true;
+		}
+		Item item = widget instanceof Item ? getParentItem((Item) widget) : null;
+		while (item != null) {
+			if (item == ancestor) {
+				return true;
+			}
+			item = getParentItem(item);
+		}
+		return false;
+	}
+
+	private static Object[] concat(Object[][] arrays) {
+		if (arrays.length == 1) {
+			return arrays[0];
+		}
+		int length = 0;
+		for (int i = 0; i < arrays.length; i++) {
+			length += arrays[i].length;
+		}
+		Object[] result = new Object[length];
+		int offset = 0;
+		for (int i = 0; i < arrays.length; i++) {
+			System.arraycopy(arrays[i], 0, result, offset, arrays[i].length);
+			offset += arrays[i].length;
+		}
+		return result;
+	}
+
 	/**
 	 * Creates a single item for the given parent and synchronizes it with the
 	 * given element.
@@ -1480,6 +1795,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 *            the SWT tree event
 	 */
 	protected void handleTreeCollapse(TreeEvent event) {
+		cancelChildrenFetches(event.item, true);
 		if (event.item.getData() != null) {
 			fireTreeCollapsed(new TreeExpansionEvent(this, event.item.getData()));
 		}
@@ -1498,6 +1814,12 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		}
 	}
 
+	@Override
+	protected void handleDispose(DisposeEvent event) {
+		cancelChildrenFetches(getControl(), false);
+		super.handleDispose(event);
+	}
+
 	@Override
 	protected void hookControl(Control control) {
 		super.hookControl(control);
@@ -1516,6 +1838,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 
 	@Override
 	protected void inputChanged(Object input, Object oldInput) {
+		cancelChildrenFetches(getControl(), false);
 		preservingSelection(new Runnable() {
 			@Override
 			public void run() {
@@ -1767,6 +2090,16 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 				setExpanded((Item) widget, true);
 			}
 			if (level == ALL_LEVELS || level > 1) {
+				ChildrenFetch fetch = getChildrenFetch(widget);
+				if (fetch != null) {
+					// expand the children once they are there
+					if (level == ALL_LEVELS || fetch.expandLevel == ALL_LEVELS) {
+						fetch.expandLevel = ALL_LEVELS;
+					} else {
+						fetch.expandLevel = Math.max(fetch.expandLevel, level - 1);
+					}
+					return;
+				}
 				Item[] children = getChildren(widget);
 				if (children != null) {
 					int newLevel = (level == ALL_LEVELS ? ALL_LEVELS
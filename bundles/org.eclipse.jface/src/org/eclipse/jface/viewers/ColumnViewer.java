@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2013 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,11 @@
 
 package org.eclipse.jface.viewers;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -58,6 +63,12 @@ public abstract class ColumnViewer extends StructuredViewer {
 
 	private MouseListener mouseListener;
 
+	/**
+	 * The label provider holding the labels computed by
+	 * {@link #prepareLabels(Object[], String[])}, or <code>null</code>.
+	 */
+	private WrappedViewerLabelProvider labelsProvider;
+
 	// after logging for the first
 	// time
 
@@ -540,6 +551,77 @@ public abstract class ColumnViewer extends StructuredViewer {
 		super.update(element, properties);
 	}
 
+	@Override
+	void prepareLabels(Object[] elements, String[] properties) {
+		if (isBusy() || doGetColumnCount() > 1) {
+			return;
+		}
+		ViewerColumn column = getViewerColumn(0);
+		if (column == null
+				|| column.getLabelProvider() == null
+				|| column.getLabelProvider().getClass() != WrappedViewerLabelProvider.class) {
+			return;
+		}
+		WrappedViewerLabelProvider provider = (WrappedViewerLabelProvider) column
+				.getLabelProvider();
+		if (!provider.isConcurrent()) {
+			return;
+		}
+
+		// Only the labels of the shown elements affected by the change
+		IBaseLabelProvider labelProvider = getLabelProvider();
+		List toCompute = new ArrayList(elements.length);
+		List computedItems = new ArrayList(elements.length);
+		for (int i = 0; i < elements.length; i++) {
+			Object element = elements[i];
+			if (element == null) {
+				continue;
+			}
+			Widget[] items = findItems(element);
+			if (items.length == 0 || !(items[0] instanceof Item)) {
+				continue;
+			}
+			boolean needsUpdate = properties == null;
+			for (int j = 0; !needsUpdate && j < properties.length; j++) {
+				needsUpdate = labelProvider.isLabelProperty(element,
+						properties[j]);
+			}
+			if (needsUpdate) {
+				toCompute.add(element);
+				computedItems.add(items[0]);
+			}
+		}
+		if (toCompute.size() < 2) {
+			return;
+		}
+
+		// Seeded with the current text and image of the cells, as when the
+		// label is updated in the UI thread
+		Object[] toComputeArray = toCompute.toArray();
+		ViewerLabel[] labels = new ViewerLabel[toComputeArray.length];
+		for (int i = 0; i < labels.length; i++) {
+			Item item = (Item) computedItems.get(i);
+			labels[i] = new ViewerLabel(item.getText(), item.getImage());
+		}
+		LabelComputation.compute(provider, toComputeArray, labels);
+		Map computedLabels = new IdentityHashMap(labels.length);
+		for (int i = 0; i < labels.length; i++) {
+			if (labels[i] != null) {
+				computedLabels.put(toComputeArray[i], labels[i]);
+			}
+		}
+		provider.setComputedLabels(computedLabels);
+		labelsProvider = provider;
+	}
+
+	@Override
+	void discardLabels() {
+		if (labelsProvider != null) {
+			labelsProvider.setComputedLabels(null);
+			labelsProvider = null;
+		}
+	}
+
 	/**
 	 * Sets the cell editors of this column viewer. If editing is not supported
 	 * by this viewer the call simply has no effect.
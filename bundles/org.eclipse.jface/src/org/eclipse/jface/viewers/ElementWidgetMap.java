@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * Maps the elements of a structured viewer to the widgets showing them.
+ * <p>
+ * The map uses open addressing with linear probing in two parallel arrays,
+ * so that a mapping costs two array slots instead of an entry object. The
+ * value of an element mapped to one widget is the widget itself, and only
+ * elements shown by several widgets have a <code>Widget[]</code>, sized
+ * exactly to the number of widgets.
+ * </p>
+ * <p>
+ * Elements are compared with the viewer's {@link IElementComparer}, or with
+ * their own <code>equals</code> and <code>hashCode</code> methods if there is
+ * none.
+ * </p>
+ */
+/* package */final class ElementWidgetMap {
+
+	private static final Widget[] NO_WIDGETS = new Widget[0];
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final IElementComparer comparer;
+
+	/**
+	 * The elements, <code>null</code> in the free slots. The length is a power
+	 * of two.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The <code>Widget</code> or <code>Widget[]</code> of the element in the
+	 * same slot of {@link #keys}.
+	 */
+	private Object[] values;
+
+	private int size;
+
+	/**
+	 * The size from which the arrays are doubled, two thirds of their length.
+	 */
+	private int threshold;
+
+	/**
+	 * Creates an empty map.
+	 *
+	 * @param comparer
+	 *            the element comparer, or <code>null</code>
+	 */
+	ElementWidgetMap(IElementComparer comparer) {
+		this.comparer = comparer;
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates a map with the mappings of the given map, using another element
+	 * comparer.
+	 *
+	 * @param map
+	 *            the map to copy
+	 * @param comparer
+	 *            the element comparer, or <code>null</code>
+	 */
+	ElementWidgetMap(ElementWidgetMap map, IElementComparer comparer) {
+		this.comparer = comparer;
+		allocate(capacityFor(map.size));
+		for (int i = 0; i < map.keys.length; i++) {
+			Object key = map.keys[i];
+			if (key != null) {
+				Object value = map.values[i];
+				int slot = indexOf(key);
+				if (slot >= 0) {
+					// equal for the new comparer
+					values[slot] = merge(values[slot], value);
+				} else {
+					insert(-slot - 1, key, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the widgets showing the given element.
+	 *
+	 * @param element
+	 *            the element
+	 * @return the widgets, an empty array if the element is not mapped
+	 */
+	Widget[] getWidgets(Object element) {
+		int slot = indexOf(element);
+		if (slot < 0) {
+			return NO_WIDGETS;
+		}
+		Object value = values[slot];
+		if (value instanceof Widget) {
+			return new Widget[] { (Widget) value };
+		}
+		return (Widget[]) value;
+	}
+
+	/**
+	 * Adds the given widget to the widgets of the given element. Has no effect
+	 * if the element is already mapped to this widget.
+	 *
+	 * @param element
+	 *            the element
+	 * @param widget
+	 *            the widget showing the element
+	 */
+	void add(Object element, Widget widget) {
+		int slot = indexOf(element);
+		if (slot < 0) {
+			insert(-slot - 1, element, widget);
+		} else {
+			values[slot] = merge(values[slot], widget);
+		}
+	}
+
+	/**
+	 * Removes the given widget from the widgets of the given element, and the
+	 * element if it was its last widget. Has no effect if the element is not
+	 * mapped to this widget.
+	 *
+	 * @param element
+	 *            the element
+	 * @param widget
+	 *            the widget to remove
+	 */
+	void remove(Object element, Widget widget) {
+		int slot = indexOf(element);
+		if (slot < 0) {
+			return;
+		}
+		Object value = values[slot];
+		if (value == widget) {
+			delete(slot);
+			return;
+		}
+		if (value instanceof Widget) {
+			return;
+		}
+		Widget[] widgets = (Widget[]) value;
+		int index = indexOf(widgets, widget);
+		if (index == -1) {
+			return;
+		}
+		int length = widgets.length;
+		if (length == 2) {
+			values[slot] = widgets[1 - index];
+		} else {
+			Widget[] updatedWidgets = new Widget[length - 1];
+			System.arraycopy(widgets, 0, updatedWidgets, 0, index);
+			System.arraycopy(widgets, index + 1, updatedWidgets, index, length
+					- index - 1);
+			values[slot] = updatedWidgets;
+		}
+	}
+
+	/**
+	 * Removes the given element and all its widgets.
+	 *
+	 * @param element
+	 *            the element
+	 */
+	void remove(Object element) {
+		int slot = indexOf(element);
+		if (slot >= 0) {
+			delete(slot);
+		}
+	}
+
+	/**
+	 * Returns the number of mapped elements.
+	 *
+	 * @return the number of elements
+	 */
+	int size() {
+		return size;
+	}
+
+	private static Object merge(Object value, Object toAdd) {
+		if (toAdd instanceof Widget[]) {
+			Widget[] widgets = (Widget[]) toAdd;
+			for (int i = 0; i < widgets.length; i++) {
+				value = merge(value, widgets[i]);
+			}
+			return value;
+		}
+		Widget widget = (Widget) toAdd;
+		if (value instanceof Widget) {
+			return value == widget ? value : new Widget[] { (Widget) value,
+					widget };
+		}
+		Widget[] widgets = (Widget[]) value;
+		if (indexOf(widgets, widget) != -1) {
+			return widgets;
+		}
+		int length = widgets.length;
+		Widget[] newWidgets = new Widget[length + 1];
+		System.arraycopy(widgets, 0, newWidgets, 0, length);
+		newWidgets[length] = widget;
+		return newWidgets;
+	}
+
+	private static int indexOf(Widget[] widgets, Widget widget) {
+		for (int i = 0; i < widgets.length; i++) {
+			if (widgets[i] == widget) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot of the given element, or <code>-(free slot + 1)</code>
+	 * if it is not mapped.
+	 */
+	private int indexOf(Object element) {
+		int mask = keys.length - 1;
+		int slot = hash(element) & mask;
+		while (true) {
+			Object key = keys[slot];
+			if (key == null) {
+				return -slot - 1;
+			}
+			if (keyEquals(element, key)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void insert(int slot, Object element, Object value) {
+		keys[slot] = element;
+		values[slot] = value;
+		if (++size > threshold) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Empties the given slot, moving back the following elements of the probe
+	 * sequence so that no lookup stops early on the free slot.
+	 */
+	private void delete(int slot) {
+		int mask = keys.length - 1;
+		int free = slot;
+		int next = (slot + 1) & mask;
+		while (keys[next] != null) {
+			int home = hash(keys[next]) & mask;
+			// move the element unless its home slot is after the free slot
+			// (cyclically) and not after its current slot
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[free] = null;
+		values[free] = null;
+		size--;
+	}
+
+	private void rehash(int capacity) {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			Object key = oldKeys[i];
+			if (key != null) {
+				int slot = hash(key) & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		threshold = capacity / 3 * 2;
+	}
+
+	private static int capacityFor(int size) {
+		int capacity = MIN_CAPACITY;
+		while (capacity / 3 * 2 < size) {
+			capacity *= 2;
+		}
+		return capacity;
+	}
+
+	private int hash(Object element) {
+		int hash = comparer == null ? element.hashCode() : comparer
+				.hashCode(element);
+		// spread the high bits, the slot is taken from the low bits
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private boolean keyEquals(Object a, Object b) {
+		return comparer == null ? a.equals(b) : comparer.equals(a, b);
+	}
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+/**
+ * A tree content provider that can fetch the children of an element without
+ * blocking the UI thread.
+ * <p>
+ * When an element of an {@link AbstractTreeViewer} is expanded, the viewer
+ * asks the provider to start fetching its children and shows a pending item
+ * until they have all been delivered. Children delivered in the meantime are
+ * filtered, sorted and added as they arrive. The fetch is canceled if the
+ * element is collapsed or the input of the viewer changes before it is done,
+ * and a fetch already in progress for an element is reused when the element
+ * is expanded again or shown in several places.
+ * </p>
+ * <p>
+ * The root elements are still obtained from {@link #getElements(Object)},
+ * and the viewer still calls {@link #getChildren(Object)} where it needs the
+ * children at once, for instance when refreshing an expanded element:
+ * implementations should answer with the children they already know there.
+ * Tree path content providers are not fetched asynchronously.
+ * </p>
+ *
+ * @since 3.10
+ */
+public interface IAsyncTreeContentProvider extends ITreeContentProvider {
+
+	/**
+	 * Starts fetching the children of the given element. Called in the UI
+	 * thread, must return quickly. The children must be passed to the
+	 * collector, in any thread, followed by a call to
+	 * {@link IChildrenCollector#done()}.
+	 *
+	 * @param parentElement
+	 *            the element being expanded
+	 * @param collector
+	 *            the collector receiving the children
+	 * @return <code>true</code> if the children will be passed to the
+	 *         collector, <code>false</code> to have the viewer call
+	 *         {@link #getChildren(Object)} instead
+	 */
+	public boolean fetchChildren(Object parentElement, IChildrenCollector collector);
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers;
+
+/**
+ * Receives the children fetched by an {@link IAsyncTreeContentProvider}. The
+ * methods can be called in any thread.
+ *
+ * @since 3.10
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+public interface IChildrenCollector {
+
+	/**
+	 * Adds children to the element being fetched. Has no effect once the
+	 * fetch has been canceled.
+	 *
+	 * @param children
+	 *            the children, not <code>null</code>
+	 */
+	public void add(Object[] children);
+
+	/**
+	 * Signals that all the children have been added. Must be called once the
+	 * fetch is over, even if it has been canceled or has failed.
+	 */
+	public void done();
+
+	/**
+	 * Returns whether the children are not needed anymore, because the
+	 * element has been collapsed or the input of the viewer has changed.
+	 * Providers should stop fetching when this returns <code>true</code>.
+	 *
+	 * @return <code>true</code> if the fetch has been canceled
+	 */
+	public boolean isCanceled();
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+/**
+ * Marker interface for label providers that can compute labels in any thread,
+ * concurrently.
+ * <p>
+ * When a label provider implements this interface, the
+ * <code>getText</code>, <code>getImage</code>, <code>updateLabel</code>,
+ * color and font methods it implements may be called from background threads,
+ * several at a time, while the UI thread is waiting for them. Column viewers
+ * use this to compute the labels of large batches of elements passed to
+ * {@link StructuredViewer#update(Object[], String[])} in parallel, and only
+ * apply the results to the widgets in the UI thread. The labels of viewers
+ * with several columns or with an {@link ITreePathLabelProvider} are always
+ * computed in the UI thread.
+ * </p>
+ * <p>
+ * Implementations must not access widgets, and must create any image, color
+ * or font they return in a thread-safe way.
+ * </p>
+ * 
+ * @since 3.10
+ */
+public interface IConcurrentLabelProvider extends IBaseLabelProvider {
+
+}
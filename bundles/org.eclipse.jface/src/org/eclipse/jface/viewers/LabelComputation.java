@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import org.eclipse.jface.internal.ConcurrentChunks;
+
+/**
+ * Computes the labels of a batch of elements with an
+ * {@link IConcurrentLabelProvider}, splitting large batches between the
+ * calling thread and a shared pool of worker threads.
+ */
+/* package */final class LabelComputation {
+
+	/**
+	 * The minimum number of labels computed by one thread.
+	 */
+	private static final int MIN_CHUNK = 256;
+
+	private LabelComputation() {
+		// not instantiated
+	}
+
+	/**
+	 * Computes the labels of the given elements. The calling thread computes
+	 * the first part of the labels and any part that no worker thread has
+	 * started yet.
+	 * 
+	 * @param provider
+	 *            the label provider of the column
+	 * @param elements
+	 *            the elements
+	 * @param labels
+	 *            the label of each element, seeded with the current text and
+	 *            image of its cell; set to <code>null</code> where the label
+	 *            provider failed
+	 */
+	static void compute(final WrappedViewerLabelProvider provider,
+			final Object[] elements, final ViewerLabel[] labels) {
+		ConcurrentChunks.forEachChunk(elements.length, MIN_CHUNK,
+				new ConcurrentChunks.ChunkRunnable() {
+					@Override
+					public void run(int start, int end) {
+						compute(provider, elements, labels, start, end);
+					}
+				}, null);
+	}
+
+	private static void compute(WrappedViewerLabelProvider provider,
+			Object[] elements, ViewerLabel[] labels, int start, int end) {
+		for (int i = start; i < end; i++) {
+			try {
+				provider.computeLabel(elements[i], labels[i]);
+			} catch (RuntimeException e) {
+				// left to the UI thread, which reports the failure
+				labels[i] = null;
+			}
+		}
+	}
+}
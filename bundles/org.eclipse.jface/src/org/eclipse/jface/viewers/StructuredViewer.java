@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -63,7 +63,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * <code>Object</code>, value type: <code>Widget</code>, or <code>Widget[]</code>).
 	 * <code>null</code> means that the element map is disabled.
 	 */
-	private CustomHashtable elementMap;
+	private ElementWidgetMap elementMap;
 
 	/**
 	 * The comparer to use for comparing elements, or <code>null</code> to use
@@ -77,6 +77,18 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	private ViewerComparator sorter;
 
+	/**
+	 * The number of children the current call to
+	 * {@link #getSortedChildren(Object, int)} needs sorted, or <code>0</code>.
+	 */
+	private int sortLimit;
+
+	/**
+	 * Whether the current call to {@link #getSortedChildren(Object, int)}
+	 * only sorted the first children.
+	 */
+	private boolean sortedPartially;
+
 	/**
 	 * This viewer's filters (element type: <code>ViewerFilter</code>).
 	 * <code>null</code> means there are no filters.
@@ -798,14 +810,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		}
 		// if we have an element map use it, otherwise search for the item.
 		if (usingElementMap()) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets==null) {
-				return NO_WIDGETS;
-			} else if (widgetOrWidgets instanceof Widget) {
-				return new Widget[] {(Widget) widgetOrWidgets};
-			} else {
-				return (Widget[])widgetOrWidgets;
-			}
+			return elementMap.getWidgets(element);
 		}
 		result = doFindItem(element);
 		return result == null ? NO_WIDGETS : new Widget[] { result };
@@ -1058,11 +1063,51 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		if (sorter != null) {
 			// be sure we're not modifying the original array from the model
 			result = result.clone();
-			sorter.sort(this, result);
+			if (sortLimit > 0 && sortLimit < result.length) {
+				sorter.sort(this, result, sortLimit);
+				sortedPartially = true;
+			} else {
+				sorter.sort(this, result);
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Returns the children of the given element like
+	 * {@link #getSortedChildren(Object)}, except that only the first
+	 * <code>count</code> children may be sorted, as described in
+	 * {@link ViewerComparator#sort(Viewer, Object[], int)}. Use
+	 * {@link #isSortedPartially()} to know whether the other children still
+	 * need to be sorted.
+	 * 
+	 * @param parent
+	 *            the parent element
+	 * @param count
+	 *            the number of children which need to be sorted
+	 * @return a filtered array of child elements, sorted at least up to
+	 *         <code>count</code>
+	 */
+	Object[] getSortedChildren(Object parent, int count) {
+		sortLimit = count;
+		sortedPartially = false;
+		try {
+			return getSortedChildren(parent);
+		} finally {
+			sortLimit = 0;
+		}
+	}
+
+	/**
+	 * Returns whether the last call to {@link #getSortedChildren(Object, int)}
+	 * left the children after the requested count unsorted.
+	 * 
+	 * @return <code>true</code> if only the first children are sorted
+	 */
+	boolean isSortedPartially() {
+		return sortedPartially;
+	}
+
 	/**
 	 * Returns this viewer's sorter, or <code>null</code> if it does not have
 	 * one.  If this viewer has a comparator that was set via 
@@ -1306,25 +1351,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void mapElement(Object element, Widget item) {
 		if (elementMap != null) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets == null) {
-				elementMap.put(element, item);
-			} else if (widgetOrWidgets instanceof Widget) {
-				if (widgetOrWidgets != item) {
-					elementMap.put(element, new Widget[] {
-							(Widget) widgetOrWidgets, item });
-				}
-			} else {
-				Widget[] widgets = (Widget[]) widgetOrWidgets;
-				int indexOfItem = Arrays.asList(widgets).indexOf(item);
-				if (indexOfItem == -1) {
-					int length = widgets.length;
-					System.arraycopy(widgets, 0,
-							widgets = new Widget[length + 1], 0, length);
-					widgets[length] = item;
-					elementMap.put(element, widgets);
-				}
-			}
+			elementMap.add(element, item);
 		}
 	}
 
@@ -1804,7 +1831,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		Assert.isTrue(getInput() == null,
 				"Can only enable the hash look up before input has been set");//$NON-NLS-1$
 		if (enable) {
-			elementMap = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			elementMap = new ElementWidgetMap(getComparer());
 		} else {
 			elementMap = null;
 		}
@@ -1822,7 +1849,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	public void setComparer(IElementComparer comparer) {
 		this.comparer = comparer;
 		if (elementMap != null) {
-			elementMap = new CustomHashtable(elementMap, comparer);
+			elementMap = new ElementWidgetMap(elementMap, comparer);
 		}
 	}
 
@@ -1891,7 +1918,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void unmapAllElements() {
 		if (elementMap != null) {
-			elementMap = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			elementMap = new ElementWidgetMap(getComparer());
 		}
 	}
 
@@ -1931,41 +1958,18 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		// double-check that the element actually maps to the given item before
 		// unmapping it
 		if (elementMap != null) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets == null) {
-				// item was not mapped, return
-				return;
-			} else if (widgetOrWidgets instanceof Widget) {
-				if (item == widgetOrWidgets) {
-					elementMap.remove(element);
-				}
-			} else {
-				Widget[] widgets = (Widget[]) widgetOrWidgets;
-				int indexOfItem = Arrays.asList(widgets).indexOf(item);
-				if (indexOfItem == -1) {
-					return;
-				}
-				int length = widgets.length;
-				if (indexOfItem == 0) {
-					if(length == 1) {
-						elementMap.remove(element);
-					} else {
-						Widget[] updatedWidgets = new Widget[length - 1];
-						System.arraycopy(widgets, 1, updatedWidgets, 0, length -1 );
-						elementMap.put(element, updatedWidgets);
-					}
-				} else {
-					Widget[] updatedWidgets = new Widget[length - 1];
-					System.arraycopy(widgets, 0, updatedWidgets, 0, indexOfItem);
-					System.arraycopy(widgets, indexOfItem + 1, updatedWidgets, indexOfItem, length - indexOfItem - 1);
-					elementMap.put(element, updatedWidgets);
-				}
-			}
+			elementMap.remove(element, item);
 		}
 	}
 
 	// flag to indicate that a full refresh took place. See bug 102440.
 	private boolean refreshOccurred;
+
+	/**
+	 * The number of elements from which {@link #update(Object[], String[])}
+	 * turns off the redraw of the control while updating them.
+	 */
+	private static final int UPDATE_BATCH_SIZE = 32;
 	
 	/**
 	 * Updates the given elements' presentation when one or more of their
@@ -2000,6 +2004,12 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * whether or not they are filtered out. Note that resorting may not happen
 	 * if <code>properties</code> is <code>null</code>.
 	 * </p>
+	 * <p>
+	 * Large batches of elements are updated with the redraw of the control
+	 * turned off. If the label provider is an
+	 * {@link IConcurrentLabelProvider}, viewers may also compute the labels of
+	 * the batch in background threads before updating the items.
+	 * </p>
 	 * 
 	 * @param elements
 	 *            the elements
@@ -2008,6 +2018,13 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 *            indicate unknown
 	 */
 	public void update(Object[] elements, String[] properties) {
+		Control control = getControl();
+		boolean batch = elements.length >= UPDATE_BATCH_SIZE
+				&& !control.isDisposed();
+		if (batch) {
+			control.setRedraw(false);
+			prepareLabels(elements, properties);
+		}
 		boolean previousValue = refreshOccurred;
 		refreshOccurred = false;
 		try {
@@ -2019,9 +2036,35 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 			}
 		} finally {
 			refreshOccurred = previousValue;
+			if (batch) {
+				discardLabels();
+				if (!control.isDisposed()) {
+					control.setRedraw(true);
+				}
+			}
 		}
 	}
 
+	/**
+	 * Computes ahead the labels of a batch of elements about to be updated,
+	 * if the viewer supports it. Does nothing by default.
+	 * 
+	 * @param elements
+	 *            the elements
+	 * @param properties
+	 *            the properties that have changed, or <code>null</code>
+	 */
+	/* package */void prepareLabels(Object[] elements, String[] properties) {
+		// no labels computed ahead
+	}
+
+	/**
+	 * Forgets the labels computed by {@link #prepareLabels(Object[], String[])}.
+	 */
+	/* package */void discardLabels() {
+		// no labels computed ahead
+	}
+
 	/**
 	 * Updates the given element's presentation when one or more of its
 	 * properties changes. Only the given element is updated.
@@ -2312,7 +2355,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		comparer = null;
 		if (filters != null)
 			filters.clear();
-		elementMap = newHashtable(1);
+		elementMap = new ElementWidgetMap(null);
 		openListeners.clear();
 		doubleClickListeners.clear();
 		colorAndFontCollector.clear();
@@ -400,6 +400,49 @@ public class TreeViewer extends AbstractTreeViewer {
 		});
 	}
 
+	/**
+	 * For a TreeViewer with a tree with the VIRTUAL style bit set, clear the
+	 * given parent's child at index, so that it is requested again from the
+	 * content provider the next time it is shown. If the given parent is this
+	 * viewer's input or an empty tree path, this will clear the root element
+	 * at the given index.
+	 *
+	 * @param parentElementOrTreePath
+	 *            the parent of the element that should be cleared, or the tree
+	 *            path to that parent
+	 * @param index
+	 *            the index in the parent's children
+	 *
+	 * @see #replace(Object, int, Object)
+	 *
+	 * @since 3.10
+	 */
+	public void clear(Object parentElementOrTreePath, int index) {
+		if (checkBusy())
+			return;
+		if (internalIsInputOrEmptyPath(parentElementOrTreePath)) {
+			if (index < tree.getItemCount()) {
+				TreeItem item = tree.getItem(index);
+				if (item.getData() != null) {
+					disassociate(item);
+				}
+				tree.clear(index, false);
+			}
+			return;
+		}
+		Widget[] parentItems = internalFindItems(parentElementOrTreePath);
+		for (Widget widget : parentItems) {
+			TreeItem parentItem = (TreeItem) widget;
+			if (index < parentItem.getItemCount()) {
+				TreeItem item = parentItem.getItem(index);
+				if (item.getData() != null) {
+					disassociate(item);
+				}
+				parentItem.clear(index, false);
+			}
+		}
+	}
+
 	/**
 	 * For a TreeViewer with a tree with the VIRTUAL style bit set, replace the
 	 * given parent's child at index with the given element. If the given parent
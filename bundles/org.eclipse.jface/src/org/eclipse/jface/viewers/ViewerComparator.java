@@ -12,8 +12,12 @@
 
 package org.eclipse.jface.viewers;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.PriorityQueue;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -43,11 +47,82 @@ import org.eclipse.jface.util.Policy;
  * @since 3.2
  */
 public class ViewerComparator {
+	/**
+	 * The number of elements from which the labels are compared through
+	 * collation keys computed once per element, when the comparator is a
+	 * {@link Collator}.
+	 */
+	private static final int COLLATION_KEY_THRESHOLD = 64;
+
+	/**
+	 * The number of elements from which the collation keys are sorted on
+	 * several threads.
+	 */
+	private static final int PARALLEL_THRESHOLD = 50000;
+
 	/**
 	 * The comparator to use to sort a viewer's contents.
 	 */
 	private Comparator comparator;
 
+	/**
+	 * Whether <code>compare(Viewer, Object, Object)</code> is the default
+	 * implementation, or <code>null</code> if not known yet.
+	 */
+	private Boolean defaultCompare;
+
+	/**
+	 * Whether <code>sort(Viewer, Object[])</code> is the default
+	 * implementation, or <code>null</code> if not known yet.
+	 */
+	private Boolean defaultSort;
+
+	/**
+	 * An element with what it is compared on: its category and its label, or
+	 * the collation key of its label.
+	 */
+	private static final class SortKey {
+		final Object element;
+		final int index;
+		final int category;
+		final Object label;
+
+		SortKey(Object element, int index, int category, Object label) {
+			this.element = element;
+			this.index = index;
+			this.category = category;
+			this.label = label;
+		}
+	}
+
+	/**
+	 * Compares sort keys the way the default <code>compare</code> compares
+	 * their elements.
+	 */
+	private static final class SortKeyComparator implements Comparator<SortKey> {
+		/**
+		 * The comparator of the labels, <code>null</code> if the labels are
+		 * collation keys.
+		 */
+		private final Comparator labelComparator;
+
+		SortKeyComparator(Comparator labelComparator) {
+			this.labelComparator = labelComparator;
+		}
+
+		@Override
+		public int compare(SortKey key1, SortKey key2) {
+			if (key1.category != key2.category) {
+				return key1.category - key2.category;
+			}
+			if (labelComparator == null) {
+				return ((CollationKey) key1.label)
+						.compareTo((CollationKey) key2.label);
+			}
+			return labelComparator.compare(key1.label, key2.label);
+		}
+	}
+
 	/**
      * Creates a new {@link ViewerComparator}, which uses the default comparator
      * to sort strings.
@@ -176,6 +251,10 @@ public class ViewerComparator {
      * The default implementation of this method uses the 
      * java.util.Arrays#sort algorithm on the given array, 
      * calling <code>compare</code> to compare elements.
+     * When <code>compare</code> is not overridden, the category and the label
+     * of each element are only computed once, and the labels of large arrays
+     * are compared through collation keys when the comparator is a
+     * {@link Collator}.
      * </p>
      * <p>
      * Subclasses may reimplement this method to provide a more optimized implementation.
@@ -186,6 +265,21 @@ public class ViewerComparator {
      */
 	public void sort(final Viewer viewer, Object[] elements) {
 		try {
+			if (elements.length > 1 && isDefaultCompare()) {
+				Collator collator = getCollator(elements.length);
+				SortKey[] keys = createSortKeys(viewer, elements, collator);
+				Comparator<SortKey> keyComparator = new SortKeyComparator(
+						collator == null ? getComparator() : null);
+				if (collator != null && keys.length >= PARALLEL_THRESHOLD) {
+					parallelSort(keys, keyComparator);
+				} else {
+					Arrays.sort(keys, keyComparator);
+				}
+				for (int i = 0; i < keys.length; i++) {
+					elements[i] = keys[i].element;
+				}
+				return;
+			}
 			Arrays.sort(elements, new Comparator() {
 				@Override
 				public int compare(Object a, Object b) {
@@ -205,4 +299,244 @@ public class ViewerComparator {
 			throw e;
 		}
 	}
+
+	/**
+	 * Sorts the given elements in-place so that the first <code>count</code>
+	 * elements are the ones <code>sort(Viewer, Object[])</code> would put
+	 * first, in the same order. The other elements keep their relative order,
+	 * so sorting them afterwards completes the sort. This is meant for viewers
+	 * which only show the first elements, like virtual tables.
+	 * <p>
+	 * The default implementation of this method selects the first elements
+	 * with a bounded heap. If <code>sort(Viewer, Object[])</code> is
+	 * overridden, it sorts all the elements with it instead.
+	 * </p>
+	 * 
+	 * @param viewer
+	 *            the viewer
+	 * @param elements
+	 *            the elements to sort
+	 * @param count
+	 *            the number of elements which need to be sorted
+	 * @since 3.10
+	 */
+	public void sort(final Viewer viewer, Object[] elements, int count) {
+		if (count >= elements.length || !isDefaultSort()) {
+			sort(viewer, elements);
+			return;
+		}
+		if (count <= 0) {
+			return;
+		}
+
+		SortKey[] keys;
+		final Comparator<SortKey> keyComparator;
+		if (isDefaultCompare()) {
+			Collator collator = getCollator(elements.length);
+			keys = createSortKeys(viewer, elements, collator);
+			keyComparator = new SortKeyComparator(collator == null ? getComparator() : null);
+		} else {
+			keys = new SortKey[elements.length];
+			for (int i = 0; i < elements.length; i++) {
+				keys[i] = new SortKey(elements[i], i, 0, null);
+			}
+			keyComparator = new Comparator<SortKey>() {
+				@Override
+				public int compare(SortKey key1, SortKey key2) {
+					return ViewerComparator.this.compare(viewer, key1.element,
+							key2.element);
+				}
+			};
+		}
+		// ties are broken like in the stable full sort
+		Comparator<SortKey> stableComparator = new Comparator<SortKey>() {
+			@Override
+			public int compare(SortKey key1, SortKey key2) {
+				int result = keyComparator.compare(key1, key2);
+				return result != 0 ? result : key1.index - key2.index;
+			}
+		};
+
+		PriorityQueue<SortKey> heap = new PriorityQueue<SortKey>(count + 1,
+				Collections.reverseOrder(stableComparator));
+		for (SortKey key : keys) {
+			if (heap.size() < count) {
+				heap.add(key);
+			} else if (stableComparator.compare(key, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(key);
+			}
+		}
+		SortKey[] first = heap.toArray(new SortKey[heap.size()]);
+		Arrays.sort(first, stableComparator);
+
+		boolean[] selected = new boolean[elements.length];
+		for (int i = 0; i < first.length; i++) {
+			elements[i] = first[i].element;
+			selected[first[i].index] = true;
+		}
+		int next = first.length;
+		for (int i = 0; i < keys.length; i++) {
+			if (!selected[i]) {
+				elements[next++] = keys[i].element;
+			}
+		}
+	}
+
+	/**
+	 * Returns the collator to create collation keys with when sorting the given
+	 * number of elements, or <code>null</code> if the labels should be
+	 * compared with the comparator.
+	 */
+	private Collator getCollator(int count) {
+		Comparator labelComparator = getComparator();
+		if (count >= COLLATION_KEY_THRESHOLD
+				&& labelComparator instanceof Collator) {
+			return (Collator) labelComparator;
+		}
+		return null;
+	}
+
+	private SortKey[] createSortKeys(Viewer viewer, Object[] elements,
+			Collator collator) {
+		SortKey[] keys = new SortKey[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			Object element = elements[i];
+			String label = getLabel(viewer, element);
+			keys[i] = new SortKey(element, i, category(element),
+					collator == null ? (Object) label : collator
+							.getCollationKey(label));
+		}
+		return keys;
+	}
+
+	/**
+	 * Sorts the keys in ranges on several threads, and merges the ranges. The
+	 * ranges are merged like the stable sort of <code>Arrays</code> would
+	 * order them. The comparator must be safe to use from several threads.
+	 */
+	private static void parallelSort(final SortKey[] keys,
+			final Comparator<SortKey> keyComparator) {
+		int ranges = Math.min(Runtime.getRuntime().availableProcessors(),
+				keys.length / (PARALLEL_THRESHOLD / 2));
+		if (ranges < 2) {
+			Arrays.sort(keys, keyComparator);
+			return;
+		}
+		int[] bounds = new int[ranges + 1];
+		for (int i = 0; i <= ranges; i++) {
+			bounds[i] = (int) ((long) keys.length * i / ranges);
+		}
+
+		final RuntimeException[] failure = new RuntimeException[1];
+		Thread[] threads = new Thread[ranges - 1];
+		for (int i = 1; i < ranges; i++) {
+			final int from = bounds[i];
+			final int to = bounds[i + 1];
+			threads[i - 1] = new Thread("Viewer sort") { //$NON-NLS-1$
+				@Override
+				public void run() {
+					try {
+						Arrays.sort(keys, from, to, keyComparator);
+					} catch (RuntimeException e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+					}
+				}
+			};
+			threads[i - 1].setDaemon(true);
+			threads[i - 1].start();
+		}
+		Arrays.sort(keys, 0, bounds[1], keyComparator);
+		boolean interrupted = false;
+		for (int i = 0; i < threads.length; i++) {
+			while (true) {
+				try {
+					threads[i].join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (failure) {
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+		}
+
+		SortKey[] source = keys;
+		SortKey[] target = new SortKey[keys.length];
+		while (ranges > 1) {
+			int merged = 0;
+			for (int i = 0; i < ranges; i += 2) {
+				if (i + 1 < ranges) {
+					merge(source, bounds[i], bounds[i + 1], bounds[i + 2],
+							target, keyComparator);
+				} else {
+					System.arraycopy(source, bounds[i], target, bounds[i],
+							bounds[i + 1] - bounds[i]);
+				}
+				bounds[merged++] = bounds[i];
+			}
+			bounds[merged] = keys.length;
+			ranges = merged;
+			SortKey[] swap = source;
+			source = target;
+			target = swap;
+		}
+		if (source != keys) {
+			System.arraycopy(source, 0, keys, 0, keys.length);
+		}
+	}
+
+	private static void merge(SortKey[] source, int from, int middle, int to,
+			SortKey[] target, Comparator<SortKey> keyComparator) {
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to
+					|| (left < middle && keyComparator.compare(source[left],
+							source[right]) <= 0)) {
+				target[i] = source[left++];
+			} else {
+				target[i] = source[right++];
+			}
+		}
+	}
+
+	private boolean isDefaultCompare() {
+		if (defaultCompare == null) {
+			defaultCompare = Boolean.valueOf(isDeclaredHere("compare", //$NON-NLS-1$
+					Viewer.class, Object.class, Object.class));
+		}
+		return defaultCompare.booleanValue();
+	}
+
+	private boolean isDefaultSort() {
+		if (defaultSort == null) {
+			defaultSort = Boolean.valueOf(isDeclaredHere("sort", //$NON-NLS-1$
+					Viewer.class, Object[].class));
+		}
+		return defaultSort.booleanValue();
+	}
+
+	/**
+	 * Returns whether the given public method is not overridden by the class
+	 * of this comparator.
+	 */
+	private boolean isDeclaredHere(String name, Class<?>... parameterTypes) {
+		try {
+			return getClass().getMethod(name, parameterTypes)
+					.getDeclaringClass() == ViewerComparator.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		} catch (SecurityException e) {
+			return false;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2013 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
 
 package org.eclipse.jface.viewers;
 
+import java.util.Map;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
@@ -38,6 +40,13 @@ class WrappedViewerLabelProvider extends ColumnLabelProvider {
 
 	private ITreePathLabelProvider treePathLabelProvider;
 
+	/**
+	 * The labels computed ahead by {@link #computeLabel(Object, ViewerLabel)}
+	 * for the elements being updated (key type: element, compared by identity;
+	 * value type: <code>ViewerLabel</code>), or <code>null</code>.
+	 */
+	private Map computedLabels;
+
 	/**
 	 * Create a new instance of the receiver based on labelProvider.
 	 * 
@@ -137,9 +146,71 @@ class WrappedViewerLabelProvider extends ColumnLabelProvider {
 		return fontProvider;
 	}
 
+	/**
+	 * Returns whether {@link #computeLabel(Object, ViewerLabel)} may be
+	 * called outside the UI thread, which is the case when the label provider
+	 * is an {@link IConcurrentLabelProvider} that does not need the tree path
+	 * of the elements.
+	 * 
+	 * @return <code>true</code> if the labels can be computed concurrently
+	 */
+	boolean isConcurrent() {
+		return labelProvider instanceof IConcurrentLabelProvider
+				&& treePathLabelProvider == null;
+	}
+
+	/**
+	 * Computes the label of the given element as {@link #update(ViewerCell)}
+	 * does, without accessing the cell.
+	 * 
+	 * @param element
+	 *            the element
+	 * @param label
+	 *            the label to update, holding the current text and image of
+	 *            the cell
+	 */
+	void computeLabel(Object element, ViewerLabel label) {
+		if (viewerLabelProvider == null) {
+			label.setText(getText(element));
+			label.setImage(getImage(element));
+		} else {
+			viewerLabelProvider.updateLabel(label, element);
+		}
+		if (!label.hasNewForeground() && colorProvider != null)
+			label.setForeground(getForeground(element));
+
+		if (!label.hasNewBackground() && colorProvider != null)
+			label.setBackground(getBackground(element));
+
+		if (!label.hasNewFont() && fontProvider != null)
+			label.setFont(getFont(element));
+	}
+
+	/**
+	 * Sets the labels to use instead of calling the label provider, until
+	 * they are set to <code>null</code>.
+	 * 
+	 * @param labels
+	 *            the labels by element, or <code>null</code>
+	 */
+	void setComputedLabels(Map labels) {
+		computedLabels = labels;
+	}
+
 	@Override
 	public void update(ViewerCell cell) {
 		Object element = cell.getElement();
+		if (computedLabels != null) {
+			ViewerLabel label = (ViewerLabel) computedLabels.get(element);
+			if (label != null) {
+				if (viewerLabelProvider == null) {
+					cell.setText(label.getText());
+					cell.setImage(label.getImage());
+				}
+				applyViewerLabel(cell, label);
+				return;
+			}
+		}
 		if(viewerLabelProvider == null && treePathLabelProvider == null){
 			// inlined super implementation with performance optimizations
 			cell.setText(getText(element));
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,9 +11,11 @@
 package org.eclipse.jface.viewers.deferred;
 
 import java.util.Comparator;
+import java.util.concurrent.Executor;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.internal.ConcurrentChunks;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.viewers.AcceptAllFilter;
@@ -51,6 +53,13 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
  * the previous range.
  * </p>
  * 
+ * <p>
+ * By default, each content provider sorts in its own thread. Content providers created
+ * with an <code>Executor</code> sort in the threads of that executor instead, so that
+ * several of them can share a bounded number of worker threads, and filter large sets
+ * of elements in parallel on these threads.
+ * </p>
+ * 
  * @since 3.1
  */
 /* package */ final class BackgroundContentProvider {
@@ -60,6 +69,11 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	 */
     private static final String SORTING = JFaceResources.getString("Sorting"); //$NON-NLS-1$
 
+    /**
+     * Minimum number of elements given to each thread when filtering in parallel
+     */
+    private static final int MIN_FILTER_CHUNK = 4096;
+
     /**
      * Table limit. -1 if unlimited
      */
@@ -124,6 +138,16 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	private volatile FastProgressReporter sortMon = new FastProgressReporter();
 
 	private volatile Range range = new Range(0,0);
+
+	/**
+	 * Executor running the sorts, or null if they run in a thread of their own
+	 */
+	private Executor executor;
+
+	/**
+	 * Maximum number of threads filtering the same elements
+	 */
+	private int parallelism;
     
     /**
      * Creates a new background content provider
@@ -134,10 +158,31 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
      */
     public BackgroundContentProvider(AbstractVirtualTable table, 
             IConcurrentModel model, Comparator sortOrder) {
+        this(table, model, sortOrder, null, 1);
+    }
+    
+    /**
+     * Creates a new background content provider sorting in the threads of the
+     * given executor
+     * 
+     * @param table table that will receive updates
+     * @param model data source
+     * @param sortOrder initial sort order
+     * @param executor executor running the sorts, or null to sort in a thread
+     * of its own
+     * @param parallelism maximum number of threads filtering the same elements,
+     * including the sorting thread. The filter must support being used from that
+     * many threads at once.
+     */
+    public BackgroundContentProvider(AbstractVirtualTable table, 
+            IConcurrentModel model, Comparator sortOrder, Executor executor,
+            int parallelism) {
         
         updator = new ConcurrentTableUpdator(table);
         this.model = model;
         this.sortOrder = sortOrder;
+        this.executor = executor;
+        this.parallelism = executor == null ? 1 : Math.max(parallelism, 1);
         model.addListener(listener);
     }
     
@@ -228,15 +273,14 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
         		f = filter;
         		
         		Object[] items = collection.getItems(false);
+        		boolean[] selected = select(items, f);
         		
         		// Remove any items that don't pass the new filter
         		for (int j = 0; j < items.length && f == filter; j++) {
-					Object toTest = items[j];
-					
-					if (!f.select(toTest)) {
-						collection.remove(toTest);
-					}
-				}
+        			if (!selected[j]) {
+        				collection.remove(items[j]);
+        			}
+        		}
         		continue;
         	}
         
@@ -355,19 +399,46 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 	 * @param collection
 	 * @param toAdd
 	 */
-	private static void filteredAdd(LazySortedCollection collection, Object[] toAdd, IFilter filter) {
+	private void filteredAdd(LazySortedCollection collection, Object[] toAdd, IFilter filter) {
 		if (filter != AcceptAllFilter.getInstance()) { 
+			boolean[] selected = select(toAdd, filter);
 			for (int i = 0; i < toAdd.length; i++) {
-				Object object = toAdd[i];
-				
-				if (filter.select(object)) {
-					collection.add(object);
+				if (selected[i]) {
+					collection.add(toAdd[i]);
 				}
 			}
 		} else {
 			collection.addAll(toAdd);
 		}
 	}
+
+	/**
+	 * Applies the filter to the given elements. Large arrays are split between
+	 * the threads of the executor, the current thread filtering the first part
+	 * and any part that no other thread has started yet.
+	 * 
+	 * @param elements elements to filter
+	 * @param filter filter to apply
+	 * @return whether each element passes the filter
+	 */
+	private boolean[] select(final Object[] elements, final IFilter filter) {
+		final boolean[] result = new boolean[elements.length];
+		ConcurrentChunks.forEachChunk(executor, parallelism, elements.length,
+				MIN_FILTER_CHUNK, new ConcurrentChunks.ChunkRunnable() {
+					@Override
+					public void run(int start, int end) {
+						select(elements, filter, result, start, end);
+					}
+				}, null);
+		return result;
+	}
+
+	private static void select(Object[] elements, IFilter filter,
+			boolean[] result, int start, int end) {
+		for (int i = start; i < end; i++) {
+			result[i] = filter.select(elements[i]);
+		}
+	}
     
     /**
      * Sets the sort order for this content provider
@@ -454,23 +525,30 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 
 		@Override
 		public void run() {
-			loop: while (true) {
-				synchronized (lock) {
-					sortScheduled = false;
-				}
-				try {
-					// this is the main work
-					doSort(sortingProgressMonitor);
-				} catch (Exception ex) {
-					// ignore
-				}
-				synchronized (lock) {
-					if (sortScheduled) {
-						continue loop;
-					}
-					sortThreadStarted = false;
-					break loop;
+			runSorts();
+		}
+	}
+
+	/**
+	 * Sorts until no more sort is requested
+	 */
+	private void runSorts() {
+		loop: while (true) {
+			synchronized (lock) {
+				sortScheduled = false;
+			}
+			try {
+				// this is the main work
+				doSort(sortingProgressMonitor);
+			} catch (Exception ex) {
+				// ignore
+			}
+			synchronized (lock) {
+				if (sortScheduled) {
+					continue loop;
 				}
+				sortThreadStarted = false;
+				break loop;
 			}
 		}
 	}
@@ -486,6 +564,20 @@ import org.eclipse.jface.viewers.deferred.ConcurrentTableUpdator.Range;
 			sortScheduled = true;
 			if (!sortThreadStarted) {
 				sortThreadStarted = true;
+				if (executor != null) {
+					try {
+						executor.execute(new Runnable() {
+							@Override
+							public void run() {
+								runSorts();
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						// the executor has been shut down
+						sortThreadStarted = false;
+					}
+					return;
+				}
 				sortThread = new SortThread(SORTING);
 				sortThread.setDaemon(true);
 				sortThread.setPriority(Thread.NORM_PRIORITY - 1);
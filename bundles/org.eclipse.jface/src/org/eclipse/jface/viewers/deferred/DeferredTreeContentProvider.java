@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers.deferred;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.viewers.AcceptAllFilter;
+import org.eclipse.jface.viewers.IFilter;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.ITreeViewerListener;
+import org.eclipse.jface.viewers.TreeExpansionEvent;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Content provider that performs sorting and filtering in background threads.
+ * Requires a <code>TreeViewer</code> created with the <code>SWT.VIRTUAL</code>
+ * flag and an <code>IConcurrentTreeModel</code> as input.
+ * <p>
+ * The children of the input and of each expanded element are sorted and
+ * filtered like the rows of a <code>DeferredContentProvider</code>: each
+ * parent has its own lazily sorted collection, in which only the visible
+ * children are sorted. The children of different parents are sorted on a
+ * shared pool of worker threads, and large sets of children are filtered in
+ * parallel on the same threads. The children of an element are released when
+ * it is collapsed.
+ * </p>
+ * <p>
+ * The sorter and filter must be set directly on the content provider, and
+ * apply to the children of every parent. Any sorter or filter on the
+ * TreeViewer will be ignored.
+ * </p>
+ *
+ * @see DeferredContentProvider
+ * @since 3.10
+ */
+public class DeferredTreeContentProvider implements ILazyTreeContentProvider {
+
+	private static final String SORTING = JFaceResources.getString("Sorting"); //$NON-NLS-1$
+
+	private int limit = -1;
+	private Comparator sortOrder;
+	private IFilter filter = AcceptAllFilter.getInstance();
+	private int workerCount = Runtime.getRuntime().availableProcessors();
+	private TreeViewer viewer;
+	private IConcurrentTreeModel model;
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * The content providers of the input and the expanded elements, by
+	 * parent. Only accessed in the UI thread.
+	 */
+	private final Map<Object, BackgroundContentProvider> providers = new HashMap<Object, BackgroundContentProvider>();
+
+	/**
+	 * The parents of the elements sent to the tree. Only accessed in the UI
+	 * thread.
+	 */
+	private final Map<Object, Object> parents = new HashMap<Object, Object>();
+
+	private final ITreeViewerListener expansionListener = new ITreeViewerListener() {
+		@Override
+		public void treeExpanded(TreeExpansionEvent event) {
+			getProvider(event.getElement());
+		}
+
+		@Override
+		public void treeCollapsed(TreeExpansionEvent event) {
+			disposeProviders(event.getElement());
+		}
+	};
+
+	/**
+	 * Presents the children of one parent as a virtual table.
+	 */
+	private final class TreeViewerAdapter extends AbstractVirtualTable {
+
+		private final Object parent;
+
+		private int itemCount;
+
+		/**
+		 * @param parent
+		 */
+		public TreeViewerAdapter(Object parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		public void clear(int index) {
+			viewer.clear(parent, index);
+		}
+
+		@Override
+		public void replace(Object element, int itemIndex) {
+			parents.put(element, parent);
+			viewer.replace(parent, itemIndex, element);
+		}
+
+		@Override
+		public void setItemCount(int total) {
+			itemCount = total;
+			viewer.setChildCount(parent, total);
+		}
+
+		@Override
+		public int getItemCount() {
+			return itemCount;
+		}
+
+		@Override
+		public int getTopIndex() {
+			// Index of the child of the parent that contains the top item
+			Tree tree = viewer.getTree();
+			TreeItem item = tree.getTopItem();
+			while (item != null) {
+				TreeItem parentItem = item.getParentItem();
+				if (parentItem == null) {
+					return parent == viewer.getInput() ? tree.indexOf(item) : 0;
+				}
+				if (parent.equals(parentItem.getData())) {
+					return parentItem.indexOf(item);
+				}
+				item = parentItem;
+			}
+			return 0;
+		}
+
+		@Override
+		public int getVisibleItemCount() {
+			Tree tree = viewer.getTree();
+			Rectangle rect = tree.getClientArea();
+			int itemHeight = tree.getItemHeight();
+			int headerHeight = tree.getHeaderHeight();
+			return (rect.height - headerHeight + itemHeight - 1) / (itemHeight + tree.getGridLineWidth());
+		}
+
+		@Override
+		public Control getControl() {
+			return viewer.getControl();
+		}
+
+	}
+
+	/**
+	 * Create a DeferredTreeContentProvider with the given sort order.
+	 * @param sortOrder a comparator that sorts the children of each element.
+	 */
+	public DeferredTreeContentProvider(Comparator sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	@Override
+	public void dispose() {
+		disposeProviders();
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	@Override
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		disposeProviders();
+		if (this.viewer != null) {
+			this.viewer.removeTreeListener(expansionListener);
+			this.viewer = null;
+		}
+		model = null;
+		if (newInput == null) {
+			return;
+		}
+
+		Assert.isTrue(newInput instanceof IConcurrentTreeModel);
+		Assert.isTrue(viewer instanceof TreeViewer);
+		model = (IConcurrentTreeModel) newInput;
+		this.viewer = (TreeViewer) viewer;
+		this.viewer.addTreeListener(expansionListener);
+	}
+
+	/**
+	 * Sets the sort order for this content provider. This sort order takes priority
+	 * over anything that was supplied to the <code>TreeViewer</code>.
+	 *
+	 * @param sortOrder new sort order. The comparator must be able to support being
+	 * used in several background threads at once.
+	 */
+	public void setSortOrder(Comparator sortOrder) {
+		Assert.isNotNull(sortOrder);
+		this.sortOrder = sortOrder;
+		for (Iterator<BackgroundContentProvider> iterator = providers.values().iterator(); iterator.hasNext();) {
+			iterator.next().setSortOrder(sortOrder);
+		}
+	}
+
+	/**
+	 * Sets the filter for this content provider. This filter takes priority over
+	 * anything that was supplied to the <code>TreeViewer</code>. The filter
+	 * must be capable of being used in several background threads at once.
+	 *
+	 * @param toSet filter to set
+	 */
+	public void setFilter(IFilter toSet) {
+		this.filter = toSet;
+		for (Iterator<BackgroundContentProvider> iterator = providers.values().iterator(); iterator.hasNext();) {
+			iterator.next().setFilter(toSet);
+		}
+	}
+
+	/**
+	 * Sets the maximum number of children of each element. If an element has
+	 * more children than this number, only the top children will be shown
+	 * based on the current sort order.
+	 *
+	 * @param limit maximum number of children to show or -1 if unbounded
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+		for (Iterator<BackgroundContentProvider> iterator = providers.values().iterator(); iterator.hasNext();) {
+			iterator.next().setLimit(limit);
+		}
+	}
+
+	/**
+	 * Returns the current maximum number of children of each element or -1 if
+	 * unbounded
+	 *
+	 * @return the current maximum number of children or -1 if unbounded
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Sets the number of threads sorting and filtering the children. Defaults
+	 * to the number of available processors.
+	 *
+	 * @param count number of worker threads, at least 1
+	 */
+	public void setWorkerCount(int count) {
+		Assert.isTrue(count > 0);
+		if (executor != null) {
+			if (count > workerCount) {
+				executor.setMaximumPoolSize(count);
+				executor.setCorePoolSize(count);
+			} else {
+				executor.setCorePoolSize(count);
+				executor.setMaximumPoolSize(count);
+			}
+		}
+		workerCount = count;
+	}
+
+	/**
+	 * Returns the number of threads sorting and filtering the children
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	@Override
+	public void updateElement(Object parent, int index) {
+		BackgroundContentProvider provider = providers.get(parent);
+		if (provider != null) {
+			provider.checkVisibleRange(index);
+		}
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		if (model == null || providers.containsKey(element)) {
+			return;
+		}
+		if (element == viewer.getInput() || viewer.getExpandedState(element)) {
+			getProvider(element);
+			return;
+		}
+		// The children are only loaded once the element is expanded
+		int count = model.hasChildren(element) ? 1 : 0;
+		if (count != currentChildCount) {
+			viewer.setChildCount(element, count);
+		}
+	}
+
+	@Override
+	public Object getParent(Object element) {
+		return parents.get(element);
+	}
+
+	/**
+	 * Returns the content provider of the children of the given parent,
+	 * creating it if needed.
+	 *
+	 * @param parent the input or an element of the tree
+	 * @return the content provider, or null if the parent has no children
+	 */
+	private BackgroundContentProvider getProvider(Object parent) {
+		BackgroundContentProvider provider = providers.get(parent);
+		if (provider != null || model == null) {
+			return provider;
+		}
+		IConcurrentModel children = model.getChildren(parent);
+		if (children == null) {
+			viewer.setChildCount(parent, 0);
+			return null;
+		}
+		provider = new BackgroundContentProvider(new TreeViewerAdapter(parent),
+				children, sortOrder, getExecutor(), workerCount);
+		providers.put(parent, provider);
+		provider.setLimit(limit);
+		provider.setFilter(filter);
+		return provider;
+	}
+
+	private ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(workerCount, workerCount, 1,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, SORTING);
+							thread.setDaemon(true);
+							thread.setPriority(Thread.NORM_PRIORITY - 1);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * Disposes the content providers of the given element and its
+	 * descendants, and forgets the parents of its descendants.
+	 *
+	 * @param element collapsed element
+	 */
+	private void disposeProviders(Object element) {
+		List<Object> toDispose = new ArrayList<Object>();
+		for (Iterator<Object> iterator = providers.keySet().iterator(); iterator.hasNext();) {
+			Object parent = iterator.next();
+			if (parent.equals(element) || isDescendant(parent, element)) {
+				toDispose.add(parent);
+			}
+		}
+		for (int i = 0; i < toDispose.size(); i++) {
+			providers.remove(toDispose.get(i)).dispose();
+		}
+
+		// The descendants are sent again when the element is expanded
+		List<Object> toForget = new ArrayList<Object>();
+		for (Iterator<Object> iterator = parents.keySet().iterator(); iterator.hasNext();) {
+			Object child = iterator.next();
+			if (isDescendant(child, element)) {
+				toForget.add(child);
+			}
+		}
+		for (int i = 0; i < toForget.size(); i++) {
+			parents.remove(toForget.get(i));
+		}
+	}
+
+	private boolean isDescendant(Object element, Object ancestor) {
+		Object parent = parents.get(element);
+		while (parent != null) {
+			if (parent.equals(ancestor)) {
+				return true;
+			}
+			parent = parents.get(parent);
+		}
+		return false;
+	}
+
+	private void disposeProviders() {
+		for (Iterator<BackgroundContentProvider> iterator = providers.values().iterator(); iterator.hasNext();) {
+			iterator.next().dispose();
+		}
+		providers.clear();
+		parents.clear();
+	}
+
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers.deferred;
+
+
+/**
+ * Interface for a tree of elements whose children are provided by an
+ * <code>IConcurrentModel</code> per parent. This is the input of a
+ * <code>DeferredTreeContentProvider</code>.
+ *
+ * <p>
+ * Both methods are called in the UI thread and must return quickly: the
+ * children themselves are delivered asynchronously by the returned models.
+ * </p>
+ *
+ * @since 3.10
+ */
+public interface IConcurrentTreeModel {
+
+    /**
+     * Returns whether the given element may have children. Called for every
+     * element shown in the tree, before it is expanded.
+     *
+     * @param element element of the tree
+     * @return true if the element may have children, false if it is a leaf
+     */
+    public boolean hasChildren(Object element);
+
+    /**
+     * Returns the model of the children of the given element. Called when the
+     * element is expanded, or with the input of the tree for the top-level
+     * elements. The content provider registers a listener with the model while
+     * the element stays expanded.
+     *
+     * @param parent the input of the tree or an element of the tree
+     * @return the model of the children of the parent, or null if it has no
+     * children
+     */
+    public IConcurrentModel getChildren(Object parent);
+}
@@ -1043,6 +1043,18 @@ public class FilteredResourcesSelectionDialog extends
 					&& (this.showDerived || !resource.isDerived());
 		}
 
+		/**
+		 * Resources are matched on their type, name, path and derived flag,
+		 * which can be read from several threads at once. Subclasses may
+		 * override the matching, so only this class answers
+		 * <code>true</code>.
+		 * 
+		 * @see org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.ItemsFilter#isConcurrent()
+		 */
+		public boolean isConcurrent() {
+			return getClass() == ResourceFilter.class;
+		}
+
 		private boolean matchName(IResource resource) {
 			String name = resource.getName();
 			if (nameMatches(name)) {
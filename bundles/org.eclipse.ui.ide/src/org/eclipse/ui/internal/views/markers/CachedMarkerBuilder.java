@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -134,9 +134,9 @@ public class CachedMarkerBuilder {
 			.removePropertyChangeListener(getWorkingSetListener());
 		}
 		
-		if (isIncremental()) {
-			if(incrementJob!=null){
-				incrementJob.clearEntries();
+		synchronized (getUpdateScheduler().getSchedulingLock()) {
+			if (incrementJob != null) {
+				incrementJob.clearUpdates();
 			}
 		}
 	}
@@ -462,6 +462,11 @@ public class CachedMarkerBuilder {
 			if (generator == null || !active) {
 				return null;
 			}
+			if (incrementJob != null) {
+				// the full update takes care of the pending changes
+				incrementJob.cancel();
+				incrementJob.clearUpdates();
+			}
 			if (updateJob != null) {
 				// ensure cancellation before calling the method
 				// updateJob.cancel();
@@ -615,18 +620,21 @@ public class CachedMarkerBuilder {
 ///////	<Incremental update code>///////
 		private IncrementUpdateJob incrementJob;
 	/**
-	 * Checks whether the builder should perform incrementally Note : Incremental
-	 * updating method is NOT used and tested yet but left out for further
-	 * investigation(*).
+	 * Checks whether the builder can apply marker changes incrementally to the
+	 * markers gathered by the last full update. This is the case once a full
+	 * update has completed and while no other full update is pending.
 	 * 
-	 * @return Returns true if we should collect markers incrementally.
+	 * @return Returns true if we should update markers incrementally.
 	 */
 	boolean isIncremental() {
-		/*
-		 * We do not update incrementally. We have 
-		 * code for further investigation(*) for this anyway.
-		 */
-		return false;
+		synchronized (getUpdateScheduler().getSchedulingLock()) {
+			/*
+			 * Test the flag rather than isBuilding(), which is also true while
+			 * the listener is receiving the change
+			 */
+			return !building && updateJob != null
+					&& updateJob.getLastUpdateTime() != -1;
+		}
 	}
 	
 	/**
@@ -657,11 +665,22 @@ public class CachedMarkerBuilder {
 	 */
 	void incrementalUpdate(MarkerUpdate update) {
 		synchronized (getUpdateScheduler().getSchedulingLock()) {
+			if (generator == null || !active) {
+				return;
+			}
 			if (incrementJob == null) {
-				scheduleUpdateJob(MarkerUpdateScheduler.SHORT_DELAY, true);
+				incrementJob = new IncrementUpdateJob(this);
+				incrementJob.setPriority(Job.LONG);
+				incrementJob.setSystem(true);
+			}
+			incrementJob.addUpdate(update);
+			if (progressService != null) {
+				progressService.schedule(incrementJob,
+						MarkerUpdateScheduler.SHORT_DELAY);
+			} else {
+				incrementJob.schedule(MarkerUpdateScheduler.SHORT_DELAY);
 			}
 		}
-		incrementJob.addUpdate(update);
 	}
 ///////	</Incremental update code>///////
 	
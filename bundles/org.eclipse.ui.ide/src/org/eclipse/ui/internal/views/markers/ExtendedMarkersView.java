@@ -24,6 +24,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.help.IContext;
 import org.eclipse.help.IContextProvider;
 import org.eclipse.jface.action.ContributionManager;
@@ -149,6 +150,12 @@ public class ExtendedMarkersView extends ViewPart {
 
 	private UIUpdateJob uiUpdateJob;
 
+	/*
+	 * The items to update with the next UI update, null if the labels of all
+	 * the items must be updated
+	 */
+	private Collection changedItems;
+
 	private MarkersTreeViewer viewer;
 
 	/**
@@ -1688,23 +1695,65 @@ public class ExtendedMarkersView extends ViewPart {
 	 */
 	UIUpdateJob scheduleUpdate(long delay) {
 		synchronized (builder.getUpdateScheduler().getSchedulingLock()) {
-			if (uiUpdateJob != null) {
-				// ensure cancellation before calling the method
-				// uiUpdateJob.cancel();
-			} else {
-				uiUpdateJob = new UIUpdateJob(this);
-				// uiUpdateJob.setPriority(Job.SHORT);
-				uiUpdateJob.setSystem(true);
-			}
-			IWorkbenchSiteProgressService progressService = builder
-					.getProgressService();
-			if (progressService != null) {
-				progressService.schedule(uiUpdateJob, delay);
-			} else {
-				uiUpdateJob.schedule(delay);
+			changedItems = null;
+			return doScheduleUpdate(delay);
+		}
+	}
+
+	/**
+	 * The method should not be called directly, see
+	 * {@link MarkerUpdateScheduler}
+	 *
+	 * @param delay
+	 * @param items
+	 *            the items whose labels must be updated
+	 * @return UIUpdateJob
+	 */
+	UIUpdateJob scheduleUpdate(long delay, Collection items) {
+		synchronized (builder.getUpdateScheduler().getSchedulingLock()) {
+			boolean pending = uiUpdateJob != null
+					&& uiUpdateJob.getState() != Job.NONE;
+			if (!pending) {
+				changedItems = new HashSet(items);
+			} else if (changedItems != null) {
+				changedItems.addAll(items);
 			}
-			return uiUpdateJob;
+			return doScheduleUpdate(delay);
+		}
+	}
+
+	/**
+	 * Return the items whose labels must be updated by the UI update, and
+	 * forget them.
+	 *
+	 * @return the changed items, or <code>null</code> if all the labels must
+	 *         be updated
+	 */
+	Collection readChangedItems() {
+		synchronized (builder.getUpdateScheduler().getSchedulingLock()) {
+			Collection items = changedItems;
+			changedItems = null;
+			return items;
+		}
+	}
+
+	private UIUpdateJob doScheduleUpdate(long delay) {
+		if (uiUpdateJob != null) {
+			// ensure cancellation before calling the method
+			// uiUpdateJob.cancel();
+		} else {
+			uiUpdateJob = new UIUpdateJob(this);
+			// uiUpdateJob.setPriority(Job.SHORT);
+			uiUpdateJob.setSystem(true);
+		}
+		IWorkbenchSiteProgressService progressService = builder
+				.getProgressService();
+		if (progressService != null) {
+			progressService.schedule(uiUpdateJob, delay);
+		} else {
+			uiUpdateJob.schedule(delay);
 		}
+		return uiUpdateJob;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,27 +11,32 @@
 
 package org.eclipse.ui.internal.views.markers;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.views.markers.internal.MarkerMessages;
 
 /**
- * The job that performs incremental update. Once the processing is complete it
- * schedules an UI update. If it'll be possible and beneficial switch to
- * incremental updatation, this has been left out for further investigation(*).
- * only, and not used currently.
- * 
+ * The job that performs incremental updates. It applies the queued
+ * {@link MarkerUpdate}s to the markers gathered by the last full update,
+ * without gathering or sorting the markers again, and then schedules an UI
+ * update of the changed items only. When the changes cannot be applied
+ * incrementally, a full update is scheduled instead.
+ *
  * @since 3.6
- * 
+ *
  */
 class IncrementUpdateJob extends MarkerUpdateJob {
 
-	private LinkedList incrementEntryList;
 	private LinkedList updateQueue;
 
 	/**
@@ -39,234 +44,90 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 	 */
 	public IncrementUpdateJob(CachedMarkerBuilder builder) {
 		super(builder);
-		incrementEntryList = new LinkedList();
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @seeorg.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.
 	 * IProgressMonitor)
 	 */
 	protected IStatus run(IProgressMonitor monitor) {
 		monitor.beginTask(MarkerMessages.MarkerView_processUpdates,
 				IProgressMonitor.UNKNOWN);
-		boolean clean= isClean();
-		if (clean) {
-			clearEntries();
-		}
-		Collection markerEntries = incrementalEntries();
-		if (clean) {
-			/*
-			 * Unfortunately we cannot lock marker operations between gathering
-			 * and updation. We have this code in place only for further
-			 * investigation
-			 */
-			clean = !clean(markerEntries, monitor);
-			LinkedList queue = getUpdatesQueue();
+		/*
+		 * The last change of each marker wins: a null value is a removal,
+		 * otherwise the new entry of an added or changed marker
+		 */
+		Map changes = new LinkedHashMap();
+		boolean changed = false;
+		LinkedList queue = getUpdatesQueue();
+		while (true) {
+			MarkerUpdate next;
 			synchronized (queue) {
-				queue.clear();
+				if (queue.isEmpty()) {
+					break;
+				}
+				next = (MarkerUpdate) queue.removeFirst();
 			}
+			addChanges(changes, next.removed, true);
+			addChanges(changes, next.added, false);
+			addChanges(changes, next.changed, false);
+			changed |= !next.changed.isEmpty();
 		}
-		if (monitor.isCanceled()) {
+		if (changes.isEmpty() || monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
-		if (!clean) {
-			builder.registerTypesToListener();
-			if (!processUpdates(monitor)) {
-				return Status.CANCEL_STATUS;
+
+		MarkerContentGenerator generator = builder.getGenerator();
+		List newEntries = new ArrayList();
+		Iterator iterator = changes.values().iterator();
+		while (iterator.hasNext()) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			if (entry != null && generator.select(entry)) {
+				newEntries.add(entry);
 			}
 		}
-		if (!processMarkerEntries(markerEntries, monitor)) {
-			return Status.CANCEL_STATUS;
-		}
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
-		// update with sorted entries
-		updateIncrementalList(markerEntries);
-
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
+		Collection changedItems = builder.getMarkers().updateIncrementally(
+				changes.keySet(), newEntries);
+		if (changedItems == null) {
+			// the markers must be gathered and sorted again
+			builder.scheduleUpdate();
+			return Status.OK_STATUS;
 		}
+		builder.updateChangeFlags(new boolean[] { !newEntries.isEmpty(),
+				changes.size() > newEntries.size(), changed });
 		builder.getUpdateScheduler().scheduleUIUpdate(
-				MarkerUpdateScheduler.SHORT_DELAY);
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
-		builder.setBuilding(false);
-		updateDone();
+				MarkerUpdateScheduler.SHORT_DELAY, changedItems);
 		return Status.OK_STATUS;
 	}
 
-	/**
-	 * Update the list
-	 * 
-	 * @param markerEntries
-	 */
-	private boolean updateIncrementalList(Collection markerEntries) {
-		markerEntries.clear();
-		Markers clone = builder.getMarkers();
-		synchronized (clone) {
-			clone = clone.getClone();
-		}
-		MarkerEntry[] entries = clone.getMarkerEntryArray();
-		for (int i = 0; i < entries.length; i++) {
-			markerEntries.add(entries[i]);
-		}
-		return true;
-	}
-
-	/**
-	 * Process the incremental updates
-	 * 
-	 * @param monitor
-	 */
-	private boolean processUpdates(IProgressMonitor monitor) {
-		Collection markerEntries = incrementalEntries();
-		int addCount = 0, removedCount = 0, changedCount = 0, size = 0, newSize = 0;
-		LinkedList queue = getUpdatesQueue();
-		MarkerUpdate next = null;
-		do {
-			synchronized (queue) {
-				if (!queue.isEmpty()) {
-					next = (MarkerUpdate) queue.removeFirst();
-				} else {
-					next = null;
-				}
-			}
-			if (monitor.isCanceled() || next == null) {
-				break;
-			}
-			/**
-			 * The following performs incremental updation of the markers that
-			 * were gathered intially, and keeps them synched at any point with
-			 * the markers of interest in Workspace
-			 */
-			// unfortunately marker operations cannot be locked
-			// so locking between gathering of markers and
-			// marker deltas is not possible
-			size = markerEntries.size();
-			handleRemovedEntries(markerEntries, next.removed, monitor);
-			newSize = markerEntries.size();
-			removedCount += size - newSize;
-
-			handleChangedEntries(markerEntries, next.changed, monitor);
-			changedCount += next.changed.size();
-
-			size = newSize;
-			handleAddedEntries(markerEntries, next.added, monitor);
-			newSize = markerEntries.size();
-			removedCount += newSize - size;
-		} while (next != null);
-		boolean[] changeFlags = new boolean[] { addCount > 0, removedCount > 0,
-				changedCount > 0 };
-		for (int i = 0; i < changeFlags.length; i++) {
-			if (changeFlags[i]) {
-				builder.updateChangeFlags(changeFlags);
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * @param added
-	 * @param monitor
-	 */
-	private void handleAddedEntries(Collection markerEntries, Collection added,
-			IProgressMonitor monitor) {
-		MarkerContentGenerator generator = builder.getGenerator();
-		Iterator iterator = added.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (generator.select(entry)) {
-				markerEntries.add(entry);
-			}
-		}
-	}
-
-	/**
-	 * @param changed
-	 * @param monitor
-	 */
-	private void handleChangedEntries(Collection markerEntries,
-			Collection changed, IProgressMonitor monitor) {
-		MarkerContentGenerator generator = builder.getGenerator();
-		Iterator iterator = changed.iterator();
+	private void addChanges(Map changes, Collection entries, boolean removed) {
+		Iterator iterator = entries.iterator();
 		while (iterator.hasNext()) {
 			MarkerEntry entry = (MarkerEntry) iterator.next();
-			Iterator iterator2 = markerEntries.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry oldEntry = (MarkerEntry) iterator2.next();
-				if (oldEntry.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-				}
-			}
-			if (!generator.select(entry)) {
-				iterator.remove();
+			IMarker marker = entry.getMarker();
+			if (marker != null) {
+				// keep the order of the last change
+				changes.remove(marker);
+				changes.put(marker, removed ? null : entry);
 			}
 		}
-		markerEntries.addAll(changed);
 	}
 
 	/**
-	 * @param removed
-	 * @param monitor
+	 * Clear the pending updates, a full update takes care of them.
 	 */
-	private void handleRemovedEntries(Collection markerEntries,
-			Collection removed, IProgressMonitor monitor) {
-		boolean found = false;
-		Iterator iterator = markerEntries.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			found = entry.getStaleState();
-			if (found) {
-				iterator.remove();
-			}
-			if (removed.isEmpty()) {
-				continue;
-			}
-			Iterator iterator2 = removed.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry stale = (MarkerEntry) iterator2.next();
-				if (stale.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-					if (!found) {
-						iterator.remove();
-					}
-					break;
-				}
-			}
-		}
-		if (removed.isEmpty()) {
-			// TODO: do we check for residuals?
-			return;
-		}
-		// TODO: do we check for residuals?
-		iterator = markerEntries.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (entry.getMarker() != null && !entry.getMarker().exists()) {
-				iterator.remove();
-			}
+	void clearUpdates() {
+		LinkedList queue = getUpdatesQueue();
+		synchronized (queue) {
+			queue.clear();
 		}
 	}
 
-	/**
-	 * Clean
-	 */
-	void clearEntries() {
-		incrementEntryList = new LinkedList();
-	}
-
-	/**
-	 * @return Returns the incrementEntryies.
-	 */
-	Collection incrementalEntries() {
-		return incrementEntryList;
-	}
-
 	/**
 	 * @return the updateQueue that holds the updates and maintains ordering
 	 */
@@ -281,7 +142,7 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 
 	/**
 	 * Add update to the list
-	 * 
+	 *
 	 * @param update
 	 */
 	void addUpdate(MarkerUpdate update) {
@@ -293,7 +154,7 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
 	 */
 	public boolean belongsTo(Object family) {
@@ -302,4 +163,4 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 		}
 		return super.belongsTo(family);
 	}
-}
\ No newline at end of file
+}
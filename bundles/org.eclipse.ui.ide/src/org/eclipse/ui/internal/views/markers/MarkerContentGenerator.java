@@ -24,12 +24,18 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.mapping.ResourceMapping;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
@@ -44,6 +50,7 @@ import org.eclipse.ui.views.markers.FilterConfigurationArea;
 import org.eclipse.ui.views.markers.MarkerField;
 import org.eclipse.ui.views.markers.internal.ContentGeneratorDescriptor;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 import org.eclipse.ui.views.markers.internal.MarkerType;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
@@ -1075,73 +1082,199 @@ public class MarkerContentGenerator {
 			Collection result, IProgressMonitor monitor) {
 		try {
 			Collection resources = getResourcesForBuild();
+			String[] types = typeIds;
 			if (includeSubTypes) {
 				// Optimize and calculate super types
-				String[] superTypes = MarkerResourceUtil
+				types = MarkerResourceUtil
 						.getMutuallyExclusiveSupersIds(typeIds);
-				if (monitor.isCanceled()) {
-					return false;
-				}
-				for (int i = 0; i < superTypes.length; i++) {
-					boolean success = internalGatherMarkers(resources,superTypes[i],
-							includeSubTypes, result, monitor);
-					if (!success || monitor.isCanceled()) {
-						return false;
-					}
-				}
-			} else {
-				for (int i = 0; i < typeIds.length; i++) {
-					boolean success = internalGatherMarkers(resources,typeIds[i],
-							includeSubTypes, result, monitor);
-					if (!success || monitor.isCanceled()) {
-						return false;
-					}
-				}
 			}
+			if (monitor.isCanceled()) {
+				return false;
+			}
+			return internalGatherMarkers(resources, types, includeSubTypes,
+					result, monitor);
 		} catch (Exception e) {
 			//do not propagate but do show the error
 			MarkerSupportInternalUtilities.showViewError(e);
 			return false;
 		} finally {
 		}
-		return true;
 	}
 
 	/**
 	 * A helper to the
-	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}
+	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}.
+	 * The markers are gathered in partitions, one per type and project, which
+	 * are shared between the calling thread and a few worker jobs. The
+	 * partitions are merged in order, so that the result is the same as when
+	 * gathering serially.
 	 * 
 	 * @param resources
-	 * @param typeId
+	 * @param typeIds
 	 * @param includeSubTypes
 	 * @param result
 	 * @param monitor
 	 */
-	private boolean internalGatherMarkers(Collection resources, String typeId,
-			boolean includeSubTypes, Collection result, IProgressMonitor monitor) {
+	private boolean internalGatherMarkers(Collection resources,
+			String[] typeIds, boolean includeSubTypes, Collection result,
+			IProgressMonitor monitor) {
 		if (monitor.isCanceled()) {
 			return false;
 		}
-		IResource[] selected = getSelectedResources();
 		Collection filters = getEnabledFilters();
-		boolean andFilters = andFilters();
-		Iterator iterator = resources.iterator();
-		while (iterator.hasNext()) {
+		Iterator filtersIterator = filters.iterator();
+		while (filtersIterator.hasNext()) {
+			((MarkerFieldFilterGroup) filtersIterator.next())
+					.initializeForSelection();
+		}
+		List partitions = computePartitions(resources, typeIds);
+		MarkerGatherer gatherer = new MarkerGatherer(partitions,
+				getSelectedResources(), filters, andFilters(),
+				includeSubTypes, monitor);
+
+		// the calling thread gathers too
+		int workerCount = Math.min(partitions.size(), Runtime.getRuntime()
+				.availableProcessors()) - 1;
+		Job[] workers = new Job[Math.max(workerCount, 0)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new GatherMarkersJob(gatherer);
+			workers[i].schedule();
+		}
+		gatherer.run();
+		for (int i = 0; i < workers.length; i++) {
+			// workers which did not start yet have nothing left to do
+			if (!workers[i].cancel()) {
+				try {
+					workers[i].join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		if (gatherer.error != null) {
+			throw gatherer.error;
+		}
+		if (gatherer.canceled || monitor.isCanceled()) {
+			return false;
+		}
+		for (int i = 0; i < partitions.size(); i++) {
+			result.addAll(((GatherPartition) partitions.get(i)).entries);
+		}
+		return true;
+	}
+
+	/**
+	 * Split the resources to gather markers from into projects, so that
+	 * gathering on the whole workspace can be done in parallel.
+	 * 
+	 * @param resources
+	 * @param typeIds
+	 * @return List of {@link GatherPartition}
+	 */
+	private List computePartitions(Collection resources, String[] typeIds) {
+		List partitions = new ArrayList();
+		for (int i = 0; i < typeIds.length; i++) {
+			Iterator iterator = resources.iterator();
+			while (iterator.hasNext()) {
+				IResource resource = (IResource) iterator.next();
+				if (resource.getType() == IResource.ROOT) {
+					partitions.add(new GatherPartition(resource, typeIds[i],
+							IResource.DEPTH_ZERO));
+					IProject[] projects = ((IWorkspaceRoot) resource)
+							.getProjects(IContainer.INCLUDE_HIDDEN);
+					for (int j = 0; j < projects.length; j++) {
+						partitions.add(new GatherPartition(projects[j],
+								typeIds[i], IResource.DEPTH_INFINITE));
+					}
+				} else {
+					partitions.add(new GatherPartition(resource, typeIds[i],
+							IResource.DEPTH_INFINITE));
+				}
+			}
+		}
+		return partitions;
+	}
+
+	/**
+	 * The markers of one type gathered on one resource.
+	 */
+	private static class GatherPartition {
+		final IResource resource;
+		final String typeId;
+		final int depth;
+		final List entries = new ArrayList();
+
+		GatherPartition(IResource resource, String typeId, int depth) {
+			this.resource = resource;
+			this.typeId = typeId;
+			this.depth = depth;
+		}
+	}
+
+	/**
+	 * Gathers and filters the markers of the partitions, until they are all
+	 * done or the update is canceled. Can be run by several threads at once.
+	 */
+	private class MarkerGatherer {
+		private final List partitions;
+		private final IResource[] selected;
+		private final Collection filters;
+		private final boolean andFilters;
+		private final boolean includeSubTypes;
+		private final IProgressMonitor monitor;
+		private int next;
+		volatile boolean canceled;
+		volatile RuntimeException error;
+
+		MarkerGatherer(List partitions, IResource[] selected,
+				Collection filters, boolean andFilters,
+				boolean includeSubTypes, IProgressMonitor monitor) {
+			this.partitions = partitions;
+			this.selected = selected;
+			this.filters = filters;
+			this.andFilters = andFilters;
+			this.includeSubTypes = includeSubTypes;
+			this.monitor = monitor;
+		}
+
+		void run() {
+			try {
+				GatherPartition partition;
+				while ((partition = nextPartition()) != null) {
+					if (!gather(partition)) {
+						canceled = true;
+						return;
+					}
+				}
+			} catch (RuntimeException e) {
+				error = e;
+				canceled = true;
+			}
+		}
+
+		private synchronized GatherPartition nextPartition() {
+			if (canceled || monitor.isCanceled() || next == partitions.size()) {
+				return null;
+			}
+			return (GatherPartition) partitions.get(next++);
+		}
+
+		private boolean gather(GatherPartition partition) {
 			IMarker[] markers = null;
 			try {
-				IResource resource = (IResource) iterator.next();
-				if (!resource.isAccessible()) {
-					continue;
+				if (!partition.resource.isAccessible()) {
+					return true;
 				}
-				markers = resource.findMarkers(typeId, includeSubTypes,
-						IResource.DEPTH_INFINITE);
+				markers = partition.resource.findMarkers(partition.typeId,
+						includeSubTypes, partition.depth);
 			} catch (CoreException e) {
 				MarkerSupportInternalUtilities.logViewError(e);
 			}
 			if (markers == null) {
-				continue;
+				return true;
 			}
-			if (monitor.isCanceled()) {
+			if (canceled || monitor.isCanceled()) {
 				return false;
 			}
 			MarkerEntry entry = null;
@@ -1149,17 +1282,36 @@ public class MarkerContentGenerator {
 			for (int i = 0; i < lenght; i++) {
 				entry = new MarkerEntry(markers[i]);
 				if (select(entry, selected, filters, andFilters)) {
-					result.add(entry);
+					partition.entries.add(entry);
 				}
 				entry.clearCache();
 				if (i % 500 == 0) {
-					if (monitor.isCanceled()) {
+					if (canceled || monitor.isCanceled()) {
 						return false;
 					}
 				}
 			}
+			return true;
+		}
+	}
+
+	/**
+	 * A job helping the update job to gather markers. Cancellation is done
+	 * through the monitor of the update job.
+	 */
+	private static class GatherMarkersJob extends Job {
+		private final MarkerGatherer gatherer;
+
+		GatherMarkersJob(MarkerGatherer gatherer) {
+			super(MarkerMessages.MarkerView_searching_for_markers);
+			this.gatherer = gatherer;
+			setSystem(true);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			gatherer.run();
+			return Status.OK_STATUS;
 		}
-		return true;
 	}
 
 	void dispose() {
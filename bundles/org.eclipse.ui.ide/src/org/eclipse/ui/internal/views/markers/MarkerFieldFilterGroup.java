@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -338,6 +338,19 @@ class MarkerFieldFilterGroup {
 		}
 	}
 
+	/**
+	 * Compute the state lazily initialized by
+	 * {@link #selectByFilters(MarkerEntry)} and
+	 * {@link #selectByScope(MarkerEntry, IResource[])}, so that they can then
+	 * be called from several threads.
+	 */
+	void initializeForSelection() {
+		getFieldFilters();
+		if (scope == ON_WORKING_SET && wSetResources == null) {
+			computeWorkingSetResources();
+		}
+	}
+
 	/**
 	 * Return true if the resource is in the working set
 	 * @param resource
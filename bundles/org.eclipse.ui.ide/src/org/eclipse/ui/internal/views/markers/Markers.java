@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,9 +15,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.core.resources.IMarker;
@@ -180,6 +182,119 @@ class Markers {
 		}
 	}
 
+	/**
+	 * Update the sorted marker entries and categories with a few changes,
+	 * without sorting them again. The entries of the changed markers are
+	 * removed, then the new entries are inserted with a binary search into the
+	 * sorted part of their category (all of it, or the entries up to the
+	 * marker limit).
+	 * 
+	 * @param changedMarkers
+	 *            the markers which were removed, added or changed
+	 * @param newEntries
+	 *            the entries of the markers to show, already filtered
+	 * @return the items to update in the viewer, or <code>null</code> if the
+	 *         changes cannot be applied incrementally because categories
+	 *         appear or disappear, in which case nothing is changed
+	 */
+	synchronized Collection updateIncrementally(Set changedMarkers,
+			Collection newEntries) {
+		boolean initialVal = inChange;
+		try {
+			inChange = true;
+			boolean showingHierarchy = builder.isShowingHierarchy();
+			Comparator comparator = showingHierarchy ? builder
+					.getComparator().getFieldsComparator() : builder
+					.getComparator();
+
+			MarkerContentGenerator generator = builder.getGenerator();
+			int markerLimit = generator.isMarkerLimitsEnabled() ? generator
+					.getMarkerLimits() : 0;
+			SortedMarkerRange[] ranges;
+			Map rangeIndices = new HashMap();
+			if (showingHierarchy) {
+				ranges = new SortedMarkerRange[categories.length];
+				for (int i = 0; i < categories.length; i++) {
+					MarkerCategory category = categories[i];
+					if (rangeIndices.put(category.getName(), new Integer(i)) != null) {
+						// categories are not identified by their names
+						return null;
+					}
+					ranges[i] = new SortedMarkerRange(markerEntryArray,
+						category.start, category.end, markerLimit);
+				}
+			} else {
+				ranges = new SortedMarkerRange[] { new SortedMarkerRange(
+						markerEntryArray, 0, markerEntryArray.length - 1,
+						markerLimit) };
+			}
+
+			Collection changedItems = new HashSet();
+			boolean[] rangeChanged = new boolean[ranges.length];
+			for (int i = 0; i < ranges.length; i++) {
+				rangeChanged[i] = ranges[i].remove(changedMarkers);
+			}
+			Iterator iterator = newEntries.iterator();
+			while (iterator.hasNext()) {
+				MarkerEntry entry = (MarkerEntry) iterator.next();
+				int index = 0;
+				if (showingHierarchy) {
+					Integer rangeIndex = (Integer) rangeIndices.get(builder
+							.getCategoryGroup().getMarkerField()
+							.getValue(entry));
+					if (rangeIndex == null) {
+						// a new category
+						return null;
+					}
+					index = rangeIndex.intValue();
+				}
+				ranges[index].insert(entry, comparator);
+				rangeChanged[index] = true;
+				changedItems.add(entry);
+			}
+			int size = 0;
+			for (int i = 0; i < ranges.length; i++) {
+				if (ranges[i].getEntries().isEmpty()) {
+					// a category disappears, or all markers are gone
+					return null;
+				}
+				if (rangeChanged[i] && !ranges[i].completeSortedPart(comparator)) {
+					return null;
+				}
+				size += ranges[i].getEntries().size();
+			}
+			MarkerEntry[] newEntryArray = new MarkerEntry[size];
+			MarkerCategory[] newCategories = showingHierarchy ? new MarkerCategory[ranges.length]
+					: EMPTY_CATEGORY_ARRAY;
+			int start = 0;
+			for (int i = 0; i < ranges.length; i++) {
+				List entries = ranges[i].getEntries();
+				for (int j = 0; j < entries.size(); j++) {
+					newEntryArray[start + j] = (MarkerEntry) entries.get(j);
+				}
+				if (showingHierarchy) {
+					newCategories[i] = new MarkerCategory(this, start, start
+							+ entries.size() - 1, categories[i].getName());
+					if (rangeChanged[i]) {
+						changedItems.add(newCategories[i]);
+					}
+				}
+				start += entries.size();
+			}
+
+			if (markerToEntryMap != null) {
+				markerToEntryMap.clear();
+				markerToEntryMap = null;
+			}
+			markerCounts = null;
+			markerEntryArray = newEntryArray;
+			categories = newCategories;
+			return changedItems;
+		} finally {
+			inChange = initialVal;
+		}
+	}
+
 	/**
 	 * get marker limit to show, if any.
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,12 @@ class MarkersChangeListener implements IResourceChangeListener {
 	private boolean receiving;
 
 	//private static final int UPDATE_TEST_CHECK_LIMIT = 1500;
+
+	/*
+	 * The maximum number of marker deltas of interest handled incrementally,
+	 * beyond which gathering the markers again is cheaper.
+	 */
+	private static final int INCREMENTAL_DELTA_LIMIT = 1000;
 	
 	// The time the build started. A -1 indicates no build in progress.
 	private long preBuildTime;
@@ -184,10 +190,10 @@ class MarkersChangeListener implements IResourceChangeListener {
 	 * of the markers that were gathered initially, and keeps them synched at
 	 * any point with the markers of interest in Workspace. Unfortunately marker
 	 * operations cannot be locked so locking between gathering of markers and
-	 * marker deltas is not possible.
-	 * 
-	 * Note : this method of updating is NOT used and tested yet and has holes
-	 * but left out SOLELY for further investigation(*).
+	 * marker deltas is not possible: changes are only handled incrementally
+	 * once a full update has completed, see
+	 * {@link CachedMarkerBuilder#isIncremental()}, and a full update is
+	 * scheduled instead when there are too many of them.
 	 * 
 	 * @param event
 	 */
@@ -198,12 +204,17 @@ class MarkersChangeListener implements IResourceChangeListener {
 		}
 		Collection removed = new LinkedList(), added = new LinkedList(), changed = new LinkedList();
 		String[] types = listeningTypes;
+		int count = 0;
 		for (int i = 0; i < markerDeltas.length; i++) {
 			try {
 				String typeId = markerDeltas[i].getType();
 				if (!isApplicableType(types, typeId)) {
 					continue;
 				}
+				if (++count > INCREMENTAL_DELTA_LIMIT) {
+					handleMarkerChange(event);
+					return;
+				}
 				IMarker marker = markerDeltas[i].getMarker();
 				MarkerEntry markerEntry = new MarkerEntry(marker);
 				switch (markerDeltas[i].getKind()) {
@@ -231,7 +242,6 @@ class MarkersChangeListener implements IResourceChangeListener {
 		if (removed.size() > 0 || added.size() > 0 || changed.size() > 0) {
 			MarkerUpdate update = new MarkerUpdate(added, removed, changed);
 			builder.incrementalUpdate(update);
-			builder.getUpdateScheduler().scheduleUpdate();
 		} else {
 			handleNoMarkerChange();
 		}
@@ -616,6 +626,18 @@ class MarkerUpdateScheduler {
 		uiUpdateJob = view.scheduleUpdate(delay);
 	}
 
+	/**
+	 * Schedule an UI update of the given items only, the structure of the
+	 * viewer is refreshed without updating the labels of the other items.
+	 * 
+	 * @param delay
+	 * @param changedItems
+	 *            the items whose labels changed
+	 */
+	void scheduleUIUpdate(long delay, Collection changedItems) {
+		uiUpdateJob = view.scheduleUpdate(delay, changedItems);
+	}
+
 	/**
 	 * Cancel any marker update if pending.
 	 * 
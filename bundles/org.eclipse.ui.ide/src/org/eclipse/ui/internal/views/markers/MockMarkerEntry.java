@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,6 +9,9 @@
  *     IBM Corporation - initial API and implementation
  *******************************************************************************/
 package org.eclipse.ui.internal.views.markers;
+
+import org.eclipse.core.resources.IMarker;
+
 /**
  * @since 3.4
  *	Mock Class needed for testing Sort
@@ -25,6 +28,14 @@ public class MockMarkerEntry extends MarkerEntry{
 		super(null);
 		this.name=name;
 	}
+	/**
+	 * @param name
+	 * @param marker
+	 */
+	public MockMarkerEntry(String name, IMarker marker) {
+		super(marker);
+		this.name=name;
+	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.internal.views.markers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+
+/**
+ * The entries of a category, whose first {@link #getSortedCount()} entries
+ * are sorted and are not greater than the other entries, as left by
+ * {@link MarkerSortUtil#sortStartingKElement(MarkerEntry[], Comparator, int, int, int, org.eclipse.core.runtime.IProgressMonitor)}
+ * . The sorted part is kept up to the marker limit while entries are removed
+ * and inserted, without sorting the range again.
+ *
+ * @since 3.10
+ */
+public class SortedMarkerRange {
+
+	/*
+	 * The maximum number of entries which can be moved into the sorted part of
+	 * a range by an incremental update, each move costs a scan of the unsorted
+	 * part.
+	 */
+	private static final int MAX_INCREMENTAL_MOVES = 16;
+
+	private final List entries;
+	private final int markerLimit;
+	private int sorted;
+
+	/**
+	 * Create a range of the entries between start and end, inclusive.
+	 *
+	 * @param entryArray
+	 *            the entries, sorted up to the marker limit between start and
+	 *            end
+	 * @param start
+	 * @param end
+	 * @param markerLimit
+	 *            the number of entries to keep sorted, or a value lower than 1
+	 *            to keep all of them sorted
+	 */
+	public SortedMarkerRange(MarkerEntry[] entryArray, int start, int end,
+			int markerLimit) {
+		this.markerLimit = markerLimit;
+		int size = end - start + 1;
+		entries = new ArrayList(size + 4);
+		for (int i = start; i <= end; i++) {
+			entries.add(entryArray[i]);
+		}
+		sorted = getShowingLimit(size);
+	}
+
+	/**
+	 * @return the entries of the range, the sorted ones first
+	 */
+	public List getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the number of sorted entries at the start of the range
+	 */
+	public int getSortedCount() {
+		return sorted;
+	}
+
+	/**
+	 * Remove the entries of the given markers.
+	 *
+	 * @param markers
+	 * @return <code>true</code> if an entry has been removed
+	 */
+	public boolean remove(Set markers) {
+		int newSorted = sorted;
+		int j = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			MarkerEntry entry = (MarkerEntry) entries.get(i);
+			IMarker marker = entry.getMarker();
+			if (marker == null || markers.contains(marker)) {
+				if (i < sorted) {
+					newSorted--;
+				}
+				continue;
+			}
+			entries.set(j++, entry);
+		}
+		if (j == entries.size()) {
+			return false;
+		}
+		entries.subList(j, entries.size()).clear();
+		sorted = newSorted;
+		return true;
+	}
+
+	/**
+	 * Insert the entry in the sorted part if it belongs there, else at the end
+	 * of the unsorted part.
+	 *
+	 * @param entry
+	 * @param comparator
+	 */
+	public void insert(MarkerEntry entry, Comparator comparator) {
+		if (sorted < entries.size()
+				&& (sorted == 0 || comparator.compare(entry,
+						entries.get(sorted - 1)) >= 0)) {
+			entries.add(entry);
+			return;
+		}
+		int low = 0;
+		int high = sorted;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (comparator.compare(entries.get(mid), entry) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		entries.add(low, entry);
+		sorted++;
+	}
+
+	/**
+	 * Move the smallest unsorted entries into the sorted part, until it
+	 * reaches the marker limit again.
+	 *
+	 * @param comparator
+	 * @return <code>false</code> if the range is empty or if too many entries
+	 *         must be moved
+	 */
+	public boolean completeSortedPart(Comparator comparator) {
+		int size = entries.size();
+		int limit = getShowingLimit(size);
+		if (size == 0 || limit - sorted > MAX_INCREMENTAL_MOVES) {
+			return false;
+		}
+		while (sorted < limit) {
+			int min = sorted;
+			for (int i = sorted + 1; i < size; i++) {
+				if (comparator.compare(entries.get(i), entries.get(min)) < 0) {
+					min = i;
+				}
+			}
+			Object entry = entries.get(min);
+			entries.set(min, entries.get(sorted));
+			entries.set(sorted++, entry);
+		}
+		return true;
+	}
+
+	private int getShowingLimit(int available) {
+		if (available < markerLimit || markerLimit <= 0) {
+			return available;
+		}
+		return markerLimit;
+	}
+}
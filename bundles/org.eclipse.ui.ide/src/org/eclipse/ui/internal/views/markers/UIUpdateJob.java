@@ -11,6 +11,8 @@
 
 package org.eclipse.ui.internal.views.markers;
 
+import java.util.Collection;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -99,6 +101,7 @@ class UIUpdateJob extends WorkbenchJob {
 				return Status.CANCEL_STATUS;
 			}
 
+			Collection changedItems = view.readChangedItems();
 			if (view.isVisible()) {
 				/*
 				 * we prefer not to check for cancellation beyond this since we have to show correct
@@ -108,7 +111,13 @@ class UIUpdateJob extends WorkbenchJob {
 				contentProvider.inputChanged(viewer, view.getViewerInput(), clone);
 
 				viewer.getTree().setRedraw(false);
-				viewer.refresh(true);
+				if (changedItems == null) {
+					viewer.refresh(true);
+				} else {
+					// only the changed items need new labels
+					viewer.refresh(false);
+					viewer.update(changedItems.toArray(), null);
+				}
 				if (!monitor.isCanceled()) {
 					//do not expand if canceled
 					view.reexpandCategories();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -844,6 +844,15 @@ public class NavigatorContentService implements IExtensionActivationListener,
 		return result;
 	}
 
+	/**
+	 * Forgets the descriptors found for the elements of this content service,
+	 * whose trigger points and possible children may have changed. The
+	 * evaluations which only depend on the type of the elements are kept.
+	 */
+	public void clearEvaluationCache() {
+		CONTENT_DESCRIPTOR_REGISTRY.clearEvaluationCache(assistant);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2009 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,6 +48,12 @@ public class Policy {
 	 */
 	public static boolean DEBUG_VIEWER_MAP = DEFAULT;
 
+	/**
+	 * Option for tracing the hit rate and evaluation time of the caches of
+	 * trigger points and possible children evaluations
+	 */
+	public static boolean DEBUG_EVALUATION_CACHE = DEFAULT;
+
 	static {
 		if (getDebugOption("/debug")) { //$NON-NLS-1$
 			DEBUG_DND = getDebugOption("/debug/dnd"); //$NON-NLS-1$
@@ -55,6 +61,7 @@ public class Policy {
 			DEBUG_EXTENSION_SETUP = getDebugOption("/debug/setup"); //$NON-NLS-1$
 			DEBUG_SORT = getDebugOption("/debug/sort"); //$NON-NLS-1$
 			DEBUG_VIEWER_MAP = getDebugOption("/debug/viewermap"); //$NON-NLS-1$
+			DEBUG_EVALUATION_CACHE = getDebugOption("/debug/evaluationcache"); //$NON-NLS-1$
 		}
 	}
 
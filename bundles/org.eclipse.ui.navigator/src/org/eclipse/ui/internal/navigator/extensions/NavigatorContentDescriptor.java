@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.core.expressions.ElementHandler;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionConverter;
+import org.eclipse.core.expressions.ExpressionTagNames;
 import org.eclipse.core.expressions.IEvaluationContext;
 
 import org.eclipse.core.runtime.CoreException;
@@ -76,6 +77,10 @@ public final class NavigatorContentDescriptor implements
 
 	private Expression possibleChildren;
 
+	private boolean typeBasedEnablement;
+
+	private boolean typeBasedPossibleChildren;
+
 	private Expression initialActivation;
 	
 	private String icon;
@@ -264,6 +269,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_TRIGGER_POINTS);
 			if (children.length == 1) {
 				enablement = new CustomAndExpression(children[0]);
+				typeBasedEnablement = isTypeBased(children[0]);
 			} else {
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -277,6 +283,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_POSSIBLE_CHILDREN);
 			if (children.length == 1) {
 				possibleChildren = new CustomAndExpression(children[0]);
+				typeBasedPossibleChildren = isTypeBased(children[0]);
 			} else if(children.length > 1){
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -290,6 +297,7 @@ public final class NavigatorContentDescriptor implements
 			try {
 				enablement = ElementHandler.getDefault().create(
 						ExpressionConverter.getDefault(), children[0]);
+				typeBasedEnablement = isTypeBased(children[0]);
 			} catch (CoreException e) {
 				NavigatorPlugin.log(IStatus.ERROR, 0, e.getMessage(), e);
 			}
@@ -303,6 +311,10 @@ public final class NavigatorContentDescriptor implements
 									.getNamespaceIdentifier() }));
 		}
 
+		if (possibleChildren == null) {
+			typeBasedPossibleChildren = typeBasedEnablement;
+		}
+
 		children = configElement.getChildren(TAG_OVERRIDE);
 		if (children.length == 0) {
 			overridePolicy = OverridePolicy.get(OverridePolicy.InvokeAlwaysRegardlessOfSuppressedExt_LITERAL);
@@ -426,6 +438,50 @@ public final class NavigatorContentDescriptor implements
 		return NavigatorPlugin.safeEvaluate(enablement, context) == EvaluationResult.TRUE;
 	}
 
+	/**
+	 * Returns whether the result of {@link #isTriggerPoint(Object)} only
+	 * depends on the type of the element, and so is the same for all the
+	 * elements of the same class. The result of an <i>adapt</i> expression
+	 * depends on the element and on the adapter factories loaded so far, so
+	 * it is not type based.
+	 * 
+	 * @return True if the trigger points only use <i>and</i>, <i>or</i>,
+	 *         <i>not</i> and <i>instanceof</i> expressions.
+	 */
+	public boolean isTriggerPointTypeBased() {
+		return typeBasedEnablement;
+	}
+
+	/**
+	 * Returns whether the result of {@link #isPossibleChild(Object)} only
+	 * depends on the type of the element, and so is the same for all the
+	 * elements of the same class (except for selections).
+	 * 
+	 * @return True if the possible children (or the trigger points if there
+	 *         are none) only use <i>and</i>, <i>or</i>, <i>not</i> and
+	 *         <i>instanceof</i> expressions.
+	 */
+	public boolean isPossibleChildTypeBased() {
+		return typeBasedPossibleChildren;
+	}
+
+	private static boolean isTypeBased(IConfigurationElement anExpression) {
+		IConfigurationElement[] children = anExpression.getChildren();
+		for (int i = 0; i < children.length; i++) {
+			String tag = children[i].getName();
+			if (!ExpressionTagNames.AND.equals(tag)
+					&& !ExpressionTagNames.OR.equals(tag)
+					&& !ExpressionTagNames.NOT.equals(tag)
+					&& !ExpressionTagNames.INSTANCEOF.equals(tag)) {
+				return false;
+			}
+			if (!isTypeBased(children[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Determine if this content extension could provide the given element as a
 	 * child.
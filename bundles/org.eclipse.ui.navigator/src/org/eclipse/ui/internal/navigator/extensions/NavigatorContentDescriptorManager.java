@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2011 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,11 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.navigator.extensions;
 
-import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +28,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.internal.navigator.NavigatorPlugin;
 import org.eclipse.ui.internal.navigator.NavigatorSafeRunnable;
@@ -49,48 +50,41 @@ public class NavigatorContentDescriptorManager {
 
 	private final Map allDescriptors = new HashMap();
 
+	/* The maximum number of elements cached by an EvaluationCache */
+	private static final int MAX_CACHED_ELEMENTS = 1000;
+
+	/* The number of lookups between two traces of the evaluation caches */
+	private static final int TRACE_INTERVAL = 1000;
+
+	/*
+	 * Caches the descriptors found for the most recently used elements, until
+	 * the visible or active extensions change or the viewer is refreshed. The
+	 * evaluations which do not depend on the element itself are also cached
+	 * per class, see isApplicable(NavigatorContentDescriptor, Object, boolean).
+	 */
 	private class EvaluationCache implements VisibilityListener {
 
-		private final Map evaluations/* <Object, NavigatorContentDescriptor[]> */= new HashMap();
-		private final Map evaluationsWithOverrides/*<Object, NavigatorContentDescriptor[]>*/ = new HashMap();
+		private final Map evaluations/* <Object, NavigatorContentDescriptor[]> */= new EvaluationMap();
+		private final Map evaluationsWithoutOverrides/*<Object, NavigatorContentDescriptor[]>*/ = new EvaluationMap();
 
 		EvaluationCache(VisibilityAssistant anAssistant) {
 			anAssistant.addListener(this);
 		}
 
-		protected final NavigatorContentDescriptor[] getDescriptors(Object anElement) {
-			return getDescriptors(anElement, true);
-		}
-
-		protected final void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors) {
-			setDescriptors(anElement, theDescriptors, true);
-		}
-
-		protected final NavigatorContentDescriptor[] getDescriptors(Object anElement, boolean toComputeOverrides) {
-
+		protected final synchronized NavigatorContentDescriptor[] getDescriptors(Object anElement, boolean considerOverrides) {
 			if (anElement == null)
 				return null;
-
-			NavigatorContentDescriptor[] cachedDescriptors = null;
-			if (toComputeOverrides) {
-				SoftReference cache = (SoftReference) evaluations.get(anElement);
-				if (cache != null && (cachedDescriptors = (NavigatorContentDescriptor[]) cache.get()) == null)
-					evaluations.remove(anElement);
-				return cachedDescriptors;
-			}
-			SoftReference cache = (SoftReference) evaluationsWithOverrides.get(anElement);
-			if (cache != null && (cachedDescriptors = (NavigatorContentDescriptor[]) cache.get()) == null)
-				evaluationsWithOverrides.remove(anElement);
-			return cachedDescriptors;
-
+			if (considerOverrides)
+				return (NavigatorContentDescriptor[]) evaluations.get(anElement);
+			return (NavigatorContentDescriptor[]) evaluationsWithoutOverrides.get(anElement);
 		}
 
-		protected final void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors, boolean toComputeOverrides) {
+		protected final synchronized void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors, boolean considerOverrides) {
 			if (anElement != null) {
-				if (toComputeOverrides)
-					evaluations.put(new EvalutationReference(anElement), new SoftReference(theDescriptors));
+				if (considerOverrides)
+					evaluations.put(anElement, theDescriptors);
 				else
-					evaluationsWithOverrides.put(new EvalutationReference(anElement), new SoftReference(theDescriptors));
+					evaluationsWithoutOverrides.put(anElement, theDescriptors);
 			}
 		}
 
@@ -99,9 +93,26 @@ public class NavigatorContentDescriptorManager {
 		 * 
 		 * @see org.eclipse.ui.internal.navigator.VisibilityAssistant.VisibilityListener#onVisibilityOrActivationChange()
 		 */
-		public void onVisibilityOrActivationChange() {
+		public synchronized void onVisibilityOrActivationChange() {
 			evaluations.clear();
-			evaluationsWithOverrides.clear();
+			evaluationsWithoutOverrides.clear();
+		}
+	}
+
+	/*
+	 * A map which only keeps the MAX_CACHED_ELEMENTS most recently used
+	 * entries.
+	 */
+	private static class EvaluationMap extends LinkedHashMap {
+
+		private static final long serialVersionUID = 1L;
+
+		EvaluationMap() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_ELEMENTS;
 		}
 	}
 
@@ -111,6 +122,31 @@ public class NavigatorContentDescriptorManager {
 	/* Map of (VisibilityAssistant, EvaluationCache)-pairs */
 	private final Map cachedPossibleChildrenEvaluations = new WeakHashMap();
 
+	/*
+	 * Map of (Class, Map of (NavigatorContentDescriptor, Boolean))-pairs, for
+	 * the descriptors whose trigger points only depend on the type of the
+	 * element
+	 */
+	private final Map typeTriggerPointEvaluations = new WeakHashMap();
+
+	/*
+	 * Map of (Class, Map of (NavigatorContentDescriptor, Boolean))-pairs, for
+	 * the descriptors whose possible children only depend on the type of the
+	 * element
+	 */
+	private final Map typePossibleChildrenEvaluations = new WeakHashMap();
+
+	/* Statistics of the evaluation caches, only updated when tracing */
+	private long cacheLookups;
+
+	private long cacheHits;
+
+	private long typeLookups;
+
+	private long typeHits;
+
+	private long evaluationTime;
+
 	private ImageRegistry imageRegistry;
 
 	private final Set overridingDescriptors = new HashSet();
@@ -215,11 +251,16 @@ public class NavigatorContentDescriptorManager {
 				cachedEvaluations, aVisibilityAssistant);
 
 		Set descriptors = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
-		NavigatorContentDescriptor[] cachedDescriptors = null;
-		if ((cachedDescriptors = cache.getDescriptors(anElement)) != null) {
+		NavigatorContentDescriptor[] cachedDescriptors = cache.getDescriptors(anElement, considerOverrides);
+		if (Policy.DEBUG_EVALUATION_CACHE) {
+			traceLookup(cachedDescriptors != null);
+		}
+		if (cachedDescriptors != null) {
 			descriptors.addAll(Arrays.asList(cachedDescriptors));
+			return descriptors;
 		}
 
+		long start = Policy.DEBUG_EVALUATION_CACHE ? System.currentTimeMillis() : 0;
 		if (considerOverrides) {
 			addDescriptorsConsideringOverrides(anElement, firstClassDescriptorsSet, aVisibilityAssistant, descriptors, possibleChild);
 			if (Policy.DEBUG_RESOLUTION) {
@@ -233,16 +274,93 @@ public class NavigatorContentDescriptorManager {
 				NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) contentDescriptorsItr.next();
 
 				if (aVisibilityAssistant.isActive(descriptor) && aVisibilityAssistant.isVisible(descriptor)
-						&& (possibleChild ? descriptor.isPossibleChild(anElement) : descriptor.isTriggerPoint(anElement))) {
+						&& isApplicable(descriptor, anElement, possibleChild)) {
 					descriptors.add(descriptor);
 				}
 			}
 		}
-		cache.setDescriptors(anElement, (NavigatorContentDescriptor[]) descriptors.toArray(new NavigatorContentDescriptor[descriptors.size()]));
+		if (Policy.DEBUG_EVALUATION_CACHE) {
+			evaluationTime += System.currentTimeMillis() - start;
+		}
+		cache.setDescriptors(anElement, (NavigatorContentDescriptor[]) descriptors.toArray(new NavigatorContentDescriptor[descriptors.size()]), considerOverrides);
 
 		return descriptors;
 	}
 
+	/**
+	 * Returns whether the descriptor enables for the given element. The
+	 * evaluations of the descriptors which only depend on the type of the
+	 * element are cached per class.
+	 */
+	private boolean isApplicable(NavigatorContentDescriptor descriptor, Object anElement, boolean possibleChild) {
+		boolean typeBased = possibleChild ? descriptor.isPossibleChildTypeBased() : descriptor.isTriggerPointTypeBased();
+		if (!typeBased || anElement == null || anElement instanceof IStructuredSelection) {
+			return possibleChild ? descriptor.isPossibleChild(anElement) : descriptor.isTriggerPoint(anElement);
+		}
+
+		Map typeEvaluations = possibleChild ? typePossibleChildrenEvaluations : typeTriggerPointEvaluations;
+		Boolean cachedResult;
+		synchronized (typeEvaluations) {
+			cachedResult = (Boolean) getTypeEvaluations(typeEvaluations, anElement.getClass()).get(descriptor);
+		}
+		if (Policy.DEBUG_EVALUATION_CACHE) {
+			typeLookups++;
+			if (cachedResult != null)
+				typeHits++;
+		}
+		if (cachedResult != null) {
+			return cachedResult.booleanValue();
+		}
+
+		boolean result = possibleChild ? descriptor.isPossibleChild(anElement) : descriptor.isTriggerPoint(anElement);
+		synchronized (typeEvaluations) {
+			getTypeEvaluations(typeEvaluations, anElement.getClass()).put(descriptor, result ? Boolean.TRUE : Boolean.FALSE);
+		}
+		return result;
+	}
+
+	private Map getTypeEvaluations(Map typeEvaluations, Class type) {
+		Map evaluations = (Map) typeEvaluations.get(type);
+		if (evaluations == null) {
+			typeEvaluations.put(type, evaluations = new HashMap());
+		}
+		return evaluations;
+	}
+
+	private void traceLookup(boolean hit) {
+		cacheLookups++;
+		if (hit)
+			cacheHits++;
+		if (cacheLookups % TRACE_INTERVAL == 0) {
+			System.out.println("Evaluation cache: " + cacheLookups + " lookups, " //$NON-NLS-1$ //$NON-NLS-2$
+					+ (cacheHits * 100 / cacheLookups) + "% hits, " //$NON-NLS-1$
+					+ typeLookups + " type lookups, " //$NON-NLS-1$
+					+ (typeLookups == 0 ? 0 : typeHits * 100 / typeLookups) + "% type hits, " //$NON-NLS-1$
+					+ evaluationTime + " ms evaluating"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Forgets the descriptors cached for the elements evaluated with the given
+	 * visibility assistant.
+	 * 
+	 * @param aVisibilityAssistant
+	 *            The relevant viewer assistant
+	 */
+	public void clearEvaluationCache(VisibilityAssistant aVisibilityAssistant) {
+		clearEvaluationCache(cachedTriggerPointEvaluations, aVisibilityAssistant);
+		clearEvaluationCache(cachedPossibleChildrenEvaluations, aVisibilityAssistant);
+	}
+
+	private void clearEvaluationCache(Map anEvaluationMap,
+			VisibilityAssistant aVisibilityAssistant) {
+		EvaluationCache c = (EvaluationCache) anEvaluationMap
+				.get(aVisibilityAssistant);
+		if (c != null) {
+			c.onVisibilityOrActivationChange();
+		}
+	}
+
 	private EvaluationCache getEvaluationCache(Map anEvaluationMap,
 			VisibilityAssistant aVisibilityAssistant) {
 		EvaluationCache c = (EvaluationCache) anEvaluationMap
@@ -269,7 +387,7 @@ public class NavigatorContentDescriptorManager {
 
 			boolean isApplicable = aVisibilityAssistant.isActive(descriptor)
 					&& aVisibilityAssistant.isVisible(descriptor)
-					&& (possibleChild ? descriptor.isPossibleChild(anElement) : descriptor.isTriggerPoint(anElement));
+					&& isApplicable(descriptor, anElement, possibleChild);
 
 			if (descriptor.hasOverridingExtensions()) {
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,12 +20,14 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import org.eclipse.core.commands.AbstractHandler;
@@ -49,6 +51,7 @@ import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.LegacyActionTools;
 import org.eclipse.jface.action.MenuManager;
 import org.eclipse.jface.dialogs.IDialogSettings;
+import org.eclipse.jface.internal.ConcurrentChunks;
 import org.eclipse.jface.viewers.ContentViewer;
 import org.eclipse.jface.viewers.DelegatingStyledCellLabelProvider.IStyledLabelProvider;
 import org.eclipse.jface.viewers.DoubleClickEvent;
@@ -211,9 +214,11 @@ public abstract class FilteredItemsSelectionDialog extends
 
 	private ItemsFilter filter;
 
-	private List lastCompletedResult;
-
-	private ItemsFilter lastCompletedFilter;
+	/**
+	 * The results of the last completed filterings, the latest last. Guarded
+	 * by itself.
+	 */
+	private final LinkedList completedResults = new LinkedList();
 
 	private String initialPatternText;
 
@@ -223,6 +228,28 @@ public abstract class FilteredItemsSelectionDialog extends
 
 	private static final String EMPTY_STRING = ""; //$NON-NLS-1$
 
+	/**
+	 * The number of completed results kept, so that going back to a previous
+	 * pattern (for example with backspace) does not search again.
+	 */
+	private static final int MAX_COMPLETED_RESULTS = 8;
+
+	/**
+	 * The number of matches from which the list is refreshed before the end of
+	 * the filtering.
+	 */
+	private static final int FIRST_RESULTS_COUNT = 100;
+
+	/**
+	 * The minimum number of cached items matched by one thread.
+	 */
+	private static final int MIN_MATCH_CHUNK = 8192;
+
+	/**
+	 * The number of items matched between two checks for cancellation.
+	 */
+	private static final int MATCH_BLOCK = 1024;
+
 	private boolean refreshWithLastSelection = false;
 
 	private IHandlerActivation showViewHandler;
@@ -1033,6 +1060,58 @@ public abstract class FilteredItemsSelectionDialog extends
 		refreshCacheJob.schedule();
 	}
 
+	/**
+	 * Returns the completed result to filter instead of running a full search
+	 * for the given filter: the result of an equal filter if there is one,
+	 * otherwise the smallest result of a filter of which the given filter is a
+	 * sub-filter.
+	 * 
+	 * @param itemsFilter
+	 *            the filter
+	 * @return the completed result, or <code>null</code> if there is none
+	 */
+	private CompletedResult findCompletedResult(ItemsFilter itemsFilter) {
+		CompletedResult best = null;
+		synchronized (completedResults) {
+			for (Iterator i = completedResults.iterator(); i.hasNext();) {
+				CompletedResult completed = (CompletedResult) i.next();
+				if (completed.filter.equalsFilter(itemsFilter)) {
+					return completed;
+				}
+				if (completed.filter.isSubFilter(itemsFilter)
+						&& (best == null || completed.result.length < best.result.length)) {
+					best = completed;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Remembers the result of a completed filtering, forgetting the oldest
+	 * results beyond {@link #MAX_COMPLETED_RESULTS}.
+	 */
+	private void addCompletedResult(ItemsFilter itemsFilter, Object[] result) {
+		synchronized (completedResults) {
+			for (Iterator i = completedResults.iterator(); i.hasNext();) {
+				if (((CompletedResult) i.next()).filter
+						.equalsFilter(itemsFilter)) {
+					i.remove();
+				}
+			}
+			completedResults.addLast(new CompletedResult(itemsFilter, result));
+			if (completedResults.size() > MAX_COMPLETED_RESULTS) {
+				completedResults.removeFirst();
+			}
+		}
+	}
+
+	private void clearCompletedResults() {
+		synchronized (completedResults) {
+			completedResults.clear();
+		}
+	}
+
 	/**
 	 * Schedules progress message refresh.
 	 */
@@ -2048,6 +2127,21 @@ public abstract class FilteredItemsSelectionDialog extends
 
 	}
 
+	/**
+	 * The result of a completed filtering: the sorted items matching a filter.
+	 */
+	private static class CompletedResult {
+
+		final ItemsFilter filter;
+
+		final Object[] result;
+
+		CompletedResult(ItemsFilter filter, Object[] result) {
+			this.filter = filter;
+			this.result = result;
+		}
+	}
+
 	/**
 	 * Filters items history and schedule filter job.
 	 */
@@ -2082,8 +2176,7 @@ public abstract class FilteredItemsSelectionDialog extends
 
 			contentProvider.addHistoryItems(itemsFilter);
 
-			if (!(lastCompletedFilter != null && lastCompletedFilter
-					.isSubFilter(this.itemsFilter)))
+			if (findCompletedResult(this.itemsFilter) == null)
 				contentProvider.refresh();
 
 			filterJob.schedule();
@@ -2098,12 +2191,14 @@ public abstract class FilteredItemsSelectionDialog extends
 	 * refreshes the dialog (progress monitor and elements list).
 	 * 
 	 * Depending on the filter, <code>FilterJob</code> decides which kind of
-	 * search will be run inside <code>filterContent</code>. If the last
-	 * filtering is done (last completed filter), is not null, and the new
-	 * filter is a sub-filter ({@link FilteredItemsSelectionDialog.ItemsFilter#isSubFilter(FilteredItemsSelectionDialog.ItemsFilter)})
-	 * of the last, then <code>FilterJob</code> only filters in the cache. If
-	 * it is the first filtering or the new filter isn't a sub-filter of the
-	 * last one, a full search is run.
+	 * search will be run inside <code>filterContent</code>. If the new filter
+	 * is equal to the filter of one of the last completed filterings, or is a
+	 * sub-filter ({@link FilteredItemsSelectionDialog.ItemsFilter#isSubFilter(FilteredItemsSelectionDialog.ItemsFilter)})
+	 * of one of them, then <code>FilterJob</code> only filters in the cache of
+	 * the smallest such result, in parallel if the filter
+	 * {@link FilteredItemsSelectionDialog.ItemsFilter#isConcurrent() is
+	 * concurrent}. Otherwise a full search is run. In both cases the list is
+	 * refreshed as soon as the first matches are found.
 	 */
 	private class FilterJob extends Job {
 
@@ -2191,31 +2286,45 @@ public abstract class FilteredItemsSelectionDialog extends
 		protected void filterContent(GranualProgressMonitor monitor)
 				throws CoreException {
 
-			if (lastCompletedFilter != null
-					&& lastCompletedFilter.isSubFilter(this.itemsFilter)) {
-
-				int length = lastCompletedResult.size() / 500;
-				monitor
-						.beginTask(
-								WorkbenchMessages.FilteredItemsSelectionDialog_cacheSearchJob_taskName,
-								length);
+			CompletedResult completed = findCompletedResult(this.itemsFilter);
+			if (completed != null) {
+
+				Object[] cachedItems = completed.result;
+				if (completed.filter.equalsFilter(itemsFilter)) {
+					// all the items still match
+					contentProvider.addMatches(Arrays.asList(cachedItems),
+							itemsFilter);
+				} else if (itemsFilter.isConcurrent()
+						&& ConcurrentChunks.getChunkCount(cachedItems.length,
+								MIN_MATCH_CHUNK) > 1) {
+					filterConcurrently(cachedItems, monitor);
+				} else {
+					int length = cachedItems.length / 500;
+					monitor
+							.beginTask(
+									WorkbenchMessages.FilteredItemsSelectionDialog_cacheSearchJob_taskName,
+									length);
 
-				for (int pos = 0; pos < lastCompletedResult.size(); pos++) {
+					for (int pos = 0; pos < cachedItems.length; pos++) {
 
-					Object item = lastCompletedResult.get(pos);
-					if (monitor.isCanceled())
-						break;
-					contentProvider.add(item, itemsFilter);
+						Object item = cachedItems[pos];
+						if (monitor.isCanceled())
+							break;
+						contentProvider.add(item, itemsFilter);
 
-					if ((pos % 500) == 0) {
-						monitor.worked(1);
+						if ((pos % 500) == 0) {
+							monitor.worked(1);
+						}
 					}
 				}
 
+				if (!monitor.isCanceled()) {
+					contentProvider.rememberResult(itemsFilter);
+				}
+
 			} else {
 
-				lastCompletedFilter = null;
-				lastCompletedResult = null;
+				clearCompletedResults();
 
 				SubProgressMonitor subMonitor = null;
 				if (monitor != null) {
@@ -2238,6 +2347,55 @@ public abstract class FilteredItemsSelectionDialog extends
 
 		}
 
+		/**
+		 * Filters the given cached items, splitting them between this thread
+		 * and the threads of a shared pool. This thread matches the first part
+		 * of the items and any part that no other thread has started yet.
+		 * 
+		 * @param cachedItems
+		 *            the items to filter
+		 * @param monitor
+		 *            for monitoring progress
+		 */
+		private void filterConcurrently(final Object[] cachedItems,
+				final GranualProgressMonitor monitor) {
+			monitor.beginTask(
+					WorkbenchMessages.FilteredItemsSelectionDialog_cacheSearchJob_taskName,
+					ConcurrentChunks.getChunkCount(cachedItems.length,
+							MIN_MATCH_CHUNK));
+			ConcurrentChunks.forEachChunk(cachedItems.length, MIN_MATCH_CHUNK,
+					new ConcurrentChunks.ChunkRunnable() {
+						@Override
+						public void run(int start, int end) {
+							match(cachedItems, start, end, monitor);
+						}
+					}, monitor);
+		}
+
+		/**
+		 * Adds the matching items of the given range to the content provider,
+		 * a block at a time so that the first matches are shown early.
+		 */
+		private void match(Object[] cachedItems, int start, int end,
+				IProgressMonitor monitor) {
+			List matches = new ArrayList();
+			for (int blockStart = start; blockStart < end; blockStart += MATCH_BLOCK) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				int blockEnd = Math.min(blockStart + MATCH_BLOCK, end);
+				for (int pos = blockStart; pos < blockEnd; pos++) {
+					if (itemsFilter.matchItem(cachedItems[pos])) {
+						matches.add(cachedItems[pos]);
+					}
+				}
+				if (!matches.isEmpty()) {
+					contentProvider.addMatches(matches, itemsFilter);
+					matches.clear();
+				}
+			}
+		}
+
 	}
 
 	/**
@@ -2588,6 +2746,20 @@ public abstract class FilteredItemsSelectionDialog extends
 		 */
 		public abstract boolean isConsistentItem(Object item);
 
+		/**
+		 * Returns whether {@link #matchItem(Object)} can be called from
+		 * several threads at once. When it can, large sets of cached items are
+		 * matched in parallel. The default implementation returns
+		 * <code>false</code>; subclasses whose <code>matchItem</code> only
+		 * reads immutable state may override.
+		 * 
+		 * @return <code>true</code> if items can be matched concurrently
+		 * @since 3.106
+		 */
+		public boolean isConcurrent() {
+			return false;
+		}
+
 	}
 
 	/**
@@ -2675,6 +2847,12 @@ public abstract class FilteredItemsSelectionDialog extends
 		 */
 		private boolean reset;
 
+		/**
+		 * Whether the list has been refreshed with the first matches of the
+		 * current filtering.
+		 */
+		private volatile boolean firstResultsShown;
+
 		/**
 		 * Creates new instance of <code>ContentProvider</code>.
 		 */
@@ -2708,6 +2886,7 @@ public abstract class FilteredItemsSelectionDialog extends
 		 */
 		public void reset() {
 			reset = true;
+			firstResultsShown = false;
 			this.items.clear();
 			this.duplicates.clear();
 			this.lastSortedItems.clear();
@@ -2732,6 +2911,7 @@ public abstract class FilteredItemsSelectionDialog extends
 				if (itemsFilter != null) {
 					if (itemsFilter.matchItem(item)) {
 						this.items.add(item);
+						showFirstResults();
 					}
 				} else {
 					this.items.add(item);
@@ -2739,6 +2919,32 @@ public abstract class FilteredItemsSelectionDialog extends
 			}
 		}
 
+		/**
+		 * Adds items already matched by the given filter.
+		 * 
+		 * @param matches
+		 *            the matching items
+		 * @param itemsFilter
+		 *            the filter
+		 */
+		public void addMatches(Collection matches, ItemsFilter itemsFilter) {
+			if (itemsFilter == filter) {
+				this.items.addAll(matches);
+				showFirstResults();
+			}
+		}
+
+		/**
+		 * Refreshes the list once the first matches are found, without waiting
+		 * for the end of the filtering.
+		 */
+		private void showFirstResults() {
+			if (!firstResultsShown && items.size() >= FIRST_RESULTS_COUNT) {
+				firstResultsShown = true;
+				refresh();
+			}
+		}
+
 		/**
 		 * Add all history items to <code>contentProvider</code>.
 		 * 
@@ -2898,12 +3104,10 @@ public abstract class FilteredItemsSelectionDialog extends
 		 * @param itemsFilter
 		 */
 		public void rememberResult(ItemsFilter itemsFilter) {
-			List itemsList = Collections.synchronizedList(Arrays
-					.asList(getSortedItems()));
+			Object[] sortedItems = getSortedItems();
 			// synchronization
 			if (itemsFilter == filter) {
-				lastCompletedFilter = itemsFilter;
-				lastCompletedResult = itemsList;
+				addCompletedResult(itemsFilter, sortedItems);
 			}
 
 		}
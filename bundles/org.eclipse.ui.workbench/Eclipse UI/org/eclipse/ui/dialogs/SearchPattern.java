@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,10 @@
  *******************************************************************************/
 package org.eclipse.ui.dialogs;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.jface.util.Util;
-import org.eclipse.ui.internal.misc.StringMatcher;
 
 /**
  * A search pattern defines how search results are found.
@@ -93,7 +95,10 @@ public class SearchPattern {
 
 	private String initialPattern;
 
-	private StringMatcher stringMatcher;
+	/**
+	 * The pattern compiled for its match rule by {@link #setPattern(String)}.
+	 */
+	private Matcher matcher;
 
 	private static final char END_SYMBOL = '<';
 
@@ -103,6 +108,27 @@ public class SearchPattern {
 
 	private int allowedRules;
 
+	/**
+	 * Wild-card replacing exactly one character in a compiled segment.
+	 */
+	private static final char SINGLE_WILD_CARD = '\u0000';
+
+	/**
+	 * The lower and upper case of the ASCII characters, to avoid the
+	 * <code>Character</code> case conversions on most characters of the
+	 * names.
+	 */
+	private static final char[] LOWER_CASE = new char[128];
+
+	private static final char[] UPPER_CASE = new char[128];
+
+	static {
+		for (char c = 0; c < 128; c++) {
+			LOWER_CASE[c] = Character.toLowerCase(c);
+			UPPER_CASE[c] = Character.toUpperCase(c);
+		}
+	}
+
 	/**
 	 * Creates new instance of SearchPattern Default allowedRules for it is
 	 * result of belong logic operation: ( RULE_EXACT_MATCH | RULE_PREFIX_MATCH |
@@ -155,35 +181,40 @@ public class SearchPattern {
 		this.stringPattern = stringPattern;
 		initializePatternAndMatchRule(stringPattern);
 		matchRule = matchRule & this.allowedRules;
-		if (matchRule == RULE_PATTERN_MATCH) {
-			stringMatcher = new StringMatcher(this.stringPattern, true, false);
-		}
+		matcher = compile();
 	}
 
 	/**
-	 * Matches text with pattern. matching is determine by matchKind.
+	 * Compiles the string pattern into a matcher for the match rule, so that
+	 * matching a text does not depend on the rule, and allocates nothing.
 	 * 
-	 * @param text
-	 * @return true if search pattern was matched with text false in other way
+	 * @return the matcher
 	 */
-	public boolean matches(String text) {
+	private Matcher compile() {
 		switch (matchRule) {
 		case RULE_BLANK_MATCH:
-			return true;
+			return new Matcher();
 		case RULE_PATTERN_MATCH:
-			return stringMatcher.match(text);
+			return new WildCardMatcher(stringPattern);
 		case RULE_EXACT_MATCH:
-			return stringPattern.equalsIgnoreCase(text);
+			return new ExactMatcher(stringPattern);
 		case RULE_CAMELCASE_MATCH:
-			if (camelCaseMatch(stringPattern, text)) {
-				return true;
-			}
-			//$FALL-THROUGH$
-			default:
-			return startsWithIgnoreCase(text, stringPattern);
+			return new CamelCaseMatcher(stringPattern);
+		default:
+			return new PrefixMatcher(stringPattern);
 		}
 	}
 
+	/**
+	 * Matches text with pattern. matching is determine by matchKind.
+	 * 
+	 * @param text
+	 * @return true if search pattern was matched with text false in other way
+	 */
+	public boolean matches(String text) {
+		return matcher.matches(text);
+	}
+
 	private void initializePatternAndMatchRule(String pattern) {
 		int length = pattern.length();
 		if (length == 0) {
@@ -226,25 +257,6 @@ public class SearchPattern {
 
 	}
 
-	/**
-	 * @param text
-	 * @param prefix
-	 * @return true if text starts with given prefix, ignoring case false in
-	 *         other way
-	 */
-	private boolean startsWithIgnoreCase(String text, String prefix) {
-		int textLength = text.length();
-		int prefixLength = prefix.length();
-		if (textLength < prefixLength)
-			return false;
-		for (int i = prefixLength - 1; i >= 0; i--) {
-			if (Character.toLowerCase(prefix.charAt(i)) != Character
-					.toLowerCase(text.charAt(i)))
-				return false;
-		}
-		return true;
-	}
-
 	/**
 	 * Answers true if the pattern matches the given name using CamelCase rules,
 	 * or false otherwise. CamelCase matching does NOT accept explicit
@@ -302,13 +314,13 @@ public class SearchPattern {
 	 * @return true if the pattern matches the given name, false otherwise
 	 * 
 	 */
-	private boolean camelCaseMatch(String pattern, String name) {
+	private boolean camelCaseMatch(char[] pattern, String name) {
 		if (pattern == null)
 			return true; // null pattern is equivalent to '*'
 		if (name == null)
 			return false; // null name cannot match
 
-		return camelCaseMatch(pattern, 0, pattern.length(), name, 0, name
+		return camelCaseMatch(pattern, 0, pattern.length, name, 0, name
 				.length());
 	}
 
@@ -418,14 +430,14 @@ public class SearchPattern {
 	 * @return true if a sub-pattern matches the subpart of the given name,
 	 *         false otherwise
 	 */
-	private boolean camelCaseMatch(String pattern, int patternStart,
+	private boolean camelCaseMatch(char[] pattern, int patternStart,
 			int patternEnd, String name, int nameStart, int nameEnd) {
 		if (name == null)
 			return false; // null name cannot match
 		if (pattern == null)
 			return true; // null pattern is equivalent to '*'
 		if (patternEnd < 0)
-			patternEnd = pattern.length();
+			patternEnd = pattern.length;
 		if (nameEnd < 0)
 			nameEnd = name.length();
 
@@ -434,14 +446,14 @@ public class SearchPattern {
 		if (nameEnd <= nameStart)
 			return false;
 		// check first pattern char
-		if (name.charAt(nameStart) != pattern.charAt(patternStart)) {
+		if (name.charAt(nameStart) != pattern[patternStart]) {
 			// first char must strictly match (upper/lower)
 			return false;
 		}
 
 		int patternLength = patternEnd;
 		
-		if (pattern.charAt(patternEnd - 1) == END_SYMBOL || pattern.charAt(patternEnd - 1) == BLANK )
+		if (pattern[patternEnd - 1] == END_SYMBOL || pattern[patternEnd - 1] == BLANK )
 			patternLength = patternEnd - 1;
 
 
@@ -469,7 +481,7 @@ public class SearchPattern {
 
 			// For as long as we're exactly matching, bring it on (even if it's
 			// a lower case character)
-			if ((patternChar = pattern.charAt(iPattern)) == name.charAt(iName)) {
+			if ((patternChar = pattern[iPattern]) == name.charAt(iName)) {
 				continue;
 			}
 
@@ -685,4 +697,350 @@ public class SearchPattern {
 		return Util.replaceAll(pattern, "\\*+", "\\*"); //$NON-NLS-1$ //$NON-NLS-2$		}
 	}
 
+	/**
+	 * A compiled pattern. Matches any text.
+	 */
+	private static class Matcher {
+
+		boolean matches(String text) {
+			return true;
+		}
+
+		/**
+		 * Returns whether a character of the text is equal to a character of
+		 * the pattern, ignoring case as <code>String.regionMatches</code>
+		 * does.
+		 * 
+		 * @param c
+		 *            the character of the text
+		 * @param p
+		 *            the character of the pattern
+		 * @param upper
+		 *            the upper case of <code>p</code>
+		 * @param lower
+		 *            the lower case of <code>upper</code>
+		 */
+		static boolean equalsIgnoreCase(char c, char p, char upper, char lower) {
+			if (c == p) {
+				return true;
+			}
+			if (c < 128) {
+				return UPPER_CASE[c] == upper || LOWER_CASE[c] == lower;
+			}
+			char u = Character.toUpperCase(c);
+			return u == upper || Character.toLowerCase(u) == lower;
+		}
+
+		/**
+		 * Returns whether a character of the text is equal to a character of
+		 * the pattern, ignoring case as the wild-card segments of
+		 * <code>StringMatcher</code> do.
+		 * 
+		 * @param c
+		 *            the character of the text
+		 * @param p
+		 *            the character of the pattern
+		 * @param upper
+		 *            the upper case of <code>p</code>
+		 * @param lower
+		 *            the lower case of <code>p</code>
+		 */
+		static boolean equalsIgnoreCaseSeparately(char c, char p, char upper,
+				char lower) {
+			if (c == p) {
+				return true;
+			}
+			if (c < 128) {
+				return UPPER_CASE[c] == upper || LOWER_CASE[c] == lower;
+			}
+			return Character.toUpperCase(c) == upper
+					|| Character.toLowerCase(c) == lower;
+		}
+
+		static char[] toUpperCase(char[] chars) {
+			char[] upper = new char[chars.length];
+			for (int i = 0; i < chars.length; i++) {
+				upper[i] = Character.toUpperCase(chars[i]);
+			}
+			return upper;
+		}
+
+		static char[] toLowerCase(char[] chars) {
+			char[] lower = new char[chars.length];
+			for (int i = 0; i < chars.length; i++) {
+				lower[i] = Character.toLowerCase(chars[i]);
+			}
+			return lower;
+		}
+	}
+
+	/**
+	 * Matches the texts equal to the pattern, ignoring case.
+	 */
+	private static class ExactMatcher extends Matcher {
+
+		private final char[] pattern;
+
+		private final char[] upper;
+
+		private final char[] lower;
+
+		ExactMatcher(String pattern) {
+			this.pattern = pattern.toCharArray();
+			upper = toUpperCase(this.pattern);
+			lower = toLowerCase(upper);
+		}
+
+		@Override
+		boolean matches(String text) {
+			if (text == null || text.length() != pattern.length) {
+				return false;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				if (!equalsIgnoreCase(text.charAt(i), pattern[i], upper[i],
+						lower[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Matches the texts starting with the pattern, ignoring case.
+	 */
+	private static class PrefixMatcher extends Matcher {
+
+		private final char[] lower;
+
+		PrefixMatcher(String pattern) {
+			lower = toLowerCase(pattern.toCharArray());
+		}
+
+		@Override
+		boolean matches(String text) {
+			int length = lower.length;
+			if (text.length() < length)
+				return false;
+			for (int i = length - 1; i >= 0; i--) {
+				char c = text.charAt(i);
+				if ((c < 128 ? LOWER_CASE[c] : Character.toLowerCase(c)) != lower[i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Matches the texts matching the pattern with CamelCase rules, or
+	 * starting with it.
+	 */
+	private class CamelCaseMatcher extends PrefixMatcher {
+
+		private final char[] pattern;
+
+		CamelCaseMatcher(String pattern) {
+			super(pattern);
+			this.pattern = pattern.toCharArray();
+		}
+
+		@Override
+		boolean matches(String text) {
+			return camelCaseMatch(pattern, text) || super.matches(text);
+		}
+	}
+
+	/**
+	 * Matches the texts with the '*' and '?' wild-cards of the pattern,
+	 * ignoring case. The pattern is split at its '*' into segments, in which
+	 * '?' stands for any character and '\' escapes the wild-cards.
+	 */
+	private static class WildCardMatcher extends Matcher {
+
+		private final char[][] segments;
+
+		private final char[][] upperSegments;
+
+		private final char[][] lowerSegments;
+
+		/**
+		 * The lower case of the upper case of the segments.
+		 */
+		private final char[][] foldedSegments;
+
+		/**
+		 * Whether each segment contains a '?'.
+		 */
+		private final boolean[] singleWildCards;
+
+		private final boolean hasLeadingStar;
+
+		private final boolean hasTrailingStar;
+
+		/**
+		 * The length of the pattern, without wild-cards nor escapes.
+		 */
+		private final int bound;
+
+		private final int patternLength;
+
+		WildCardMatcher(String pattern) {
+			patternLength = pattern.length();
+			hasLeadingStar = pattern.startsWith("*"); //$NON-NLS-1$
+			hasTrailingStar = pattern.endsWith("*") && patternLength > 1 //$NON-NLS-1$
+					&& pattern.charAt(patternLength - 2) != '\\';
+
+			List segmentList = new ArrayList();
+			StringBuffer buf = new StringBuffer();
+			int pos = 0;
+			while (pos < patternLength) {
+				char c = pattern.charAt(pos++);
+				switch (c) {
+				case '\\':
+					if (pos >= patternLength) {
+						buf.append(c);
+					} else {
+						char next = pattern.charAt(pos++);
+						if (next == '*' || next == '?' || next == '\\') {
+							buf.append(next);
+						} else {
+							buf.append(c);
+							buf.append(next);
+						}
+					}
+					break;
+				case '*':
+					if (buf.length() > 0) {
+						segmentList.add(buf.toString().toCharArray());
+						buf.setLength(0);
+					}
+					break;
+				case '?':
+					buf.append(SINGLE_WILD_CARD);
+					break;
+				default:
+					buf.append(c);
+				}
+			}
+			if (buf.length() > 0) {
+				segmentList.add(buf.toString().toCharArray());
+			}
+
+			int count = segmentList.size();
+			segments = (char[][]) segmentList.toArray(new char[count][]);
+			upperSegments = new char[count][];
+			lowerSegments = new char[count][];
+			foldedSegments = new char[count][];
+			singleWildCards = new boolean[count];
+			int length = 0;
+			for (int i = 0; i < count; i++) {
+				upperSegments[i] = toUpperCase(segments[i]);
+				lowerSegments[i] = toLowerCase(segments[i]);
+				foldedSegments[i] = toLowerCase(upperSegments[i]);
+				for (int j = 0; j < segments[i].length; j++) {
+					singleWildCards[i] |= segments[i][j] == SINGLE_WILD_CARD;
+				}
+				length += segments[i].length;
+			}
+			bound = length;
+		}
+
+		@Override
+		boolean matches(String text) {
+			if (text == null) {
+				return false;
+			}
+			int segCount = segments.length;
+			if (segCount == 0 && (hasLeadingStar || hasTrailingStar)) {
+				return true;
+			}
+			int end = text.length();
+			if (end == 0) {
+				return patternLength == 0;
+			}
+			if (patternLength == 0) {
+				return false;
+			}
+			if (end - bound < 0) {
+				return false;
+			}
+
+			int i = 0;
+			int pos = 0;
+			if (!hasLeadingStar) {
+				if (!regionMatches(text, 0, 0, true)) {
+					return false;
+				}
+				pos = segments[0].length;
+				i++;
+				if (segCount == 1 && !hasTrailingStar) {
+					// only one segment to match, no wildcards specified
+					return pos == end;
+				}
+			}
+			int last = i - 1;
+			while (i < segCount) {
+				int match = indexOf(text, pos, end, i);
+				if (match < 0) {
+					return false;
+				}
+				pos = match + segments[i].length;
+				last = i++;
+			}
+
+			if (!hasTrailingStar && pos != end) {
+				int length = segments[last].length;
+				return regionMatches(text, end - length, last, true);
+			}
+			return true;
+		}
+
+		private int indexOf(String text, int start, int end, int segment) {
+			int max = end - segments[segment].length;
+			// segments without '?' are searched as String.regionMatches does
+			boolean separately = singleWildCards[segment];
+			for (int i = start; i <= max; i++) {
+				if (regionMatches(text, i, segment, separately)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns whether the text matches the given segment at the given
+		 * position.
+		 * 
+		 * @param separately
+		 *            whether to compare the upper and lower cases of the
+		 *            characters separately, or as
+		 *            <code>String.regionMatches</code> does
+		 */
+		private boolean regionMatches(String text, int start, int segment,
+				boolean separately) {
+			char[] chars = segments[segment];
+			char[] upper = upperSegments[segment];
+			if (separately) {
+				char[] lower = lowerSegments[segment];
+				for (int i = 0; i < chars.length; i++) {
+					char p = chars[i];
+					if (p != SINGLE_WILD_CARD
+							&& !equalsIgnoreCaseSeparately(text.charAt(start + i),
+									p, upper[i], lower[i])) {
+						return false;
+					}
+				}
+			} else {
+				char[] folded = foldedSegments[segment];
+				for (int i = 0; i < chars.length; i++) {
+					if (!equalsIgnoreCase(text.charAt(start + i), chars[i],
+							upper[i], folded[i])) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+	}
+
 }
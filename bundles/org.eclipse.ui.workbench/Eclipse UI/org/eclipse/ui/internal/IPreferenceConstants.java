@@ -260,4 +260,13 @@ public interface IPreferenceConstants {
 	 */
 	public static final String WORKBENCH_SAVE_INTERVAL = "WORKBENCH_SAVE_INTERVAL"; //$NON-NLS-1$
 
+	/**
+	 * Preference value that specifies the number of background jobs computing
+	 * lightweight decorations in parallel. Values greater than one require the
+	 * lightweight decorators to support concurrent calls.
+	 * 
+	 * @since 3.106
+	 */
+	public static final String DECORATION_WORKERS = "DECORATION_WORKERS"; //$NON-NLS-1$
+
 }
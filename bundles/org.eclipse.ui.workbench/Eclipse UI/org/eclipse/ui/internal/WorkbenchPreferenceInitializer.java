@@ -82,6 +82,7 @@ public class WorkbenchPreferenceInitializer extends
 		node.putInt(IPreferenceConstants.OPEN_PERSP_MODE,
 				IPreferenceConstants.OPM_ACTIVE_PAGE);
 		node.put(IPreferenceConstants.ENABLED_DECORATORS, ""); //$NON-NLS-1$
+		node.putInt(IPreferenceConstants.DECORATION_WORKERS, 1);
 		node.putInt(IPreferenceConstants.EDITORLIST_SELECTION_SCOPE,
 				IPreferenceConstants.EDITORLIST_SET_PAGE_SCOPE); // Current
 																 // Window
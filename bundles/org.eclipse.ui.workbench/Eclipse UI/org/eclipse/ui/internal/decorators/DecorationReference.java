@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -101,6 +101,11 @@ class DecorationReference {
 	}
 
 	void addContext(IDecorationContext context) {
+		for (int i = 0; i < contexts.length; i++) {
+			if (contexts[i].equals(context)) {
+				return;
+			}
+		}
 		IDecorationContext[] newContexts = new IDecorationContext[contexts.length + 1];
 		System.arraycopy(contexts, 0, newContexts, 0, contexts.length);
 		newContexts[contexts.length] = context;
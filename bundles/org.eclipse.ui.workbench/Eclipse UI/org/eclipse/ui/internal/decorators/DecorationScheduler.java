@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,14 +12,18 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.decorators;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -35,24 +39,29 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.IPreferenceConstants;
 import org.eclipse.ui.internal.WorkbenchMessages;
+import org.eclipse.ui.internal.WorkbenchPlugin;
 import org.eclipse.ui.progress.UIJob;
 import org.eclipse.ui.progress.WorkbenchJob;
 
 /**
  * The DecorationScheduler is the class that handles the decoration of elements
- * using a background thread.
+ * using background threads. The number of threads computing lightweight
+ * decorations is set by the {@link IPreferenceConstants#DECORATION_WORKERS}
+ * preference.
  */
 public class DecorationScheduler {
 
 	static final ILabelProviderListener[] EMPTY_LISTENER_LIST = new ILabelProviderListener[0];
 
 	// When decorations are computed they are added to this cache via
-	// decorated() method
+	// decorated() method. Access is synchronized on the map, which is locked
+	// before the pending update key when both are needed.
 	Map resultCache = new HashMap();
 
 	// Objects that need an icon and text computed for display to the user
-	List awaitingDecoration = new ArrayList();
+	Queue awaitingDecoration = new ConcurrentLinkedQueue();
 
 	// Objects that are awaiting a label update.
 	Set pendingUpdate = new HashSet();
@@ -60,16 +69,25 @@ public class DecorationScheduler {
 	// Key to lock write access to the pending update set
 	Object pendingKey = new Object();
 
-	Map awaitingDecorationValues = new HashMap();
+	Map awaitingDecorationValues = new ConcurrentHashMap();
+
+	// Locks for the references of the elements awaiting decoration, striped
+	// by element hash code
+	private final Object[] referenceLocks = new Object[16];
+
+	// Number of elements being decorated by the workers
+	private final AtomicInteger activeDecorations = new AtomicInteger();
 
 	DecoratorManager decoratorManager;
 
-	boolean shutdown = false;
+	volatile boolean shutdown = false;
 
-	Job decorationJob;
+	Job[] decorationJobs;
 
 	UIJob updateJob;
 
+	private final Object updateJobLock = new Object();
+
 	private Collection removedListeners = Collections
 			.synchronizedSet(new HashSet());
 
@@ -81,6 +99,18 @@ public class DecorationScheduler {
 	/** Amount of time to delay the update notification when max reached. */
 	static final int UPDATE_DELAY = 100;
 
+	/**
+	 * Maximum number of decorations cached per context, the least recently
+	 * used ones are discarded first.
+	 */
+	static final int MAX_CACHED_RESULTS = 10000;
+
+	/**
+	 * Number of decorated elements after which the labels are updated even if
+	 * other elements are still waiting for decoration.
+	 */
+	static final int UPDATE_BATCH_SIZE = 1000;
+
 	/**
 	 * Return a new instance of the receiver configured for the supplied
 	 * DecoratorManager.
@@ -89,7 +119,10 @@ public class DecorationScheduler {
 	 */
 	DecorationScheduler(DecoratorManager manager) {
 		decoratorManager = manager;
-		createDecorationJob();
+		for (int i = 0; i < referenceLocks.length; i++) {
+			referenceLocks[i] = new Object();
+		}
+		createDecorationJobs();
 	}
 
 	/**
@@ -134,31 +167,49 @@ public class DecorationScheduler {
 	 *            The decoration context
 	 */
 
-	synchronized void queueForDecoration(Object element, Object adaptedElement,
+	void queueForDecoration(Object element, Object adaptedElement,
 			boolean forceUpdate, String undecoratedText,
 			IDecorationContext context) {
 
 		Assert.isNotNull(context);
-		DecorationReference reference = (DecorationReference) awaitingDecorationValues
-				.get(element);
-		if (reference != null) {
-			if (forceUpdate) {// Make sure we don't loose a force
-				reference.setForceUpdate(forceUpdate);
+		synchronized (getReferenceLock(element)) {
+			DecorationReference reference = (DecorationReference) awaitingDecorationValues
+					.get(element);
+			if (reference != null) {
+				if (forceUpdate) {// Make sure we don't loose a force
+					reference.setForceUpdate(forceUpdate);
+				}
+				reference.addContext(context);
+				return;
 			}
-			reference.addContext(context);
-		} else {
 			reference = new DecorationReference(element, adaptedElement,
 					context);
 			reference.setForceUpdate(forceUpdate);
 			reference.setUndecoratedText(undecoratedText);
 			awaitingDecorationValues.put(element, reference);
 			awaitingDecoration.add(element);
-			if (shutdown) {
-				return;
-			}
-			decorationJob.schedule();
 		}
+		if (shutdown) {
+			return;
+		}
+		scheduleDecorationJobs();
+	}
+
+	/**
+	 * Schedule the decoration jobs, one for each element waiting for
+	 * decoration up to the number of jobs.
+	 */
+	private void scheduleDecorationJobs() {
+		int waiting = awaitingDecorationValues.size();
+		for (int i = 0; i < decorationJobs.length && i < waiting; i++) {
+			decorationJobs[i].schedule();
+		}
+	}
 
+	private Object getReferenceLock(Object element) {
+		int hash = element.hashCode();
+		hash ^= (hash >>> 16);
+		return referenceLocks[hash & (referenceLocks.length - 1)];
 	}
 
 	/**
@@ -219,69 +270,141 @@ public class DecorationScheduler {
 
 	private DecorationResult internalGetResult(Object element,
 			IDecorationContext context) {
-		Map results = (Map) resultCache.get(context);
-		if (results != null) {
-			return (DecorationResult) results.get(element);
+		synchronized (resultCache) {
+			Map results = (Map) resultCache.get(context);
+			if (results != null) {
+				return (DecorationResult) results.get(element);
+			}
 		}
 		return null;
 	}
 
 	protected void internalPutResult(Object element,
 			IDecorationContext context, DecorationResult result) {
-		Map results = (Map) resultCache.get(context);
-		if (results == null) {
-			results = new HashMap();
-			resultCache.put(context, results);
+		synchronized (resultCache) {
+			Map results = (Map) resultCache.get(context);
+			if (results == null) {
+				results = new LinkedHashMap(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry eldest) {
+						if (size() <= MAX_CACHED_RESULTS) {
+							return false;
+						}
+						// The elements awaiting a label update keep their
+						// result, the update would queue them again
+						// otherwise. The entry just added is not pending yet.
+						synchronized (pendingKey) {
+							Iterator iterator = keySet().iterator();
+							for (int i = size() - 1; i > 0; i--) {
+								if (!pendingUpdate.contains(iterator.next())) {
+									iterator.remove();
+									break;
+								}
+							}
+						}
+						return false;
+					}
+				};
+				resultCache.put(context, results);
+			}
+			results.put(element, result);
+		}
+	}
+
+	private void clearResultCache() {
+		synchronized (resultCache) {
+			resultCache.clear();
 		}
-		results.put(element, result);
 	}
 
 	/**
 	 * Execute a label update using the pending decorations.
 	 */
-	synchronized void decorated() {
+	void decorated() {
 
 		// Don't bother if we are shutdown now
 		if (shutdown) {
 			return;
 		}
 
-		// Lazy initialize the job
-		if (updateJob == null) {
-			updateJob = getUpdateJob();
-		}
+		synchronized (updateJobLock) {
+			// Lazy initialize the job
+			if (updateJob == null) {
+				updateJob = getUpdateJob();
+			}
 
-		// Give it a bit of a lag for other updates to occur
-		updateJob.schedule(UPDATE_DELAY);
+			// Give it a bit of a lag for other updates to occur
+			updateJob.schedule(UPDATE_DELAY);
+		}
 	}
 
 	/**
 	 * Shutdown the decoration.
 	 */
-	synchronized void shutdown() {
+	void shutdown() {
 		shutdown = true;
 	}
 
 	/**
-	 * Get the next resource to be decorated.
+	 * Get the next resource to be decorated. {@link #elementDecorated()} must
+	 * be called once it has been decorated.
 	 * 
 	 * @return IResource
 	 */
-	synchronized DecorationReference nextElement() {
+	DecorationReference nextElement() {
 
-		if (shutdown || awaitingDecoration.isEmpty()) {
+		if (shutdown) {
 			return null;
 		}
-		Object element = awaitingDecoration.remove(0);
+		Object element;
+		while ((element = awaitingDecoration.poll()) != null) {
+			synchronized (getReferenceLock(element)) {
+				DecorationReference reference = (DecorationReference) awaitingDecorationValues
+						.remove(element);
+				if (reference != null) {
+					activeDecorations.incrementAndGet();
+					return reference;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The element returned by {@link #nextElement()} has been decorated.
+	 */
+	void elementDecorated() {
+		activeDecorations.decrementAndGet();
+	}
 
-		return (DecorationReference) awaitingDecorationValues.remove(element);
+	/**
+	 * Return the number of jobs computing lightweight decorations.
+	 */
+	private static int getDecorationJobCount() {
+		int count = WorkbenchPlugin.getDefault().getPreferenceStore().getInt(
+				IPreferenceConstants.DECORATION_WORKERS);
+		return Math.max(1, Math.min(count, Runtime.getRuntime()
+				.availableProcessors()));
 	}
 
 	/**
-	 * Create the Thread used for running decoration.
+	 * Create the Jobs used for running decoration.
 	 */
-	private void createDecorationJob() {
-		decorationJob = new Job(
+	private void createDecorationJobs() {
+		decorationJobs = new Job[getDecorationJobCount()];
+		for (int i = 0; i < decorationJobs.length; i++) {
+			decorationJobs[i] = createDecorationJob();
+			decorationJobs[i].schedule();
+		}
+	}
+
+	/**
+	 * Create a Job used for running decoration.
+	 */
+	private Job createDecorationJob() {
+		Job decorationJob = new Job(
 				WorkbenchMessages.DecorationScheduler_CalculationJobName) {
 			/*
 			 * (non-Javadoc)
@@ -291,10 +414,8 @@ public class DecorationScheduler {
 			@Override
 			public IStatus run(IProgressMonitor monitor) {
 
-				synchronized (DecorationScheduler.this) {
-					if (shutdown) {
-						return Status.CANCEL_STATUS;
-					}
+				if (shutdown) {
+					return Status.CANCEL_STATUS;
 				}
 
 				while (updatesPending()) {
@@ -327,17 +448,23 @@ public class DecorationScheduler {
 					Object element = reference.getElement();
 					boolean force = reference.shouldForceUpdate();
 					IDecorationContext[] contexts = reference.getContexts();
-					for (int i = 0; i < contexts.length; i++) {
-						IDecorationContext context = contexts[i];
-						ensureResultCached(element, force, context);
+					try {
+						for (int i = 0; i < contexts.length; i++) {
+							IDecorationContext context = contexts[i];
+							ensureResultCached(element, force, context);
+						}
+					} finally {
+						elementDecorated();
 					}
 
 					// Only notify listeners when we have exhausted the
-					// queue of decoration requests.
-					synchronized (DecorationScheduler.this) {
-						if (awaitingDecoration.isEmpty()) {
-							decorated();
-						}
+					// queue of decoration requests, or when enough
+					// decorations are ready and no update is pending.
+					if (awaitingDecoration.isEmpty()) {
+						decorated();
+					} else if (pendingUpdateCount() >= UPDATE_BATCH_SIZE
+							&& !updatesPending()) {
+						decorated();
 					}
 				}
 				monitor.worked(100 - workCount);
@@ -357,12 +484,14 @@ public class DecorationScheduler {
 			 */
 			private void ensureResultCached(Object element, boolean force,
 					IDecorationContext context) {
-				boolean elementIsCached = internalGetResult(element, context) != null;
-				if (elementIsCached) {
-					synchronized (pendingKey) {
-						pendingUpdate.add(element);
+				boolean elementIsCached;
+				synchronized (resultCache) {
+					elementIsCached = internalGetResult(element, context) != null;
+					if (elementIsCached) {
+						synchronized (pendingKey) {
+							pendingUpdate.add(element);
+						}
 					}
-
 				}
 
 				if (!elementIsCached) {
@@ -385,16 +514,17 @@ public class DecorationScheduler {
 						// Add the decoration even if it's empty in
 						// order to indicate that the decoration is
 						// ready
-						internalPutResult(element, context, cacheResult
-								.createResult());
-
-						// Add an update for only the original element
-						// to
-						// prevent multiple updates and clear the cache.
-						synchronized (pendingKey) {
-							pendingUpdate.add(element);
+						synchronized (resultCache) {
+							internalPutResult(element, context, cacheResult
+									.createResult());
+
+							// Add an update for only the original element
+							// to
+							// prevent multiple updates and clear the cache.
+							synchronized (pendingKey) {
+								pendingUpdate.add(element);
+							}
 						}
-						
 
 					}
 				}
@@ -423,7 +553,13 @@ public class DecorationScheduler {
 
 		decorationJob.setSystem(true);
 		decorationJob.setPriority(Job.DECORATE);
-		decorationJob.schedule();
+		return decorationJob;
+	}
+
+	private int pendingUpdateCount() {
+		synchronized (pendingKey) {
+			return pendingUpdate.size();
+		}
 	}
 
 	/**
@@ -463,7 +599,7 @@ public class DecorationScheduler {
 			 */
 			@Override
 			protected IStatus run(IProgressMonitor monitor) {
-				resultCache.clear();
+				clearResultCache();
 				return Status.OK_STATUS;
 			}
 
@@ -501,10 +637,8 @@ public class DecorationScheduler {
 			@Override
 			public IStatus runInUIThread(IProgressMonitor monitor) {
 
-				synchronized (DecorationScheduler.this) {
-					if (shutdown) {
-						return Status.CANCEL_STATUS;
-					}
+				if (shutdown) {
+					return Status.CANCEL_STATUS;
 				}
 
 				// If this is the first one check again in case
@@ -569,8 +703,9 @@ public class DecorationScheduler {
                 // Other decoration requests may have occurred due to
                 // updates or we may have timed out updating listeners.
                 // Only clear the results if there are none pending.
-                if (awaitingDecoration.isEmpty()) {
-                    resultCache.clear();
+                if (awaitingDecoration.isEmpty()
+                        && activeDecorations.get() == 0) {
+                    clearResultCache();
                 }
             }
             
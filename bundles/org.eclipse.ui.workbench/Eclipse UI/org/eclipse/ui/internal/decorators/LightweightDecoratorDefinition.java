@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -102,7 +102,7 @@ class LightweightDecoratorDefinition extends DecoratorDefinition implements
 	 * 
 	 * @return Returns a ILabelDecorator
 	 */
-	protected ILightweightLabelDecorator internalGetDecorator()
+	protected synchronized ILightweightLabelDecorator internalGetDecorator()
 			throws CoreException {
 		if (labelProviderCreationFailed) {
 			return null;
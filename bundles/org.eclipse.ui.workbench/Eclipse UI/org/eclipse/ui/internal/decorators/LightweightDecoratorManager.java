@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,7 +36,8 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * The runnable is the object used to run the decorations so that an error
 	 * in someones decorator will not kill the thread. It is implemented here to
 	 * prevent aborting of decoration i.e. successful decorations will still be
-	 * applied.
+	 * applied. A runnable is created for each decoration, as decorations may
+	 * be computed by several threads.
 	 */
 
 	private class LightweightRunnable implements ISafeRunnable {
@@ -46,7 +47,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 
 		private LightweightDecoratorDefinition decorator;
 
-		void setValues(Object object, DecorationBuilder builder,
+		LightweightRunnable(Object object, DecorationBuilder builder,
 				LightweightDecoratorDefinition definition) {
 			element = object;
 			decoration = builder;
@@ -96,8 +97,6 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 		}
 	}
 
-	private LightweightRunnable runnable = new LightweightRunnable();
-
 	// The lightweight definitions read from the registry
 	private LightweightDecoratorDefinition[] lightweightDefinitions;
 
@@ -266,7 +265,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * Reset any cached values.
 	 */
 	void reset() {
-		runnable.clearReferences();
+		// Nothing is cached, the runnables are not shared
 	}
 
 	/**
@@ -303,7 +302,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	/**
 	 * Get the lightweight registered for elements of this type.
 	 */
-	LightweightDecoratorDefinition[] getDecoratorsFor(Object element) {
+	synchronized LightweightDecoratorDefinition[] getDecoratorsFor(Object element) {
 
 		if (element == null) {
 			return EMPTY_LIGHTWEIGHT_DEF;
@@ -363,8 +362,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	private void decorate(Object element, DecorationBuilder decoration,
 			LightweightDecoratorDefinition decorator) {
 
-		runnable.setValues(element, decoration, decorator);
-		SafeRunner.run(runnable);
+		SafeRunner.run(new LightweightRunnable(element, decoration, decorator));
 	}
 
 	
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,12 @@
 package org.eclipse.ui.internal.quickaccess;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import org.eclipse.jface.bindings.TriggerSequence;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.layout.GridDataFactory;
@@ -80,6 +84,8 @@ public abstract class QuickAccessContents {
 
 	private QuickAccessProvider[] providers;
 
+	private final QuickAccessIndex index = new QuickAccessIndex();
+
 	protected Table table;
 	protected Label infoLabel;
 
@@ -299,6 +305,9 @@ public abstract class QuickAccessContents {
 
 		int maxCount = computeNumberOfItems();
 		int[] indexPerProvider = new int[providers.length];
+		// positions of the elements that may match the filter, per provider
+		int[][] candidatesPerProvider = new int[providers.length][];
+		Map<String, Integer> pickRanks = filter.length() > 0 ? getPickRanks() : null;
 		int countPerProvider = Math.min(maxCount / 4,
 				INITIAL_COUNT_PER_PROVIDER);
 		int countTotal = 0;
@@ -315,20 +324,29 @@ public abstract class QuickAccessContents {
 			done = true;
 			for (int i = 0; i < providers.length
 					&& (showAllMatches || countTotal < maxCount); i++) {
+				QuickAccessProvider provider = providers[i];
 				if (entries[i] == null) {
 					entries[i] = new ArrayList<QuickAccessEntry>();
 					indexPerProvider[i] = 0;
+					if (filter.length() > 0) {
+						candidatesPerProvider[i] = index.getCandidates(provider,
+								provider.getElementsSorted(), filter);
+					}
 				}
 				int count = 0;
-				QuickAccessProvider provider = providers[i];
 				if (filter.length() > 0 || provider.isAlwaysPresent() || showAllMatches) {
 					QuickAccessElement[] sortedElements = provider.getElementsSorted();
+					int[] candidates = candidatesPerProvider[i];
+					int candidateCount = candidates == null ? sortedElements.length
+							: candidates.length;
 					List<QuickAccessEntry> poorFilterMatches = new ArrayList<QuickAccessEntry>();
+					int firstEntry = entries[i].size();
 					
 					int j = indexPerProvider[i];
-					while (j < sortedElements.length
+					while (j < candidateCount
 							&& (showAllMatches || (count < countPerProvider && countTotal < maxCount))) {
-						QuickAccessElement element = sortedElements[j];
+						QuickAccessElement element = sortedElements[candidates == null ? j
+								: candidates[j]];
 						QuickAccessEntry entry = null;
 						if (filter.length() == 0) {
 							if (i == 0 || showAllMatches) {
@@ -378,7 +396,10 @@ public abstract class QuickAccessContents {
 							maxCount = MAX_COUNT_TOTAL;
 						}
 					}
-					if (j < sortedElements.length) {
+					if (pickRanks != null && !(provider instanceof PreviousPicksProvider)) {
+						rankEntries(entries[i].subList(firstEntry, entries[i].size()), pickRanks);
+					}
+					if (j < candidateCount) {
 						done = false;
 					}
 				}
@@ -399,6 +420,56 @@ public abstract class QuickAccessContents {
 		return entries;
 	}
 
+	/**
+	 * Returns the position of the previously picked elements in the history,
+	 * the most recent first, by provider and element id.
+	 */
+	private Map<String, Integer> getPickRanks() {
+		Map<String, Integer> ranks = new HashMap<String, Integer>();
+		for (QuickAccessProvider provider : providers) {
+			if (provider instanceof PreviousPicksProvider) {
+				QuickAccessElement[] elements = provider.getElements();
+				for (int i = 0; i < elements.length; i++) {
+					String key = getPickKey(elements[i]);
+					if (!ranks.containsKey(key)) {
+						ranks.put(key, Integer.valueOf(i));
+					}
+				}
+			}
+		}
+		return ranks;
+	}
+
+	private static String getPickKey(QuickAccessElement element) {
+		return element.getProvider().getId() + '/' + element.getId();
+	}
+
+	/**
+	 * Sorts the given entries by match quality, then by their position in the
+	 * history of previous picks. Entries of the same rank keep their order.
+	 */
+	private static void rankEntries(List<QuickAccessEntry> entries,
+			final Map<String, Integer> pickRanks) {
+		if (entries.size() < 2) {
+			return;
+		}
+		Collections.sort(entries, new Comparator<QuickAccessEntry>() {
+			@Override
+			public int compare(QuickAccessEntry entry1, QuickAccessEntry entry2) {
+				int result = entry1.getMatchQuality() - entry2.getMatchQuality();
+				if (result == 0) {
+					result = getPickRank(entry1) - getPickRank(entry2);
+				}
+				return result;
+			}
+
+			private int getPickRank(QuickAccessEntry entry) {
+				Integer rank = pickRanks.get(getPickKey(entry.element));
+				return rank == null ? Integer.MAX_VALUE : rank.intValue();
+			}
+		});
+	}
+
 	/**
 	 * @param provider
 	 * @param entry
@@ -710,6 +781,18 @@ public abstract class QuickAccessContents {
 		return infoLabel;
 	}
 
+	/**
+	 * Indexes the elements of the providers in the background, so that the
+	 * first searches only need to match the elements that may match them.
+	 * Resets the providers.
+	 */
+	public void prepareIndex() {
+		for (QuickAccessProvider provider : providers) {
+			index.prepare(provider);
+		}
+		resetProviders();
+	}
+
 	public void resetProviders() {
 		for (QuickAccessProvider provider : providers) {
 			provider.reset();
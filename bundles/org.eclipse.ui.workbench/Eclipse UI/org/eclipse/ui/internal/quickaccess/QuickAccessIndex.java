@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.quickaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * An n-gram index of the elements of the quick access providers, used to
+ * narrow down the elements that need to be matched against a filter.
+ * <p>
+ * For every element of a provider, the index maps the character pairs and
+ * triples of the strings searched by
+ * {@link QuickAccessElement#match(String, QuickAccessProvider)} (the label,
+ * the label prefixed with the provider name, and their camel case initials) to
+ * the position of the element in the sorted elements of the provider. An
+ * element can only match a filter if it has all the n-grams of the filter, so
+ * the candidates of a filter are the intersection of the positions of its
+ * n-grams. The candidates are a superset of the matches and are still matched
+ * one by one.
+ * </p>
+ * <p>
+ * The index of a provider is built in a background job from a snapshot of the
+ * labels of its elements. Providers recreate their elements when they are
+ * reset, so an index stays valid as long as the labels of the elements are
+ * the same, and is rebuilt when they change (for example after a plug-in
+ * contributed new commands). Until the index of a provider is built, all its
+ * elements are candidates.
+ * </p>
+ * <p>
+ * The methods of this class must be called in the UI thread.
+ * </p>
+ *
+ * @since 3.106
+ */
+final class QuickAccessIndex {
+
+	/**
+	 * Providers with fewer elements are not indexed, matching all their
+	 * elements is cheap enough.
+	 */
+	private static final int MIN_INDEXED_ELEMENTS = 100;
+
+	private static final int[] NO_CANDIDATES = new int[0];
+
+	/**
+	 * The built indexes, by provider. Guarded by this.
+	 */
+	private final Map<QuickAccessProvider, LabelIndex> indexes = new HashMap<QuickAccessProvider, LabelIndex>();
+
+	/**
+	 * The indexes being built, by provider. Guarded by this.
+	 */
+	private final Map<QuickAccessProvider, LabelIndex> pending = new HashMap<QuickAccessProvider, LabelIndex>();
+
+	/**
+	 * The n-grams of the labels of the elements of one provider.
+	 */
+	private static final class LabelIndex {
+
+		/**
+		 * The elements the index was last used for. Only accessed in the UI
+		 * thread.
+		 */
+		QuickAccessElement[] elements;
+
+		final String[] labels;
+
+		final String providerName;
+
+		/**
+		 * The n-grams of the provider name, which are not indexed as every
+		 * element has them.
+		 */
+		Set<String> commonGrams;
+
+		/**
+		 * The ascending positions of the elements having each n-gram.
+		 */
+		Map<String, int[]> positions;
+
+		LabelIndex(QuickAccessElement[] elements, String[] labels, String providerName) {
+			this.elements = elements;
+			this.labels = labels;
+			this.providerName = providerName;
+		}
+
+		/**
+		 * Computes the n-grams of the labels. Called in a background thread.
+		 */
+		void build() {
+			String prefix = (providerName + " ").toLowerCase(); //$NON-NLS-1$
+			Set<String> common = new HashSet<String>();
+			addGrams(prefix, 0, common);
+			Map<String, IntList> lists = new HashMap<String, IntList>();
+			Set<String> grams = new HashSet<String>();
+			for (int i = 0; i < labels.length; i++) {
+				String label = labels[i];
+				String combinedLabel = providerName + " " + label; //$NON-NLS-1$
+				String lowerCombinedLabel = combinedLabel.toLowerCase();
+				// the n-grams within the provider name are common to all
+				// elements
+				addGrams(lowerCombinedLabel,
+						lowerCombinedLabel.startsWith(prefix) ? prefix.length() : 0, grams);
+				addGrams(label.toLowerCase(), 0, grams);
+				addGrams(CamelUtil.getCamelCase(label), 0, grams);
+				addGrams(CamelUtil.getCamelCase(combinedLabel), 0, grams);
+				for (Iterator<String> iterator = grams.iterator(); iterator.hasNext();) {
+					String gram = iterator.next();
+					IntList list = lists.get(gram);
+					if (list == null) {
+						list = new IntList();
+						lists.put(gram, list);
+					}
+					list.add(i);
+				}
+				grams.clear();
+			}
+			Map<String, int[]> result = new HashMap<String, int[]>(lists.size() * 4 / 3 + 1);
+			for (Iterator<Map.Entry<String, IntList>> iterator = lists.entrySet().iterator(); iterator
+					.hasNext();) {
+				Map.Entry<String, IntList> entry = iterator.next();
+				result.put(entry.getKey(), entry.getValue().toArray());
+			}
+			commonGrams = common;
+			positions = result;
+		}
+
+		/**
+		 * Returns the ascending positions of the elements that may match the
+		 * given filter, or <code>null</code> if every element may match it.
+		 */
+		int[] getCandidates(String filter) {
+			int length = gramLength(filter);
+			List<int[]> lists = new ArrayList<int[]>();
+			for (int i = 0; i + length <= filter.length(); i++) {
+				String gram = filter.substring(i, i + length);
+				if (commonGrams.contains(gram)) {
+					continue;
+				}
+				int[] list = positions.get(gram);
+				if (list == null) {
+					return NO_CANDIDATES;
+				}
+				lists.add(list);
+			}
+			if (lists.isEmpty()) {
+				return null;
+			}
+			// start with the rarest n-grams to keep the intersection small
+			Collections.sort(lists, new Comparator<int[]>() {
+				@Override
+				public int compare(int[] list1, int[] list2) {
+					return list1.length - list2.length;
+				}
+			});
+			int[] candidates = lists.get(0);
+			for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+				candidates = intersect(candidates, lists.get(i));
+			}
+			return candidates;
+		}
+	}
+
+	/**
+	 * A growable list of positions.
+	 */
+	private static final class IntList {
+		int[] values = new int[4];
+		int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * Builds the index of the given provider in the background, unless its
+	 * current elements are already indexed.
+	 *
+	 * @param provider
+	 *            the provider to index
+	 */
+	void prepare(QuickAccessProvider provider) {
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		if (elements.length >= MIN_INDEXED_ELEMENTS) {
+			getIndex(provider, elements);
+		}
+	}
+
+	/**
+	 * Returns the positions of the elements of the given provider that may
+	 * match the given filter. The elements at the other positions do not match
+	 * it.
+	 *
+	 * @param provider
+	 *            the provider
+	 * @param elements
+	 *            the sorted elements of the provider
+	 * @param filter
+	 *            the lower case filter
+	 * @return the ascending positions of the candidates in the elements, or
+	 *         <code>null</code> if all the elements are candidates
+	 */
+	int[] getCandidates(QuickAccessProvider provider, QuickAccessElement[] elements, String filter) {
+		if (elements.length < MIN_INDEXED_ELEMENTS || filter.length() < 2) {
+			return null;
+		}
+		LabelIndex index = getIndex(provider, elements);
+		return index == null ? null : index.getCandidates(filter);
+	}
+
+	/**
+	 * Returns the built index of the given elements, scheduling it to be built
+	 * if needed.
+	 */
+	private LabelIndex getIndex(QuickAccessProvider provider, QuickAccessElement[] elements) {
+		LabelIndex index;
+		synchronized (this) {
+			index = indexes.get(provider);
+			if (index != null && index.elements == elements) {
+				return index;
+			}
+			LabelIndex building = pending.get(provider);
+			if (building != null && building.elements == elements) {
+				return null;
+			}
+		}
+		String[] labels = new String[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			labels[i] = elements[i].getLabel();
+		}
+		String providerName = provider.getName();
+		if (index != null && index.providerName.equals(providerName)
+				&& Arrays.equals(index.labels, labels)) {
+			// the provider was reset but has the same elements
+			index.elements = elements;
+			return index;
+		}
+		schedule(provider, new LabelIndex(elements, labels, providerName));
+		return null;
+	}
+
+	private void schedule(final QuickAccessProvider provider, final LabelIndex index) {
+		synchronized (this) {
+			LabelIndex building = pending.get(provider);
+			if (building != null && building.providerName.equals(index.providerName)
+					&& Arrays.equals(building.labels, index.labels)) {
+				building.elements = index.elements;
+				return;
+			}
+			pending.put(provider, index);
+		}
+		Job job = new Job(QuickAccessMessages.QuickAccess_IndexingJob) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				index.build();
+				synchronized (QuickAccessIndex.this) {
+					// a newer index may have been scheduled meanwhile
+					if (pending.get(provider) == index) {
+						pending.remove(provider);
+						indexes.put(provider, index);
+					}
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.SHORT);
+		job.schedule();
+	}
+
+	private static int gramLength(String filter) {
+		return filter.length() >= 3 ? 3 : 2;
+	}
+
+	/**
+	 * Adds the pairs and triples of characters of the given string that do not
+	 * end before the given index.
+	 */
+	private static void addGrams(String s, int from, Set<String> grams) {
+		for (int length = 2; length <= 3; length++) {
+			for (int i = Math.max(0, from - length + 1); i + length <= s.length(); i++) {
+				grams.add(s.substring(i, i + length));
+			}
+		}
+	}
+
+	private static int[] intersect(int[] list1, int[] list2) {
+		int[] result = new int[Math.min(list1.length, list2.length)];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < list1.length && j < list2.length) {
+			if (list1[i] < list2[j]) {
+				i++;
+			} else if (list1[i] > list2[j]) {
+				j++;
+			} else {
+				result[size++] = list1[i];
+				i++;
+				j++;
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+}
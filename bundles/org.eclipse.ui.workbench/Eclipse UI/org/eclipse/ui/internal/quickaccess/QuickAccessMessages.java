@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2013 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,6 +33,7 @@ public class QuickAccessMessages extends NLS {
 	public static String QuickAccess_AvailableCategories;
 	public static String QuickAccess_EnterSearch;
 	public static String QuickAccess_SelectedString;
+	public static String QuickAccess_IndexingJob;
 	public static String QuickAccessContents_NoMatchingResults;
 	public static String QuickAccessContents_PressKeyToLimitResults;
 	public static String QuickAccessContents_QuickAccess;
@@ -26,6 +26,10 @@ import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionInfo;
 import org.eclipse.core.expressions.IEvaluationContext;
 import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.ui.basic.MPart;
@@ -69,6 +73,7 @@ import org.eclipse.ui.ISources;
 import org.eclipse.ui.IWorkbenchCommandConstants;
 import org.eclipse.ui.handlers.IHandlerService;
 import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.progress.WorkbenchJob;
 import org.eclipse.ui.swt.IFocusService;
 
 
@@ -82,6 +87,11 @@ public class SearchField {
 	private static final int MAXIMUM_NUMBER_OF_TEXT_ENTRIES_PER_ELEMENT = 3;
 	private static final String DIALOG_HEIGHT = "dialogHeight"; //$NON-NLS-1$
 	private static final String DIALOG_WIDTH = "dialogWidth"; //$NON-NLS-1$
+	/**
+	 * Delay in milliseconds before the elements are indexed, to stay out of
+	 * the way of the workbench startup.
+	 */
+	private static final long INDEX_DELAY = 5000;
 
 	Shell shell;
 	private Text text;
@@ -210,6 +220,7 @@ public class SearchField {
 		});
 		GridLayoutFactory.fillDefaults().applyTo(shell);
 		table = quickAccessContents.createTable(shell, Window.getDefaultOrientation());
+		scheduleIndexing();
 		text.addFocusListener(new FocusListener() {
 			@Override
 			public void focusLost(FocusEvent e) {
@@ -507,6 +518,27 @@ public class SearchField {
 		text.getAccessible().sendEvent(ACC.EVENT_NAME_CHANGED, null);
 	}
 
+	/**
+	 * Indexes the quick access elements in the background once the workbench
+	 * has started, so that the first search does not have to match every
+	 * element.
+	 */
+	private void scheduleIndexing() {
+		Job job = new WorkbenchJob(QuickAccessMessages.QuickAccess_IndexingJob) {
+			@Override
+			public IStatus runInUIThread(IProgressMonitor monitor) {
+				// the providers are reset once indexed, leave them alone while
+				// they are in use
+				if (!shell.isDisposed() && !shell.isVisible()) {
+					quickAccessContents.prepareIndex();
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule(INDEX_DELAY);
+	}
+
 	private void restoreDialog() {
 		IDialogSettings dialogSettings = getDialogSettings();
 		if (dialogSettings != null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2009 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,15 @@ import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.IJobChangeListener;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.viewers.AbstractTreeViewer;
+import org.eclipse.jface.viewers.IAsyncTreeContentProvider;
+import org.eclipse.jface.viewers.IChildrenCollector;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.widgets.Control;
@@ -42,6 +45,10 @@ import org.eclipse.ui.model.IWorkbenchAdapter;
  * the expandable state indicator for the performance benefits of deferring
  * content.
  * 
+ * Content providers implementing {@link IAsyncTreeContentProvider} can delegate
+ * to {@link #fetchChildren(Object, IChildrenCollector)}, in which case the
+ * viewer shows the pending node and cancels the fetches itself.
+ * 
  * @see IDeferredWorkbenchAdapter
  * @since 3.0
  */
@@ -181,6 +188,54 @@ public class DeferredTreeContentManager {
 		return new Object[] { placeholder };
 	}
 
+	/**
+	 * Starts fetching the children of the given element in a job, for an
+	 * {@link IAsyncTreeContentProvider}. The children are passed to the
+	 * collector as the {@link IDeferredWorkbenchAdapter} of the element
+	 * provides them, and the job is canceled when the collector is.
+	 * 
+	 * @param parent
+	 *            The parent object.
+	 * @param collector
+	 *            The collector of the viewer.
+	 * @return <code>true</code> if the children are being fetched,
+	 *         <code>false</code> if parent is not an instance of
+	 *         IDeferredWorkbenchAdapter.
+	 * @since 3.106
+	 */
+	public boolean fetchChildren(final Object parent,
+			final IChildrenCollector collector) {
+		IDeferredWorkbenchAdapter adapter = getAdapter(parent);
+		if (adapter == null) {
+			return false;
+		}
+		IElementCollector elementCollector = new IElementCollector() {
+			@Override
+			public void add(Object element, IProgressMonitor monitor) {
+				collector.add(new Object[] { element });
+			}
+
+			@Override
+			public void add(Object[] elements, IProgressMonitor monitor) {
+				collector.add(elements);
+			}
+
+			@Override
+			public void done() {
+				// the viewer is notified when the job is done
+			}
+		};
+		Job job = createFetchJob(parent, adapter, elementCollector, collector);
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				collector.done();
+			}
+		});
+		schedule(job);
+		return true;
+	}
+
 	/**
 	 * Factory method for creating the pending update adapter representing the
 	 * placeholder node. Subclasses may override.
@@ -226,6 +281,33 @@ public class DeferredTreeContentManager {
 		// Cancel any jobs currently fetching children for the same parent
 		// instance.
 		cancel(parent);
+		Job job = createFetchJob(parent, adapter, collector, null);
+		job.addJobChangeListener(new JobChangeAdapter() {
+			/*
+			 * (non-Javadoc)
+			 * 
+			 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#done(org.eclipse.core.runtime.jobs.IJobChangeEvent)
+			 */
+			@Override
+			public void done(IJobChangeEvent event) {
+				runClearPlaceholderJob(placeholder);
+			}
+		});
+		schedule(job);
+	}
+
+	/**
+	 * Creates the job fetching the children of the given parent into the
+	 * collector.
+	 * 
+	 * @param viewerCollector
+	 *            the collector of the viewer whose cancellation cancels the
+	 *            job, or <code>null</code>
+	 */
+	private Job createFetchJob(final Object parent,
+			final IDeferredWorkbenchAdapter adapter,
+			final IElementCollector collector,
+			final IChildrenCollector viewerCollector) {
 		String jobName = getFetchJobName(parent, adapter);
 		Job job = new Job(jobName) {
 			/*
@@ -235,6 +317,15 @@ public class DeferredTreeContentManager {
 			 */
 			@Override
 			public IStatus run(IProgressMonitor monitor) {
+				if (viewerCollector != null) {
+					monitor = new ProgressMonitorWrapper(monitor) {
+						@Override
+						public boolean isCanceled() {
+							return super.isCanceled()
+									|| viewerCollector.isCanceled();
+						}
+					};
+				}
 				adapter.fetchDeferredChildren(parent, collector, monitor);
 				if (monitor.isCanceled()) {
 					return Status.CANCEL_STATUS;
@@ -298,18 +389,11 @@ public class DeferredTreeContentManager {
 						IWorkbenchAdapter.class);
 			}
 		};
-		job.addJobChangeListener(new JobChangeAdapter() {
-			/*
-			 * (non-Javadoc)
-			 * 
-			 * @see org.eclipse.core.runtime.jobs.JobChangeAdapter#done(org.eclipse.core.runtime.jobs.IJobChangeEvent)
-			 */
-			@Override
-			public void done(IJobChangeEvent event) {
-				runClearPlaceholderJob(placeholder);
-			}
-		});
 		job.setRule(adapter.getRule(parent));
+		return job;
+	}
+
+	private void schedule(Job job) {
 		if (progressService == null) {
 			job.schedule();
 		} else {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013 IBM Corporation and others.
+ * Copyright (c) 2013, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -362,6 +362,35 @@ public class BindingTableTests extends TestCase {
 		assertEquals(about, it.next());
 	}
 
+	public void testManagerLookupAfterTableChange() throws Exception {
+		BindingTableManager manager = createManager();
+		ContextSet javaSet = createJavaSet(manager);
+		KeySequence ctrl7 = KeySequence.getInstance("CTRL+7 R");
+		assertNull(manager.getPerfectMatch(javaSet, ctrl7));
+		assertFalse(manager.isPartialMatch(javaSet,
+				KeySequence.getInstance("CTRL+7")));
+
+		Binding refresh = getTestBinding(REFRESH_ID);
+		Binding binding = new KeyBinding(ctrl7,
+				refresh.getParameterizedCommand(),
+				"org.eclipse.ui.defaultAcceleratorConfiguration", ID_JAVA,
+				null, null, null, Binding.USER);
+		BindingTable table = manager.getTable(ID_JAVA);
+		table.addBinding(binding);
+		try {
+			assertEquals(binding, manager.getPerfectMatch(javaSet, ctrl7));
+			assertTrue(manager.isPartialMatch(javaSet,
+					KeySequence.getInstance("CTRL+7")));
+			assertEquals(2, manager.getSequencesFor(javaSet,
+					refresh.getParameterizedCommand()).size());
+		} finally {
+			table.removeBinding(binding);
+		}
+		assertNull(manager.getPerfectMatch(javaSet, ctrl7));
+		assertEquals(1, manager.getSequencesFor(javaSet,
+				refresh.getParameterizedCommand()).size());
+	}
+
 	private BindingTable loadTable(String contextId) {
 		Context context = contextManager.getContext(contextId);
 		BindingTable table = new BindingTable(context);
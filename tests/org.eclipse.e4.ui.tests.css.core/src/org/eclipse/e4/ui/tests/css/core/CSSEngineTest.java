@@ -10,16 +10,19 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.tests.css.core;
 
+import java.io.StringReader;
 import java.util.Date;
 
 import junit.framework.TestCase;
 
 import org.eclipse.e4.ui.css.core.dom.IElementProvider;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
+import org.eclipse.e4.ui.css.core.impl.engine.CSSComputedStyleCache;
 import org.eclipse.e4.ui.css.core.impl.engine.CSSEngineImpl;
 import org.eclipse.e4.ui.tests.css.core.util.TestElement;
 import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSStyleDeclaration;
 
 public class CSSEngineTest extends TestCase {
 	private static class TestCSSEngine extends CSSEngineImpl {
@@ -42,4 +45,36 @@ public class CSSEngineTest extends TestCase {
 		assertTrue(engine.matches(list.item(0), new Date(), null));
 	}
 
+	public void testComputedStyleCache() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		engine.parseStyleSheet(new StringReader(
+				"Button { color: blue; }\nShell .special { color: red; }"));
+		CSSComputedStyleCache cache = engine.getComputedStyleCache();
+
+		TestElement shell = new TestElement("Shell", engine);
+		TestElement button1 = new TestElement("Button", shell, engine);
+		TestElement button2 = new TestElement("Button", shell, engine);
+		CSSStyleDeclaration style1 = cache.getComputedStyle(button1, null);
+		CSSStyleDeclaration style2 = cache.getComputedStyle(button2, null);
+		assertEquals("color: blue;", style1.getCssText());
+		assertSame(style1, style2);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		button2.setClass("special");
+		assertEquals("red", cache.getComputedStyle(button2, null)
+				.getPropertyCSSValue("color").getCssText());
+		assertEquals(2, cache.getMissCount());
+
+		TestElement label = new TestElement("Label", engine);
+		assertNull(cache.getComputedStyle(label, null));
+		assertNull(cache.getComputedStyle(label, null));
+		assertEquals(3, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+
+		engine.reset();
+		assertEquals(0, cache.size());
+		assertNull(cache.getComputedStyle(button1, null));
+	}
+
 }
@@ -109,6 +109,57 @@ public class ViewCSSTest extends TestCase {
 		assertEquals("color: blue;", buttonStyle.getCssText());
 	}
 
+	public void testIndexedRulesKeepPosition() throws Exception {
+		// Rules filed under different keys of the rule index must still be
+		// merged in style sheet order
+		String css = ".second { color: red; }\n"
+				+ "Button.first { color: blue; }\n"
+				+ "* { font-weight: bold; }\n"
+				+ "Button { font-weight: normal; }\n";
+		ViewCSS viewCSS = createViewCss(css);
+
+		TestElement button = new TestElement("Button", engine);
+		button.setClass("second  first");
+		CSSStyleDeclaration buttonStyle = viewCSS
+				.getComputedStyle(button, null);
+		assertNotNull(buttonStyle);
+		assertEquals("blue", buttonStyle.getPropertyCSSValue("color")
+				.getCssText());
+		assertEquals("normal", buttonStyle.getPropertyCSSValue("font-weight")
+				.getCssText());
+
+		TestElement label = new TestElement("Label", engine);
+		label.setClass("second");
+		CSSStyleDeclaration labelStyle = viewCSS.getComputedStyle(label, null);
+		assertNotNull(labelStyle);
+		assertEquals("red", labelStyle.getPropertyCSSValue("color")
+				.getCssText());
+		assertEquals("bold", labelStyle.getPropertyCSSValue("font-weight")
+				.getCssText());
+	}
+
+	public void testIndexedRulesById() throws Exception {
+		String css = "Shell Button#ok.primary { color: red; }\n"
+				+ "Button.primary { color: blue; }\n";
+		ViewCSS viewCSS = createViewCss(css);
+
+		final TestElement shell = new TestElement("Shell", engine);
+		final TestElement button = new TestElement("Button", shell, engine);
+		button.setClass("primary");
+		CSSStyleDeclaration buttonStyle = viewCSS
+				.getComputedStyle(button, null);
+		assertEquals("color: blue;", buttonStyle.getCssText());
+
+		button.setId("ok");
+		buttonStyle = viewCSS.getComputedStyle(button, null);
+		assertEquals("red", buttonStyle.getPropertyCSSValue("color")
+				.getCssText());
+
+		final TestElement orphan = new TestElement("Button", engine);
+		orphan.setId("ok");
+		assertNull(viewCSS.getComputedStyle(orphan, null));
+	}
+
 	private static ViewCSS createViewCss(String css) throws IOException {
 		CSSStyleSheet styleSheet = ParserTestUtil.parseCss(css);
 		DocumentCSSImpl docCss = new DocumentCSSImpl();
@@ -15,7 +15,6 @@ import java.util.Map;
 
 import org.eclipse.e4.ui.css.core.dom.ElementAdapter;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
-import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -35,7 +34,7 @@ public class TestElement extends ElementAdapter {
 		this.typeName = type;
 	}
 
-	public TestElement(String type, TestElement parent, CSSSWTEngineImpl engine) {
+	public TestElement(String type, TestElement parent, CSSEngine engine) {
 		this(type, engine);
 		this.parentNode = parent;
 	}
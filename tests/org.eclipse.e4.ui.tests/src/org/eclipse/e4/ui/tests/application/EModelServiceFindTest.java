@@ -433,4 +433,115 @@ public class EModelServiceFindTest extends TestCase {
 		assertEquals(1, elements.size());
 		assertEquals(part, elements.get(0));
 	}
+
+	public void testFindElementsAfterModelChanges() {
+		MApplication application = createApplication();
+		MWindow window = (MWindow) modelService.find("singleValidId",
+				application);
+		assertNotNull(window);
+
+		MPart part = modelService.createModelElement(MPart.class);
+		part.setElementId("changingId");
+		window.getChildren().add(part);
+		assertSame(part, modelService.find("changingId", application));
+
+		part.setElementId("changedId");
+		assertNull(modelService.find("changingId", application));
+		assertSame(part, modelService.find("changedId", application));
+
+		part.getTags().add("changingTag");
+		List<String> tags = new ArrayList<String>();
+		tags.add("changingTag");
+		assertEquals(1,
+				modelService.findElements(application, null, null, tags)
+						.size());
+		part.getTags().remove("changingTag");
+		assertEquals(0,
+				modelService.findElements(application, null, null, tags)
+						.size());
+
+		window.getChildren().remove(part);
+		assertNull(modelService.find("changedId", application));
+	}
+
+	public void testFindSharedElements() {
+		MApplication application = createApplication();
+		MWindow window = modelService.createModelElement(MWindow.class);
+		application.getChildren().add(window);
+
+		MPerspectiveStack perspectiveStack = modelService
+				.createModelElement(MPerspectiveStack.class);
+		window.getChildren().add(perspectiveStack);
+
+		MPerspective perspectiveA = modelService
+				.createModelElement(MPerspective.class);
+		perspectiveStack.getChildren().add(perspectiveA);
+
+		MPerspective perspectiveB = modelService
+				.createModelElement(MPerspective.class);
+		perspectiveStack.getChildren().add(perspectiveB);
+		perspectiveStack.setSelectedElement(perspectiveB);
+
+		MPart part = modelService.createModelElement(MPart.class);
+		part.setElementId("sharedPart");
+		window.getSharedElements().add(part);
+		assertNull(modelService.find("sharedPart", window));
+
+		MPlaceholder placeholderA = modelService
+				.createModelElement(MPlaceholder.class);
+		placeholderA.setElementId("sharedPart");
+		placeholderA.setRef(part);
+		perspectiveA.getChildren().add(placeholderA);
+
+		MPlaceholder placeholderB = modelService
+				.createModelElement(MPlaceholder.class);
+		placeholderB.setElementId("sharedPart");
+		placeholderB.setRef(part);
+		perspectiveB.getChildren().add(placeholderB);
+
+		List<MUIElement> elements = modelService.findElements(window,
+				"sharedPart", null, null);
+		assertEquals(3, elements.size());
+		assertSame(placeholderA, elements.get(0));
+		assertSame(part, elements.get(1));
+		assertSame(placeholderB, elements.get(2));
+
+		elements = modelService.findElements(window, "sharedPart", null, null,
+				EModelService.PRESENTATION);
+		assertEquals(2, elements.size());
+		assertSame(placeholderB, elements.get(0));
+		assertSame(part, elements.get(1));
+
+		assertSame(placeholderB, modelService.findPlaceholderFor(window, part));
+		perspectiveStack.setSelectedElement(perspectiveA);
+		assertSame(placeholderA, modelService.findPlaceholderFor(window, part));
+
+		placeholderA.setRef(null);
+		assertNull(modelService.findPlaceholderFor(window, part));
+	}
+
+	public void testFindElementsThroughDetachedRef() {
+		MApplication application = createApplication();
+		MWindow window = (MWindow) modelService.find("singleValidId",
+				application);
+
+		// the referenced stack is not contained in the application
+		MPartStack stack = modelService.createModelElement(MPartStack.class);
+		MPart part = modelService.createModelElement(MPart.class);
+		part.setElementId("detachedPart");
+		stack.getChildren().add(part);
+
+		MPlaceholder placeholder = modelService
+				.createModelElement(MPlaceholder.class);
+		placeholder.setRef(stack);
+		window.getChildren().add(placeholder);
+
+		assertSame(part, modelService.find("detachedPart", application));
+		assertSame(placeholder,
+				modelService.findPlaceholderFor(window, stack));
+
+		// once the stack is part of the application, it is indexed
+		window.getSharedElements().add(stack);
+		assertSame(part, modelService.find("detachedPart", application));
+	}
 }
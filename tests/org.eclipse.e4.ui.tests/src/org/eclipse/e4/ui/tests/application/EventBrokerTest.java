@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012 Brian de Alwis and others.
+ * Copyright (c) 2012, 2014 Brian de Alwis and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,21 @@
 
 package org.eclipse.e4.ui.tests.application;
 
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.workbench.UIEvents;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 
 /**
@@ -22,6 +33,9 @@ import org.osgi.service.event.EventHandler;
  */
 public class EventBrokerTest extends UITest {
 	private static final String TEST_TOPIC = "test/EventBrokerTest";
+	private static final String MODEL_TOPIC = "org/eclipse/e4/ui/model/ui/UILabel/label/SET";
+	private static final String OTHER_MODEL_TOPIC = "org/eclipse/e4/ui/model/ui/UILabel/tooltip/SET";
+	private static final String LAST_MODEL_TOPIC = "org/eclipse/e4/ui/model/ui/UILabel/iconURI/SET";
 
 	private AtomicInteger seen;
 	private IEclipseContext context;
@@ -104,4 +118,174 @@ public class EventBrokerTest extends UITest {
 		assertEquals("subscription was not removed", 2, seen.get());
 	}
 
+	/**
+	 * UI model events are dispatched locally to exact and wildcard
+	 * subscriptions
+	 */
+	public void testModelTopics() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		final AtomicInteger wildcard = new AtomicInteger(0);
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				if (MODEL_TOPIC.equals(event.getTopic())) {
+					seen.incrementAndGet();
+				}
+			}
+		};
+		EventHandler wildcardHandler = new EventHandler() {
+			public void handleEvent(Event event) {
+				wildcard.incrementAndGet();
+			}
+		};
+		eb.subscribe(MODEL_TOPIC, handler);
+		eb.subscribe(UIEvents.UILabel.TOPIC_ALL, wildcardHandler);
+
+		eb.send(MODEL_TOPIC, new Object());
+		assertEquals(1, seen.get());
+		assertEquals(1, wildcard.get());
+
+		eb.send(OTHER_MODEL_TOPIC, new Object());
+		assertEquals(1, seen.get());
+		assertEquals(2, wildcard.get());
+
+		eb.unsubscribe(handler);
+		eb.send(MODEL_TOPIC, new Object());
+		assertEquals("subscription was not removed", 1, seen.get());
+		assertEquals(3, wildcard.get());
+		eb.unsubscribe(wildcardHandler);
+	}
+
+	/**
+	 * UI model events still reach filtered subscriptions and the handlers
+	 * registered directly with EventAdmin
+	 */
+	public void testModelTopicsExternalSubscribers() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		final AtomicInteger external = new AtomicInteger(0);
+		EventHandler filtered = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+		eb.subscribe(MODEL_TOPIC, "(" + IEventBroker.DATA + "=match)",
+				filtered, true);
+
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(EventConstants.EVENT_TOPIC, UIEvents.UILabel.TOPIC_ALL);
+		ServiceRegistration<?> registration = FrameworkUtil
+				.getBundle(getClass())
+				.getBundleContext()
+				.registerService(EventHandler.class.getName(),
+						new EventHandler() {
+							public void handleEvent(Event event) {
+								external.incrementAndGet();
+							}
+						}, properties);
+		try {
+			eb.send(MODEL_TOPIC, "match");
+			assertEquals(1, seen.get());
+			assertEquals(1, external.get());
+
+			eb.send(MODEL_TOPIC, "no match");
+			assertEquals(1, seen.get());
+			assertEquals(2, external.get());
+		} finally {
+			registration.unregister();
+			eb.unsubscribe(filtered);
+		}
+
+		eb.send(MODEL_TOPIC, "match");
+		assertEquals(1, seen.get());
+		assertEquals(2, external.get());
+	}
+
+	/**
+	 * UI model events sent directly through EventAdmin reach the subscribers
+	 * of the broker, and the events of the broker are not delivered twice when
+	 * they are forwarded to EventAdmin
+	 */
+	public void testModelTopicsFromEventAdmin() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+		eb.subscribe(MODEL_TOPIC, null, handler, true);
+
+		BundleContext bundleContext = FrameworkUtil.getBundle(getClass())
+				.getBundleContext();
+		ServiceReference<EventAdmin> reference = bundleContext
+				.getServiceReference(EventAdmin.class);
+		assertNotNull(reference);
+		EventAdmin eventAdmin = bundleContext.getService(reference);
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(EventConstants.EVENT_TOPIC, MODEL_TOPIC);
+		ServiceRegistration<?> registration = bundleContext.registerService(
+				EventHandler.class.getName(), new EventHandler() {
+					public void handleEvent(Event event) {
+					}
+				}, properties);
+		try {
+			eventAdmin.sendEvent(new Event(MODEL_TOPIC,
+					new Hashtable<String, Object>()));
+			assertEquals(1, seen.get());
+
+			// forwarded to the external handler, dispatched locally once
+			eb.send(MODEL_TOPIC, new Object());
+			assertEquals(2, seen.get());
+		} finally {
+			registration.unregister();
+			bundleContext.ungetService(reference);
+			eb.unsubscribe(handler);
+		}
+	}
+
+	/**
+	 * A posted UI model event is not delivered to a subscription removed
+	 * before the event is dispatched
+	 */
+	public void testPostAfterUnsubscribe() throws InterruptedException {
+		IEventBroker eb = context.get(IEventBroker.class);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		EventHandler blocking = new EventHandler() {
+			public void handleEvent(Event event) {
+				if (MODEL_TOPIC.equals(event.getTopic())) {
+					blocked.countDown();
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				} else if (!OTHER_MODEL_TOPIC.equals(event.getTopic())) {
+					done.countDown();
+				}
+			}
+		};
+		EventHandler removed = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+		eb.subscribe(UIEvents.UILabel.TOPIC_ALL, null, blocking, true);
+		eb.subscribe(OTHER_MODEL_TOPIC, null, removed, true);
+		try {
+			// keep the dispatch thread busy while the subscription is removed
+			eb.post(MODEL_TOPIC, new Object());
+			assertTrue(blocked.await(5, TimeUnit.SECONDS));
+			eb.post(OTHER_MODEL_TOPIC, new Object());
+			eb.unsubscribe(removed);
+			release.countDown();
+
+			// posted events are dispatched in order
+			eb.post(LAST_MODEL_TOPIC, new Object());
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			assertEquals(0, seen.get());
+		} finally {
+			release.countDown();
+			eb.unsubscribe(blocking);
+		}
+	}
 }
@@ -328,6 +328,94 @@ public class UIEventsTest extends HeadlessApplicationElementTest {
 		checkForFailures(allTesters, windowTester);
 	}
 
+	public void testBatchedEvents() {
+		IEventBroker eventBroker = applicationContext.get(IEventBroker.class);
+		final List<Event> events = new ArrayList<Event>();
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+		};
+		eventBroker.subscribe(ApplicationElement.TOPIC_ALL, handler);
+
+		MTestHarness allData = MTestFactory.eINSTANCE.createTestHarness();
+		allData.setElementId("original");
+		UIEventPublisher ep = new UIEventPublisher(applicationContext);
+		((Notifier) allData).eAdapters().add(ep);
+
+		try {
+			ep.beginBatch();
+			allData.setElementId("first");
+			allData.getTags().add("tag");
+			ep.beginBatch();
+			allData.setElementId("second");
+			ep.endBatch();
+			assertTrue("events sent before the batch ended", events.isEmpty());
+			ep.endBatch();
+
+			// the two SETs collapse into one, sent before the ADD
+			assertEquals(2, events.size());
+			Event set = events.get(0);
+			assertEquals(ApplicationElement.ELEMENTID,
+					set.getProperty(EventTags.ATTNAME));
+			assertEquals("original", set.getProperty(EventTags.OLD_VALUE));
+			assertEquals("second", set.getProperty(EventTags.NEW_VALUE));
+			assertEquals(ApplicationElement.TAGS,
+					events.get(1).getProperty(EventTags.ATTNAME));
+
+			// outside of a batch events are sent immediately
+			events.clear();
+			allData.setElementId("third");
+			assertEquals(1, events.size());
+		} finally {
+			eventBroker.unsubscribe(handler);
+		}
+	}
+
+	public void testBatchedEvents_RevertedSet() {
+		IEventBroker eventBroker = applicationContext.get(IEventBroker.class);
+		final List<Event> events = new ArrayList<Event>();
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+		};
+		eventBroker.subscribe(ApplicationElement.TOPIC_ALL, handler);
+
+		MTestHarness allData = MTestFactory.eINSTANCE.createTestHarness();
+		allData.setElementId("original");
+		UIEventPublisher ep = new UIEventPublisher(applicationContext);
+		((Notifier) allData).eAdapters().add(ep);
+
+		try {
+			ep.beginBatch();
+			allData.setElementId("changed");
+			allData.getTags().add("tag");
+			allData.setElementId("original");
+			ep.endBatch();
+
+			// the element id is back to its original value, only the ADD is
+			// sent
+			assertEquals(1, events.size());
+			assertEquals(ApplicationElement.TAGS,
+					events.get(0).getProperty(EventTags.ATTNAME));
+
+			// a later change within a batch is sent again
+			events.clear();
+			ep.beginBatch();
+			allData.setElementId("changed");
+			allData.setElementId("original");
+			allData.setElementId("last");
+			ep.endBatch();
+			assertEquals(1, events.size());
+			assertEquals("original",
+					events.get(0).getProperty(EventTags.OLD_VALUE));
+			assertEquals("last", events.get(0).getProperty(EventTags.NEW_VALUE));
+		} finally {
+			eventBroker.unsubscribe(handler);
+		}
+	}
+
 	// Verify bug 374534
 	public void testBrokerCleanup() {
 		final String testTopic = "test/374534";
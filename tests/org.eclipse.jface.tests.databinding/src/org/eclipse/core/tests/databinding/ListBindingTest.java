@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,7 +20,10 @@ import java.util.List;
 import org.eclipse.core.databinding.Binding;
 import org.eclipse.core.databinding.DataBindingContext;
 import org.eclipse.core.databinding.UpdateListStrategy;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
 import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
 import org.eclipse.core.databinding.observable.list.WritableList;
 import org.eclipse.core.databinding.validation.ValidationStatus;
 import org.eclipse.core.internal.databinding.BindingStatus;
@@ -182,4 +185,38 @@ public class ListBindingTest extends AbstractDefaultRealmTestCase {
 		assertTrue(status.isOK());
 		assertEquals(0, status.getChildren().length);
 	}
+
+	public void testBatchUpdatesTargetOnce() throws Exception {
+		dbc.bindList(target, model);
+		final List events = new ArrayList();
+		model.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		Realm.getDefault().batch(new Runnable() {
+			public void run() {
+				model.add("1");
+				model.add("2");
+				model.remove("1");
+			}
+		});
+
+		assertEquals(1, events.size());
+		assertEquals(Arrays.asList(new Object[] { "2" }), target);
+		assertEquals(Arrays.asList(new Object[] { "2" }), model);
+	}
+
+	public void testBindingInBatchDoesNotUpdateModelAgain() throws Exception {
+		model.add("1");
+		Realm.getDefault().batch(new Runnable() {
+			public void run() {
+				dbc.bindList(target, model);
+			}
+		});
+
+		assertEquals(Arrays.asList(new Object[] { "1" }), target);
+		assertEquals(Arrays.asList(new Object[] { "1" }), model);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Matthew Hall and others.
+ * Copyright (c) 2009, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,12 +16,16 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.ChangeSupport;
 import org.eclipse.core.databinding.observable.DisposeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IDisposeListener;
+import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
 import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
 
 /**
@@ -30,11 +34,13 @@ import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
  */
 public class ChangeSupportTest extends AbstractDefaultRealmTestCase {
 	private ChangeSupportStub changeSupport;
+	private IObservable observable;
 
 	protected void setUp() throws Exception {
 		super.setUp();
 
 		changeSupport = new ChangeSupportStub(Realm.getDefault());
+		observable = new WritableValue();
 	}
 
 	public void testAddDisposeListener_HasListenersFalse() {
@@ -67,6 +73,83 @@ public class ChangeSupportTest extends AbstractDefaultRealmTestCase {
 				changeSupport.log);
 	}
 
+	public void testAddListener_IgnoresDuplicates() {
+		LoggingChangeListener listener1 = new LoggingChangeListener("1");
+		LoggingChangeListener listener2 = new LoggingChangeListener("2");
+		changeSupport.addChangeListener(listener1);
+		changeSupport.addChangeListener(listener1);
+		changeSupport.addChangeListener(listener2);
+		changeSupport.addChangeListener(listener2);
+
+		changeSupport.fireEvent(new ChangeEvent(observable));
+		assertEquals(Arrays.asList(new Object[] { "1", "2" }), changeSupport.log
+				.subList(1, changeSupport.log.size()));
+
+		changeSupport.removeChangeListener(listener1);
+		changeSupport.removeChangeListener(listener2);
+		assertFalse(changeSupport.hasListeners());
+		assertEquals(REMOVE_LAST, changeSupport.log
+				.get(changeSupport.log.size() - 1));
+	}
+
+	public void testFireEvent_ListenersChangedWhileDispatching() {
+		final LoggingChangeListener added = new LoggingChangeListener("added");
+		final LoggingChangeListener removed = new LoggingChangeListener(
+				"removed");
+		LoggingChangeListener listener = new LoggingChangeListener("listener") {
+			public void handleChange(ChangeEvent event) {
+				super.handleChange(event);
+				changeSupport.removeChangeListener(removed);
+				changeSupport.addChangeListener(added);
+			}
+		};
+		changeSupport.addChangeListener(listener);
+		changeSupport.addChangeListener(removed);
+		changeSupport.log.clear();
+
+		// listeners added or removed while dispatching an event only affect
+		// the next events
+		changeSupport.fireEvent(new ChangeEvent(observable));
+		assertEquals(Arrays.asList(new Object[] { "listener", "removed" }),
+				changeSupport.log);
+
+		changeSupport.log.clear();
+		changeSupport.fireEvent(new ChangeEvent(observable));
+		assertEquals(Arrays.asList(new Object[] { "listener", "added" }),
+				changeSupport.log);
+	}
+
+	public void testRemoveListener_OtherTypesKept() {
+		LoggingChangeListener changeListener = new LoggingChangeListener(
+				"change");
+		IStaleListener staleListener = new IStaleListener() {
+			public void handleStale(StaleEvent staleEvent) {
+				changeSupport.log.add("stale");
+			}
+		};
+		changeSupport.addChangeListener(changeListener);
+		changeSupport.addStaleListener(staleListener);
+		changeSupport.removeChangeListener(changeListener);
+		assertTrue(changeSupport.hasListeners());
+		changeSupport.log.clear();
+
+		changeSupport.fireEvent(new ChangeEvent(observable));
+		changeSupport.fireEvent(new StaleEvent(observable));
+		assertEquals(Collections.singletonList("stale"), changeSupport.log);
+	}
+
+	private class LoggingChangeListener implements IChangeListener {
+		private final String name;
+
+		LoggingChangeListener(String name) {
+			this.name = name;
+		}
+
+		public void handleChange(ChangeEvent event) {
+			changeSupport.log.add(name);
+		}
+	}
+
 	private static final String ADD_FIRST = "firstListenerAdded";
 	private static final String REMOVE_LAST = "lastListenerRemoved";
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.core.tests.databinding.observable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -256,6 +257,59 @@ public class Diffs_ListDiffTests extends TestCase {
 				Arrays.asList(new Object[] { "c", "a", "b" }));
 	}
 
+	public void testComputeListDiff_LargeLists() {
+		List oldList = createLargeList("a", 2000);
+
+		List newList = new ArrayList(oldList);
+		Collections.reverse(newList);
+		checkComputedListDiff(oldList, newList);
+
+		newList = new ArrayList(oldList);
+		for (int i = 0; i < newList.size(); i += 7) {
+			newList.remove(i);
+			newList.add(i / 2, "b" + i);
+		}
+		newList.add(null);
+		checkComputedListDiff(oldList, newList);
+
+		checkComputedListDiff(oldList, createLargeList("b", 1500));
+		checkComputedListDiff(oldList, Collections.EMPTY_LIST);
+		checkComputedListDiff(Collections.EMPTY_LIST, oldList);
+	}
+
+	public void testComputeListDiff_LargeListMove() {
+		List oldList = createLargeList("a", 2000);
+		List newList = new ArrayList(oldList);
+		newList.add(1500, newList.remove(10));
+
+		final int[] moves = new int[1];
+		Diffs.computeListDiff(oldList, newList).accept(new ListDiffVisitor() {
+			public void handleAdd(int index, Object element) {
+				fail("unexpected add");
+			}
+
+			public void handleRemove(int index, Object element) {
+				fail("unexpected remove");
+			}
+
+			public void handleMove(int oldIndex, int newIndex, Object element) {
+				assertEquals(10, oldIndex);
+				assertEquals(1500, newIndex);
+				assertEquals("a10", element);
+				moves[0]++;
+			}
+		});
+		assertEquals(1, moves[0]);
+	}
+
+	private static List createLargeList(String prefix, int size) {
+		List list = new ArrayList(size);
+		for (int i = 0; i < size; i++) {
+			list.add(prefix + i);
+		}
+		return list;
+	}
+
 	private static void checkComputedListDiff(List oldList, List newList) {
 		ListDiff diff = Diffs.computeListDiff(oldList, newList);
 
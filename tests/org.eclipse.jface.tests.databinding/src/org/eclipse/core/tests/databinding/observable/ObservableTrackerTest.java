@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.AbstractObservable;
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
@@ -41,6 +43,62 @@ public class ObservableTrackerTest extends AbstractDefaultRealmTestCase {
 		assertSame(observable, result[0]);
 	}
 
+	public void testRunAndMonitor_PreviousDependencies() throws Exception {
+		final CountingObservableStub kept = new CountingObservableStub();
+		final CountingObservableStub dropped = new CountingObservableStub();
+		final CountingObservableStub added = new CountingObservableStub();
+		IChangeListener listener = new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+			}
+		};
+
+		IObservable[] previous = ObservableTracker.runAndMonitor(
+				new Runnable() {
+					public void run() {
+						ObservableTracker.getterCalled(kept);
+						ObservableTracker.getterCalled(dropped);
+					}
+				}, listener, null);
+		IObservable[] result = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				ObservableTracker.getterCalled(kept);
+				ObservableTracker.getterCalled(added);
+				ObservableTracker.getterCalled(kept);
+			}
+		}, listener, null, previous);
+
+		assertEquals(2, result.length);
+		assertSame(kept, result[0]);
+		assertSame(added, result[1]);
+		assertEquals(1, kept.changeListenersAdded);
+		assertEquals(0, kept.changeListenersRemoved);
+		assertEquals(1, dropped.changeListenersAdded);
+		assertEquals(1, dropped.changeListenersRemoved);
+		assertEquals(1, added.changeListenersAdded);
+		assertEquals(0, added.changeListenersRemoved);
+	}
+
+	public void testRunAndMonitor_Nested() throws Exception {
+		final IObservable outer = new ObservableStub();
+		final IObservable inner = new ObservableStub();
+		final IObservable[][] innerResult = new IObservable[1][];
+		IObservable[] result = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				innerResult[0] = ObservableTracker.runAndMonitor(
+						new Runnable() {
+							public void run() {
+								ObservableTracker.getterCalled(inner);
+							}
+						}, null, null);
+				ObservableTracker.getterCalled(outer);
+			}
+		}, null, null);
+		assertEquals(1, result.length);
+		assertSame(outer, result[0]);
+		assertEquals(1, innerResult[0].length);
+		assertSame(inner, innerResult[0][0]);
+	}
+
 	public void testGetterCalled_ObservableDisposed() throws Exception {
 		try {
 			IObservable observable = new ObservableStub();
@@ -243,4 +301,19 @@ public class ObservableTrackerTest extends AbstractDefaultRealmTestCase {
 			return false;
 		}
 	}
+
+	static class CountingObservableStub extends ObservableStub {
+		int changeListenersAdded;
+		int changeListenersRemoved;
+
+		public synchronized void addChangeListener(IChangeListener listener) {
+			changeListenersAdded++;
+			super.addChangeListener(listener);
+		}
+
+		public synchronized void removeChangeListener(IChangeListener listener) {
+			changeListenersRemoved++;
+			super.removeChangeListener(listener);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 Brad Reynolds and others.
+ * Copyright (c) 2006, 2014 Brad Reynolds and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,13 +7,38 @@
  *
  * Contributors:
  *     Brad Reynolds - initial API and implementation
+ *     IBM Corporation - batch tests
  ******************************************************************************/
 
 package org.eclipse.core.tests.databinding.observable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import junit.framework.TestCase;
 
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.list.ComputedList;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.map.IMapChangeListener;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.WritableMap;
+import org.eclipse.core.databinding.observable.set.ComputedSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
 import org.eclipse.jface.databinding.conformance.util.CurrentRealm;
 import org.eclipse.jface.databinding.conformance.util.RealmTester;
 
@@ -34,4 +59,309 @@ public class RealmTest extends TestCase {
 		
 		assertEquals("old realm should have been restored", oldRealm, Realm.getDefault());
 	}
+
+	public void testBatch_MergesValueChanges() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final List events = new ArrayList();
+		final int[] changes = new int[1];
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add(event);
+			}
+		});
+		value.addChangeListener(new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+				changes[0]++;
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				value.setValue("b");
+				value.setValue("c");
+				assertEquals(0, events.size());
+			}
+		});
+
+		assertEquals(2, changes[0]);
+		assertEquals(1, events.size());
+		ValueChangeEvent event = (ValueChangeEvent) events.get(0);
+		assertSame(value, event.getObservableValue());
+		assertEquals("a", event.diff.getOldValue());
+		assertEquals("c", event.diff.getNewValue());
+	}
+
+	public void testBatch_MergesListChanges() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableList list = new WritableList(realm, new ArrayList(
+				Arrays.asList(new Object[] { "a", "b" })), null);
+		final List oldList = new ArrayList(list);
+		final List events = new ArrayList();
+		list.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				list.add("c");
+				list.remove(0);
+				list.add(0, "d");
+			}
+		});
+
+		assertEquals(1, events.size());
+		ListChangeEvent event = (ListChangeEvent) events.get(0);
+		event.diff.applyTo(oldList);
+		assertEquals(list, oldList);
+	}
+
+	public void testBatch_MergesSetChanges() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableSet set = new WritableSet(realm, new HashSet(Arrays
+				.asList(new Object[] { "a", "b" })), null);
+		final List events = new ArrayList();
+		set.addSetChangeListener(new ISetChangeListener() {
+			public void handleSetChange(SetChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				set.remove("a");
+				set.add("c");
+				set.add("a");
+				set.remove("c");
+				set.remove("b");
+				set.add("d");
+			}
+		});
+
+		assertEquals(1, events.size());
+		SetChangeEvent event = (SetChangeEvent) events.get(0);
+		assertEquals(Collections.singleton("d"), event.diff.getAdditions());
+		assertEquals(Collections.singleton("b"), event.diff.getRemovals());
+	}
+
+	public void testBatch_MergesMapChanges() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableMap map = new WritableMap(realm);
+		map.put("changed", "a");
+		map.put("removed", "b");
+		final List events = new ArrayList();
+		map.addMapChangeListener(new IMapChangeListener() {
+			public void handleMapChange(MapChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				map.put("changed", "c");
+				map.put("changed", "d");
+				map.remove("removed");
+				map.put("added", "e");
+				map.put("transient", "f");
+				map.remove("transient");
+			}
+		});
+
+		assertEquals(1, events.size());
+		MapChangeEvent event = (MapChangeEvent) events.get(0);
+		assertEquals(Collections.singleton("added"), event.diff.getAddedKeys());
+		assertEquals(Collections.singleton("removed"), event.diff
+				.getRemovedKeys());
+		assertEquals(Collections.singleton("changed"), event.diff
+				.getChangedKeys());
+		assertEquals("a", event.diff.getOldValue("changed"));
+		assertEquals("d", event.diff.getNewValue("changed"));
+		assertEquals("b", event.diff.getOldValue("removed"));
+		assertEquals("e", event.diff.getNewValue("added"));
+	}
+
+	public void testBatch_NotifiesComputedValueOnceAfterSources()
+			throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue[] values = new WritableValue[10];
+		for (int i = 0; i < values.length; i++)
+			values[i] = new WritableValue(realm, new Integer(0), Integer.class);
+		final int[] computations = new int[1];
+		final ComputedValue sum = new ComputedValue(realm, Integer.class) {
+			protected Object calculate() {
+				computations[0]++;
+				int result = 0;
+				for (int i = 0; i < values.length; i++)
+					result += ((Integer) values[i].getValue()).intValue();
+				return new Integer(result);
+			}
+		};
+		final List order = new ArrayList();
+		final List newValues = new ArrayList();
+		sum.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				order.add(sum);
+				newValues.add(event.diff.getNewValue());
+			}
+		});
+		values[0].addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				order.add(values[0]);
+			}
+		});
+		assertEquals(1, computations[0]);
+
+		realm.batch(new Runnable() {
+			public void run() {
+				for (int i = 0; i < values.length; i++)
+					values[i].setValue(new Integer(i + 1));
+			}
+		});
+
+		assertEquals(Arrays.asList(new Object[] { values[0], sum }), order);
+		assertEquals(Collections.singletonList(new Integer(55)), newValues);
+		assertEquals(2, computations[0]);
+	}
+
+	public void testBatch_MergesComputedListChangesReadDuringBatch()
+			throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue source = new WritableValue(realm, "a", String.class);
+		final ComputedList list = new ComputedList(realm) {
+			protected List calculate() {
+				return Arrays.asList(((String) source.getValue()).split(","));
+			}
+		};
+		final List oldList = new ArrayList(list);
+		final List events = new ArrayList();
+		list.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				source.setValue("b");
+				assertEquals(1, list.size());
+				source.setValue("c,d");
+			}
+		});
+
+		assertEquals(1, events.size());
+		ListChangeEvent event = (ListChangeEvent) events.get(0);
+		event.diff.applyTo(oldList);
+		assertEquals(Arrays.asList(new Object[] { "c", "d" }), oldList);
+		assertEquals(list, oldList);
+	}
+
+	public void testBatch_MergesComputedSetChangesReadDuringBatch()
+			throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue source = new WritableValue(realm, "a", String.class);
+		final ComputedSet set = new ComputedSet(realm) {
+			protected Set calculate() {
+				return new HashSet(Arrays.asList(((String) source.getValue())
+						.split(",")));
+			}
+		};
+		assertEquals(Collections.singleton("a"), set);
+		final List events = new ArrayList();
+		set.addSetChangeListener(new ISetChangeListener() {
+			public void handleSetChange(SetChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				source.setValue("b");
+				assertEquals(1, set.size());
+				source.setValue("c,d");
+			}
+		});
+
+		assertEquals(1, events.size());
+		SetChangeEvent event = (SetChangeEvent) events.get(0);
+		assertEquals(new HashSet(Arrays.asList(new Object[] { "c", "d" })),
+				event.diff.getAdditions());
+		assertEquals(Collections.singleton("a"), event.diff.getRemovals());
+	}
+
+	public void testBatch_Nested() throws Exception {
+		final Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final List events = new ArrayList();
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				value.setValue("b");
+				realm.batch(new Runnable() {
+					public void run() {
+						value.setValue("c");
+					}
+				});
+				assertEquals(0, events.size());
+			}
+		});
+
+		assertEquals(1, events.size());
+	}
+
+	public void testBatch_DispatchesEventsOnException() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final List events = new ArrayList();
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		try {
+			realm.batch(new Runnable() {
+				public void run() {
+					value.setValue("b");
+					throw new IllegalStateException();
+				}
+			});
+			fail("expected IllegalStateException");
+		} catch (IllegalStateException e) {
+		}
+
+		assertEquals(1, events.size());
+	}
+
+	public void testRunWithoutBatching() throws Exception {
+		final Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final List events = new ArrayList();
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.batch(new Runnable() {
+			public void run() {
+				realm.runWithoutBatching(new Runnable() {
+					public void run() {
+						value.setValue("b");
+					}
+				});
+				assertEquals(1, events.size());
+				value.setValue("c");
+				assertEquals(1, events.size());
+			}
+		});
+
+		assertEquals(2, events.size());
+	}
 }
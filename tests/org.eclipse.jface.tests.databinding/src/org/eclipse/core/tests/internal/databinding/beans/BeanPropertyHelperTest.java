@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Matthew Hall and others.
+ * Copyright (c) 2009, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.core.tests.internal.databinding.beans;
 
 import java.beans.PropertyDescriptor;
 
+import org.eclipse.core.internal.databinding.beans.BeanPropertyAccessor;
 import org.eclipse.core.internal.databinding.beans.BeanPropertyHelper;
 
 import junit.framework.TestCase;
@@ -51,4 +52,32 @@ public class BeanPropertyHelperTest extends TestCase {
 				new Class[] { String.class }), pd.getWriteMethod());
 	}
 
+	public void testGetPropertyDescriptor_SameDescriptorOnEachLookup() {
+		PropertyDescriptor pd = BeanPropertyHelper.getPropertyDescriptor(
+				Bean.class, "value");
+		assertSame(pd, BeanPropertyHelper.getPropertyDescriptor(Bean.class,
+				"value"));
+	}
+
+	public void testGetPropertyDescriptor_UnknownProperty() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				BeanPropertyHelper.getPropertyDescriptor(IBeanExtension.class,
+						"unknown");
+				fail("Expected IllegalArgumentException");
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+
+	public void testBeanPropertyAccessor() {
+		BeanPropertyAccessor accessor = new BeanPropertyAccessor(
+				BeanPropertyHelper.getPropertyDescriptor(Bean.class, "value"));
+		Bean bean = new Bean("old");
+		assertEquals(String.class, accessor.getPropertyType());
+		assertEquals("old", accessor.read(bean));
+		accessor.write(bean, "new");
+		assertEquals("new", bean.getValue());
+		assertEquals("new", accessor.read(bean));
+	}
 }
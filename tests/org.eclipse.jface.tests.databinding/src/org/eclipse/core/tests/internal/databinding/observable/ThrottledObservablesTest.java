@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.tests.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.ISetChangeListener;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.jface.databinding.conformance.util.CurrentRealm;
+import org.eclipse.jface.databinding.conformance.util.ValueChangeEventTracker;
+
+/**
+ * Tests for the throttling policies of DelayedObservableValue,
+ * DelayedObservableList and DelayedObservableSet.
+ *
+ * @since 1.5
+ */
+public class ThrottledObservablesTest extends TestCase {
+	private TimerRealm realm;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		realm = new TimerRealm();
+	}
+
+	public void testValue_Debounce() {
+		WritableValue value = new WritableValue(realm, "a", String.class);
+		IObservableValue throttled = Observables.observeThrottledValue(10,
+				Observables.DEBOUNCE, value);
+		ValueChangeEventTracker tracker = ValueChangeEventTracker
+				.observe(throttled);
+
+		value.setValue("b");
+		value.setValue("c");
+		assertEquals(0, tracker.count);
+		assertTrue(throttled.isStale());
+
+		// only the timer of the last change fires
+		realm.runTimers();
+		assertEquals(1, tracker.count);
+		assertEquals("a", tracker.event.diff.getOldValue());
+		assertEquals("c", tracker.event.diff.getNewValue());
+		assertFalse(throttled.isStale());
+	}
+
+	public void testValue_Throttle() {
+		WritableValue value = new WritableValue(realm, "a", String.class);
+		IObservableValue throttled = Observables.observeThrottledValue(10,
+				Observables.THROTTLE, value);
+		ValueChangeEventTracker tracker = ValueChangeEventTracker
+				.observe(throttled);
+
+		value.setValue("b");
+		assertEquals(1, tracker.count);
+		assertEquals("b", tracker.event.diff.getNewValue());
+
+		value.setValue("c");
+		value.setValue("d");
+		assertEquals(1, tracker.count);
+
+		realm.runTimers();
+		assertEquals(2, tracker.count);
+		assertEquals("b", tracker.event.diff.getOldValue());
+		assertEquals("d", tracker.event.diff.getNewValue());
+
+		// the period following the fired change ends without changes
+		realm.runTimers();
+		value.setValue("e");
+		assertEquals(3, tracker.count);
+	}
+
+	public void testValue_Sample() {
+		WritableValue value = new WritableValue(realm, "a", String.class);
+		IObservableValue throttled = Observables.observeThrottledValue(10,
+				Observables.SAMPLE, value);
+		ValueChangeEventTracker tracker = ValueChangeEventTracker
+				.observe(throttled);
+
+		value.setValue("b");
+		value.setValue("c");
+		assertEquals(1, realm.timers.size());
+
+		realm.runTimers();
+		assertEquals(1, tracker.count);
+		assertEquals("a", tracker.event.diff.getOldValue());
+		assertEquals("c", tracker.event.diff.getNewValue());
+	}
+
+	public void testValue_UnknownPolicy() {
+		try {
+			Observables.observeThrottledValue(10, -1, new WritableValue(realm,
+					null, null));
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testList_MergesChanges() {
+		WritableList list = new WritableList(realm, new ArrayList(Arrays
+				.asList(new Object[] { "a", "b" })), String.class);
+		IObservableList throttled = Observables.observeThrottledList(10,
+				Observables.DEBOUNCE, list);
+		final List events = new ArrayList();
+		throttled.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		list.add("c");
+		list.remove("a");
+		list.add(0, "d");
+		assertEquals(0, events.size());
+		assertTrue(throttled.isStale());
+
+		realm.runTimers();
+		assertEquals(1, events.size());
+		assertEquals(list, throttled);
+		List oldList = new ArrayList(Arrays.asList(new Object[] { "a", "b" }));
+		((ListChangeEvent) events.get(0)).diff.applyTo(oldList);
+		assertEquals(list, oldList);
+		assertFalse(throttled.isStale());
+	}
+
+	public void testList_GetterFiresPendingChanges() {
+		WritableList list = new WritableList(realm, new ArrayList(),
+				String.class);
+		IObservableList throttled = Observables.observeThrottledList(10,
+				Observables.SAMPLE, list);
+		final List events = new ArrayList();
+		throttled.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		list.add("a");
+		assertEquals(0, events.size());
+		assertEquals(1, throttled.size());
+		assertEquals(1, events.size());
+
+		// the scheduled timer has no effect anymore
+		realm.runTimers();
+		assertEquals(1, events.size());
+	}
+
+	public void testSet_MergesChanges() {
+		WritableSet set = new WritableSet(realm, new HashSet(Arrays
+				.asList(new Object[] { "a", "b" })), String.class);
+		IObservableSet throttled = Observables.observeThrottledSet(10,
+				Observables.DEBOUNCE, set);
+		final List events = new ArrayList();
+		throttled.addSetChangeListener(new ISetChangeListener() {
+			public void handleSetChange(SetChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		set.remove("a");
+		set.add("c");
+		set.add("a");
+		set.remove("c");
+		set.remove("b");
+		set.add("d");
+		assertEquals(0, events.size());
+
+		realm.runTimers();
+		assertEquals(1, events.size());
+		SetChangeEvent event = (SetChangeEvent) events.get(0);
+		assertEquals(Collections.singleton("d"), event.diff.getAdditions());
+		assertEquals(Collections.singleton("b"), event.diff.getRemovals());
+		assertEquals(set, throttled);
+	}
+
+	/**
+	 * A realm whose timer runnables are run on request.
+	 */
+	private static class TimerRealm extends CurrentRealm {
+		List timers = new ArrayList();
+
+		TimerRealm() {
+			super(true);
+		}
+
+		public void timerExec(int milliseconds, Runnable runnable) {
+			timers.add(runnable);
+		}
+
+		void runTimers() {
+			List toRun = new ArrayList(timers);
+			timers.clear();
+			for (int i = 0; i < toRun.size(); i++)
+				((Runnable) toRun.get(i)).run();
+		}
+	}
+}
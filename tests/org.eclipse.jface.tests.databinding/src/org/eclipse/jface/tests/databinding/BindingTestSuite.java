@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -134,6 +134,7 @@ import org.eclipse.core.tests.internal.databinding.observable.EmptyObservableSet
 import org.eclipse.core.tests.internal.databinding.observable.IdentityObservableSetTest;
 import org.eclipse.core.tests.internal.databinding.observable.MapEntryObservableValueTest;
 import org.eclipse.core.tests.internal.databinding.observable.StalenessObservableValueTest;
+import org.eclipse.core.tests.internal.databinding.observable.ThrottledObservablesTest;
 import org.eclipse.core.tests.internal.databinding.observable.UnmodifiableObservableListTest;
 import org.eclipse.core.tests.internal.databinding.observable.UnmodifiableObservableSetTest;
 import org.eclipse.core.tests.internal.databinding.observable.UnmodifiableObservableValueTest;
@@ -378,6 +379,7 @@ public class BindingTestSuite extends TestSuite {
 		addTest(IdentityObservableSetTest.suite());
 		addTest(MapEntryObservableValueTest.suite());
 		addTest(StalenessObservableValueTest.suite());
+		addTestSuite(ThrottledObservablesTest.class);
 		addTest(UnmodifiableObservableValueTest.suite());
 		addTest(UnmodifiableObservableListTest.suite());
 		addTest(UnmodifiableObservableSetTest.suite());
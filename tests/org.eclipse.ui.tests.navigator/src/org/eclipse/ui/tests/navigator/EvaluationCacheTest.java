@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.ui.internal.navigator.VisibilityAssistant;
+import org.eclipse.ui.internal.navigator.extensions.ExtensionSequenceNumberComparator;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptor;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptorManager;
+import org.eclipse.ui.tests.harness.util.FileUtil;
+
+/**
+ * Checks that the descriptors found through the evaluation caches of the
+ * {@link NavigatorContentDescriptorManager} are the ones found by evaluating
+ * the expressions of every descriptor.
+ */
+public class EvaluationCacheTest extends NavigatorTestBase {
+
+	private VisibilityAssistant assistant;
+
+	/**
+	 * Adapts to a project or not, depending on the instance.
+	 */
+	private static class ProjectHolder implements IAdaptable {
+		private final IProject project;
+
+		ProjectHolder(IProject project) {
+			this.project = project;
+		}
+
+		public Object getAdapter(Class adapter) {
+			if (adapter == IProject.class)
+				return project;
+			return null;
+		}
+	}
+
+	public EvaluationCacheTest() {
+		_navigatorInstanceId = TEST_VIEWER;
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		_contentService.getActivationService().activateExtensions(
+				new String[] { TEST_CONTENT, TEST_CONTENT_HAS_CHILDREN }, false);
+		assistant = new VisibilityAssistant(_contentService.getViewerDescriptor(),
+				_contentService.getActivationService());
+	}
+
+	protected void tearDown() throws Exception {
+		assistant.dispose();
+		_contentService.getActivationService().deactivateExtensions(
+				new String[] { TEST_CONTENT_HAS_CHILDREN }, false);
+		super.tearDown();
+	}
+
+	public void testInstanceof() throws Exception {
+		// the possible children of testContent are instanceof expressions
+		assertSameDescriptors(_project.getFile(".project"));
+		assertSameDescriptors(_project.getFile("model.properties"));
+		assertSameDescriptors(_project.getFolder("src"));
+		assertSameDescriptors(_project);
+	}
+
+	public void testAdapt() throws Exception {
+		// the trigger points of testContent adapt to IProject
+		assertSameDescriptors(new ProjectHolder(_project));
+		assertSameDescriptors(new ProjectHolder(null));
+		assertSameDescriptors(new ProjectHolder(_p1));
+	}
+
+	public void testPropertyTest() throws Exception {
+		// the trigger points of testContentHasChildren test the extension
+		IFile datFile = _project.getFile("model.dat");
+		FileUtil.createFile(datFile.getName(), _project);
+		assertSameDescriptors(_project.getFile("model.properties"));
+		assertSameDescriptors(datFile);
+		assertSameDescriptors(_project.getFile(".project"));
+	}
+
+	private void assertSameDescriptors(Object element) {
+		NavigatorContentDescriptorManager manager = NavigatorContentDescriptorManager
+				.getInstance();
+		// the second lookup is answered from the cache of the element
+		for (int i = 0; i < 2; i++) {
+			assertEquals(evaluate(element, false),
+					manager.findDescriptorsForTriggerPoint(element, assistant, false));
+			assertEquals(evaluate(element, true),
+					manager.findDescriptorsForPossibleChild(element, assistant, false));
+		}
+	}
+
+	private Set evaluate(Object element, boolean possibleChild) {
+		Set result = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
+		NavigatorContentDescriptor[] descriptors = NavigatorContentDescriptorManager
+				.getInstance().getAllContentDescriptors();
+		for (int i = 0; i < descriptors.length; i++) {
+			NavigatorContentDescriptor descriptor = descriptors[i];
+			if (assistant.isActive(descriptor) && assistant.isVisible(descriptor)
+					&& (possibleChild ? descriptor.isPossibleChild(element)
+							: descriptor.isTriggerPoint(element))) {
+				result.add(descriptor);
+			}
+		}
+		return result;
+	}
+}
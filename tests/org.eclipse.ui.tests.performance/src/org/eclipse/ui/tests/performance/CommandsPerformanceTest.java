@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -450,6 +450,42 @@ public final class CommandsPerformanceTest extends BasicPerformanceTest {
 		assertPerformance();
 	}
 
+	/**
+	 * <p>
+	 * Tests how long it takes to recompute the bindings when the active
+	 * contexts change one at a time, and the cache never contains a matching
+	 * entry. Starting from the full branch of contexts, the deepest active
+	 * context is deactivated until only the root is left, so that each change
+	 * affects the bindings of a single context.
+	 * </p>
+	 * 
+	 * @throws ParseException
+	 *             If "CTRL+F" can't be parsed for some strange reason.
+	 */
+	public final void testBindingContextFlip() throws ParseException {
+		// Constants
+		final KeySequence keySequence = KeySequence.getInstance("CTRL+F");
+
+		// Compute once for the full branch.
+		final int contextCount = contextManager.getActiveContextIds().size();
+		final List contextList = new ArrayList();
+		for (int i = 0; i < contextCount; i++) {
+			contextList.add("context" + i);
+		}
+		bindingManager.getPartialMatches(keySequence);
+
+		// Time how long it takes to follow the changes.
+		startMeasuring();
+		while (contextList.size() > 1) {
+			contextList.remove(contextList.size() - 1);
+			contextManager.setActiveContextIds(new HashSet(contextList));
+			bindingManager.getPartialMatches(keySequence);
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+	}
+
 	/**
 	 * <p>
 	 * Tests how long it takes to do a full computation (i.e., a cache miss) on
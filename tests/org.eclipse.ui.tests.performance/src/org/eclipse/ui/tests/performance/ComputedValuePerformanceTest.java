@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+
+/**
+ * <p>
+ * Measures the recomputation of observed computed values, which track their
+ * dependencies again on every computation: through a deep chain of computed
+ * values, and for one computed value with many dependencies.
+ * </p>
+ */
+public final class ComputedValuePerformanceTest extends BasicPerformanceTest {
+
+	private static final int DEPTH = 100;
+
+	private static final int DEPENDENCIES = 1000;
+
+	private static final int UPDATES = 500;
+
+	private static final int ITERATIONS = 5;
+
+	private Realm realm;
+
+	/**
+	 * Constructs an instance of <code>ComputedValuePerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public ComputedValuePerformanceTest(final String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		realm = new Realm() {
+			public boolean isCurrent() {
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * <p>
+	 * Changes the value at the root of a chain of computed values, each
+	 * depending on the previous one, and reads the end of the chain.
+	 * </p>
+	 */
+	public void testDeepChain() {
+		final WritableValue root = new WritableValue(realm, new Integer(0),
+				Integer.class);
+		IObservableValue last = root;
+		for (int i = 0; i < DEPTH; i++) {
+			final IObservableValue previous = last;
+			last = new ComputedValue(realm, Integer.class) {
+				protected Object calculate() {
+					return new Integer(((Integer) previous.getValue())
+							.intValue() + 1);
+				}
+			};
+		}
+		observe(last);
+
+		int value = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			for (int j = 0; j < UPDATES; j++) {
+				root.setValue(new Integer(j));
+				value = ((Integer) last.getValue()).intValue();
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+		assertEquals(UPDATES - 1 + DEPTH, value);
+	}
+
+	/**
+	 * <p>
+	 * Changes one of the many values a computed value depends on, and reads
+	 * the computed value.
+	 * </p>
+	 */
+	public void testManyDependencies() {
+		final WritableValue[] values = new WritableValue[DEPENDENCIES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = new WritableValue(realm, new Integer(0), Integer.class);
+		}
+		ComputedValue sum = new ComputedValue(realm, Integer.class) {
+			protected Object calculate() {
+				int result = 0;
+				for (int i = 0; i < values.length; i++) {
+					result += ((Integer) values[i].getValue()).intValue();
+				}
+				return new Integer(result);
+			}
+		};
+		observe(sum);
+
+		int value = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			for (int j = 0; j < UPDATES; j++) {
+				WritableValue changed = values[j % values.length];
+				changed.setValue(new Integer(((Integer) changed.getValue())
+						.intValue() + 1));
+				value = ((Integer) sum.getValue()).intValue();
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+		assertEquals(ITERATIONS * UPDATES, value);
+	}
+
+	/**
+	 * Adds a listener to the given value, so that it keeps listening to its
+	 * dependencies between computations.
+	 */
+	private static void observe(IObservableValue value) {
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				// only observed
+			}
+		});
+		value.getValue();
+	}
+}
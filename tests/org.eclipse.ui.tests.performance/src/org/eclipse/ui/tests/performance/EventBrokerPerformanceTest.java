@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.workbench.UIEvents;
+import org.eclipse.ui.PlatformUI;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * <p>
+ * Compares the dispatch of UI model events through the event broker with the
+ * dispatch of the same events through EventAdmin. Both tests send the same
+ * events to the same number of exact and wildcard subscribers on
+ * {@link UIEvents} topics.
+ * </p>
+ */
+public final class EventBrokerPerformanceTest extends BasicPerformanceTest {
+
+	private static final String[] TOPICS = { UIEvents.UILabel.TOPIC_LABEL,
+			UIEvents.UILabel.TOPIC_TOOLTIP, UIEvents.UILabel.TOPIC_ICONURI,
+			UIEvents.UIElement.TOPIC_TOBERENDERED,
+			UIEvents.UIElement.TOPIC_VISIBLE, UIEvents.UIElement.TOPIC_WIDGET,
+			UIEvents.ElementContainer.TOPIC_SELECTEDELEMENT,
+			UIEvents.ElementContainer.TOPIC_CHILDREN };
+
+	private static final String[] WILDCARD_TOPICS = {
+			UIEvents.UILabel.TOPIC_ALL, UIEvents.UIElement.TOPIC_ALL };
+
+	private static final int SUBSCRIBERS_PER_TOPIC = 10;
+
+	private static final int EVENTS = 100000;
+
+	private final EventHandler handler = new EventHandler() {
+		public void handleEvent(Event event) {
+			received++;
+		}
+	};
+
+	private int received;
+
+	private IEventBroker eventBroker;
+
+	private final List registrations = new ArrayList();
+
+	/**
+	 * Constructs an instance of <code>EventBrokerPerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public EventBrokerPerformanceTest(final String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		eventBroker = (IEventBroker) PlatformUI.getWorkbench().getService(
+				IEventBroker.class);
+		received = 0;
+	}
+
+	protected void doTearDown() throws Exception {
+		eventBroker.unsubscribe(handler);
+		for (int i = 0; i < registrations.size(); i++) {
+			((ServiceRegistration) registrations.get(i)).unregister();
+		}
+		registrations.clear();
+		eventBroker = null;
+		super.doTearDown();
+	}
+
+	/**
+	 * <p>
+	 * Sends model events through the event broker, with subscribers registered
+	 * through the event broker.
+	 * </p>
+	 */
+	public void testEventBrokerSend() {
+		for (int i = 0; i < SUBSCRIBERS_PER_TOPIC; i++) {
+			for (int j = 0; j < TOPICS.length; j++) {
+				eventBroker.subscribe(TOPICS[j], null, handler, true);
+			}
+			for (int j = 0; j < WILDCARD_TOPICS.length; j++) {
+				eventBroker.subscribe(WILDCARD_TOPICS[j], null, handler, true);
+			}
+		}
+		String[] topics = getEventTopics();
+		Map data = createEventData();
+
+		startMeasuring();
+		for (int i = 0; i < EVENTS; i++) {
+			eventBroker.send(topics[i % topics.length], data);
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+		assertTrue(received > 0);
+	}
+
+	/**
+	 * <p>
+	 * Sends the same model events directly to EventAdmin, with subscribers
+	 * registered as event handler services.
+	 * </p>
+	 */
+	public void testEventAdminSend() {
+		BundleContext context = UIPerformancePlugin.getDefault().getBundle()
+				.getBundleContext();
+		for (int i = 0; i < SUBSCRIBERS_PER_TOPIC; i++) {
+			for (int j = 0; j < TOPICS.length; j++) {
+				registerHandler(context, TOPICS[j]);
+			}
+			for (int j = 0; j < WILDCARD_TOPICS.length; j++) {
+				registerHandler(context, WILDCARD_TOPICS[j]);
+			}
+		}
+		ServiceReference reference = context.getServiceReference(EventAdmin.class
+				.getName());
+		assertNotNull(reference);
+		EventAdmin eventAdmin = (EventAdmin) context.getService(reference);
+		String[] topics = getEventTopics();
+		Map data = createEventData();
+
+		try {
+			startMeasuring();
+			for (int i = 0; i < EVENTS; i++) {
+				eventAdmin.sendEvent(new Event(topics[i % topics.length], data));
+			}
+			stopMeasuring();
+		} finally {
+			context.ungetService(reference);
+		}
+		commitMeasurements();
+		assertPerformance();
+		assertTrue(received > 0);
+	}
+
+	private void registerHandler(BundleContext context, String topic) {
+		Hashtable properties = new Hashtable();
+		properties.put(EventConstants.EVENT_TOPIC, new String[] { topic });
+		registrations.add(context.registerService(EventHandler.class.getName(),
+				handler, properties));
+	}
+
+	/**
+	 * Returns the topics of the SET events matching the subscribed topics.
+	 */
+	private static String[] getEventTopics() {
+		String[] topics = new String[TOPICS.length];
+		for (int i = 0; i < TOPICS.length; i++) {
+			String topic = TOPICS[i];
+			topics[i] = topic.substring(0, topic.length() - 1)
+					+ UIEvents.EventTypes.SET;
+		}
+		return topics;
+	}
+
+	private static Map createEventData() {
+		Map data = new HashMap();
+		data.put(UIEvents.EventTags.ELEMENT, new Object());
+		data.put(UIEvents.EventTags.TYPE, UIEvents.EventTypes.SET);
+		data.put(UIEvents.EventTags.OLD_VALUE, "old");
+		data.put(UIEvents.EventTags.NEW_VALUE, "new");
+		return data;
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.Random;
+
+import org.eclipse.ui.dialogs.SearchPattern;
+
+/**
+ * <p>
+ * Measures the matching of one million file names with the search patterns
+ * typed in the Open Resource and Open Type dialogs, one test per match rule.
+ * </p>
+ */
+public final class SearchPatternPerformanceTest extends BasicPerformanceTest {
+
+	private static final int CANDIDATES = 1000000;
+
+	private static final int ITERATIONS = 5;
+
+	private static final String[] WORDS = { "Abstract", "Tree", "Viewer",
+			"Content", "Provider", "Job", "Filter", "Items", "Selection",
+			"Dialog", "Util", "Test", "Manager", "Handler" };
+
+	private static final String[] EXTENSIONS = { ".java", ".class", ".xml",
+			".properties" };
+
+	private static String[] names;
+
+	/**
+	 * Constructs an instance of <code>SearchPatternPerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public SearchPatternPerformanceTest(final String testName) {
+		super(testName);
+	}
+
+	/**
+	 * <p>
+	 * Matches the names with a prefix pattern.
+	 * </p>
+	 */
+	public void testPrefixMatch() {
+		measure("abstracttr", SearchPattern.RULE_PREFIX_MATCH);
+	}
+
+	/**
+	 * <p>
+	 * Matches the names with a CamelCase pattern.
+	 * </p>
+	 */
+	public void testCamelCaseMatch() {
+		measure("ATV", SearchPattern.RULE_CAMELCASE_MATCH);
+	}
+
+	/**
+	 * <p>
+	 * Matches the names with a pattern containing wild-cards.
+	 * </p>
+	 */
+	public void testPatternMatch() {
+		measure("*view*pro?ider", SearchPattern.RULE_PATTERN_MATCH);
+	}
+
+	private void measure(String pattern, int expectedRule) {
+		String[] candidates = getNames();
+		SearchPattern searchPattern = new SearchPattern();
+		searchPattern.setPattern(pattern);
+		assertEquals(expectedRule, searchPattern.getMatchRule());
+
+		int matches = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			matches = 0;
+			startMeasuring();
+			for (int j = 0; j < candidates.length; j++) {
+				if (searchPattern.matches(candidates[j])) {
+					matches++;
+				}
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+		assertTrue(matches > 0);
+	}
+
+	/**
+	 * Returns the candidate file names, the same for every run.
+	 */
+	private static String[] getNames() {
+		if (names == null) {
+			Random random = new Random(0);
+			names = new String[CANDIDATES];
+			StringBuffer buffer = new StringBuffer();
+			for (int i = 0; i < CANDIDATES; i++) {
+				buffer.setLength(0);
+				int words = 1 + random.nextInt(4);
+				for (int j = 0; j < words; j++) {
+					buffer.append(WORDS[random.nextInt(WORDS.length)]);
+				}
+				buffer.append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+				names[i] = buffer.toString();
+			}
+		}
+		return names;
+	}
+}
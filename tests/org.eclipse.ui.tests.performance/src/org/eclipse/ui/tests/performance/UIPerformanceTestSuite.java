@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -39,5 +39,8 @@ public class UIPerformanceTestSuite extends FilteredTestSuite {
         addTest(new EditorPerformanceSuite());
         addTest(new TestSuite(CommandsPerformanceTest.class));
 		addTest(new LabelProviderTestSuite());
+		addTest(new TestSuite(EventBrokerPerformanceTest.class));
+		addTest(new TestSuite(SearchPatternPerformanceTest.class));
+		addTest(new TestSuite(ComputedValuePerformanceTest.class));
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,9 @@ public class AllTests extends TestSuite {
 		addTestSuite(TreeSelectionTest.class);
 		addTestSuite(MultipleEqualElementsTreeViewerTest.class);
 		addTestSuite(LazySortedCollectionTest.class);
+		addTestSuite(DeferredTreeContentProviderTest.class);
+		addTestSuite(ElementWidgetMapTest.class);
+		addTestSuite(AsyncTreeContentProviderTest.class);
 		addTestSuite(TreeViewerTest.class);
 		addTestSuite(VirtualTreeViewerTest.class);
 		addTestSuite(SimpleTreeViewerTest.class);
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jface.viewers.IAsyncTreeContentProvider;
+import org.eclipse.jface.viewers.IChildrenCollector;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Tests the children fetched by an {@link IAsyncTreeContentProvider}: chunks
+ * added under a pending item, cancellation on collapse and fetches shared by
+ * several items.
+ *
+ * @since 3.10
+ */
+public class AsyncTreeContentProviderTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(AsyncTreeContentProviderTest.class);
+    }
+
+    public static Test suite() {
+        return new TestSuite(AsyncTreeContentProviderTest.class);
+    }
+
+    private Shell shell;
+    private TreeViewer viewer;
+    private ContentProvider contentProvider;
+
+    /**
+     * Top-level elements "a" and "b", both with the child "x". The children
+     * of "x" are only fetched, by the test.
+     */
+    private static class ContentProvider implements IAsyncTreeContentProvider {
+        final List parents = new ArrayList();
+        final List collectors = new ArrayList();
+
+        public boolean fetchChildren(Object parentElement,
+                IChildrenCollector collector) {
+            if (!"x".equals(parentElement)) {
+                return false;
+            }
+            parents.add(parentElement);
+            collectors.add(collector);
+            return true;
+        }
+
+        IChildrenCollector lastCollector() {
+            return (IChildrenCollector) collectors.get(collectors.size() - 1);
+        }
+
+        public Object[] getChildren(Object parentElement) {
+            if ("x".equals(parentElement)) {
+                return new Object[0];
+            }
+            return new Object[] { "x" };
+        }
+
+        public Object getParent(Object element) {
+            return null;
+        }
+
+        public boolean hasChildren(Object element) {
+            return ((String) element).length() == 1;
+        }
+
+        public Object[] getElements(Object inputElement) {
+            return new Object[] { "a", "b" };
+        }
+
+        public void dispose() {
+        }
+
+        public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        Display display = Display.getCurrent();
+        if (display == null) {
+            display = new Display();
+        }
+        shell = new Shell(display);
+        viewer = new TreeViewer(shell);
+        contentProvider = new ContentProvider();
+        viewer.setContentProvider(contentProvider);
+        viewer.setComparator(new ViewerComparator());
+        viewer.setInput("input");
+        shell.open();
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        shell.dispose();
+        super.tearDown();
+    }
+
+    public void testChunksAndDone() {
+        TreeItem x = expandX(0);
+        assertEquals(1, contentProvider.collectors.size());
+        assertChildren(x, new String[0], true);
+
+        IChildrenCollector collector = contentProvider.lastCollector();
+        collector.add(new Object[] { "x3", "x1" });
+        runEventLoop();
+        assertChildren(x, new String[] { "x1", "x3" }, true);
+
+        collector.add(new Object[] { "x2" });
+        runEventLoop();
+        assertChildren(x, new String[] { "x1", "x2", "x3" }, true);
+
+        collector.done();
+        runEventLoop();
+        assertChildren(x, new String[] { "x1", "x2", "x3" }, false);
+        assertFalse(collector.isCanceled());
+    }
+
+    public void testCollapseMidFetch() {
+        TreeItem x = expandX(0);
+        IChildrenCollector collector = contentProvider.lastCollector();
+        collector.add(new Object[] { "x1" });
+        runEventLoop();
+        assertChildren(x, new String[] { "x1" }, true);
+
+        collapse(x);
+        assertTrue(collector.isCanceled());
+        // a single dummy node is left, not the partial children
+        assertEquals(1, x.getItemCount());
+        assertNull(x.getItems()[0].getData());
+        collector.add(new Object[] { "x2" });
+        collector.done();
+        runEventLoop();
+        assertEquals(1, x.getItemCount());
+
+        // expanding again fetches all the children again
+        expand(x);
+        assertEquals(2, contentProvider.collectors.size());
+        collector = contentProvider.lastCollector();
+        collector.add(new Object[] { "x2", "x1" });
+        collector.done();
+        runEventLoop();
+        assertChildren(x, new String[] { "x1", "x2" }, false);
+    }
+
+    public void testSameElementUnderTwoItems() {
+        TreeItem x0 = expandX(0);
+        IChildrenCollector collector = contentProvider.lastCollector();
+        collector.add(new Object[] { "x1" });
+        runEventLoop();
+
+        // the second item joins the fetch in progress
+        TreeItem x1 = expandX(1);
+        assertEquals(1, contentProvider.collectors.size());
+        assertChildren(x1, new String[] { "x1" }, true);
+
+        collector.add(new Object[] { "x2" });
+        collector.done();
+        runEventLoop();
+        assertChildren(x0, new String[] { "x1", "x2" }, false);
+        assertChildren(x1, new String[] { "x1", "x2" }, false);
+    }
+
+    public void testCollapseOneOfTwoItems() {
+        TreeItem x0 = expandX(0);
+        TreeItem x1 = expandX(1);
+        IChildrenCollector collector = contentProvider.lastCollector();
+
+        // the fetch goes on for the other item
+        collapse(x0);
+        assertFalse(collector.isCanceled());
+        assertEquals(1, x0.getItemCount());
+        assertNull(x0.getItems()[0].getData());
+
+        collector.add(new Object[] { "x1" });
+        collector.done();
+        runEventLoop();
+        assertChildren(x1, new String[] { "x1" }, false);
+    }
+
+    /**
+     * Expands the given top-level item and its child "x".
+     */
+    private TreeItem expandX(int index) {
+        TreeItem parent = viewer.getTree().getItems()[index];
+        expand(parent);
+        TreeItem x = parent.getItems()[0];
+        assertEquals("x", x.getData());
+        expand(x);
+        return x;
+    }
+
+    private void expand(TreeItem item) {
+        Event event = new Event();
+        event.item = item;
+        item.getParent().notifyListeners(SWT.Expand, event);
+        item.setExpanded(true);
+    }
+
+    private void collapse(TreeItem item) {
+        Event event = new Event();
+        event.item = item;
+        item.getParent().notifyListeners(SWT.Collapse, event);
+        item.setExpanded(false);
+    }
+
+    /**
+     * Checks the children of the item, followed by a pending item with no
+     * element while the children are fetched.
+     */
+    private void assertChildren(TreeItem item, String[] expected,
+            boolean pending) {
+        TreeItem[] items = item.getItems();
+        assertEquals(expected.length + (pending ? 1 : 0), items.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], items[i].getData());
+        }
+        if (pending) {
+            assertNull(items[expected.length].getData());
+        }
+    }
+
+    private void runEventLoop() {
+        Display display = shell.getDisplay();
+        while (display.readAndDispatch()) {
+            // add the delivered children
+        }
+    }
+}
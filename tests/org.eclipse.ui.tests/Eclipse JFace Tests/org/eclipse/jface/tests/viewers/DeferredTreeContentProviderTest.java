@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jface.viewers.IFilter;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.deferred.DeferredTreeContentProvider;
+import org.eclipse.jface.viewers.deferred.IConcurrentModel;
+import org.eclipse.jface.viewers.deferred.IConcurrentTreeModel;
+import org.eclipse.jface.viewers.deferred.SetModel;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Tests the children that a {@link DeferredTreeContentProvider} sends to a
+ * virtual tree for an {@link IConcurrentTreeModel}.
+ *
+ * @since 3.10
+ */
+public class DeferredTreeContentProviderTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(DeferredTreeContentProviderTest.class);
+    }
+
+    public static Test suite() {
+        return new TestSuite(DeferredTreeContentProviderTest.class);
+    }
+
+    private static final long TIMEOUT = 10000;
+
+    private Shell shell;
+    private TreeViewer viewer;
+    private DeferredTreeContentProvider contentProvider;
+    private TreeModel model;
+
+    /**
+     * A tree model whose children are set on a SetModel per parent.
+     */
+    private static class TreeModel implements IConcurrentTreeModel {
+        final Map children = new HashMap();
+
+        SetModel getModel(Object parent) {
+            SetModel result = (SetModel) children.get(parent);
+            if (result == null) {
+                result = new SetModel();
+                children.put(parent, result);
+            }
+            return result;
+        }
+
+        public boolean hasChildren(Object element) {
+            return children.containsKey(element);
+        }
+
+        public IConcurrentModel getChildren(Object parent) {
+            return (IConcurrentModel) children.get(parent);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        Display display = Display.getCurrent();
+        if (display == null) {
+            display = new Display();
+        }
+        shell = new Shell(display);
+        shell.setSize(300, 400);
+        shell.setLayout(new FillLayout());
+        viewer = new TreeViewer(shell, SWT.VIRTUAL);
+        viewer.setUseHashlookup(true);
+        contentProvider = new DeferredTreeContentProvider(new TestComparator());
+        contentProvider.setWorkerCount(2);
+        viewer.setContentProvider(contentProvider);
+        shell.open();
+
+        model = new TreeModel();
+        model.getModel(model).set(new Object[] { "c", "a", "b" });
+        model.getModel("a").set(new Object[] { "a3", "a1", "a2" });
+        model.getModel("a1").set(new Object[] { "a1b", "a1a" });
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        shell.dispose();
+        contentProvider.dispose();
+        super.tearDown();
+    }
+
+    public void testTopLevelElementsAreSorted() {
+        viewer.setInput(model);
+        assertChildren(null, new String[] { "a", "b", "c" });
+        assertEquals(model, contentProvider.getParent("a"));
+    }
+
+    public void testChangesAreSent() {
+        viewer.setInput(model);
+        assertChildren(null, new String[] { "a", "b", "c" });
+        model.getModel(model).addAll(new Object[] { "0" });
+        model.getModel(model).removeAll(new Object[] { "b" });
+        assertChildren(null, new String[] { "0", "a", "c" });
+    }
+
+    public void testFilterAndLimit() {
+        contentProvider.setFilter(new IFilter() {
+            public boolean select(Object toTest) {
+                return !"b".equals(toTest);
+            }
+        });
+        viewer.setInput(model);
+        assertChildren(null, new String[] { "a", "c" });
+
+        model.getModel(model).addAll(new Object[] { "0", "d" });
+        contentProvider.setLimit(2);
+        assertEquals(2, contentProvider.getLimit());
+        assertChildren(null, new String[] { "0", "a" });
+    }
+
+    public void testExpandSortsChildren() {
+        viewer.setInput(model);
+        TreeItem a = findItem(null, "a");
+        expand(a);
+        assertChildren(a, new String[] { "a1", "a2", "a3" });
+        assertEquals("a", contentProvider.getParent("a1"));
+
+        TreeItem a1 = findItem(a, "a1");
+        expand(a1);
+        assertChildren(a1, new String[] { "a1a", "a1b" });
+        assertEquals("a1", contentProvider.getParent("a1a"));
+    }
+
+    public void testCollapseForgetsDescendants() {
+        viewer.setInput(model);
+        TreeItem a = findItem(null, "a");
+        expand(a);
+        assertChildren(a, new String[] { "a1", "a2", "a3" });
+        TreeItem a1 = findItem(a, "a1");
+        expand(a1);
+        assertChildren(a1, new String[] { "a1a", "a1b" });
+
+        collapse(a);
+        assertNull(contentProvider.getParent("a1"));
+        assertNull(contentProvider.getParent("a1a"));
+        assertEquals(model, contentProvider.getParent("a"));
+
+        // the children are sent again
+        expand(a);
+        assertChildren(a, new String[] { "a1", "a2", "a3" });
+        assertEquals("a", contentProvider.getParent("a1"));
+    }
+
+    public void testSortOrderChange() {
+        viewer.setInput(model);
+        TreeItem a = findItem(null, "a");
+        expand(a);
+        assertChildren(a, new String[] { "a1", "a2", "a3" });
+
+        contentProvider.setSortOrder(new TestComparator() {
+            public int compare(Object arg0, Object arg1) {
+                return -super.compare(arg0, arg1);
+            }
+        });
+        assertChildren(null, new String[] { "c", "b", "a" });
+        assertChildren(a, new String[] { "a3", "a2", "a1" });
+    }
+
+    private void expand(TreeItem item) {
+        Event event = new Event();
+        event.item = item;
+        item.getParent().notifyListeners(SWT.Expand, event);
+        item.setExpanded(true);
+    }
+
+    private void collapse(TreeItem item) {
+        Event event = new Event();
+        event.item = item;
+        item.getParent().notifyListeners(SWT.Collapse, event);
+        item.setExpanded(false);
+    }
+
+    private TreeItem findItem(TreeItem parentItem, String element) {
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < TIMEOUT) {
+            TreeItem[] items = getItems(parentItem);
+            for (int i = 0; i < items.length; i++) {
+                items[i].getText();
+                if (element.equals(items[i].getData())) {
+                    return items[i];
+                }
+            }
+            runEventLoop();
+        }
+        fail("no item for " + element);
+        return null;
+    }
+
+    /**
+     * Waits until the children of the given item, or the top-level items if
+     * it is null, show the expected elements in order.
+     */
+    private void assertChildren(TreeItem parentItem, String[] expected) {
+        long start = System.currentTimeMillis();
+        TreeItem[] items = getItems(parentItem);
+        while (!hasElements(items, expected)
+                && System.currentTimeMillis() - start < TIMEOUT) {
+            runEventLoop();
+            items = getItems(parentItem);
+        }
+        assertEquals(expected.length, items.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], items[i].getData());
+        }
+    }
+
+    private TreeItem[] getItems(TreeItem parentItem) {
+        return parentItem != null ? parentItem.getItems() : viewer.getTree()
+                .getItems();
+    }
+
+    private boolean hasElements(TreeItem[] items, String[] expected) {
+        if (items.length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < items.length; i++) {
+            // asking for the data materializes the virtual item
+            items[i].getText();
+            if (!expected[i].equals(items[i].getData())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void runEventLoop() {
+        Display display = shell.getDisplay();
+        while (display.readAndDispatch()) {
+            // run the pending updates
+        }
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
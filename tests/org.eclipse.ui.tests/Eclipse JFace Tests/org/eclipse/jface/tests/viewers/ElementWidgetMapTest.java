@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.jface.viewers.IElementComparer;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * Tests the open addressing map from elements to widgets used by the
+ * structured viewers, with colliding hash codes, deletions inside a probe
+ * sequence, resizing and a custom element comparer.
+ *
+ * @since 3.10
+ */
+public class ElementWidgetMapTest extends TestCase {
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(ElementWidgetMapTest.class);
+    }
+
+    public static Test suite() {
+        return new TestSuite(ElementWidgetMapTest.class);
+    }
+
+    private static final String MAP_CLASS = "org.eclipse.jface.viewers.ElementWidgetMap";
+
+    private static final IElementComparer IGNORE_CASE = new IElementComparer() {
+        public boolean equals(Object a, Object b) {
+            return ((String) a).equalsIgnoreCase((String) b);
+        }
+
+        public int hashCode(Object element) {
+            return ((String) element).toLowerCase().hashCode();
+        }
+    };
+
+    private Shell shell;
+
+    private Widget[] widgets;
+
+    /**
+     * An element with a given hash code, equal to the elements with the same
+     * name.
+     */
+    private static class Element {
+        final String name;
+        final int hash;
+
+        Element(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof Element && ((Element) obj).name.equals(name);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Gives access to the package private map.
+     */
+    private static class MapAccess {
+        private final Object map;
+
+        MapAccess(IElementComparer comparer) throws Exception {
+            Class mapClass = StructuredViewer.class.getClassLoader()
+                    .loadClass(MAP_CLASS);
+            Constructor constructor = mapClass
+                    .getDeclaredConstructor(new Class[] { IElementComparer.class });
+            constructor.setAccessible(true);
+            map = constructor.newInstance(new Object[] { comparer });
+        }
+
+        MapAccess(MapAccess toCopy, IElementComparer comparer) throws Exception {
+            Class mapClass = toCopy.map.getClass();
+            Constructor constructor = mapClass.getDeclaredConstructor(new Class[] {
+                    mapClass, IElementComparer.class });
+            constructor.setAccessible(true);
+            map = constructor.newInstance(new Object[] { toCopy.map, comparer });
+        }
+
+        Widget[] getWidgets(Object element) throws Exception {
+            return (Widget[]) invoke("getWidgets", new Class[] { Object.class },
+                    new Object[] { element });
+        }
+
+        void add(Object element, Widget widget) throws Exception {
+            invoke("add", new Class[] { Object.class, Widget.class },
+                    new Object[] { element, widget });
+        }
+
+        void remove(Object element, Widget widget) throws Exception {
+            invoke("remove", new Class[] { Object.class, Widget.class },
+                    new Object[] { element, widget });
+        }
+
+        void remove(Object element) throws Exception {
+            invoke("remove", new Class[] { Object.class },
+                    new Object[] { element });
+        }
+
+        int size() throws Exception {
+            return ((Integer) invoke("size", new Class[0], new Object[0]))
+                    .intValue();
+        }
+
+        private Object invoke(String name, Class[] types, Object[] args)
+                throws Exception {
+            Method method = map.getClass().getDeclaredMethod(name, types);
+            method.setAccessible(true);
+            try {
+                return method.invoke(map, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#setUp()
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        Display display = Display.getCurrent();
+        if (display == null) {
+            display = new Display();
+        }
+        shell = new Shell(display);
+        widgets = new Widget[4];
+        for (int i = 0; i < widgets.length; i++) {
+            widgets[i] = new Label(shell, SWT.NONE);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see junit.framework.TestCase#tearDown()
+     */
+    protected void tearDown() throws Exception {
+        shell.dispose();
+        super.tearDown();
+    }
+
+    public void testSeveralWidgets() throws Exception {
+        MapAccess map = new MapAccess(null);
+        Element element = new Element("a", 1);
+        assertWidgets(map, element, new Widget[0]);
+
+        map.add(element, widgets[0]);
+        map.add(element, widgets[0]);
+        assertWidgets(map, element, new Widget[] { widgets[0] });
+        map.add(element, widgets[1]);
+        map.add(element, widgets[2]);
+        assertWidgets(map, element, new Widget[] { widgets[0], widgets[1],
+                widgets[2] });
+        assertEquals(1, map.size());
+
+        map.remove(element, widgets[3]);
+        map.remove(element, widgets[1]);
+        assertWidgets(map, element, new Widget[] { widgets[0], widgets[2] });
+        map.remove(element, widgets[0]);
+        assertWidgets(map, element, new Widget[] { widgets[2] });
+        map.remove(element, widgets[0]);
+        assertWidgets(map, element, new Widget[] { widgets[2] });
+        map.remove(element, widgets[2]);
+        assertWidgets(map, element, new Widget[0]);
+        assertEquals(0, map.size());
+    }
+
+    public void testCollisions() throws Exception {
+        MapAccess map = new MapAccess(null);
+        Element[] elements = new Element[10];
+        for (int i = 0; i < elements.length; i++) {
+            // a single probe sequence
+            elements[i] = new Element("e" + i, 7);
+            map.add(elements[i], widgets[i % widgets.length]);
+        }
+        assertEquals(elements.length, map.size());
+        for (int i = 0; i < elements.length; i++) {
+            assertWidgets(map, elements[i], new Widget[] { widgets[i
+                    % widgets.length] });
+        }
+        assertWidgets(map, new Element("other", 7), new Widget[0]);
+    }
+
+    public void testDeleteInCluster() throws Exception {
+        MapAccess map = new MapAccess(null);
+        // two hash codes whose home slots are next to each other, so that the
+        // probe sequence mixes elements which can and cannot be moved back
+        int otherHash = 1;
+        while (homeSlot(otherHash) != (homeSlot(0) + 1) % 16) {
+            otherHash++;
+        }
+        Element[] elements = new Element[10];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new Element("e" + i, i % 2 == 0 ? 0 : otherHash);
+            map.add(elements[i], widgets[0]);
+        }
+        // delete from the start, the middle and the end of the cluster
+        int[] deleted = new int[] { 0, 5, 9, 4 };
+        Set remaining = new HashSet(Arrays.asList(elements));
+        for (int i = 0; i < deleted.length; i++) {
+            Element element = elements[deleted[i]];
+            if (i % 2 == 0) {
+                map.remove(element);
+            } else {
+                map.remove(element, widgets[0]);
+            }
+            remaining.remove(element);
+            assertEquals(remaining.size(), map.size());
+            for (int j = 0; j < elements.length; j++) {
+                assertWidgets(map, elements[j],
+                        remaining.contains(elements[j]) ? new Widget[] { widgets[0] }
+                                : new Widget[0]);
+            }
+        }
+
+        // the freed slots are reused
+        for (int i = 0; i < deleted.length; i++) {
+            map.add(elements[deleted[i]], widgets[1]);
+        }
+        assertEquals(elements.length, map.size());
+        for (int i = 0; i < deleted.length; i++) {
+            assertWidgets(map, elements[deleted[i]], new Widget[] { widgets[1] });
+        }
+    }
+
+    public void testResize() throws Exception {
+        MapAccess map = new MapAccess(null);
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            map.add(new Element("e" + i, i), widgets[i % widgets.length]);
+            // several widgets survive the resizes as well
+            if (i % 100 == 0) {
+                map.add(new Element("e" + i, i), widgets[(i + 1) % widgets.length]);
+            }
+        }
+        assertEquals(count, map.size());
+        for (int i = 0; i < count; i++) {
+            Widget widget = widgets[i % widgets.length];
+            assertWidgets(map, new Element("e" + i, i), i % 100 == 0 ? new Widget[] {
+                    widget, widgets[(i + 1) % widgets.length] }
+                    : new Widget[] { widget });
+        }
+        for (int i = 0; i < count; i += 2) {
+            map.remove(new Element("e" + i, i));
+        }
+        assertEquals(count / 2, map.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? 0 : 1, map.getWidgets(new Element(
+                    "e" + i, i)).length);
+        }
+    }
+
+    public void testComparer() throws Exception {
+        MapAccess map = new MapAccess(IGNORE_CASE);
+        map.add("a", widgets[0]);
+        map.add("A", widgets[1]);
+        map.add("b", widgets[2]);
+        assertEquals(2, map.size());
+        assertWidgets(map, "A", new Widget[] { widgets[0], widgets[1] });
+        map.remove("B");
+        assertEquals(1, map.size());
+        assertWidgets(map, "b", new Widget[0]);
+    }
+
+    public void testCopyWithOtherComparer() throws Exception {
+        MapAccess map = new MapAccess(null);
+        map.add("a", widgets[0]);
+        map.add("A", widgets[1]);
+        map.add("b", widgets[2]);
+        assertEquals(3, map.size());
+
+        // equal elements for the new comparer are merged
+        MapAccess copy = new MapAccess(map, IGNORE_CASE);
+        assertEquals(2, copy.size());
+        Set widgetsOfA = new HashSet(Arrays.asList(copy.getWidgets("a")));
+        assertEquals(new HashSet(Arrays.asList(new Widget[] { widgets[0],
+                widgets[1] })), widgetsOfA);
+        assertWidgets(copy, "B", new Widget[] { widgets[2] });
+        // the copied map is unchanged
+        assertEquals(3, map.size());
+        assertWidgets(map, "A", new Widget[] { widgets[1] });
+    }
+
+    /**
+     * Returns the slot of the given hash code in a map of the initial
+     * capacity, spread like the map does.
+     */
+    private static int homeSlot(int hash) {
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & 15;
+    }
+
+    private void assertWidgets(MapAccess map, Object element, Widget[] expected)
+            throws Exception {
+        assertEquals(Arrays.asList(expected), Arrays.asList(map
+                .getWidgets(element)));
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,10 @@
 
 package org.eclipse.jface.tests.viewers;
 
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+
 import org.eclipse.jface.viewers.ListViewer;
 import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.ViewerComparator;
@@ -62,6 +66,61 @@ public class ListViewerComparatorTest extends ViewerComparatorTest {
 		assertSortedResult(TEAM1_SORTED_WITH_INSERT);
 	}
 	
+	public void testViewerComparatorManyElements(){
+		String[] members = new String[200];
+		for (int i = 0; i < members.length; i++){
+			members[i] = (i % 2 == 0 ? "member" : "Member") + ((i * 7919) % members.length);
+		}
+		fViewer.setInput(new Team(UI, members));
+		Collator collator = Collator.getInstance();
+		fViewer.setComparator(new ViewerComparator(collator));
+		String[] expected = (String[]) members.clone();
+		Arrays.sort(expected, collator);
+		assertSortedResult(expected);
+	}
+	
+	public void testViewerComparatorPartialSort(){
+		Object[] members = team1.members;
+		Object[] result = (Object[]) members.clone();
+		new ViewerComparator().sort(fViewer, result, 3);
+		String[] expected = {"Andrea", "Boris", "Eric"};
+		for (int i = 0; i < expected.length; i++){
+			assertEquals(expected[i], ((TeamMember) result[i]).name);
+		}
+		// the other members keep their order
+		int next = 3;
+		for (int i = 0; i < members.length; i++){
+			String name = ((TeamMember) members[i]).name;
+			if (!Arrays.asList(expected).contains(name)){
+				assertSame(members[i], result[next++]);
+			}
+		}
+		assertEquals(members.length, next);
+	}
+	
+	public void testViewerComparatorParallelSort(){
+		// more elements than sorted on a single thread, with equal labels
+		String[] names = new String[60000];
+		for (int i = 0; i < names.length; i++){
+			names[i] = (i % 2 == 0 ? "member" : "Member") + ((i * 7919) % 1000);
+		}
+		Team team = new Team(UI, names);
+		final Collator collator = Collator.getInstance();
+		Object[] result = (Object[]) team.members.clone();
+		new ViewerComparator(collator).sort(fViewer, result);
+		Object[] expected = (Object[]) team.members.clone();
+		Arrays.sort(expected, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return collator.compare(((TeamMember) o1).name,
+						((TeamMember) o2).name);
+			}
+		});
+		// members with equal names keep their order
+		for (int i = 0; i < expected.length; i++){
+			assertSame("member " + i, expected[i], result[i]);
+		}
+	}
+	
 	private void assertSortedResult(String[] expected){
 		String[] items = getListViewer().getList().getItems();
 		for (int i = 0; i < items.length; i++){
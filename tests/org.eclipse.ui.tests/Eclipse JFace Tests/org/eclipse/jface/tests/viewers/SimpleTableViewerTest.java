@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,13 +12,16 @@
 package org.eclipse.jface.tests.viewers;
 
 import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.IConcurrentLabelProvider;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ILabelProviderListener;
 import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.IViewerLabelProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.ViewerLabel;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
@@ -150,6 +153,63 @@ public class SimpleTableViewerTest extends ViewerTestCase {
 		assertEquals(1, disposeCounter[0]);
 	}
 	
+	public void testUpdateWithConcurrentLabelProvider() {
+		for (int i = 0; i < 1000; i++) {
+			fRootElement.basicAddChild();
+		}
+		final String[] suffix = { "" };
+		class ConcurrentLabelProvider extends LabelProvider implements
+				IConcurrentLabelProvider {
+			public String getText(Object element) {
+				return ((TestElement) element).getLabel() + suffix[0];
+			}
+		}
+		tableViewer.setLabelProvider(new ConcurrentLabelProvider());
+		tableViewer.refresh();
+		Table table = tableViewer.getTable();
+		TestElement[] children = fRootElement.getChildren();
+		assertEquals(children.length, table.getItemCount());
+
+		suffix[0] = " updated";
+		tableViewer.update(children, null);
+		for (int i = 0; i < children.length; i++) {
+			assertEquals(children[i].getLabel() + " updated", table.getItem(i)
+					.getText());
+		}
+	}
+
+	public void testUpdateWithConcurrentViewerLabelProvider() {
+		for (int i = 0; i < 1000; i++) {
+			fRootElement.basicAddChild();
+		}
+		final String[] suffix = { "" };
+		class ConcurrentLabelProvider extends LabelProvider implements
+				IViewerLabelProvider, IConcurrentLabelProvider {
+			public void updateLabel(ViewerLabel label, Object element) {
+				// only the text of some elements changes
+				TestElement testElement = (TestElement) element;
+				if (suffix[0].length() == 0
+						|| testElement.getLabel().endsWith("0")) {
+					label.setText(testElement.getLabel() + suffix[0]);
+				}
+			}
+		}
+		tableViewer.setLabelProvider(new ConcurrentLabelProvider());
+		tableViewer.refresh();
+		Table table = tableViewer.getTable();
+		TestElement[] children = fRootElement.getChildren();
+		assertEquals(children.length, table.getItemCount());
+
+		// the labels computed in parallel start from the text of the cells
+		suffix[0] = " updated";
+		tableViewer.update(children, null);
+		for (int i = 0; i < children.length; i++) {
+			String label = children[i].getLabel();
+			assertEquals(label.endsWith("0") ? label + " updated" : label,
+					table.getItem(i).getText());
+		}
+	}
+
 	public void testCellLabelProviderDispose() {
 		final int[] disposeCounter = { 0 };
 		tableViewer.setLabelProvider(new ColumnLabelProvider() {
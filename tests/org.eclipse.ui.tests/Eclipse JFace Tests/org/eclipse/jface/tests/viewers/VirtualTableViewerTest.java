@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,13 +11,18 @@
  *******************************************************************************/
 package org.eclipse.jface.tests.viewers;
 
+import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.eclipse.jface.viewers.AbstractTableViewer;
+import org.eclipse.jface.viewers.ArrayContentProvider;
 import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
@@ -357,6 +362,53 @@ public class VirtualTableViewerTest extends TableViewerTest {
 		super.testSetSelection();
 	}
 	
+	/**
+	 * Test that a refresh only sorts the first elements of a large input, and
+	 * that the other elements are sorted once one of them is needed.
+	 */
+	public void testSortWindow() throws Exception {
+		String[] names = new String[1000];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "element" + ((i * 7919) % names.length);
+		}
+		String[] expected = (String[]) names.clone();
+		Arrays.sort(expected);
+
+		TableViewer viewer = (TableViewer) fViewer;
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new LabelProvider());
+		viewer.setComparator(new ViewerComparator());
+		viewer.setInput(names);
+
+		int window = ((Integer) getField(null, AbstractTableViewer.class,
+				"VIRTUAL_SORT_WINDOW")).intValue();
+		Object virtualManager = getField(viewer, AbstractTableViewer.class,
+				"virtualManager");
+		int sortedCount = ((Integer) getField(virtualManager,
+				virtualManager.getClass(), "sortedCount")).intValue();
+		assertEquals(window, sortedCount);
+		Object[] cached = (Object[]) getField(virtualManager,
+				virtualManager.getClass(), "cachedElements");
+		assertEquals(names.length, cached.length);
+		for (int i = 0; i < sortedCount; i++) {
+			assertEquals(expected[i], cached[i]);
+		}
+
+		// showing an element after the sorted ones completes the sort
+		int last = names.length - 1;
+		assertEquals(expected[last], viewer.getTable().getItem(last).getText());
+		cached = (Object[]) getField(virtualManager,
+				virtualManager.getClass(), "cachedElements");
+		assertEquals(Arrays.asList(expected), Arrays.asList(cached));
+	}
+
+	private static Object getField(Object target, Class type, String name)
+			throws Exception {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(target);
+	}
+
 	/**
 	 * Test selecting all elements.
 	 */
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.decorators;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.jface.viewers.ILabelProviderListener;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
+import org.eclipse.ui.internal.IPreferenceConstants;
+import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.decorators.DecorationBuilder;
+import org.eclipse.ui.internal.decorators.DecorationScheduler;
+import org.eclipse.ui.internal.decorators.DecoratorManager;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests for the queueing of elements from several threads, the decoration
+ * workers and the result cache of the {@link DecorationScheduler}.
+ */
+public class DecorationSchedulerTest extends UITestCase {
+
+	private static final int MAX_CACHED_RESULTS = 10000;
+
+	private static final long TIMEOUT = 30000;
+
+	private DecoratorManager manager;
+
+	private DecorationScheduler scheduler;
+
+	private final Set notified = Collections.synchronizedSet(new HashSet());
+
+	private final ILabelProviderListener listener = new ILabelProviderListener() {
+		public void labelProviderChanged(LabelProviderChangedEvent event) {
+			Object[] elements = event.getElements();
+			if (elements != null) {
+				for (int i = 0; i < elements.length; i++) {
+					notified.add(elements[i]);
+				}
+			}
+		}
+	};
+
+	private int previousWorkers;
+
+	public DecorationSchedulerTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		manager = WorkbenchPlugin.getDefault().getDecoratorManager();
+		manager.addListener(listener);
+		previousWorkers = getPreferenceStore().getInt(
+				IPreferenceConstants.DECORATION_WORKERS);
+	}
+
+	protected void doTearDown() throws Exception {
+		if (scheduler != null) {
+			invoke("shutdown", new Class[0], new Object[0]);
+			scheduler = null;
+		}
+		manager.removeListener(listener);
+		getPreferenceStore().setValue(IPreferenceConstants.DECORATION_WORKERS,
+				previousWorkers);
+		notified.clear();
+		super.doTearDown();
+	}
+
+	public void testQueueFromSeveralThreads() throws Exception {
+		createScheduler(1);
+		final int threadCount = 8;
+		final int elementCount = 500;
+		final IDecorationContext otherContext = new DecorationContext();
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int offset = t * elementCount / 2;
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						// half of the elements are queued by two threads
+						for (int i = 0; i < elementCount; i++) {
+							Object element = new Element(offset + i);
+							queue(element, DecorationContext.DEFAULT_CONTEXT);
+							queue(element, otherContext);
+						}
+					} catch (Throwable e) {
+						failure[0] = e;
+					}
+				}
+			};
+		}
+		for (int t = 0; t < threadCount; t++) {
+			threads[t].start();
+		}
+		for (int t = 0; t < threadCount; t++) {
+			threads[t].join();
+		}
+		assertNull(failure[0]);
+
+		Set expected = new HashSet();
+		for (int i = 0; i < (threadCount + 1) * elementCount / 2; i++) {
+			expected.add(new Element(i));
+		}
+		waitForNotifications(expected);
+		assertTrue(((Map) getField("awaitingDecorationValues")).isEmpty());
+	}
+
+	public void testSeveralWorkers() throws Exception {
+		createScheduler(4);
+		Object[] jobs = (Object[]) getField("decorationJobs");
+		assertEquals(Math.min(4, Runtime.getRuntime().availableProcessors()),
+				jobs.length);
+
+		Set expected = new HashSet();
+		for (int i = 0; i < 3000; i++) {
+			Element element = new Element(i);
+			expected.add(element);
+			queue(element, DecorationContext.DEFAULT_CONTEXT);
+		}
+		waitForNotifications(expected);
+		assertTrue(((Map) getField("awaitingDecorationValues")).isEmpty());
+	}
+
+	public void testPendingResultsAreNotEvicted() throws Exception {
+		createScheduler(1);
+		IDecorationContext context = new DecorationContext();
+		Set pendingUpdate = (Set) getField("pendingUpdate");
+		Object pending = new Element(0);
+		synchronized (getField("pendingKey")) {
+			pendingUpdate.add(pending);
+		}
+		for (int i = 0; i <= MAX_CACHED_RESULTS; i++) {
+			putResult(new Element(i), context);
+		}
+
+		// the eldest entry is pending, the next one is evicted instead
+		assertTrue(scheduler.isDecorationReady(pending, context));
+		assertFalse(scheduler.isDecorationReady(new Element(1), context));
+		assertTrue(scheduler.isDecorationReady(new Element(2), context));
+		assertTrue(scheduler.isDecorationReady(
+				new Element(MAX_CACHED_RESULTS), context));
+	}
+
+	private void createScheduler(int workers) throws Exception {
+		getPreferenceStore().setValue(IPreferenceConstants.DECORATION_WORKERS,
+				workers);
+		Constructor constructor = DecorationScheduler.class
+				.getDeclaredConstructor(new Class[] { DecoratorManager.class });
+		constructor.setAccessible(true);
+		scheduler = (DecorationScheduler) constructor
+				.newInstance(new Object[] { manager });
+	}
+
+	private void queue(Object element, IDecorationContext context)
+			throws Exception {
+		// forced, so that an update is sent without decorations
+		invoke("queueForDecoration", new Class[] { Object.class, Object.class,
+				boolean.class, String.class, IDecorationContext.class },
+				new Object[] { element, null, Boolean.TRUE, null, context });
+	}
+
+	private void putResult(Object element, IDecorationContext context)
+			throws Exception {
+		Method createResult = DecorationBuilder.class.getDeclaredMethod(
+				"createResult", new Class[0]);
+		createResult.setAccessible(true);
+		Object result = createResult.invoke(new DecorationBuilder(context),
+				new Object[0]);
+		invoke("internalPutResult", new Class[] { Object.class,
+				IDecorationContext.class, result.getClass() }, new Object[] {
+				element, context, result });
+	}
+
+	private void waitForNotifications(Set expected) {
+		long start = System.currentTimeMillis();
+		while (!notified.containsAll(expected)
+				&& System.currentTimeMillis() - start < TIMEOUT) {
+			processEvents();
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		Set missing = new HashSet(expected);
+		missing.removeAll(notified);
+		assertTrue("elements not updated: " + missing.size(), missing
+				.isEmpty());
+	}
+
+	private Object getField(String name) throws Exception {
+		Field field = DecorationScheduler.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(scheduler);
+	}
+
+	private Object invoke(String name, Class[] types, Object[] args)
+			throws Exception {
+		Method method = DecorationScheduler.class.getDeclaredMethod(name,
+				types);
+		method.setAccessible(true);
+		return method.invoke(scheduler, args);
+	}
+
+	private static IPreferenceStore getPreferenceStore() {
+		return WorkbenchPlugin.getDefault().getPreferenceStore();
+	}
+
+	/**
+	 * An element equal to the other elements with the same id.
+	 */
+	private static class Element {
+		private final int id;
+
+		Element(int id) {
+			this.id = id;
+		}
+
+		public boolean equals(Object obj) {
+			return obj instanceof Element && ((Element) obj).id == id;
+		}
+
+		public int hashCode() {
+			return id;
+		}
+	}
+}
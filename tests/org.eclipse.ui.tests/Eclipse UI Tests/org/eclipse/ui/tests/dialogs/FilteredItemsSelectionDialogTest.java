@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.dialogs;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.DialogSettings;
+import org.eclipse.jface.dialogs.IDialogSettings;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.dialogs.FilteredItemsSelectionDialog;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests the filtering of the cached results of a
+ * {@link FilteredItemsSelectionDialog}: reuse of the completed results,
+ * narrowing of the smallest one, and concurrent matching.
+ */
+public class FilteredItemsSelectionDialogTest extends UITestCase {
+
+	private static final long TIMEOUT = 30000;
+
+	/**
+	 * Enough items to match a cached result in several parts.
+	 */
+	private static final int ITEM_COUNT = 20000;
+
+	private TestDialog dialog;
+
+	public FilteredItemsSelectionDialogTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		Shell shell = fWorkbench.getActiveWorkbenchWindow().getShell();
+		dialog = new TestDialog(shell);
+		dialog.setBlockOnOpen(false);
+		dialog.open();
+		waitForFilter();
+	}
+
+	protected void doTearDown() throws Exception {
+		dialog.close();
+		super.doTearDown();
+	}
+
+	public void testCompletedResultsAreReused() throws Exception {
+		dialog.concurrent = false;
+		filter("item");
+		assertEquals(1, dialog.fullSearches);
+		assertResult("item");
+
+		// narrows the result of "item"
+		filter("item1");
+		assertEquals(1, dialog.fullSearches);
+		assertResult("item1");
+
+		// the result of "item" is shown again without matching
+		int matched = dialog.getMatchCount();
+		filter("item");
+		assertEquals(1, dialog.fullSearches);
+		assertEquals(matched, dialog.getMatchCount());
+		assertResult("item");
+
+		// narrows the smaller result of "item1"
+		matched = dialog.getMatchCount();
+		filter("item19");
+		assertEquals(1, dialog.fullSearches);
+		assertEquals(matched + ITEM_COUNT / 2, dialog.getMatchCount());
+		assertResult("item19");
+
+		filter("other");
+		assertEquals(2, dialog.fullSearches);
+		assertResult("other");
+	}
+
+	public void testConcurrentFiltering() throws Exception {
+		dialog.concurrent = true;
+		filter("item");
+		assertEquals(1, dialog.fullSearches);
+
+		int matched = dialog.getMatchCount();
+		filter("item1");
+		assertEquals(1, dialog.fullSearches);
+		// each cached item is matched once
+		assertEquals(matched + ITEM_COUNT, dialog.getMatchCount());
+		assertResult("item1");
+	}
+
+	public void testNotConcurrentFiltering() throws Exception {
+		dialog.concurrent = false;
+		filter("item");
+		dialog.matchingThreads.clear();
+		filter("item1");
+		assertEquals(1, dialog.fullSearches);
+		assertResult("item1");
+		// only the filter job matches the items
+		assertEquals(1, dialog.matchingThreads.size());
+	}
+
+	private void filter(String pattern) throws Exception {
+		((Text) dialog.getPatternControl()).setText(pattern);
+		waitForFilter();
+	}
+
+	/**
+	 * Waits until the filtering and the refresh of the list are done. Each
+	 * job is scheduled before the previous one is done, so they are checked
+	 * in the order they run.
+	 */
+	private void waitForFilter() throws Exception {
+		Object refreshCacheJob = getField(dialog,
+				FilteredItemsSelectionDialog.class, "refreshCacheJob");
+		Job[] jobs = new Job[] {
+				(Job) getField(dialog, FilteredItemsSelectionDialog.class,
+						"filterHistoryJob"),
+				(Job) getField(dialog, FilteredItemsSelectionDialog.class,
+						"filterJob"),
+				(Job) refreshCacheJob,
+				(Job) getField(refreshCacheJob, refreshCacheJob.getClass(),
+						"refreshJob") };
+		long start = System.currentTimeMillis();
+		while (System.currentTimeMillis() - start < TIMEOUT) {
+			processEvents();
+			boolean done = true;
+			for (int i = 0; done && i < jobs.length; i++) {
+				done = jobs[i].getState() == Job.NONE;
+			}
+			if (done) {
+				return;
+			}
+			Thread.sleep(10);
+		}
+		fail("the filtering is not done");
+	}
+
+	/**
+	 * Checks that the content provider holds the items starting with the
+	 * given prefix, sorted.
+	 */
+	private void assertResult(String prefix) throws Exception {
+		List expected = new ArrayList();
+		for (int i = 0; i < dialog.items.length; i++) {
+			if (dialog.items[i].startsWith(prefix)) {
+				expected.add(dialog.items[i]);
+			}
+		}
+		Object contentProvider = getField(dialog,
+				FilteredItemsSelectionDialog.class, "contentProvider");
+		Method getSortedItems = contentProvider.getClass().getDeclaredMethod(
+				"getSortedItems", new Class[0]);
+		getSortedItems.setAccessible(true);
+		Object[] actual = (Object[]) getSortedItems.invoke(contentProvider,
+				new Object[0]);
+		assertEquals(expected, Arrays.asList(actual));
+	}
+
+	private static Object getField(Object target, Class type, String name)
+			throws Exception {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(target);
+	}
+
+	/**
+	 * A dialog on a fixed list of items, counting the searches and the
+	 * matched items.
+	 */
+	private static class TestDialog extends FilteredItemsSelectionDialog {
+
+		final String[] items = new String[ITEM_COUNT];
+
+		final Set matchingThreads = Collections.synchronizedSet(new HashSet());
+
+		volatile boolean concurrent;
+
+		volatile int fullSearches;
+
+		private int matchCount;
+
+		private final IDialogSettings settings = new DialogSettings(
+				"FilteredItemsSelectionDialogTest");
+
+		TestDialog(Shell shell) {
+			super(shell);
+			for (int i = 0; i < items.length; i++) {
+				String number = String.valueOf(i);
+				items[i] = "item00000".substring(0, 9 - number.length())
+						+ number;
+			}
+		}
+
+		synchronized int getMatchCount() {
+			return matchCount;
+		}
+
+		synchronized void matched() {
+			matchCount++;
+		}
+
+		protected Control createExtendedContentArea(Composite parent) {
+			return null;
+		}
+
+		protected IDialogSettings getDialogSettings() {
+			return settings;
+		}
+
+		protected IStatus validateItem(Object item) {
+			return Status.OK_STATUS;
+		}
+
+		protected ItemsFilter createFilter() {
+			return new ItemsFilter() {
+				public boolean matchItem(Object item) {
+					matched();
+					matchingThreads.add(Thread.currentThread());
+					return matches((String) item);
+				}
+
+				public boolean isConsistentItem(Object item) {
+					return true;
+				}
+
+				public boolean isConcurrent() {
+					return concurrent;
+				}
+			};
+		}
+
+		protected Comparator getItemsComparator() {
+			return new Comparator() {
+				public int compare(Object o1, Object o2) {
+					return ((String) o1).compareTo((String) o2);
+				}
+			};
+		}
+
+		protected void fillContentProvider(
+				AbstractContentProvider contentProvider,
+				ItemsFilter itemsFilter, IProgressMonitor progressMonitor) {
+			fullSearches++;
+			for (int i = 0; i < items.length; i++) {
+				contentProvider.add(items[i], itemsFilter);
+			}
+		}
+
+		public String getElementName(Object item) {
+			return (String) item;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -47,6 +47,24 @@ public class UIFilteredResourcesSelectionDialogAuto extends
 		closeDialog(dialog);
 	}
 	
+	/**
+	 * Checks that only the resource filter itself is matched concurrently,
+	 * and not its subclasses.
+	 * 
+	 * @throws Exception
+	 */
+	public void testResourceFilterIsConcurrent() throws Exception {
+
+		final MockedFilteredResourcesSelectionDialog dialog = createDialog();
+
+		dialog.open();
+
+		assertTrue(dialog.createResourceFilter().isConcurrent());
+		assertFalse(dialog.createResourceSubFilter().isConcurrent());
+
+		closeDialog(dialog);
+	}
+
 	private static MockedFilteredResourcesSelectionDialog createDialog() {
 		final IWorkbenchWindow window = PlatformUI.getWorkbench()
 				.getActiveWorkbenchWindow();
@@ -92,6 +110,18 @@ public class UIFilteredResourcesSelectionDialogAuto extends
 			return getSelectionHistory().getHistoryItems();
 		}
 
+		public ItemsFilter createResourceFilter() {
+			return createFilter();
+		}
+
+		public ItemsFilter createResourceSubFilter() {
+			return new ResourceFilter() {
+				public boolean matchItem(Object item) {
+					return super.matchItem(item);
+				}
+			};
+		}
+
 	}
 
 }
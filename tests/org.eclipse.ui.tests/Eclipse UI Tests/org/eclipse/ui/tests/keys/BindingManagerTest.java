@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -743,6 +743,100 @@ public final class BindingManagerTest extends UITestCase {
 
 	}
 	
+	/**
+	 * Tests that activating and deactivating a context updates the bindings of
+	 * that context, including the prefix table and the conflicts, while the
+	 * bindings of the other contexts are kept.
+	 * 
+	 * @throws NotDefinedException
+	 *             If the scheme we try to activate is not defined.
+	 * @throws ParseException
+	 *             If the hard-coded strings aren't constructed properly.
+	 */
+	public final void testContextChange() throws NotDefinedException,
+			ParseException {
+		// GENERAL SET-UP
+		final Context parentContext = contextManager.getContext("parent");
+		parentContext.define("parent", "parent context", null);
+		final Context childContext = contextManager.getContext("child");
+		childContext.define("child", "child context", "parent");
+		final Context otherContext = contextManager.getContext("other");
+		otherContext.define("other", "other context", null);
+		final Scheme scheme = bindingManager.getScheme("na");
+		scheme.define("name", "description", null);
+		bindingManager.setActiveScheme(scheme);
+
+		final KeySequence parentSequence = KeySequence.getInstance("CTRL+1");
+		final Binding parentBinding = createBinding(parentSequence, "parent1",
+				"parent");
+		final KeySequence overridden = KeySequence.getInstance("CTRL+F");
+		final Binding parentOverriddenBinding = createBinding(overridden,
+				"parentF", "parent");
+		final Binding childOverriddenBinding = createBinding(overridden,
+				"childF", "child");
+		final KeySequence prefix = KeySequence.getInstance("CTRL+G");
+		final KeySequence partialMatch = KeySequence
+				.getInstance("CTRL+G CTRL+H");
+		final Binding partialMatchBinding = createBinding(partialMatch,
+				"childGH", "child");
+		final KeySequence conflict = KeySequence.getInstance("CTRL+K");
+		final Binding[] bindings = new Binding[] {
+				parentBinding,
+				createBinding(KeySequence.getInstance("CTRL+2"), "parent2",
+						"parent"),
+				createBinding(KeySequence.getInstance("CTRL+3"), "parent3",
+						"parent"),
+				createBinding(KeySequence.getInstance("CTRL+4"), "parent4",
+						"parent"), parentOverriddenBinding,
+				childOverriddenBinding, partialMatchBinding,
+				createBinding(conflict, "childK1", "child"),
+				createBinding(conflict, "childK2", "child") };
+		bindingManager.setBindings(bindings);
+		final Set activeContextIds = new HashSet();
+		activeContextIds.add("parent");
+		contextManager.setActiveContextIds(activeContextIds);
+		assertSame(parentOverriddenBinding, bindingManager
+				.getPerfectMatch(overridden));
+		assertFalse(bindingManager.isPartialMatch(prefix));
+		assertTrue(bindingManager.getCurrentConflicts().isEmpty());
+
+		// ACTIVATE THE CHILD
+		activeContextIds.add("child");
+		contextManager.setActiveContextIds(activeContextIds);
+		assertSame(parentBinding, bindingManager
+				.getPerfectMatch(parentSequence));
+		assertSame(childOverriddenBinding, bindingManager
+				.getPerfectMatch(overridden));
+		assertEquals(0, bindingManager.getActiveBindingsFor(
+				parentOverriddenBinding.getParameterizedCommand()).length);
+		assertTrue(bindingManager.isPartialMatch(prefix));
+		assertSame(partialMatchBinding, bindingManager.getPartialMatches(
+				prefix).get(partialMatch));
+		assertNull(bindingManager.getPerfectMatch(conflict));
+		assertEquals(2, bindingManager.getConflictsFor(conflict).size());
+
+		// DEACTIVATE THE CHILD
+		activeContextIds.remove("child");
+		activeContextIds.add("other");
+		contextManager.setActiveContextIds(activeContextIds);
+		assertSame(parentBinding, bindingManager
+				.getPerfectMatch(parentSequence));
+		assertSame(parentOverriddenBinding, bindingManager
+				.getPerfectMatch(overridden));
+		assertEquals(0, bindingManager.getActiveBindingsFor(
+				childOverriddenBinding.getParameterizedCommand()).length);
+		assertFalse(bindingManager.isPartialMatch(prefix));
+		assertFalse(bindingManager.isPerfectMatch(partialMatch));
+		assertTrue(bindingManager.getCurrentConflicts().isEmpty());
+	}
+
+	private Binding createBinding(final KeySequence keySequence,
+			final String commandId, final String contextId) {
+		return new KeyBinding(keySequence, new ParameterizedCommand(
+				commandManager.getCommand(commandId), null), "na", contextId,
+				null, null, null, Binding.SYSTEM);
+	}
+
 	/**
 	 * Verifies that you can set the bindings to null. Verifies that setting the
 	 * bindings clears the cache.
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.internal.views.markers.CachedMarkerBuilder;
+import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
+import org.eclipse.ui.internal.views.markers.MarkerContentGenerator;
+import org.eclipse.ui.tests.harness.util.FileUtil;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Checks that applying marker changes incrementally to the sorted markers
+ * gives the markers and categories of a full update.
+ */
+public class IncrementalMarkerUpdateTest extends UITestCase {
+
+	private static final String MARKERS_PACKAGE = "org.eclipse.ui.internal.views.markers.";
+
+	private IProject project;
+
+	private IFile file;
+
+	private List markers = new ArrayList();
+
+	private CachedMarkerBuilder builder;
+
+	private MarkerContentGenerator generator;
+
+	private Class markersClass;
+
+	private Constructor newEntry;
+
+	public IncrementalMarkerUpdateTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		project = FileUtil.createProject("incremental");
+		file = FileUtil.createFile("file.txt", project);
+		for (int i = 0; i < 60; i++) {
+			markers.add(createMarker(i % 3, "problem " + i));
+		}
+
+		IWorkbenchPage page = openTestWindow().getActivePage();
+		ExtendedMarkersView view = (ExtendedMarkersView) page
+				.showView("org.eclipse.ui.tests.markerTests");
+		Field field = ExtendedMarkersView.class.getDeclaredField("builder");
+		field.setAccessible(true);
+		builder = (CachedMarkerBuilder) field.get(view);
+		field = ExtendedMarkersView.class.getDeclaredField("generator");
+		field.setAccessible(true);
+		generator = (MarkerContentGenerator) field.get(view);
+
+		ClassLoader loader = MarkerContentGenerator.class.getClassLoader();
+		markersClass = loader.loadClass(MARKERS_PACKAGE + "Markers");
+		newEntry = loader.loadClass(MARKERS_PACKAGE + "MarkerEntry")
+				.getConstructor(new Class[] { IMarker.class });
+		newEntry.setAccessible(true);
+	}
+
+	protected void doTearDown() throws Exception {
+		FileUtil.deleteProject(project);
+		markers.clear();
+		super.doTearDown();
+	}
+
+	public void testAddRemoveAndChange() throws Exception {
+		Object incremental = newMarkers(markers);
+
+		Set changed = new HashSet();
+		List newEntries = new ArrayList();
+		for (int i = 0; i < 5; i++) {
+			IMarker marker = (IMarker) markers.remove(i * 7);
+			changed.add(marker);
+		}
+		for (int i = 0; i < 4; i++) {
+			IMarker marker = createMarker(i % 3, "added " + i);
+			markers.add(marker);
+			changed.add(marker);
+			newEntries.add(newEntry.newInstance(new Object[] { marker }));
+		}
+		for (int i = 0; i < 3; i++) {
+			IMarker marker = (IMarker) markers.get(i * 11);
+			marker.setAttribute(IMarker.MESSAGE, "changed " + i);
+			changed.add(marker);
+			newEntries.add(newEntry.newInstance(new Object[] { marker }));
+		}
+
+		Collection changedItems = updateIncrementally(incremental, changed,
+				newEntries);
+		assertNotNull(changedItems);
+		assertTrue(changedItems.containsAll(newEntries));
+		assertSameMarkers(newMarkers(markers), incremental);
+	}
+
+	public void testCategoryBecomesEmpty() throws Exception {
+		Object incremental = newMarkers(markers);
+		Object[] before = getEntries(incremental);
+
+		Set changed = new HashSet();
+		for (Iterator iterator = markers.iterator(); iterator.hasNext();) {
+			IMarker marker = (IMarker) iterator.next();
+			if (marker.getAttribute(IMarker.SEVERITY, -1) == IMarker.SEVERITY_INFO) {
+				changed.add(marker);
+			}
+		}
+		Collection changedItems = updateIncrementally(incremental, changed,
+				new ArrayList());
+		if (getCategories(incremental).length > 0) {
+			assertNull("a full update is needed", changedItems);
+			// nothing is changed
+			Object[] after = getEntries(incremental);
+			assertEquals(before.length, after.length);
+			for (int i = 0; i < before.length; i++) {
+				assertSame(before[i], after[i]);
+			}
+		} else {
+			assertNotNull(changedItems);
+		}
+	}
+
+	public void testAllRemoved() throws Exception {
+		Object incremental = newMarkers(markers);
+		Collection changedItems = updateIncrementally(incremental,
+				new HashSet(markers), new ArrayList());
+		assertNull("a full update is needed", changedItems);
+	}
+
+	private IMarker createMarker(int severity, String message)
+			throws Exception {
+		IMarker marker = file.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		marker.setAttribute(IMarker.MESSAGE, message);
+		return marker;
+	}
+
+	/**
+	 * Create markers of the view sorted and grouped by a full update.
+	 */
+	private Object newMarkers(Collection markersToShow) throws Exception {
+		Constructor constructor = markersClass
+				.getDeclaredConstructor(new Class[] { CachedMarkerBuilder.class });
+		constructor.setAccessible(true);
+		Object result = constructor.newInstance(new Object[] { builder });
+		List entries = new ArrayList();
+		for (Iterator iterator = markersToShow.iterator(); iterator.hasNext();) {
+			entries.add(newEntry.newInstance(new Object[] { iterator.next() }));
+		}
+		invoke(result, "updateWithNewMarkers", new Class[] { Collection.class,
+				boolean.class, org.eclipse.core.runtime.IProgressMonitor.class },
+				new Object[] { entries, Boolean.TRUE, new NullProgressMonitor() });
+		return result;
+	}
+
+	private Collection updateIncrementally(Object target, Set changed,
+			Collection newEntries) throws Exception {
+		return (Collection) invoke(target, "updateIncrementally", new Class[] {
+				Set.class, Collection.class }, new Object[] { changed,
+				newEntries });
+	}
+
+	/**
+	 * Check that both have the same categories with the same markers, and the
+	 * same sorted markers up to the marker limit.
+	 */
+	private void assertSameMarkers(Object expected, Object actual)
+			throws Exception {
+		int[][] expectedRanges = getRanges(expected);
+		int[][] actualRanges = getRanges(actual);
+		assertEquals(expectedRanges.length, actualRanges.length);
+		Object[] expectedEntries = getEntries(expected);
+		Object[] actualEntries = getEntries(actual);
+		assertEquals(expectedEntries.length, actualEntries.length);
+
+		int limit = generator.isMarkerLimitsEnabled() ? generator
+				.getMarkerLimits() : 0;
+		for (int i = 0; i < expectedRanges.length; i++) {
+			int start = expectedRanges[i][0];
+			int end = expectedRanges[i][1];
+			assertEquals(start, actualRanges[i][0]);
+			assertEquals(end, actualRanges[i][1]);
+			int size = end - start + 1;
+			int sorted = limit <= 0 || size < limit ? size : limit;
+			Set expectedMarkers = new HashSet();
+			Set actualMarkers = new HashSet();
+			for (int j = start; j <= end; j++) {
+				IMarker expectedMarker = getMarker(expectedEntries[j]);
+				IMarker actualMarker = getMarker(actualEntries[j]);
+				if (j - start < sorted) {
+					assertEquals(expectedMarker, actualMarker);
+				}
+				expectedMarkers.add(expectedMarker);
+				actualMarkers.add(actualMarker);
+			}
+			assertEquals(expectedMarkers, actualMarkers);
+		}
+	}
+
+	private int[][] getRanges(Object target) throws Exception {
+		Object[] categories = getCategories(target);
+		if (categories.length == 0) {
+			return new int[][] { { 0, getEntries(target).length - 1 } };
+		}
+		int[][] ranges = new int[categories.length][];
+		for (int i = 0; i < categories.length; i++) {
+			Class categoryClass = categories[i].getClass();
+			Field start = categoryClass.getDeclaredField("start");
+			Field end = categoryClass.getDeclaredField("end");
+			start.setAccessible(true);
+			end.setAccessible(true);
+			ranges[i] = new int[] { start.getInt(categories[i]),
+					end.getInt(categories[i]) };
+		}
+		return ranges;
+	}
+
+	private Object[] getCategories(Object target) throws Exception {
+		return (Object[]) invoke(target, "getCategories", new Class[0],
+				new Object[0]);
+	}
+
+	private Object[] getEntries(Object target) throws Exception {
+		return (Object[]) invoke(target, "getMarkerEntryArray", new Class[0],
+				new Object[0]);
+	}
+
+	private IMarker getMarker(Object entry) throws Exception {
+		return (IMarker) invoke(entry, "getMarker", new Class[0],
+				new Object[0]);
+	}
+
+	private Object invoke(Object target, String name, Class[] types,
+			Object[] args) throws Exception {
+		Method method = findMethod(target.getClass(), name, types);
+		method.setAccessible(true);
+		return method.invoke(target, args);
+	}
+
+	private Method findMethod(Class type, String name, Class[] types)
+			throws NoSuchMethodException {
+		for (Class current = type; current != null; current = current
+				.getSuperclass()) {
+			try {
+				return current.getDeclaredMethod(name, types);
+			} catch (NoSuchMethodException e) {
+				// look in the superclass
+			}
+		}
+		throw new NoSuchMethodException(name);
+	}
+}
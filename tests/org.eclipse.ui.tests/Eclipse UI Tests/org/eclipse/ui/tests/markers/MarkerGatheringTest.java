@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
+import org.eclipse.ui.internal.views.markers.MarkerContentGenerator;
+import org.eclipse.ui.tests.harness.util.FileUtil;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Checks that gathering markers in partitions, one per type and project,
+ * finds the same markers as gathering them in a single pass on the workspace.
+ */
+public class MarkerGatheringTest extends UITestCase {
+
+	private static final int PROJECT_COUNT = 5;
+
+	private List projects = new ArrayList();
+
+	private MarkerContentGenerator generator;
+
+	public MarkerGatheringTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (int i = 0; i < PROJECT_COUNT; i++) {
+			IProject project = FileUtil.createProject("gathering" + i);
+			projects.add(project);
+			IFile file = FileUtil.createFile("file" + i + ".txt", project);
+			for (int j = 0; j <= i * 10; j++) {
+				IMarker marker = file.createMarker(IMarker.PROBLEM);
+				marker.setAttribute(IMarker.SEVERITY, j % 3);
+				marker.setAttribute(IMarker.MESSAGE, "problem " + j);
+				project.createMarker(IMarker.TASK).setAttribute(
+						IMarker.MESSAGE, "task " + j);
+			}
+		}
+		// a closed project has no partition to gather
+		((IProject) projects.get(1)).close(null);
+		root.createMarker(IMarker.PROBLEM);
+
+		IWorkbenchPage page = openTestWindow().getActivePage();
+		MarkersTestMarkersView view = (MarkersTestMarkersView) page
+				.showView("org.eclipse.ui.tests.markerTests");
+		Field field = ExtendedMarkersView.class.getDeclaredField("generator");
+		field.setAccessible(true);
+		generator = (MarkerContentGenerator) field.get(view);
+	}
+
+	protected void doTearDown() throws Exception {
+		ResourcesPlugin.getWorkspace().getRoot().deleteMarkers(null, true,
+				IResource.DEPTH_ZERO);
+		for (Iterator iterator = projects.iterator(); iterator.hasNext();) {
+			FileUtil.deleteProject((IProject) iterator.next());
+		}
+		projects.clear();
+		super.doTearDown();
+	}
+
+	public void testProblems() throws Exception {
+		assertSameMarkers(new String[] { IMarker.PROBLEM }, true);
+	}
+
+	public void testProblemsAndTasks() throws Exception {
+		assertSameMarkers(new String[] { IMarker.PROBLEM, IMarker.TASK },
+				false);
+	}
+
+	private void assertSameMarkers(String[] typeIds, boolean includeSubTypes)
+			throws Exception {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Collection entries = new ArrayList();
+		Method gather = MarkerContentGenerator.class.getDeclaredMethod(
+				"internalGatherMarkers", new Class[] { Collection.class,
+						String[].class, boolean.class, Collection.class,
+						org.eclipse.core.runtime.IProgressMonitor.class });
+		gather.setAccessible(true);
+		Boolean completed = (Boolean) gather.invoke(generator, new Object[] {
+				Collections.singleton(root), typeIds,
+				Boolean.valueOf(includeSubTypes), entries,
+				new NullProgressMonitor() });
+		assertTrue(completed.booleanValue());
+
+		Set partitioned = new HashSet();
+		for (Iterator iterator = entries.iterator(); iterator.hasNext();) {
+			IMarker marker = (IMarker) Platform.getAdapterManager().getAdapter(
+					iterator.next(), IMarker.class);
+			assertTrue("marker gathered twice", partitioned.add(marker));
+		}
+
+		// what the single pass gathering used to find
+		Class entryClass = MarkerContentGenerator.class.getClassLoader()
+				.loadClass("org.eclipse.ui.internal.views.markers.MarkerEntry");
+		Constructor newEntry = entryClass
+				.getConstructor(new Class[] { IMarker.class });
+		newEntry.setAccessible(true);
+		Method select = MarkerContentGenerator.class.getDeclaredMethod(
+				"select", new Class[] { entryClass });
+		select.setAccessible(true);
+		Set singlePass = new HashSet();
+		for (int i = 0; i < typeIds.length; i++) {
+			IMarker[] markers = root.findMarkers(typeIds[i], includeSubTypes,
+					IResource.DEPTH_INFINITE);
+			for (int j = 0; j < markers.length; j++) {
+				Object entry = newEntry.newInstance(new Object[] { markers[j] });
+				if (((Boolean) select.invoke(generator, new Object[] { entry }))
+						.booleanValue()) {
+					singlePass.add(markers[j]);
+				}
+			}
+		}
+
+		assertFalse(singlePass.isEmpty());
+		assertEquals(singlePass, partitioned);
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.ui.internal.views.markers.MarkerSortUtil;
+import org.eclipse.ui.internal.views.markers.MockMarkerEntry;
+import org.eclipse.ui.internal.views.markers.SortedMarkerRange;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests for the incremental removals and insertions of a
+ * {@link SortedMarkerRange}, checked against a complete sort.
+ */
+public class SortedMarkerRangeTest extends UITestCase {
+
+	private static final Comparator COMPARATOR = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			return ((MockMarkerEntry) o1).name
+					.compareTo(((MockMarkerEntry) o2).name);
+		}
+	};
+
+	private int nextId;
+
+	public SortedMarkerRangeTest(String testName) {
+		super(testName);
+	}
+
+	public void testInsertIntoSortedPart() {
+		MockMarkerEntry[] array = generateArray(40);
+		SortedMarkerRange range = newRange(array, 10);
+		range.insert(newEntry("a"), COMPARATOR);
+		range.insert(newEntry("~"), COMPARATOR);
+		assertEquals(11, range.getSortedCount());
+		assertTrue(range.completeSortedPart(COMPARATOR));
+		assertEquals(11, range.getSortedCount());
+		assertSortedPrefix(range, 11);
+		// the greatest entry stays in the unsorted part
+		assertEquals("~", ((MockMarkerEntry) range.getEntries().get(
+				range.getEntries().size() - 1)).name);
+	}
+
+	public void testRemoveAndComplete() {
+		MockMarkerEntry[] array = generateArray(40);
+		SortedMarkerRange range = newRange(array, 10);
+		Set removed = new HashSet();
+		for (int i = 0; i < 40; i += 3) {
+			removed.add(array[i].getMarker());
+		}
+		assertTrue(range.remove(removed));
+		assertFalse(range.remove(removed));
+		assertEquals(40 - removed.size(), range.getEntries().size());
+		assertTrue(range.getSortedCount() < 10);
+
+		assertTrue(range.completeSortedPart(COMPARATOR));
+		assertEquals(10, range.getSortedCount());
+		assertSortedPrefix(range, 10);
+	}
+
+	public void testWithoutLimit() {
+		MockMarkerEntry[] array = generateArray(30);
+		SortedMarkerRange range = newRange(array, 0);
+		assertEquals(30, range.getSortedCount());
+		range.remove(Collections.singleton(array[5].getMarker()));
+		range.insert(newEntry("m"), COMPARATOR);
+		range.insert(newEntry("~"), COMPARATOR);
+		assertEquals(31, range.getSortedCount());
+		assertTrue(range.completeSortedPart(COMPARATOR));
+		assertSortedPrefix(range, 31);
+	}
+
+	public void testTooManyMoves() {
+		MockMarkerEntry[] array = generateArray(100);
+		SortedMarkerRange range = newRange(array, 50);
+		Set removed = new HashSet();
+		for (int i = 0; i < 20; i++) {
+			removed.add(array[i].getMarker());
+		}
+		range.remove(removed);
+		assertFalse(range.completeSortedPart(COMPARATOR));
+	}
+
+	public void testEmptyRange() {
+		MockMarkerEntry[] array = generateArray(5);
+		SortedMarkerRange range = newRange(array, 10);
+		Set removed = new HashSet();
+		for (int i = 0; i < array.length; i++) {
+			removed.add(array[i].getMarker());
+		}
+		assertTrue(range.remove(removed));
+		assertTrue(range.getEntries().isEmpty());
+		assertEquals(0, range.getSortedCount());
+		assertFalse(range.completeSortedPart(COMPARATOR));
+	}
+
+	/**
+	 * Create a range of the entries sorted up to the limit, as left by a full
+	 * update.
+	 */
+	private SortedMarkerRange newRange(MockMarkerEntry[] array, int limit) {
+		int sortLimit = limit <= 0 || limit > array.length ? array.length
+				: limit;
+		MarkerSortUtil.sortStartingKElement(array, COMPARATOR, 0,
+				array.length - 1, sortLimit);
+		return new SortedMarkerRange(array, 0, array.length - 1, limit);
+	}
+
+	private void assertSortedPrefix(SortedMarkerRange range, int count) {
+		List expected = new ArrayList(range.getEntries());
+		Collections.sort(expected, COMPARATOR);
+		for (int i = 0; i < count; i++) {
+			assertEquals(((MockMarkerEntry) expected.get(i)).name,
+					((MockMarkerEntry) range.getEntries().get(i)).name);
+		}
+	}
+
+	private MockMarkerEntry[] generateArray(int size) {
+		MockMarkerEntry[] array = new MockMarkerEntry[size];
+		for (int i = 0; i < size; i++) {
+			// distinct names in no particular order
+			array[i] = newEntry("b" + ((i * 7919) % 1000 + 1000));
+		}
+		Collections.shuffle(Arrays.asList(array));
+		return array;
+	}
+
+	private MockMarkerEntry newEntry(String name) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		// marker handles are enough to identify the removed entries
+		return new MockMarkerEntry(name, root.getMarker(nextId++));
+	}
+}
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.progress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.IChildrenCollector;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.progress.DeferredTreeContentManager;
+import org.eclipse.ui.progress.IDeferredWorkbenchAdapter;
+import org.eclipse.ui.progress.IElementCollector;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests the children that a {@link DeferredTreeContentManager} fetches for
+ * the collector of a viewer: chunk delivery, completion, cancellation and
+ * several fetches of the same element.
+ */
+public class DeferredTreeContentManagerTest extends UITestCase {
+
+	private static final long TIMEOUT = 10000;
+
+	private Shell shell;
+
+	private DeferredTreeContentManager manager;
+
+	public DeferredTreeContentManagerTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		shell = new Shell(Display.getCurrent());
+		manager = new DeferredTreeContentManager(new TreeViewer(shell));
+	}
+
+	protected void doTearDown() throws Exception {
+		shell.dispose();
+		super.doTearDown();
+	}
+
+	public void testNotDeferred() {
+		Collector collector = new Collector();
+		assertFalse(manager.fetchChildren("plain", collector));
+		assertFalse(collector.done);
+	}
+
+	public void testChunksAndDone() {
+		DeferredElement element = new DeferredElement(new Object[][] {
+				{ "a", "b" }, { "c" } });
+		Collector collector = new Collector();
+		assertTrue(manager.fetchChildren(element, collector));
+
+		element.release();
+		collector.waitForChildren(2);
+		assertEquals(Arrays.asList(new Object[] { "a", "b" }), collector
+				.getChildren());
+		assertFalse(collector.done);
+
+		element.release();
+		collector.waitForDone();
+		assertEquals(Arrays.asList(new Object[] { "a", "b", "c" }), collector
+				.getChildren());
+		assertEquals(2, collector.getChunkCount());
+	}
+
+	public void testCancel() {
+		DeferredElement element = new DeferredElement(new Object[][] {
+				{ "a" }, { "b" }, { "c" } });
+		Collector collector = new Collector();
+		assertTrue(manager.fetchChildren(element, collector));
+		element.release();
+		collector.waitForChildren(1);
+
+		// the job stops at its next check of the monitor
+		collector.canceled = true;
+		collector.waitForDone();
+		element.release();
+		element.release();
+		assertEquals(Arrays.asList(new Object[] { "a" }), collector
+				.getChildren());
+	}
+
+	public void testSameElementTwice() {
+		DeferredElement element = new DeferredElement(new Object[][] {
+				{ "a" }, { "b" } });
+		Collector first = new Collector();
+		Collector second = new Collector();
+		assertTrue(manager.fetchChildren(element, first));
+		assertTrue(manager.fetchChildren(element, second));
+
+		// canceling one fetch leaves the other running
+		first.canceled = true;
+		first.waitForDone();
+		element.release();
+		element.release();
+		second.waitForDone();
+		assertEquals(Arrays.asList(new Object[] { "a", "b" }), second
+				.getChildren());
+		assertTrue(first.getChildren().isEmpty());
+	}
+
+	/**
+	 * Waits until the condition of the collector is met, running the event
+	 * loop meanwhile.
+	 */
+	private static void waitFor(Collector collector, int childCount,
+			boolean done) {
+		long start = System.currentTimeMillis();
+		while (System.currentTimeMillis() - start < TIMEOUT) {
+			if (done ? collector.done
+					: collector.getChildren().size() >= childCount) {
+				return;
+			}
+			Display display = Display.getCurrent();
+			while (display.readAndDispatch()) {
+				// process the pending events
+			}
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		fail(done ? "the fetch is not done" : "the children are not added");
+	}
+
+	/**
+	 * The collector of a viewer, recording the chunks it is given.
+	 */
+	private static class Collector implements IChildrenCollector {
+		private final List children = new ArrayList();
+
+		private int chunkCount;
+
+		volatile boolean done;
+
+		volatile boolean canceled;
+
+		public synchronized void add(Object[] newChildren) {
+			children.addAll(Arrays.asList(newChildren));
+			chunkCount++;
+		}
+
+		public void done() {
+			done = true;
+		}
+
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		synchronized List getChildren() {
+			return new ArrayList(children);
+		}
+
+		synchronized int getChunkCount() {
+			return chunkCount;
+		}
+
+		void waitForChildren(int count) {
+			waitFor(this, count, false);
+		}
+
+		void waitForDone() {
+			waitFor(this, 0, true);
+		}
+	}
+
+	/**
+	 * An element whose chunks of children are each fetched once the test
+	 * releases them.
+	 */
+	private static class DeferredElement implements IDeferredWorkbenchAdapter {
+		private final Object[][] chunks;
+
+		private int released;
+
+		DeferredElement(Object[][] chunks) {
+			this.chunks = chunks;
+		}
+
+		synchronized void release() {
+			released++;
+			notifyAll();
+		}
+
+		public void fetchDeferredChildren(Object object,
+				IElementCollector collector, IProgressMonitor monitor) {
+			for (int i = 0; i < chunks.length; i++) {
+				if (!waitForRelease(i, monitor)) {
+					return;
+				}
+				collector.add(chunks[i], monitor);
+			}
+			collector.done();
+		}
+
+		private synchronized boolean waitForRelease(int chunk,
+				IProgressMonitor monitor) {
+			while (released <= chunk) {
+				if (monitor.isCanceled()) {
+					return false;
+				}
+				try {
+					wait(10);
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+			return !monitor.isCanceled();
+		}
+
+		public boolean isContainer() {
+			return true;
+		}
+
+		public ISchedulingRule getRule(Object object) {
+			return null;
+		}
+
+		public Object[] getChildren(Object o) {
+			return new Object[0];
+		}
+
+		public ImageDescriptor getImageDescriptor(Object object) {
+			return null;
+		}
+
+		public String getLabel(Object o) {
+			return "deferred";
+		}
+
+		public Object getParent(Object o) {
+			return null;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,5 +35,6 @@ public class ProgressTestSuite extends TestSuite {
 		addTest(new TestSuite(ProgressViewTests.class));
 		addTest(new TestSuite(JobInfoTest.class));
 		addTest(new TestSuite(JobInfoTestOrdering.class));
+		addTest(new TestSuite(DeferredTreeContentManagerTest.class));
 	}
 }
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.quickaccess;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.internal.quickaccess.QuickAccessElement;
+import org.eclipse.ui.internal.quickaccess.QuickAccessProvider;
+
+/**
+ * Checks that the candidates of the quick access index include every element
+ * matched by {@link QuickAccessElement#match(String, QuickAccessProvider)}.
+ */
+public class QuickAccessIndexTest extends TestCase {
+
+	private static final long TIMEOUT = 10000;
+
+	private static final String[] WORDS = { "Open", "Show", "Toggle", "Run",
+			"Debug", "Resource", "View", "Perspective", "Java", "Console",
+			"Search", "File", "Quick", "Access", "Build", "Project" };
+
+	private Object index;
+
+	private Method candidatesMethod;
+
+	private TestProvider provider;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Class indexClass = QuickAccessProvider.class.getClassLoader()
+				.loadClass("org.eclipse.ui.internal.quickaccess.QuickAccessIndex");
+		Constructor constructor = indexClass.getDeclaredConstructor(new Class[0]);
+		constructor.setAccessible(true);
+		index = constructor.newInstance(new Object[0]);
+		candidatesMethod = indexClass.getDeclaredMethod("getCandidates",
+				new Class[] { QuickAccessProvider.class,
+						QuickAccessElement[].class, String.class });
+		candidatesMethod.setAccessible(true);
+		provider = new TestProvider();
+		waitForIndex();
+	}
+
+	public void testLabelFilters() throws Exception {
+		assertCandidates(new String[] { "op", "open", "show v", "ew co",
+				"console", "java per", "debug 12", "e 1", "zzz" });
+	}
+
+	public void testProviderPrefixedFilters() throws Exception {
+		assertCandidates(new String[] { "test provider", "test provider op",
+				"provider sh", "er run", "r j", "vider java" });
+	}
+
+	public void testCamelCaseFilters() throws Exception {
+		assertCandidates(new String[] { "os", "sop", "sr", "tp", "tpo",
+				"tps", "tpjp", "pjp", "vq" });
+	}
+
+	public void testCrossBoundaryFilters() throws Exception {
+		// across the words of the label and the end of the provider name
+		assertCandidates(new String[] { "nshow", "wrun ", "der o", "r debug",
+				"oggledebu", "pen", "n s" });
+	}
+
+	public void testSelectiveFilterNarrowsCandidates() throws Exception {
+		int[] candidates = getCandidates("consolesearch");
+		assertNotNull(candidates);
+		assertTrue(candidates.length < provider.getElementsSorted().length);
+		assertEquals(0, getCandidates("zzz").length);
+	}
+
+	public void testShortFiltersAreNotNarrowed() throws Exception {
+		assertNull(getCandidates("o"));
+	}
+
+	public void testIndexIsKeptAfterReset() throws Exception {
+		provider.reset();
+		// the same labels, the index is used at once
+		assertNotNull(getCandidates("console"));
+		assertCandidates(new String[] { "console", "tpo" });
+	}
+
+	private void assertCandidates(String[] filters) throws Exception {
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		for (int f = 0; f < filters.length; f++) {
+			String filter = filters[f];
+			int[] candidates = getCandidates(filter);
+			boolean[] isCandidate = new boolean[elements.length];
+			if (candidates == null) {
+				for (int i = 0; i < elements.length; i++) {
+					isCandidate[i] = true;
+				}
+			} else {
+				for (int i = 0; i < candidates.length; i++) {
+					if (i > 0) {
+						assertTrue(candidates[i - 1] < candidates[i]);
+					}
+					isCandidate[candidates[i]] = true;
+				}
+			}
+			for (int i = 0; i < elements.length; i++) {
+				if (elements[i].match(filter, provider) != null) {
+					assertTrue("\"" + elements[i].getLabel()
+							+ "\" matches \"" + filter
+							+ "\" but is not a candidate", isCandidate[i]);
+				}
+			}
+		}
+	}
+
+	private int[] getCandidates(String filter) throws Exception {
+		return (int[]) candidatesMethod.invoke(index, new Object[] { provider,
+				provider.getElementsSorted(), filter });
+	}
+
+	/**
+	 * Waits until the index of the provider is built in the background.
+	 */
+	private void waitForIndex() throws Exception {
+		long start = System.currentTimeMillis();
+		while (getCandidates("console") == null) {
+			assertTrue("the index is not built",
+					System.currentTimeMillis() - start < TIMEOUT);
+			Thread.sleep(10);
+		}
+	}
+
+	private static class TestProvider extends QuickAccessProvider {
+
+		public String getId() {
+			return "org.eclipse.ui.tests.quickaccess.testProvider";
+		}
+
+		public String getName() {
+			return "Test Provider";
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public QuickAccessElement[] getElements() {
+			QuickAccessElement[] elements = new QuickAccessElement[300];
+			for (int i = 0; i < elements.length; i++) {
+				String label = WORDS[i % WORDS.length]
+						+ WORDS[(i / WORDS.length) % WORDS.length] + " "
+						+ WORDS[(i * 7) % WORDS.length] + " " + i;
+				elements[i] = new TestElement(this, label);
+			}
+			return elements;
+		}
+
+		public QuickAccessElement getElementForId(String id) {
+			return null;
+		}
+
+		protected void doReset() {
+			// the elements are created again
+		}
+	}
+
+	private static class TestElement extends QuickAccessElement {
+
+		private final String label;
+
+		TestElement(QuickAccessProvider provider, String label) {
+			super(provider);
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public String getId() {
+			return label;
+		}
+
+		public void execute() {
+			// nothing to do
+		}
+	}
+}
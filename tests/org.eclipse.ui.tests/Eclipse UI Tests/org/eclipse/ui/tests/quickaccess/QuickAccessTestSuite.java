@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,6 +31,7 @@ public class QuickAccessTestSuite extends TestSuite {
      */
     public QuickAccessTestSuite() {
         addTest(new TestSuite(CamelUtilTest.class));
+        addTest(new TestSuite(QuickAccessIndexTest.class));
         addTest(new TestSuite(QuickAccessDialogTest.class));
     }
 }